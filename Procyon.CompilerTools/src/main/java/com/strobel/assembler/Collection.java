@@ -21,26 +21,76 @@ import com.strobel.core.VerifyArgument;
 
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
+ * A list which notifies subclasses of changes and may be frozen.  The backing storage is not
+ * allocated until the first element is added, as many metadata collections remain empty.  Like
+ * any list, a collection must not be changed while other threads read it, but the lazily allocated
+ * storage is published safely, so a collection which is filled and then handed to other threads
+ * behaves as if its storage had been allocated up front.
+ *
  * @author Mike Strobel
  */
 public class Collection<E> extends AbstractList<E> implements IFreezable {
-    private final ArrayList<E> _items;
+    private volatile ArrayList<E> _items;
+    private List<E> _readOnlyView;
     private boolean _isFrozen;
 
     public Collection() {
-        _items = new ArrayList<>();
+    }
+
+    /**
+     * Returns a live, read-only view of {@code collection}.  The view is allocated once and reused.
+     * <p>
+     * If {@code collection} is {@code null}, i.e., its owner has not created it yet, this returns
+     * the shared immutable empty list.  That list is not a view: it does not reflect elements added
+     * after the owner creates the collection, so callers must not hold on to it across changes.
+     */
+    public static <E> List<E> readOnly(final Collection<E> collection) {
+        if (collection == null) {
+            return Collections.emptyList();
+        }
+
+        List<E> view = collection._readOnlyView;
+
+        if (view == null) {
+            //
+            // Racing threads may each create a view; that is harmless, as the view holds
+            // only final fields and is therefore safe to publish without synchronization.
+            //
+            collection._readOnlyView = view = Collections.unmodifiableList(collection);
+        }
+
+        return view;
+    }
+
+    private ArrayList<E> items() {
+        ArrayList<E> items = _items;
+
+        if (items == null) {
+            _items = items = new ArrayList<>();
+        }
+
+        return items;
     }
 
     @Override
     public final int size() {
-        return _items.size();
+        final ArrayList<E> items = _items;
+        return items != null ? items.size() : 0;
     }
 
     @Override
     public final E get(final int index) {
-        return _items.get(index);
+        final ArrayList<E> items = _items;
+
+        if (items == null) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: 0");
+        }
+
+        return items.get(index);
     }
 
     @Override
@@ -55,7 +105,7 @@ public class Collection<E> extends AbstractList<E> implements IFreezable {
         verifyNotFrozen();
         VerifyArgument.notNull(element, "element");
         beforeSet(index, element);
-        return _items.set(index, element);
+        return items().set(index, element);
     }
 
     @Override
@@ -67,14 +117,14 @@ public class Collection<E> extends AbstractList<E> implements IFreezable {
 
     protected final void addCore(final int index, final E element) {
         final boolean append = index == size();
-        _items.add(index, element);
+        items().add(index, element);
         afterAdd(index, element, append);
     }
 
     @Override
     public final E remove(final int index) {
         verifyNotFrozen();
-        final E e = _items.remove(index);
+        final E e = items().remove(index);
         if (e != null) {
             afterRemove(index, e);
         }
@@ -85,15 +135,22 @@ public class Collection<E> extends AbstractList<E> implements IFreezable {
     public final void clear() {
         verifyNotFrozen();
         beforeClear();
-        _items.clear();
+
+        final ArrayList<E> items = _items;
+
+        if (items != null) {
+            items.clear();
+        }
     }
 
     @Override
     public final boolean remove(final Object o) {
         verifyNotFrozen();
 
+        final ArrayList<E> items = _items;
+
         @SuppressWarnings("SuspiciousMethodCalls")
-        final int index = _items.indexOf(o);
+        final int index = items != null ? items.indexOf(o) : -1;
 
         return index >= 0 &&
                remove(index) != null;
@@ -138,8 +195,10 @@ public class Collection<E> extends AbstractList<E> implements IFreezable {
     }
 
     protected void freezeCore(final boolean freezeContents) {
-        if (freezeContents) {
-            for (final E item : _items) {
+        final ArrayList<E> items = _items;
+
+        if (freezeContents && items != null) {
+            for (final E item : items) {
                 if (item instanceof IFreezable) {
                     ((IFreezable) item).freezeIfUnfrozen();
                 }
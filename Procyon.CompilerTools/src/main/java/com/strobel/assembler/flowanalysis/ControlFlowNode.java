@@ -32,7 +32,6 @@ import com.strobel.util.ContractUtils;
 
 import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
@@ -43,9 +42,15 @@ public final class ControlFlowNode implements Comparable<ControlFlowNode> {
     private final ControlFlowNodeType _nodeType;
     private final ControlFlowNode _endFinallyNode;
     private final List<ControlFlowNode> _dominatorTreeChildren = new Collection<>();
-    private final Set<ControlFlowNode> _dominanceFrontier = new LinkedHashSet<>();
-    private final List<ControlFlowEdge> _incoming = new Collection<>();
-    private final List<ControlFlowEdge> _outgoing = new Collection<>();
+    private final DominatorTree.DominanceFrontier _dominanceFrontier = new DominatorTree.DominanceFrontier();
+    private final List<ControlFlowEdge> _incoming = new EdgeCollection();
+    private final List<ControlFlowEdge> _outgoing = new EdgeCollection();
+
+    private int _edgeModificationCount;
+    private DominatorTree _dominatorTree;
+    private int _dominatorTreeIndex;
+    private int _dominatorTreePreOrder;
+    private int _dominatorTreePostOrder;
 
     private boolean _visited;
     private ControlFlowNode _copyFrom;
@@ -161,6 +166,12 @@ public final class ControlFlowNode implements Comparable<ControlFlowNode> {
     }
 
     public final void setImmediateDominator(final ControlFlowNode immediateDominator) {
+        final DominatorTree dominatorTree = _dominatorTree;
+
+        if (dominatorTree != null && immediateDominator != _immediateDominator) {
+            dominatorTree.invalidate();
+        }
+
         _immediateDominator = immediateDominator;
     }
 
@@ -272,6 +283,17 @@ public final class ControlFlowNode implements Comparable<ControlFlowNode> {
     }
 
     public final boolean dominates(final ControlFlowNode node) {
+        final DominatorTree dominatorTree = _dominatorTree;
+
+        if (dominatorTree != null &&
+            node != null &&
+            node._dominatorTree == dominatorTree &&
+            dominatorTree.isValid()) {
+
+            return _dominatorTreePreOrder <= node._dominatorTreePreOrder &&
+                   node._dominatorTreePostOrder <= _dominatorTreePostOrder;
+        }
+
         ControlFlowNode current = node;
 
         while (current != null) {
@@ -284,6 +306,32 @@ public final class ControlFlowNode implements Comparable<ControlFlowNode> {
         return false;
     }
 
+    final DominatorTree getDominatorTree() {
+        return _dominatorTree;
+    }
+
+    final int getDominatorTreeIndex() {
+        return _dominatorTreeIndex;
+    }
+
+    final DominatorTree.DominanceFrontier getDominanceFrontierSet() {
+        return _dominanceFrontier;
+    }
+
+    final int getEdgeModificationCount() {
+        return _edgeModificationCount;
+    }
+
+    final void setDominatorTree(final DominatorTree dominatorTree, final int index) {
+        _dominatorTree = dominatorTree;
+        _dominatorTreeIndex = index;
+    }
+
+    final void setDominatorTreeOrder(final int preOrder, final int postOrder) {
+        _dominatorTreePreOrder = preOrder;
+        _dominatorTreePostOrder = postOrder;
+    }
+
     @Override
     public final String toString() {
         final PlainTextOutput output = new PlainTextOutput();
@@ -384,6 +432,28 @@ public final class ControlFlowNode implements Comparable<ControlFlowNode> {
         return Integer.compare(_blockIndex, o._blockIndex);
     }
 
+    private final class EdgeCollection extends Collection<ControlFlowEdge> {
+        @Override
+        protected void afterAdd(final int index, final ControlFlowEdge e, final boolean appended) {
+            ++_edgeModificationCount;
+        }
+
+        @Override
+        protected void beforeSet(final int index, final ControlFlowEdge e) {
+            ++_edgeModificationCount;
+        }
+
+        @Override
+        protected void afterRemove(final int index, final ControlFlowEdge e) {
+            ++_edgeModificationCount;
+        }
+
+        @Override
+        protected void beforeClear() {
+            ++_edgeModificationCount;
+        }
+    }
+
     // <editor-fold defaultstate="collapsed" desc="Iterators">
 
     private final class PredecessorIterator implements Iterator<ControlFlowNode> {
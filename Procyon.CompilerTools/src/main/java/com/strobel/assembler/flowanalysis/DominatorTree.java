@@ -0,0 +1,399 @@
+/*
+ * DominatorTree.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.flowanalysis;
+
+import com.strobel.annotations.NotNull;
+import com.strobel.core.BooleanBox;
+import com.strobel.util.ContractUtils;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+
+/**
+ * The dominator tree of a {@link ControlFlowGraph}, computed with the iterative algorithm of Cooper,
+ * Harvey, and Kennedy over a reverse postorder numbering of the reachable nodes.  Every reachable node
+ * is also given pre- and postorder indexes within the tree, which makes {@link ControlFlowNode#dominates}
+ * a constant time interval check for as long as the tree remains valid.
+ *
+ * @author Mike Strobel
+ */
+final class DominatorTree {
+    private final ControlFlowGraph _graph;
+    private final int _modificationCount;
+
+    private ControlFlowNode[] _nodes;
+    private boolean _valid;
+    private boolean _frontierComputed;
+
+    DominatorTree(final ControlFlowGraph graph, final BooleanBox cancelled) {
+        _graph = graph;
+        _modificationCount = graph.getEdgeModificationCount();
+
+        computeReversePostOrder();
+
+        final int[] immediateDominators = computeImmediateDominators(cancelled);
+
+        assignImmediateDominators(immediateDominators);
+        computeTreeIndexes(immediateDominators);
+
+        _valid = true;
+    }
+
+    final boolean isValid() {
+        return _valid;
+    }
+
+    final boolean isCurrent() {
+        return _valid && _modificationCount == _graph.getEdgeModificationCount();
+    }
+
+    final void invalidate() {
+        _valid = false;
+    }
+
+    final ControlFlowNode getNode(final int index) {
+        return _nodes[index];
+    }
+
+    final boolean isFrontierComputed() {
+        return _frontierComputed;
+    }
+
+    private void computeReversePostOrder() {
+        final ControlFlowNode entryPoint = _graph.getEntryPoint();
+        final List<ControlFlowNode> postOrder = new ArrayList<>(_graph.getNodes().size());
+        final ArrayList<ControlFlowNode> nodeStack = new ArrayList<>();
+        final ArrayList<Iterator<ControlFlowNode>> successorStack = new ArrayList<>();
+
+        entryPoint.setDominatorTree(this, -1);
+        nodeStack.add(entryPoint);
+        successorStack.add(entryPoint.getSuccessors().iterator());
+
+        while (!nodeStack.isEmpty()) {
+            final int top = nodeStack.size() - 1;
+            final Iterator<ControlFlowNode> successors = successorStack.get(top);
+
+            if (successors.hasNext()) {
+                final ControlFlowNode successor = successors.next();
+
+                if (successor.getDominatorTree() != this) {
+                    successor.setDominatorTree(this, -1);
+                    nodeStack.add(successor);
+                    successorStack.add(successor.getSuccessors().iterator());
+                }
+            }
+            else {
+                postOrder.add(nodeStack.remove(top));
+                successorStack.remove(top);
+            }
+        }
+
+        final int count = postOrder.size();
+
+        _nodes = new ControlFlowNode[count];
+
+        for (int i = 0; i < count; i++) {
+            final ControlFlowNode node = postOrder.get(count - i - 1);
+
+            _nodes[i] = node;
+            node.setDominatorTree(this, i);
+        }
+    }
+
+    private int[] computeImmediateDominators(final BooleanBox cancelled) {
+        final ControlFlowNode[] nodes = _nodes;
+        final int[] immediateDominators = new int[nodes.length];
+
+        Arrays.fill(immediateDominators, -1);
+        immediateDominators[0] = 0;
+
+        boolean changed = true;
+
+        while (changed) {
+            changed = false;
+
+            if (cancelled.get()) {
+                throw new CancellationException();
+            }
+
+            for (int i = 1; i < nodes.length; i++) {
+                final ControlFlowNode node = nodes[i];
+
+                int newImmediateDominator = -1;
+
+                for (final ControlFlowNode p : node.getPredecessors()) {
+                    if (p == node || p.getDominatorTree() != this) {
+                        continue;
+                    }
+
+                    final int predecessor = p.getDominatorTreeIndex();
+
+                    if (immediateDominators[predecessor] < 0) {
+                        continue;
+                    }
+
+                    newImmediateDominator = newImmediateDominator < 0
+                                            ? predecessor
+                                            : intersect(immediateDominators, predecessor, newImmediateDominator);
+                }
+
+                if (newImmediateDominator < 0) {
+                    throw new IllegalStateException("Could not compute new immediate dominator!");
+                }
+
+                if (immediateDominators[i] != newImmediateDominator) {
+                    immediateDominators[i] = newImmediateDominator;
+                    changed = true;
+                }
+            }
+        }
+
+        return immediateDominators;
+    }
+
+    private static int intersect(final int[] immediateDominators, final int a, final int b) {
+        int finger1 = a;
+        int finger2 = b;
+
+        while (finger1 != finger2) {
+            while (finger1 > finger2) {
+                finger1 = immediateDominators[finger1];
+            }
+            while (finger2 > finger1) {
+                finger2 = immediateDominators[finger2];
+            }
+        }
+
+        return finger1;
+    }
+
+    private void assignImmediateDominators(final int[] immediateDominators) {
+        final List<ControlFlowNode> graphNodes = _graph.getNodes();
+
+        for (final ControlFlowNode node : graphNodes) {
+            node.getDominatorTreeChildren().clear();
+            node.getDominanceFrontierSet().reset(null);
+
+            if (node.getDominatorTree() != this) {
+                node.setImmediateDominator(null);
+            }
+        }
+
+        _nodes[0].setImmediateDominator(null);
+
+        for (int i = 1; i < _nodes.length; i++) {
+            _nodes[i].setImmediateDominator(_nodes[immediateDominators[i]]);
+        }
+
+        //
+        // Tree children are only recorded for nodes which belong to the graph proper, and in graph order.
+        //
+        for (final ControlFlowNode node : graphNodes) {
+            final ControlFlowNode immediateDominator = node.getImmediateDominator();
+
+            if (immediateDominator != null) {
+                immediateDominator.getDominatorTreeChildren().add(node);
+            }
+        }
+    }
+
+    private void computeTreeIndexes(final int[] immediateDominators) {
+        final int count = _nodes.length;
+        final int[] firstChild = new int[count];
+        final int[] nextSibling = new int[count];
+
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(nextSibling, -1);
+
+        for (int i = count - 1; i > 0; i--) {
+            final int parent = immediateDominators[i];
+
+            nextSibling[i] = firstChild[parent];
+            firstChild[parent] = i;
+        }
+
+        final int[] stack = new int[count];
+        final int[] preOrder = new int[count];
+
+        int stackSize = 0;
+        int preOrderIndex = 0;
+        int postOrderIndex = 0;
+
+        stack[stackSize++] = 0;
+        preOrder[0] = preOrderIndex++;
+
+        while (stackSize > 0) {
+            final int top = stack[stackSize - 1];
+            final int child = firstChild[top];
+
+            if (child >= 0) {
+                firstChild[top] = nextSibling[child];
+                preOrder[child] = preOrderIndex++;
+                stack[stackSize++] = child;
+            }
+            else {
+                --stackSize;
+                _nodes[top].setDominatorTreeOrder(preOrder[top], postOrderIndex++);
+            }
+        }
+    }
+
+    final void computeDominanceFrontier() {
+        if (_frontierComputed) {
+            return;
+        }
+
+        //
+        // Walk the dominator tree in postorder so each node's children are complete before the node itself.
+        //
+        final ArrayList<ControlFlowNode> nodeStack = new ArrayList<>();
+        final ArrayList<Iterator<ControlFlowNode>> childStack = new ArrayList<>();
+        final ControlFlowNode entryPoint = _graph.getEntryPoint();
+
+        nodeStack.add(entryPoint);
+        childStack.add(entryPoint.getDominatorTreeChildren().iterator());
+
+        while (!nodeStack.isEmpty()) {
+            final int top = nodeStack.size() - 1;
+            final Iterator<ControlFlowNode> children = childStack.get(top);
+
+            if (children.hasNext()) {
+                final ControlFlowNode child = children.next();
+
+                nodeStack.add(child);
+                childStack.add(child.getDominatorTreeChildren().iterator());
+                continue;
+            }
+
+            final ControlFlowNode n = nodeStack.remove(top);
+            final DominanceFrontier dominanceFrontier = n.getDominanceFrontierSet();
+
+            childStack.remove(top);
+            dominanceFrontier.reset(this);
+
+            for (final ControlFlowNode s : n.getSuccessors()) {
+                if (s.getImmediateDominator() != n) {
+                    dominanceFrontier.addNode(s);
+                }
+            }
+
+            for (final ControlFlowNode child : n.getDominatorTreeChildren()) {
+                final BitSet childFrontier = child.getDominanceFrontierSet().getBits();
+
+                if (childFrontier == null) {
+                    continue;
+                }
+
+                for (int i = childFrontier.nextSetBit(0); i >= 0; i = childFrontier.nextSetBit(i + 1)) {
+                    if (_nodes[i].getImmediateDominator() != n) {
+                        dominanceFrontier.addIndex(i);
+                    }
+                }
+            }
+        }
+
+        _frontierComputed = true;
+    }
+
+    /**
+     * A read-only set of nodes in a dominance frontier, stored as a bitset over the reverse postorder
+     * indexes of the owning tree.
+     */
+    final static class DominanceFrontier extends AbstractSet<ControlFlowNode> {
+        private DominatorTree _tree;
+        private BitSet _bits;
+        private int _size;
+
+        final void reset(final DominatorTree tree) {
+            _tree = tree;
+            _bits = null;
+            _size = 0;
+        }
+
+        final BitSet getBits() {
+            return _bits;
+        }
+
+        final void addNode(final ControlFlowNode node) {
+            assert node.getDominatorTree() == _tree;
+            addIndex(node.getDominatorTreeIndex());
+        }
+
+        final void addIndex(final int index) {
+            if (_bits == null) {
+                _bits = new BitSet();
+            }
+            else if (_bits.get(index)) {
+                return;
+            }
+
+            _bits.set(index);
+            ++_size;
+        }
+
+        @Override
+        public final boolean contains(final Object o) {
+            if (_bits == null || !(o instanceof ControlFlowNode)) {
+                return false;
+            }
+
+            final ControlFlowNode node = (ControlFlowNode) o;
+
+            return node.getDominatorTree() == _tree &&
+                   _bits.get(node.getDominatorTreeIndex());
+        }
+
+        @Override
+        public final int size() {
+            return _size;
+        }
+
+        @NotNull
+        @Override
+        public final Iterator<ControlFlowNode> iterator() {
+            return new Iterator<ControlFlowNode>() {
+                private int _next = _bits != null ? _bits.nextSetBit(0) : -1;
+
+                @Override
+                public final boolean hasNext() {
+                    return _next >= 0;
+                }
+
+                @Override
+                public final ControlFlowNode next() {
+                    if (_next < 0) {
+                        throw new NoSuchElementException();
+                    }
+
+                    final ControlFlowNode node = _tree.getNode(_next);
+
+                    _next = _bits.nextSetBit(_next + 1);
+
+                    return node;
+                }
+
+                @Override
+                public final void remove() {
+                    throw ContractUtils.unsupported();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * ClassRecord.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.index;
+
+import com.strobel.assembler.ir.ConstantPool;
+import com.strobel.assembler.ir.Frame;
+import com.strobel.assembler.ir.Instruction;
+import com.strobel.assembler.ir.InstructionVisitor;
+import com.strobel.assembler.ir.attributes.SourceAttribute;
+import com.strobel.assembler.metadata.*;
+import com.strobel.assembler.metadata.annotations.CustomAnnotation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The symbols and references contributed by a single class file, as gathered by a worker thread
+ * while a {@link SymbolIndex} is built.  Records are merged into the index on a single thread.
+ *
+ * @author Mike Strobel
+ */
+final class ClassRecord implements TypeVisitor {
+    String name;
+    long flags;
+    String baseType;
+    String[] interfaces;
+
+    final List<MemberSymbol> members = new ArrayList<>();
+    final List<Long> memberFlags = new ArrayList<>();
+    final List<MemberSymbol> referenceSources = new ArrayList<>();
+    final List<MemberSymbol> referenceTargets = new ArrayList<>();
+
+    private final Set<MemberSymbol> _methodReferences = new LinkedHashSet<>();
+
+    @Override
+    public void visitParser(final MetadataParser parser) {
+    }
+
+    @Override
+    public void visit(
+        final int majorVersion,
+        final int minorVersion,
+        final long flags,
+        final String name,
+        final String genericSignature,
+        final String baseTypeName,
+        final String[] interfaceNames) {
+
+        this.name = name;
+        this.flags = flags;
+        this.baseType = baseTypeName;
+        this.interfaces = interfaceNames;
+    }
+
+    @Override
+    public void visitDeclaringMethod(final MethodReference method) {
+    }
+
+    @Override
+    public void visitOuterType(final TypeReference type) {
+    }
+
+    @Override
+    public void visitInnerType(final TypeDefinition type) {
+    }
+
+    @Override
+    public void visitAttribute(final SourceAttribute attribute) {
+    }
+
+    @Override
+    public void visitAnnotation(final CustomAnnotation annotation, final boolean visible) {
+    }
+
+    @Override
+    public FieldVisitor visitField(final long flags, final String name, final TypeReference fieldType) {
+        members.add(new MemberSymbol(this.name, name, fieldType.getErasedSignature()));
+        memberFlags.add(flags);
+        return null;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(
+        final long flags,
+        final String name,
+        final IMethodSignature signature,
+        final TypeReference... thrownTypes) {
+
+        final MemberSymbol method = new MemberSymbol(this.name, name, signature.getErasedSignature());
+
+        members.add(method);
+        memberFlags.add(flags);
+
+        return new ReferenceCollector(method);
+    }
+
+    @Override
+    public ConstantPool.Visitor visitConstantPool() {
+        return null;
+    }
+
+    @Override
+    public void visitEnd() {
+    }
+
+    private static MemberSymbol symbolOf(final MemberReference member) {
+        final TypeReference declaringType = member.getDeclaringType();
+
+        if (declaringType == null) {
+            return null;
+        }
+
+        return new MemberSymbol(declaringType.getInternalName(), member.getName(), member.getErasedSignature());
+    }
+
+    /**
+     * Records the fields and methods referenced by a method's instructions, including the bootstrap
+     * method and method handle arguments of each dynamic call site.  Each target is recorded at most
+     * once per method.
+     */
+    private final class ReferenceCollector implements MethodVisitor {
+        private final MemberSymbol _method;
+
+        ReferenceCollector(final MemberSymbol method) {
+            _method = method;
+        }
+
+        @Override
+        public boolean canVisitBody() {
+            return true;
+        }
+
+        @Override
+        public InstructionVisitor visitBody(final MethodBody body) {
+            final Set<MemberSymbol> targets = _methodReferences;
+
+            targets.clear();
+
+            for (final Instruction instruction : body.getInstructions()) {
+                if (!instruction.hasOperand()) {
+                    continue;
+                }
+
+                final Object operand = instruction.getOperand(0);
+
+                if (operand instanceof MemberReference) {
+                    addTarget(targets, (MemberReference) operand);
+                }
+                else if (operand instanceof DynamicCallSite) {
+                    final DynamicCallSite callSite = (DynamicCallSite) operand;
+
+                    addTarget(targets, callSite.getBootstrapMethod());
+
+                    for (final Object argument : callSite.getBootstrapArguments()) {
+                        if (argument instanceof MethodHandle) {
+                            addTarget(targets, ((MethodHandle) argument).getMethod());
+                        }
+                    }
+                }
+            }
+
+            for (final MemberSymbol target : targets) {
+                referenceSources.add(_method);
+                referenceTargets.add(target);
+            }
+
+            return null;
+        }
+
+        private void addTarget(final Set<MemberSymbol> targets, final MemberReference member) {
+            final MemberSymbol symbol = member != null ? symbolOf(member) : null;
+
+            if (symbol != null) {
+                targets.add(symbol);
+            }
+        }
+
+        @Override
+        public void visitEnd() {
+        }
+
+        @Override
+        public void visitFrame(final Frame frame) {
+        }
+
+        @Override
+        public void visitLineNumber(final Instruction instruction, final int lineNumber) {
+        }
+
+        @Override
+        public void visitAttribute(final SourceAttribute attribute) {
+        }
+
+        @Override
+        public void visitAnnotation(final CustomAnnotation annotation, final boolean visible) {
+        }
+
+        @Override
+        public void visitParameterAnnotation(final int parameter, final CustomAnnotation annotation, final boolean visible) {
+        }
+    }
+}
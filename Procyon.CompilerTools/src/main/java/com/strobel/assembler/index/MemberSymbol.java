@@ -0,0 +1,78 @@
+/*
+ * MemberSymbol.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.index;
+
+import com.strobel.core.HashUtilities;
+import com.strobel.core.VerifyArgument;
+
+/**
+ * Identifies a field or method in a {@link SymbolIndex} by the internal name of its declaring type,
+ * its name, and its erased descriptor.
+ *
+ * @author Mike Strobel
+ */
+public final class MemberSymbol {
+    private final String _declaringType;
+    private final String _name;
+    private final String _descriptor;
+
+    public MemberSymbol(final String declaringType, final String name, final String descriptor) {
+        _declaringType = VerifyArgument.notNull(declaringType, "declaringType");
+        _name = VerifyArgument.notNull(name, "name");
+        _descriptor = VerifyArgument.notNull(descriptor, "descriptor");
+    }
+
+    public final String getDeclaringType() {
+        return _declaringType;
+    }
+
+    public final String getName() {
+        return _name;
+    }
+
+    public final String getDescriptor() {
+        return _descriptor;
+    }
+
+    public final boolean isMethod() {
+        return _descriptor.startsWith("(");
+    }
+
+    @Override
+    public final boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof MemberSymbol)) {
+            return false;
+        }
+
+        final MemberSymbol other = (MemberSymbol) o;
+
+        return _name.equals(other._name) &&
+               _declaringType.equals(other._declaringType) &&
+               _descriptor.equals(other._descriptor);
+    }
+
+    @Override
+    public final int hashCode() {
+        return HashUtilities.combineHashCodes(_declaringType.hashCode(), _name.hashCode(), _descriptor.hashCode());
+    }
+
+    @Override
+    public final String toString() {
+        return _declaringType + "." + _name + ":" + _descriptor;
+    }
+}
@@ -0,0 +1,656 @@
+/*
+ * SymbolIndex.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.index;
+
+import com.strobel.assembler.metadata.Flags;
+import com.strobel.core.VerifyArgument;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * An immutable index of the types, members, inheritance edges, and member references found in a set
+ * of class files.  Indexes are built with a {@link SymbolIndexBuilder} and may be persisted with
+ * {@link #write(OutputStream)} and restored with {@link #read(InputStream)}, which is considerably
+ * cheaper than rescanning the original class files.
+ * <p>
+ * The index is purely syntactic: types and members are identified by internal name and erased
+ * descriptor exactly as they appear in the class files, and no resolution is performed.  Members
+ * which are referenced but not declared by any indexed type are included, but have no flags.
+ *
+ * @author Mike Strobel
+ */
+public final class SymbolIndex {
+    private final static int MAGIC = 0x50534958;
+    private final static int VERSION = 1;
+
+    private final String[] _types;
+    private final long[] _typeFlags;
+    private final String[] _baseTypes;
+    private final String[][] _interfaces;
+
+    private final MemberSymbol[] _members;
+    private final long[] _memberFlags;
+
+    //
+    // References are stored as parallel arrays sorted by source member, with a second ordering of
+    // the same edges by target member.  The offset arrays are indexed by member id.
+    //
+    private final int[] _referenceSources;
+    private final int[] _referenceTargets;
+    private final int[] _outgoingStart;
+    private final int[] _incomingStart;
+    private final int[] _incomingSources;
+
+    private final Map<String, Integer> _typeIds;
+    private final Map<MemberSymbol, Integer> _memberIds;
+    private final Map<String, List<String>> _directSubtypes;
+    private final Map<String, List<MemberSymbol>> _declaredMembers;
+
+    private SymbolIndex(
+        final String[] types,
+        final long[] typeFlags,
+        final String[] baseTypes,
+        final String[][] interfaces,
+        final MemberSymbol[] members,
+        final long[] memberFlags,
+        final int[] referenceSources,
+        final int[] referenceTargets) {
+
+        _types = types;
+        _typeFlags = typeFlags;
+        _baseTypes = baseTypes;
+        _interfaces = interfaces;
+        _members = members;
+        _memberFlags = memberFlags;
+        _referenceSources = referenceSources;
+        _referenceTargets = referenceTargets;
+
+        _typeIds = new HashMap<>(types.length * 2);
+        _memberIds = new HashMap<>(members.length * 2);
+        _directSubtypes = new HashMap<>();
+        _declaredMembers = new HashMap<>();
+
+        for (int i = 0; i < types.length; i++) {
+            _typeIds.put(types[i], i);
+
+            if (baseTypes[i] != null) {
+                addSubtype(baseTypes[i], types[i]);
+            }
+
+            for (final String interfaceName : interfaces[i]) {
+                addSubtype(interfaceName, types[i]);
+            }
+        }
+
+        for (int i = 0; i < members.length; i++) {
+            _memberIds.put(members[i], i);
+
+            if (memberFlags[i] != -1L) {
+                List<MemberSymbol> declared = _declaredMembers.get(members[i].getDeclaringType());
+
+                if (declared == null) {
+                    _declaredMembers.put(members[i].getDeclaringType(), declared = new ArrayList<>());
+                }
+
+                declared.add(members[i]);
+            }
+        }
+
+        final int referenceCount = referenceSources.length;
+
+        _outgoingStart = new int[members.length + 1];
+        _incomingStart = new int[members.length + 1];
+        _incomingSources = new int[referenceCount];
+
+        for (int i = 0; i < referenceCount; i++) {
+            ++_outgoingStart[referenceSources[i] + 1];
+            ++_incomingStart[referenceTargets[i] + 1];
+        }
+
+        for (int i = 0; i < members.length; i++) {
+            _outgoingStart[i + 1] += _outgoingStart[i];
+            _incomingStart[i + 1] += _incomingStart[i];
+        }
+
+        final int[] next = Arrays.copyOf(_incomingStart, members.length);
+
+        for (int i = 0; i < referenceCount; i++) {
+            _incomingSources[next[referenceTargets[i]]++] = referenceSources[i];
+        }
+    }
+
+    private void addSubtype(final String type, final String subtype) {
+        List<String> subtypes = _directSubtypes.get(type);
+
+        if (subtypes == null) {
+            _directSubtypes.put(type, subtypes = new ArrayList<>());
+        }
+
+        subtypes.add(subtype);
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Queries">
+
+    public final int getTypeCount() {
+        return _types.length;
+    }
+
+    public final int getMemberCount() {
+        return _members.length;
+    }
+
+    public final int getReferenceCount() {
+        return _referenceSources.length;
+    }
+
+    public final List<String> getTypes() {
+        return Collections.unmodifiableList(Arrays.asList(_types));
+    }
+
+    public final boolean containsType(final String internalName) {
+        return _typeIds.containsKey(internalName);
+    }
+
+    /**
+     * Returns the raw access flags of an indexed type, or {@code -1} if the type is not indexed.
+     */
+    public final long getTypeFlags(final String internalName) {
+        final Integer id = _typeIds.get(internalName);
+        return id != null ? _typeFlags[id] : -1L;
+    }
+
+    public final String getBaseType(final String internalName) {
+        final Integer id = _typeIds.get(internalName);
+        return id != null ? _baseTypes[id] : null;
+    }
+
+    public final List<String> getInterfaces(final String internalName) {
+        final Integer id = _typeIds.get(internalName);
+
+        if (id == null) {
+            return Collections.emptyList();
+        }
+
+        return Collections.unmodifiableList(Arrays.asList(_interfaces[id]));
+    }
+
+    /**
+     * Returns the indexed types which directly extend or implement the given type.
+     */
+    public final List<String> getDirectSubtypes(final String internalName) {
+        final List<String> subtypes = _directSubtypes.get(internalName);
+
+        if (subtypes == null) {
+            return Collections.emptyList();
+        }
+
+        return Collections.unmodifiableList(subtypes);
+    }
+
+    /**
+     * Returns every indexed type which extends or implements the given type, directly or indirectly,
+     * in breadth-first order.
+     */
+    public final List<String> getAllSubtypes(final String internalName) {
+        final Set<String> subtypes = new LinkedHashSet<>();
+        final ArrayDeque<String> queue = new ArrayDeque<>();
+
+        queue.add(internalName);
+
+        while (!queue.isEmpty()) {
+            for (final String subtype : getDirectSubtypes(queue.removeFirst())) {
+                if (subtypes.add(subtype)) {
+                    queue.add(subtype);
+                }
+            }
+        }
+
+        return new ArrayList<>(subtypes);
+    }
+
+    public final List<MemberSymbol> getDeclaredMembers(final String internalName) {
+        final List<MemberSymbol> members = _declaredMembers.get(internalName);
+
+        if (members == null) {
+            return Collections.emptyList();
+        }
+
+        return Collections.unmodifiableList(members);
+    }
+
+    public final boolean containsMember(final MemberSymbol member) {
+        return _memberIds.containsKey(member);
+    }
+
+    /**
+     * Returns the raw access flags of a member declared by an indexed type, or {@code -1} if the
+     * member is only referenced or is not known to the index.
+     */
+    public final long getMemberFlags(final MemberSymbol member) {
+        final Integer id = _memberIds.get(member);
+        return id != null ? _memberFlags[id] : -1L;
+    }
+
+    /**
+     * Returns the methods whose code references the given field or method.  References are recorded
+     * against the owner named in the instruction operand, which is not necessarily the type that
+     * declares the member.
+     */
+    public final List<MemberSymbol> getReferencingMembers(final MemberSymbol member) {
+        final Integer id = _memberIds.get(member);
+
+        if (id == null) {
+            return Collections.emptyList();
+        }
+
+        return membersOf(_incomingSources, _incomingStart[id], _incomingStart[id + 1]);
+    }
+
+    /**
+     * Returns the fields and methods referenced by the code of the given method.
+     */
+    public final List<MemberSymbol> getReferencedMembers(final MemberSymbol method) {
+        final Integer id = _memberIds.get(method);
+
+        if (id == null) {
+            return Collections.emptyList();
+        }
+
+        return membersOf(_referenceTargets, _outgoingStart[id], _outgoingStart[id + 1]);
+    }
+
+    /**
+     * Returns the methods declared by subtypes of the given method's declaring type which have the
+     * same name and erased descriptor.  Constructors, static initializers, and private or static
+     * methods have no overrides.
+     */
+    public final List<MemberSymbol> getOverrides(final MemberSymbol method) {
+        VerifyArgument.notNull(method, "method");
+
+        if (!method.isMethod() || method.getName().startsWith("<")) {
+            return Collections.emptyList();
+        }
+
+        final long flags = getMemberFlags(method);
+
+        if (flags != -1L && (flags & (Flags.PRIVATE | Flags.STATIC)) != 0) {
+            return Collections.emptyList();
+        }
+
+        final List<MemberSymbol> overrides = new ArrayList<>();
+
+        for (final String subtype : getAllSubtypes(method.getDeclaringType())) {
+            final MemberSymbol candidate = new MemberSymbol(subtype, method.getName(), method.getDescriptor());
+            final long candidateFlags = getMemberFlags(candidate);
+
+            if (candidateFlags != -1L && (candidateFlags & Flags.STATIC) == 0) {
+                overrides.add(candidate);
+            }
+        }
+
+        return overrides;
+    }
+
+    private List<MemberSymbol> membersOf(final int[] ids, final int start, final int end) {
+        final List<MemberSymbol> members = new ArrayList<>(end - start);
+
+        for (int i = start; i < end; i++) {
+            members.add(_members[ids[i]]);
+        }
+
+        return members;
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Persistence">
+
+    public final void write(final File file) throws IOException {
+        try (final OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            write(out);
+        }
+    }
+
+    /**
+     * Writes this index to a stream in a compact, compressed binary form.  The stream is not closed.
+     */
+    public final void write(final OutputStream out) throws IOException {
+        final DeflaterOutputStream deflater = new DeflaterOutputStream(out);
+        final DataOutputStream data = new DataOutputStream(new BufferedOutputStream(deflater));
+        final Map<String, Integer> strings = new HashMap<>();
+        final List<String> stringTable = new ArrayList<>();
+
+        for (int i = 0; i < _types.length; i++) {
+            intern(strings, stringTable, _types[i]);
+            intern(strings, stringTable, _baseTypes[i]);
+
+            for (final String interfaceName : _interfaces[i]) {
+                intern(strings, stringTable, interfaceName);
+            }
+        }
+
+        for (final MemberSymbol member : _members) {
+            intern(strings, stringTable, member.getDeclaringType());
+            intern(strings, stringTable, member.getName());
+            intern(strings, stringTable, member.getDescriptor());
+        }
+
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+
+        writeVarInt(data, stringTable.size());
+
+        for (final String s : stringTable) {
+            data.writeUTF(s);
+        }
+
+        writeVarInt(data, _types.length);
+
+        for (int i = 0; i < _types.length; i++) {
+            writeVarInt(data, strings.get(_types[i]));
+            writeVarLong(data, _typeFlags[i]);
+            writeVarInt(data, _baseTypes[i] != null ? strings.get(_baseTypes[i]) + 1 : 0);
+            writeVarInt(data, _interfaces[i].length);
+
+            for (final String interfaceName : _interfaces[i]) {
+                writeVarInt(data, strings.get(interfaceName));
+            }
+        }
+
+        writeVarInt(data, _members.length);
+
+        for (int i = 0; i < _members.length; i++) {
+            writeVarInt(data, strings.get(_members[i].getDeclaringType()));
+            writeVarInt(data, strings.get(_members[i].getName()));
+            writeVarInt(data, strings.get(_members[i].getDescriptor()));
+            writeVarLong(data, _memberFlags[i] + 1);
+        }
+
+        writeVarInt(data, _referenceSources.length);
+
+        //
+        // Sources are sorted, so store them as deltas.
+        //
+        for (int i = 0, previous = 0; i < _referenceSources.length; i++) {
+            writeVarInt(data, _referenceSources[i] - previous);
+            writeVarInt(data, _referenceTargets[i]);
+            previous = _referenceSources[i];
+        }
+
+        data.flush();
+        deflater.finish();
+    }
+
+    public static SymbolIndex read(final File file) throws IOException {
+        try (final InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads an index previously written with {@link #write(OutputStream)}.  The stream is not closed.
+     */
+    public static SymbolIndex read(final InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(new BufferedInputStream(new InflaterInputStream(in)));
+
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Stream does not contain a symbol index.");
+        }
+
+        final int version = data.readInt();
+
+        if (version != VERSION) {
+            throw new IOException("Unsupported symbol index version: " + version);
+        }
+
+        final String[] strings = new String[readVarInt(data)];
+
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = data.readUTF();
+        }
+
+        final int typeCount = readVarInt(data);
+        final String[] types = new String[typeCount];
+        final long[] typeFlags = new long[typeCount];
+        final String[] baseTypes = new String[typeCount];
+        final String[][] interfaces = new String[typeCount][];
+
+        for (int i = 0; i < typeCount; i++) {
+            types[i] = strings[readVarInt(data)];
+            typeFlags[i] = readVarLong(data);
+
+            final int baseType = readVarInt(data);
+
+            baseTypes[i] = baseType != 0 ? strings[baseType - 1] : null;
+            interfaces[i] = new String[readVarInt(data)];
+
+            for (int j = 0; j < interfaces[i].length; j++) {
+                interfaces[i][j] = strings[readVarInt(data)];
+            }
+        }
+
+        final int memberCount = readVarInt(data);
+        final MemberSymbol[] members = new MemberSymbol[memberCount];
+        final long[] memberFlags = new long[memberCount];
+
+        for (int i = 0; i < memberCount; i++) {
+            final String declaringType = strings[readVarInt(data)];
+            final String name = strings[readVarInt(data)];
+            final String descriptor = strings[readVarInt(data)];
+
+            members[i] = new MemberSymbol(declaringType, name, descriptor);
+            memberFlags[i] = readVarLong(data) - 1;
+        }
+
+        final int referenceCount = readVarInt(data);
+        final int[] referenceSources = new int[referenceCount];
+        final int[] referenceTargets = new int[referenceCount];
+
+        for (int i = 0, previous = 0; i < referenceCount; i++) {
+            previous += readVarInt(data);
+            referenceSources[i] = previous;
+            referenceTargets[i] = readVarInt(data);
+        }
+
+        return new SymbolIndex(
+            types,
+            typeFlags,
+            baseTypes,
+            interfaces,
+            members,
+            memberFlags,
+            referenceSources,
+            referenceTargets
+        );
+    }
+
+    private static void intern(final Map<String, Integer> strings, final List<String> stringTable, final String s) {
+        if (s != null && !strings.containsKey(s)) {
+            strings.put(s, stringTable.size());
+            stringTable.add(s);
+        }
+    }
+
+    private static void writeVarInt(final DataOutput out, final int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    private static void writeVarLong(final DataOutput out, final long value) throws IOException {
+        long v = value;
+
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+
+        out.writeByte((int) v);
+    }
+
+    private static int readVarInt(final DataInput in) throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    private static long readVarLong(final DataInput in) throws IOException {
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = in.readUnsignedByte();
+
+            value |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Malformed variable-length integer in symbol index.");
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Builder Class">
+
+    /**
+     * Accumulates merged class records.  Not thread-safe; used by {@link SymbolIndexBuilder} once
+     * all class files have been read.
+     */
+    final static class Builder {
+        private final Map<String, Integer> _typeIds = new HashMap<>();
+        private final List<String> _types = new ArrayList<>();
+        private final List<Long> _typeFlags = new ArrayList<>();
+        private final List<String> _baseTypes = new ArrayList<>();
+        private final List<String[]> _interfaces = new ArrayList<>();
+
+        private final Map<MemberSymbol, Integer> _memberIds = new HashMap<>();
+        private final List<MemberSymbol> _members = new ArrayList<>();
+        private final List<Long> _memberFlags = new ArrayList<>();
+
+        private final List<long[]> _references = new ArrayList<>();
+        private long[] _currentReferences = new long[1024];
+        private int _currentReferenceCount;
+        private int _referenceCount;
+
+        /**
+         * Adds a type, returning {@code false} if a type with the same name was already added.
+         */
+        boolean addType(final String name, final long flags, final String baseType, final String[] interfaces) {
+            if (name == null || _typeIds.containsKey(name)) {
+                return false;
+            }
+
+            _typeIds.put(name, _types.size());
+            _types.add(name);
+            _typeFlags.add(flags);
+            _baseTypes.add(baseType);
+            _interfaces.add(interfaces != null ? interfaces : new String[0]);
+
+            return true;
+        }
+
+        void addMember(final MemberSymbol member, final long flags) {
+            final Integer id = _memberIds.get(member);
+
+            if (id == null) {
+                _memberIds.put(member, _members.size());
+                _members.add(member);
+                _memberFlags.add(flags);
+            }
+            else if (_memberFlags.get(id) == -1L) {
+                _memberFlags.set(id, flags);
+            }
+        }
+
+        void addReference(final MemberSymbol source, final MemberSymbol target) {
+            final long edge = ((long) memberId(source) << 32) | (memberId(target) & 0xFFFFFFFFL);
+
+            if (_currentReferenceCount == _currentReferences.length) {
+                _references.add(_currentReferences);
+                _currentReferences = new long[_currentReferences.length];
+                _currentReferenceCount = 0;
+            }
+
+            _currentReferences[_currentReferenceCount++] = edge;
+            ++_referenceCount;
+        }
+
+        private int memberId(final MemberSymbol member) {
+            final Integer id = _memberIds.get(member);
+
+            if (id != null) {
+                return id;
+            }
+
+            _memberIds.put(member, _members.size());
+            _members.add(member);
+            _memberFlags.add(-1L);
+
+            return _members.size() - 1;
+        }
+
+        SymbolIndex build() {
+            final int typeCount = _types.size();
+            final long[] typeFlags = new long[typeCount];
+
+            for (int i = 0; i < typeCount; i++) {
+                typeFlags[i] = _typeFlags.get(i);
+            }
+
+            final int memberCount = _members.size();
+            final long[] memberFlags = new long[memberCount];
+
+            for (int i = 0; i < memberCount; i++) {
+                memberFlags[i] = _memberFlags.get(i);
+            }
+
+            //
+            // Packing each edge as (source << 32 | target) lets a single sort order the edges by
+            // source and then by target.
+            //
+            final long[] edges = new long[_referenceCount];
+            int position = 0;
+
+            for (final long[] block : _references) {
+                System.arraycopy(block, 0, edges, position, block.length);
+                position += block.length;
+            }
+
+            System.arraycopy(_currentReferences, 0, edges, position, _currentReferenceCount);
+            Arrays.sort(edges);
+
+            final int[] referenceSources = new int[edges.length];
+            final int[] referenceTargets = new int[edges.length];
+
+            for (int i = 0; i < edges.length; i++) {
+                referenceSources[i] = (int) (edges[i] >>> 32);
+                referenceTargets[i] = (int) edges[i];
+            }
+
+            return new SymbolIndex(
+                _types.toArray(new String[typeCount]),
+                typeFlags,
+                _baseTypes.toArray(new String[typeCount]),
+                _interfaces.toArray(new String[typeCount][]),
+                _members.toArray(new MemberSymbol[memberCount]),
+                memberFlags,
+                referenceSources,
+                referenceTargets
+            );
+        }
+    }
+
+    // </editor-fold>
+}
@@ -0,0 +1,279 @@
+/*
+ * SymbolIndexBuilder.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.index;
+
+import com.strobel.assembler.metadata.Buffer;
+import com.strobel.assembler.metadata.ClassFileReader;
+import com.strobel.assembler.metadata.ITypeLoader;
+import com.strobel.assembler.metadata.MetadataSystem;
+import com.strobel.core.ExceptionUtilities;
+import com.strobel.core.VerifyArgument;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Builds a {@link SymbolIndex} from the class files in one or more jars or directories.  Class files
+ * are read in parallel with {@link ClassFileReader#accept}, so no type is ever resolved or fully
+ * materialized; each worker gathers the symbols and references of the classes it reads, and the
+ * results are merged in the order the sources were added.  When a type is defined more than once,
+ * the first definition wins.
+ *
+ * @author Mike Strobel
+ */
+public final class SymbolIndexBuilder {
+    private final List<File> _jars = new ArrayList<>();
+    private final List<File> _directories = new ArrayList<>();
+
+    private int _parallelism = Runtime.getRuntime().availableProcessors();
+
+    public final int getParallelism() {
+        return _parallelism;
+    }
+
+    public final SymbolIndexBuilder setParallelism(final int parallelism) {
+        _parallelism = VerifyArgument.isPositive(parallelism, "parallelism");
+        return this;
+    }
+
+    public final SymbolIndexBuilder addJar(final File jar) {
+        _jars.add(VerifyArgument.notNull(jar, "jar"));
+        return this;
+    }
+
+    public final SymbolIndexBuilder addDirectory(final File directory) {
+        _directories.add(VerifyArgument.notNull(directory, "directory"));
+        return this;
+    }
+
+    public final SymbolIndex build() throws IOException {
+        final List<ClassSource> sources = new ArrayList<>();
+        final List<JarFile> openJars = new ArrayList<>();
+
+        try {
+            for (final File jar : _jars) {
+                final JarFile jarFile = new JarFile(jar);
+
+                openJars.add(jarFile);
+
+                final Enumeration<JarEntry> entries = jarFile.entries();
+
+                while (entries.hasMoreElements()) {
+                    final JarEntry entry = entries.nextElement();
+
+                    if (!entry.isDirectory() && entry.getName().endsWith(".class")) {
+                        sources.add(new JarEntrySource(jarFile, entry));
+                    }
+                }
+            }
+
+            for (final File directory : _directories) {
+                collectClassFiles(directory, sources);
+            }
+
+            return merge(readAll(sources));
+        }
+        finally {
+            for (final JarFile jarFile : openJars) {
+                close(jarFile);
+            }
+        }
+    }
+
+    private ClassRecord[] readAll(final List<ClassSource> sources) throws IOException {
+        final ClassRecord[] records = new ClassRecord[sources.size()];
+        final AtomicInteger nextSource = new AtomicInteger();
+        final int workerCount = Math.max(1, Math.min(_parallelism, sources.size()));
+        final ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+
+        try {
+            final List<Future<Void>> workers = new ArrayList<>(workerCount);
+
+            for (int i = 0; i < workerCount; i++) {
+                workers.add(
+                    executor.submit(
+                        new Callable<Void>() {
+                            @Override
+                            public Void call() throws Exception {
+                                final MetadataSystem metadataSystem = new MetadataSystem(NullTypeLoader.INSTANCE);
+                                final Buffer buffer = new Buffer(0);
+                                final byte[] chunk = new byte[8192];
+
+                                for (int index = nextSource.getAndIncrement();
+                                     index < records.length;
+                                     index = nextSource.getAndIncrement()) {
+
+                                    final ClassRecord record = new ClassRecord();
+
+                                    sources.get(index).read(buffer, chunk);
+                                    ClassFileReader.accept(metadataSystem, buffer, record);
+
+                                    records[index] = record;
+                                }
+
+                                return null;
+                            }
+                        }
+                    )
+                );
+            }
+
+            for (final Future<Void> worker : workers) {
+                try {
+                    worker.get();
+                }
+                catch (final ExecutionException e) {
+                    nextSource.set(records.length);
+
+                    final Throwable cause = ExceptionUtilities.unwrap(e);
+
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+
+                    throw ExceptionUtilities.asRuntimeException(cause);
+                }
+                catch (final InterruptedException e) {
+                    nextSource.set(records.length);
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while building symbol index.", e);
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        return records;
+    }
+
+    private static SymbolIndex merge(final ClassRecord[] records) {
+        final SymbolIndex.Builder builder = new SymbolIndex.Builder();
+
+        for (final ClassRecord record : records) {
+            if (!builder.addType(record.name, record.flags, record.baseType, record.interfaces)) {
+                continue;
+            }
+
+            for (int i = 0, n = record.members.size(); i < n; i++) {
+                builder.addMember(record.members.get(i), record.memberFlags.get(i));
+            }
+
+            for (int i = 0, n = record.referenceSources.size(); i < n; i++) {
+                builder.addReference(record.referenceSources.get(i), record.referenceTargets.get(i));
+            }
+        }
+
+        return builder.build();
+    }
+
+    private static void collectClassFiles(final File directory, final List<ClassSource> sources) {
+        final File[] files = directory.listFiles();
+
+        if (files == null) {
+            return;
+        }
+
+        for (final File file : files) {
+            if (file.isDirectory()) {
+                collectClassFiles(file, sources);
+            }
+            else if (file.getName().endsWith(".class")) {
+                sources.add(new FileSource(file));
+            }
+        }
+    }
+
+    private static void close(final Closeable closeable) {
+        try {
+            closeable.close();
+        }
+        catch (final IOException ignored) {
+        }
+    }
+
+    private static void readFully(final InputStream in, final Buffer buffer, final byte[] chunk, final int sizeHint)
+        throws IOException {
+
+        buffer.reset(Math.max(sizeHint, 0));
+
+        try {
+            int bytesRead;
+
+            while ((bytesRead = in.read(chunk, 0, chunk.length)) >= 0) {
+                buffer.putByteArray(chunk, 0, bytesRead);
+            }
+        }
+        finally {
+            in.close();
+        }
+
+        buffer.flip();
+    }
+
+    private interface ClassSource {
+        void read(final Buffer buffer, final byte[] chunk) throws IOException;
+    }
+
+    private final static class JarEntrySource implements ClassSource {
+        private final JarFile _jarFile;
+        private final JarEntry _entry;
+
+        JarEntrySource(final JarFile jarFile, final JarEntry entry) {
+            _jarFile = jarFile;
+            _entry = entry;
+        }
+
+        @Override
+        public void read(final Buffer buffer, final byte[] chunk) throws IOException {
+            readFully(_jarFile.getInputStream(_entry), buffer, chunk, (int) _entry.getSize());
+        }
+    }
+
+    private final static class FileSource implements ClassSource {
+        private final File _file;
+
+        FileSource(final File file) {
+            _file = file;
+        }
+
+        @Override
+        public void read(final Buffer buffer, final byte[] chunk) throws IOException {
+            readFully(new FileInputStream(_file), buffer, chunk, (int) _file.length());
+        }
+    }
+
+    private final static class NullTypeLoader implements ITypeLoader {
+        final static NullTypeLoader INSTANCE = new NullTypeLoader();
+
+        @Override
+        public boolean tryLoadType(final String internalName, final Buffer buffer) {
+            return false;
+        }
+    }
+}
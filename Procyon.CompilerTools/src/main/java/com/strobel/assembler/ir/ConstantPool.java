@@ -35,10 +35,10 @@ import java.util.Iterator;
 @SuppressWarnings({ "PublicField", "ProtectedField" })
 public final class ConstantPool extends Freezable implements Iterable<ConstantPool.Entry> {
     private final ArrayList<Entry> _pool = new ArrayList<>();
-    private final HashMap<Key, Entry> _entryMap = new HashMap<>();
     private final Key _lookupKey = new Key();
     private final Key _newKey = new Key();
 
+    private HashMap<Key, Entry> _entryMap;
     private int _size;
 
     @Override
@@ -143,7 +143,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
 
     public Utf8StringConstantEntry getUtf8StringConstant(final String value) {
         _lookupKey.set(value);
-        Entry entry = _entryMap.get(_lookupKey);
+        Entry entry = entryMap().get(_lookupKey);
         if (entry == null) {
             if (isFrozen()) {
                 return null;
@@ -157,7 +157,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
     public StringConstantEntry getStringConstant(final String value) {
         final Utf8StringConstantEntry utf8Constant = getUtf8StringConstant(value);
         _lookupKey.set(Tag.StringConstant, utf8Constant.index);
-        Entry entry = _entryMap.get(_lookupKey);
+        Entry entry = entryMap().get(_lookupKey);
         if (entry == null) {
             if (isFrozen()) {
                 return null;
@@ -170,7 +170,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
 
     public IntegerConstantEntry getIntegerConstant(final int value) {
         _lookupKey.set(value);
-        Entry entry = _entryMap.get(_lookupKey);
+        Entry entry = entryMap().get(_lookupKey);
         if (entry == null) {
             if (isFrozen()) {
                 return null;
@@ -183,7 +183,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
 
     public FloatConstantEntry getFloatConstant(final float value) {
         _lookupKey.set(value);
-        Entry entry = _entryMap.get(_lookupKey);
+        Entry entry = entryMap().get(_lookupKey);
         if (entry == null) {
             if (isFrozen()) {
                 return null;
@@ -196,7 +196,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
 
     public LongConstantEntry getLongConstant(final long value) {
         _lookupKey.set(value);
-        Entry entry = _entryMap.get(_lookupKey);
+        Entry entry = entryMap().get(_lookupKey);
         if (entry == null) {
             if (isFrozen()) {
                 return null;
@@ -209,7 +209,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
 
     public DoubleConstantEntry getDoubleConstant(final double value) {
         _lookupKey.set(value);
-        Entry entry = _entryMap.get(_lookupKey);
+        Entry entry = entryMap().get(_lookupKey);
         if (entry == null) {
             if (isFrozen()) {
                 return null;
@@ -223,7 +223,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
     public TypeInfoEntry getTypeInfo(final TypeReference type) {
         final Utf8StringConstantEntry name = getUtf8StringConstant(type.getInternalName());
         _lookupKey.set(Tag.TypeInfo, name.index);
-        Entry entry = _entryMap.get(_lookupKey);
+        Entry entry = entryMap().get(_lookupKey);
         if (entry == null) {
             if (isFrozen()) {
                 return null;
@@ -241,7 +241,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
             field.getErasedSignature()
         );
         _lookupKey.set(Tag.FieldReference, typeInfo.index, nameAndDescriptor.index);
-        Entry entry = _entryMap.get(_lookupKey);
+        Entry entry = entryMap().get(_lookupKey);
         if (entry == null) {
             if (isFrozen()) {
                 return null;
@@ -259,7 +259,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
             method.getErasedSignature()
         );
         _lookupKey.set(Tag.MethodReference, typeInfo.index, nameAndDescriptor.index);
-        Entry entry = _entryMap.get(_lookupKey);
+        Entry entry = entryMap().get(_lookupKey);
         if (entry == null) {
             if (isFrozen()) {
                 return null;
@@ -277,7 +277,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
             method.getErasedSignature()
         );
         _lookupKey.set(Tag.InterfaceMethodReference, typeInfo.index, nameAndDescriptor.index);
-        Entry entry = _entryMap.get(_lookupKey);
+        Entry entry = entryMap().get(_lookupKey);
         if (entry == null) {
             if (isFrozen()) {
                 return null;
@@ -292,7 +292,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
         final Utf8StringConstantEntry utf8Name = getUtf8StringConstant(name);
         final Utf8StringConstantEntry utf8Descriptor = getUtf8StringConstant(typeDescriptor);
         _lookupKey.set(Tag.NameAndTypeDescriptor, utf8Name.index, utf8Descriptor.index);
-        Entry entry = _entryMap.get(_lookupKey);
+        Entry entry = entryMap().get(_lookupKey);
         if (entry == null) {
             if (isFrozen()) {
                 return null;
@@ -305,7 +305,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
 
     MethodHandleEntry getMethodHandle(final ReferenceKind referenceKind, final int referenceIndex) {
         _lookupKey.set(Tag.MethodHandle, referenceIndex, referenceKind);
-        Entry entry = _entryMap.get(_lookupKey);
+        Entry entry = entryMap().get(_lookupKey);
         if (entry == null) {
             if (isFrozen()) {
                 return null;
@@ -318,7 +318,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
 
     MethodTypeEntry getMethodType(final int descriptorIndex) {
         _lookupKey.set(Tag.MethodType, descriptorIndex);
-        Entry entry = _entryMap.get(_lookupKey);
+        Entry entry = entryMap().get(_lookupKey);
         if (entry == null) {
             if (isFrozen()) {
                 return null;
@@ -333,7 +333,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
         final int bootstrapMethodAttributeIndex,
         final int nameAndTypeDescriptorIndex) {
         _lookupKey.set(Tag.InvokeDynamicInfo, bootstrapMethodAttributeIndex, nameAndTypeDescriptorIndex);
-        Entry entry = _entryMap.get(_lookupKey);
+        Entry entry = entryMap().get(_lookupKey);
         if (entry == null) {
             if (isFrozen()) {
                 return null;
@@ -344,6 +344,36 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
         return (InvokeDynamicInfoEntry) entry;
     }
 
+    /**
+     * The map used to find existing entries is only needed when entries are looked up by value,
+     * which pools read from class files rarely are.  It is built on first use.
+     */
+    private HashMap<Key, Entry> entryMap() {
+        HashMap<Key, Entry> entryMap = _entryMap;
+
+        if (entryMap == null) {
+            final Key key = new Key();
+
+            _entryMap = entryMap = new HashMap<>();
+
+            for (final Entry entry : _pool) {
+                if (entry != null) {
+                    entry.fixupKey(key);
+                    entryMap.put(key.clone(), entry);
+                    key.clear();
+                }
+            }
+        }
+
+        return entryMap;
+    }
+
+    private void putEntry(final Key key, final Entry entry) {
+        if (_entryMap != null) {
+            _entryMap.put(key.clone(), entry);
+        }
+    }
+
     public static ConstantPool read(final Buffer b) {
         boolean skipOne = false;
 
@@ -761,7 +791,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
             super(owner);
             this.nameIndex = nameIndex;
             owner._newKey.set(getTag(), nameIndex);
-            owner._entryMap.put(owner._newKey.clone(), this);
+            owner.putEntry(owner._newKey, this);
             owner._newKey.clear();
         }
 
@@ -802,7 +832,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
             super(owner);
             this.descriptorIndex = descriptorIndex;
             owner._newKey.set(getTag(), descriptorIndex);
-            owner._entryMap.put(owner._newKey.clone(), this);
+            owner.putEntry(owner._newKey, this);
             owner._newKey.clear();
         }
 
@@ -847,7 +877,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
             this.typeInfoIndex = typeInfoIndex;
             this.nameAndTypeDescriptorIndex = nameAndTypeDescriptorIndex;
             owner._newKey.set(tag, typeInfoIndex, nameAndTypeDescriptorIndex);
-            owner._entryMap.put(owner._newKey.clone(), this);
+            owner.putEntry(owner._newKey, this);
             owner._newKey.clear();
         }
 
@@ -940,7 +970,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
             this.referenceKind = referenceKind;
             this.referenceIndex = referenceIndex;
             owner._newKey.set(getTag(), referenceIndex, referenceKind);
-            owner._entryMap.put(owner._newKey.clone(), this);
+            owner.putEntry(owner._newKey, this);
             owner._newKey.clear();
         }
 
@@ -989,7 +1019,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
             this.nameIndex = nameIndex;
             this.typeDescriptorIndex = typeDescriptorIndex;
             owner._newKey.set(getTag(), nameIndex, typeDescriptorIndex);
-            owner._entryMap.put(owner._newKey.clone(), this);
+            owner.putEntry(owner._newKey, this);
             owner._newKey.clear();
         }
 
@@ -1038,7 +1068,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
             this.bootstrapMethodAttributeIndex = bootstrapMethodAttributeIndex;
             this.nameAndTypeDescriptorIndex = nameAndTypeDescriptorIndex;
             owner._newKey.set(getTag(), bootstrapMethodAttributeIndex, nameAndTypeDescriptorIndex);
-            owner._entryMap.put(owner._newKey.clone(), this);
+            owner.putEntry(owner._newKey, this);
             owner._newKey.clear();
         }
 
@@ -1080,7 +1110,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
             super(owner);
             this.value = value;
             owner._newKey.set(value);
-            owner._entryMap.put(owner._newKey.clone(), this);
+            owner.putEntry(owner._newKey, this);
             owner._newKey.clear();
         }
 
@@ -1127,7 +1157,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
             super(owner);
             this.value = value;
             owner._newKey.set(value);
-            owner._entryMap.put(owner._newKey.clone(), this);
+            owner.putEntry(owner._newKey, this);
             owner._newKey.clear();
         }
 
@@ -1169,7 +1199,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
             super(owner);
             this.value = value;
             owner._newKey.set(value);
-            owner._entryMap.put(owner._newKey.clone(), this);
+            owner.putEntry(owner._newKey, this);
             owner._newKey.clear();
         }
 
@@ -1211,7 +1241,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
             super(owner);
             this.value = value;
             owner._newKey.set(value);
-            owner._entryMap.put(owner._newKey.clone(), this);
+            owner.putEntry(owner._newKey, this);
             owner._newKey.clear();
         }
 
@@ -1258,7 +1288,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
             super(owner);
             this.stringIndex = stringIndex;
             owner._newKey.set(getTag(), stringIndex);
-            owner._entryMap.put(owner._newKey.clone(), this);
+            owner.putEntry(owner._newKey, this);
             owner._newKey.clear();
         }
 
@@ -1304,7 +1334,7 @@ public final class ConstantPool extends Freezable implements Iterable<ConstantPo
             super(owner);
             this.value = value;
             owner._newKey.set(getTag(), value);
-            owner._entryMap.put(owner._newKey.clone(), this);
+            owner.putEntry(owner._newKey, this);
             owner._newKey.clear();
         }
 
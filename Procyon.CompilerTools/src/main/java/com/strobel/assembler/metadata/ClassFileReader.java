@@ -55,6 +55,7 @@ public final class ClassFileReader extends MetadataReader {
     private final List<MethodInfo> _methods;
     private final List<SourceAttribute> _attributes;
     private final String _internalName;
+    private final boolean _isMetadataRecord;
 
     private final TypeDefinition _typeDefinition;
     private final MetadataParser _parser;
@@ -71,11 +72,16 @@ public final class ClassFileReader extends MetadataReader {
         final int accessFlags,
         final ConstantPool.TypeInfoEntry thisClassEntry,
         final ConstantPool.TypeInfoEntry baseClassEntry,
-        final ConstantPool.TypeInfoEntry[] interfaceEntries) {
+        final ConstantPool.TypeInfoEntry[] interfaceEntries,
+        final boolean isMetadataRecord) {
 
         super();
 
-        _options = options;
+        //
+        // A metadata record holds no code, so method bodies are always loaded on demand.
+        //
+        _options = isMetadataRecord ? options & ~OPTION_PROCESS_CODE : options;
+        _isMetadataRecord = isMetadataRecord;
         _resolver = resolver;
         _resolverFrame = new ResolverFrame();
         _internalName = thisClassEntry.getName();
@@ -119,7 +125,14 @@ public final class ClassFileReader extends MetadataReader {
         _scope = new Scope(_parser, _typeDefinition, constantPool);
 
         _constantPool.freezeIfUnfrozen();
-        _typeDefinition.setConstantPool(_constantPool);
+
+        //
+        // The constant pool of a metadata record is not the class file's, which the type's code refers to.
+        // The type reads the real one from the class file when it is first needed.
+        //
+        if (!isMetadataRecord) {
+            _typeDefinition.setConstantPool(_constantPool);
+        }
     }
 
     protected boolean shouldProcessAnnotations() {
@@ -164,13 +177,28 @@ public final class ClassFileReader extends MetadataReader {
 
         switch (name) {
             case AttributeNames.Code: {
+                //
+                // The Code attribute of a metadata record gives the location of the code in the class
+                // file in place of the code itself; see TypeMetadataWriter.
+                //
+                final int codeAttributeLength = _isMetadataRecord ? buffer.readInt() : length;
                 final int maxStack = buffer.readUnsignedShort();
                 final int maxLocals = buffer.readUnsignedShort();
-                final int codeLength = buffer.readInt();
-                final int codeOffset = buffer.position();
-                final byte[] code = new byte[codeLength];
+                final int codeLength;
+                final int codeOffset;
 
-                buffer.read(code, 0, codeLength);
+                if (_isMetadataRecord) {
+                    codeOffset = buffer.readInt();
+                    codeLength = buffer.readInt();
+                }
+                else {
+                    codeLength = buffer.readInt();
+                    codeOffset = buffer.position();
+
+                    final byte[] code = new byte[codeLength];
+
+                    buffer.read(code, 0, codeLength);
+                }
 
                 final int exceptionTableLength = buffer.readUnsignedShort();
                 final ExceptionTableEntry[] exceptionTable = new ExceptionTableEntry[exceptionTableLength];
@@ -204,7 +232,7 @@ public final class ClassFileReader extends MetadataReader {
 
                 if (shouldProcessCode()) {
                     return new CodeAttribute(
-                        length,
+                        codeAttributeLength,
                         maxStack,
                         maxLocals,
                         codeOffset,
@@ -216,8 +244,8 @@ public final class ClassFileReader extends MetadataReader {
                 }
                 else {
                     return new CodeAttribute(
-                        length,
-                        originalOffset + codeOffset,
+                        codeAttributeLength,
+                        _isMetadataRecord ? codeOffset : originalOffset + codeOffset,
                         codeLength,
                         maxStack,
                         maxLocals,
@@ -228,37 +256,41 @@ public final class ClassFileReader extends MetadataReader {
             }
 
             case AttributeNames.InnerClasses: {
-                final InnerClassEntry[] entries = new InnerClassEntry[buffer.readUnsignedShort()];
+                return readInnerClasses(_constantPool, buffer, length);
+            }
+        }
 
-                for (int i = 0; i < entries.length; i++) {
-                    final int innerClassIndex = buffer.readUnsignedShort();
-                    final int outerClassIndex = buffer.readUnsignedShort();
-                    final int shortNameIndex = buffer.readUnsignedShort();
-                    final int accessFlags = buffer.readUnsignedShort();
+        return super.readAttributeCore(name, buffer, originalOffset, length);
+    }
 
-                    final ConstantPool.TypeInfoEntry innerClass = _constantPool.getEntry(innerClassIndex);
-                    final ConstantPool.TypeInfoEntry outerClass;
+    static InnerClassesAttribute readInnerClasses(final ConstantPool constantPool, final Buffer buffer, final int length) {
+        final InnerClassEntry[] entries = new InnerClassEntry[buffer.readUnsignedShort()];
 
-                    if (outerClassIndex != 0) {
-                        outerClass = _constantPool.getEntry(outerClassIndex);
-                    }
-                    else {
-                        outerClass = null;
-                    }
+        for (int i = 0; i < entries.length; i++) {
+            final int innerClassIndex = buffer.readUnsignedShort();
+            final int outerClassIndex = buffer.readUnsignedShort();
+            final int shortNameIndex = buffer.readUnsignedShort();
+            final int accessFlags = buffer.readUnsignedShort();
 
-                    entries[i] = new InnerClassEntry(
-                        innerClass.getName(),
-                        outerClass != null ? outerClass.getName() : null,
-                        shortNameIndex != 0 ? _constantPool.<String>lookupConstant(shortNameIndex) : null,
-                        accessFlags
-                    );
-                }
+            final ConstantPool.TypeInfoEntry innerClass = constantPool.getEntry(innerClassIndex);
+            final ConstantPool.TypeInfoEntry outerClass;
 
-                return new InnerClassesAttribute(length, ArrayUtilities.asUnmodifiableList(entries));
+            if (outerClassIndex != 0) {
+                outerClass = constantPool.getEntry(outerClassIndex);
+            }
+            else {
+                outerClass = null;
             }
+
+            entries[i] = new InnerClassEntry(
+                innerClass.getName(),
+                outerClass != null ? outerClass.getName() : null,
+                shortNameIndex != 0 ? constantPool.<String>lookupConstant(shortNameIndex) : null,
+                accessFlags
+            );
         }
 
-        return super.readAttributeCore(name, buffer, originalOffset, length);
+        return new InnerClassesAttribute(length, ArrayUtilities.asUnmodifiableList(entries));
     }
 
     @SuppressWarnings("ConstantConditions")
@@ -331,10 +363,13 @@ public final class ClassFileReader extends MetadataReader {
         return readClass(OPTIONS_DEFAULT, resolver, b);
     }
 
+    /**
+     * Reads a type from a class file, or from a metadata record written by {@link TypeMetadataWriter}.
+     */
     public static TypeDefinition readClass(final int options, final IMetadataResolver resolver, final Buffer b) {
         final long magic = b.readInt() & 0xFFFFFFFFL;
 
-        if (magic != MAGIC) {
+        if (magic != MAGIC && magic != TypeMetadataWriter.MAGIC) {
             throw new IllegalStateException("Wrong magic number: " + magic);
         }
 
@@ -373,10 +408,46 @@ public final class ClassFileReader extends MetadataReader {
             accessFlags,
             thisClass,
             baseClass,
-            interfaces
+            interfaces,
+            magic == TypeMetadataWriter.MAGIC
         ).readClass();
     }
 
+    /**
+     * Reads the constant pool of a class file.
+     */
+    static ConstantPool readConstantPool(final Buffer classFile) {
+        classFile.position(0);
+
+        final long magic = classFile.readInt() & 0xFFFFFFFFL;
+
+        if (magic != MAGIC) {
+            throw new IllegalStateException(String.format("Wrong magic number in class header: 0x%8X.", magic));
+        }
+
+        classFile.readUnsignedShort(); // minor version
+        classFile.readUnsignedShort(); // major version
+
+        final ConstantPool constantPool = ConstantPool.read(classFile);
+
+        constantPool.freezeIfUnfrozen();
+
+        return constantPool;
+    }
+
+    /**
+     * Reads a class file straight from {@code b} and reports its declarations to {@code visitor},
+     * without building a {@link TypeDefinition} or registering anything with {@code resolver}.
+     * See {@link StreamingClassFileReader} for details.
+     */
+    public static void accept(final IMetadataResolver resolver, final Buffer b, final TypeVisitor visitor) {
+        accept(OPTIONS_DEFAULT, resolver, b, visitor);
+    }
+
+    public static void accept(final int options, final IMetadataResolver resolver, final Buffer b, final TypeVisitor visitor) {
+        StreamingClassFileReader.accept(options, resolver, b, visitor);
+    }
+
     // <editor-fold defaultstate="collapsed" desc="ClassReader Implementation">
 
     final TypeDefinition readClass() {
@@ -916,19 +987,30 @@ public final class ClassFileReader extends MetadataReader {
 
                     final List<ParameterDefinition> signatureParameters = methodSignature.getParameters();
                     final List<ParameterDefinition> descriptorParameters = methodDescriptor.getParameters();
-                    final ParameterDefinitionCollection parameters = methodDefinition.getParametersInternal();
+                    final int missingParameters = descriptorParameters.size() - signatureParameters.size();
 
                     methodDefinition.setReturnType(methodSignature.getReturnType());
-                    parameters.addAll(signatureParameters);
-                    methodDefinition.getGenericParametersInternal().addAll(methodSignature.getGenericParameters());
-                    methodDefinition.getThrownTypesInternal().addAll(methodSignature.getThrownTypes());
 
-                    final int missingParameters = descriptorParameters.size() - signatureParameters.size();
+                    if (!signatureParameters.isEmpty() || missingParameters > 0) {
+                        final ParameterDefinitionCollection parameterCollection = methodDefinition.getParametersInternal();
+
+                        parameterCollection.addAll(signatureParameters);
+
+                        for (int i = 0; i < missingParameters; i++) {
+                            final ParameterDefinition parameter = descriptorParameters.get(i);
+                            parameter.setFlags(parameter.getFlags() | Flags.SYNTHETIC);
+                            parameterCollection.add(i, parameter);
+                        }
+                    }
+
+                    final List<ParameterDefinition> parameters = methodDefinition.getParameters();
 
-                    for (int i = 0; i < missingParameters; i++) {
-                        final ParameterDefinition parameter = descriptorParameters.get(i);
-                        parameter.setFlags(parameter.getFlags() | Flags.SYNTHETIC);
-                        parameters.add(i, parameter);
+                    if (methodSignature.hasGenericParameters()) {
+                        methodDefinition.getGenericParametersInternal().addAll(methodSignature.getGenericParameters());
+                    }
+
+                    if (!methodSignature.getThrownTypes().isEmpty()) {
+                        methodDefinition.getThrownTypesInternal().addAll(methodSignature.getThrownTypes());
                     }
 
                     int slot = 0;
@@ -1204,11 +1286,20 @@ public final class ClassFileReader extends MetadataReader {
     static class Scope implements IMetadataScope {
         private final MetadataParser _parser;
         private final TypeDefinition _typeDefinition;
+        private final List<SourceAttribute> _typeAttributes;
         private final ConstantPool _constantPool;
 
         Scope(final MetadataParser parser, final TypeDefinition typeDefinition, final ConstantPool constantPool) {
             _parser = parser;
             _typeDefinition = typeDefinition;
+            _typeAttributes = null;
+            _constantPool = constantPool;
+        }
+
+        Scope(final MetadataParser parser, final List<SourceAttribute> typeAttributes, final ConstantPool constantPool) {
+            _parser = parser;
+            _typeDefinition = null;
+            _typeAttributes = typeAttributes;
             _constantPool = constantPool;
         }
 
@@ -1269,7 +1360,10 @@ public final class ClassFileReader extends MetadataReader {
         @Override
         public DynamicCallSite lookupDynamicCallSite(final int token) {
             final ConstantPool.InvokeDynamicInfoEntry entry = _constantPool.getEntry(token);
-            final BootstrapMethodsAttribute attribute = SourceAttribute.find(AttributeNames.BootstrapMethods, _typeDefinition.getSourceAttributes());
+            final BootstrapMethodsAttribute attribute = SourceAttribute.find(
+                AttributeNames.BootstrapMethods,
+                _typeDefinition != null ? _typeDefinition.getSourceAttributes() : _typeAttributes
+            );
 
             final BootstrapMethodsTableEntry bootstrapMethod = attribute.getBootstrapMethods()
                                                                         .get(entry.bootstrapMethodAttributeIndex);
@@ -0,0 +1,128 @@
+/*
+ * ClassPathMonitor.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.metadata;
+
+import com.strobel.core.VerifyArgument;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes the same stamps as {@link FileSystemTypeLoader#computeStamp(List)}, cheaply enough to check
+ * before every request.  Jar files cost a couple of file system calls each, so they are checked on every
+ * call; class directories must be walked file by file, so they are walked at most once per interval, and
+ * the stamps from the last walk are used in between.  A change beneath a class directory may therefore go
+ * unnoticed for up to one interval.
+ *
+ * @author Mike Strobel
+ */
+public final class ClassPathMonitor {
+    public final static long DEFAULT_DIRECTORY_CHECK_INTERVAL = 1000L;
+
+    private final List<File> _entries;
+    private final long _directoryCheckInterval;
+
+    private final Object _lock = new Object();
+
+    private long[] _directoryStamps;
+    private long _lastDirectoryCheck;
+
+    public ClassPathMonitor(final List<File> entries) {
+        this(entries, DEFAULT_DIRECTORY_CHECK_INTERVAL);
+    }
+
+    /**
+     * @param entries
+     *     The jar files and class directories to monitor.
+     * @param directoryCheckInterval
+     *     The minimum time, in milliseconds, between two walks of the class directories.
+     */
+    public ClassPathMonitor(final List<File> entries, final long directoryCheckInterval) {
+        VerifyArgument.noNullElements(entries, "entries");
+        VerifyArgument.isNonNegative(directoryCheckInterval, "directoryCheckInterval");
+
+        _entries = new ArrayList<>(entries);
+        _directoryCheckInterval = TimeUnit.MILLISECONDS.toNanos(directoryCheckInterval);
+        _directoryStamps = computeDirectoryStamps();
+        _lastDirectoryCheck = System.nanoTime();
+    }
+
+    /**
+     * Returns the stamp of the class path, walking the class directories only if the interval has elapsed
+     * since they were last walked.
+     */
+    public long getStamp() {
+        return getStamp(false);
+    }
+
+    /**
+     * Returns the stamp of the class path.
+     *
+     * @param checkDirectories
+     *     {@code true} to walk the class directories even if the interval has not elapsed.
+     */
+    public long getStamp(final boolean checkDirectories) {
+        long[] directoryStamps = null;
+
+        synchronized (_lock) {
+            final long now = System.nanoTime();
+
+            if (checkDirectories || now - _lastDirectoryCheck >= _directoryCheckInterval) {
+                //
+                // Claim the walk up front, so concurrent callers keep using the last stamps
+                // instead of walking the same directories alongside us.
+                //
+                _lastDirectoryCheck = now;
+            }
+            else {
+                directoryStamps = _directoryStamps;
+            }
+        }
+
+        if (directoryStamps == null) {
+            directoryStamps = computeDirectoryStamps();
+
+            synchronized (_lock) {
+                _directoryStamps = directoryStamps;
+            }
+        }
+
+        long stamp = 17L;
+
+        for (int i = 0; i < _entries.size(); i++) {
+            final File entry = _entries.get(i);
+
+            stamp = stamp * 31L + (entry.isDirectory() ? directoryStamps[i]
+                                                       : FileSystemTypeLoader.computeFileStamp(entry));
+        }
+
+        return stamp;
+    }
+
+    private long[] computeDirectoryStamps() {
+        final long[] stamps = new long[_entries.size()];
+
+        for (int i = 0; i < stamps.length; i++) {
+            final File entry = _entries.get(i);
+
+            if (entry.isDirectory()) {
+                stamps[i] = FileSystemTypeLoader.computeDirectoryStamp(entry);
+            }
+        }
+
+        return stamps;
+    }
+}
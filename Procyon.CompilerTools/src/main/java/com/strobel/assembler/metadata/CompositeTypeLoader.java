@@ -18,7 +18,7 @@ package com.strobel.assembler.metadata;
 
 import com.strobel.core.VerifyArgument;
 
-public final class CompositeTypeLoader implements ITypeLoader {
+public final class CompositeTypeLoader implements ITypeMetadataLoader {
     private final ITypeLoader[] _typeLoaders;
 
     public CompositeTypeLoader(final ITypeLoader... typeLoaders) {
@@ -37,4 +37,21 @@ public final class CompositeTypeLoader implements ITypeLoader {
 
         return false;
     }
+
+    @Override
+    public boolean tryLoadTypeMetadata(final String internalName, final Buffer buffer) {
+        for (final ITypeLoader typeLoader : _typeLoaders) {
+            final boolean loaded = typeLoader instanceof ITypeMetadataLoader
+                                   ? ((ITypeMetadataLoader) typeLoader).tryLoadTypeMetadata(internalName, buffer)
+                                   : typeLoader.tryLoadType(internalName, buffer);
+
+            if (loaded) {
+                return true;
+            }
+
+            buffer.reset();
+        }
+
+        return false;
+    }
 }
@@ -29,7 +29,9 @@ import com.strobel.core.ArrayUtilities;
 import com.strobel.core.StringUtilities;
 import com.strobel.core.VerifyArgument;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Stack;
 
@@ -39,6 +41,9 @@ public class CoreMetadataFactory implements MetadataFactory {
     private final IGenericContext _scope;
     private final Stack<GenericParameter> _tempScope;
 
+    private ArrayList<String> _trackedNamedTypes;
+    private boolean _contextDependent;
+
     private CoreMetadataFactory(final TypeDefinition owner, final IMetadataResolver resolver, final IGenericContext scope) {
         _owner = owner;
         _resolver = resolver;
@@ -59,6 +64,8 @@ public class CoreMetadataFactory implements MetadataFactory {
     }
 
     public GenericParameter makeTypeVariable(final String name, final FieldTypeSignature[] bounds) {
+        _contextDependent = true;
+
         final GenericParameter genericParameter = new GenericParameter(name);
 
         genericParameter.setResolver(_resolver);
@@ -159,6 +166,8 @@ public class CoreMetadataFactory implements MetadataFactory {
     }
 
     public GenericParameter findTypeVariable(final String name) {
+        _contextDependent = true;
+
         for (int i = _tempScope.size() - 1; i >= 0; i--) {
             final GenericParameter genericParameter = _tempScope.get(i);
 
@@ -176,6 +185,52 @@ public class CoreMetadataFactory implements MetadataFactory {
         return null;
     }
 
+    /**
+     * Begins recording which named types are reified, and whether anything reified depends on the
+     * owner or on the generic context (type variables, or types declared in the owner's
+     * {@code InnerClasses} attribute).  Returns {@code false} if tracking is already underway.
+     */
+    final boolean beginTrackingDependencies() {
+        if (_trackedNamedTypes != null) {
+            return false;
+        }
+
+        _trackedNamedTypes = new ArrayList<>();
+        _contextDependent = false;
+
+        return true;
+    }
+
+    /**
+     * Ends dependency tracking, returning the named types reified since tracking began, or
+     * {@code null} if the result depends on the owner or generic context.
+     */
+    final String[] endTrackingDependencies() {
+        final ArrayList<String> namedTypes = _trackedNamedTypes;
+
+        _trackedNamedTypes = null;
+
+        if (namedTypes == null || _contextDependent) {
+            return null;
+        }
+
+        return namedTypes.toArray(new String[namedTypes.size()]);
+    }
+
+    final boolean hasInnerClassEntry(final String[] names) {
+        if (_owner == null) {
+            return false;
+        }
+
+        for (final String name : names) {
+            if (findInnerClassEntry(name) != null) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     private InnerClassEntry findInnerClassEntry(final String name) {
         if (_owner == null) {
             return null;
@@ -202,7 +257,13 @@ public class CoreMetadataFactory implements MetadataFactory {
 
         final InnerClassEntry entry = findInnerClassEntry(name);
 
+        if (_trackedNamedTypes != null) {
+            _trackedNamedTypes.add(name);
+        }
+
         if (entry != null) {
+            _contextDependent = true;
+
             final String innerClassName = entry.getInnerClassName();
             final int packageEnd = innerClassName.lastIndexOf('/');
             final String shortName = StringUtilities.isNullOrEmpty(entry.getShortName()) ? null : entry.getShortName();
@@ -481,7 +542,7 @@ public class CoreMetadataFactory implements MetadataFactory {
         private final String _name;
         private final String _shortName;
         private final String _packageName;
-        private final GenericParameterCollection _genericParameters;
+        private final List<GenericParameter> _genericParameters;
 
         private String _fullName;
         private String _internalName;
@@ -493,16 +554,14 @@ public class CoreMetadataFactory implements MetadataFactory {
             _shortName = shortName;
             setDeclaringType(VerifyArgument.notNull(declaringType, "declaringType"));
             _packageName = declaringType.getPackageName();
-            _genericParameters = new GenericParameterCollection(this);
-            _genericParameters.freeze();
+            _genericParameters = Collections.emptyList();
         }
 
         UnresolvedType(final String packageName, final String name, final String shortName) {
             _packageName = VerifyArgument.notNull(packageName, "packageName");
             _name = VerifyArgument.notNull(name, "name");
             _shortName = shortName;
-            _genericParameters = new GenericParameterCollection(this);
-            _genericParameters.freeze();
+            _genericParameters = Collections.emptyList();
         }
 
         UnresolvedType(final TypeReference declaringType, final String name, final String shortName, final List<GenericParameter> genericParameters) {
@@ -511,13 +570,15 @@ public class CoreMetadataFactory implements MetadataFactory {
             setDeclaringType(VerifyArgument.notNull(declaringType, "declaringType"));
             _packageName = declaringType.getPackageName();
 
-            _genericParameters = new GenericParameterCollection(this);
+            final GenericParameterCollection genericParameterCollection = new GenericParameterCollection(this);
 
             for (final GenericParameter genericParameter : genericParameters) {
-                _genericParameters.add(genericParameter);
+                genericParameterCollection.add(genericParameter);
             }
 
-            _genericParameters.freeze();
+            genericParameterCollection.freeze();
+
+            _genericParameters = genericParameterCollection;
         }
 
         UnresolvedType(final String packageName, final String name, final String shortName, final List<GenericParameter> genericParameters) {
@@ -525,11 +586,13 @@ public class CoreMetadataFactory implements MetadataFactory {
             _name = VerifyArgument.notNull(name, "name");
             _shortName = shortName;
 
-            _genericParameters = new GenericParameterCollection(this);
+            final GenericParameterCollection genericParameterCollection = new GenericParameterCollection(this);
 
             for (final GenericParameter genericParameter : genericParameters) {
-                _genericParameters.add(genericParameter);
+                genericParameterCollection.add(genericParameter);
             }
+
+            _genericParameters = genericParameterCollection;
         }
 
         @Override
@@ -0,0 +1,55 @@
+/*
+ * DirectoryTypeLoader.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.metadata;
+
+import com.strobel.core.ExceptionUtilities;
+import com.strobel.core.VerifyArgument;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * A type loader which reads class files from a class directory, such as a compiler's output folder.
+ *
+ * @author Mike Strobel
+ */
+public final class DirectoryTypeLoader implements ITypeLoader {
+    private final File _directory;
+
+    public DirectoryTypeLoader(final File directory) {
+        _directory = VerifyArgument.notNull(directory, "directory");
+    }
+
+    @Override
+    public boolean tryLoadType(final String internalName, final Buffer buffer) {
+        final File file = new File(_directory, internalName + ".class");
+
+        if (!file.isFile()) {
+            return false;
+        }
+
+        try {
+            final byte[] data = Files.readAllBytes(file.toPath());
+
+            buffer.reset(data.length);
+            System.arraycopy(data, 0, buffer.array(), 0, data.length);
+
+            return true;
+        }
+        catch (final IOException e) {
+            throw ExceptionUtilities.asRuntimeException(e);
+        }
+    }
+}
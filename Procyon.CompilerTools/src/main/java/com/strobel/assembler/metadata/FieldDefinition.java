@@ -23,14 +23,11 @@ import com.strobel.core.HashUtilities;
 import com.strobel.core.StringUtilities;
 
 import javax.lang.model.element.Modifier;
-import java.util.Collections;
 import java.util.List;
 
 public class FieldDefinition extends FieldReference implements IMemberDefinition, IConstantValueProvider {
-    private final Collection<CustomAnnotation> _customAnnotations;
-    private final Collection<SourceAttribute> _sourceAttributes;
-    private final List<CustomAnnotation> _customAnnotationsView;
-    private final List<SourceAttribute> _sourceAttributesView;
+    private volatile Collection<CustomAnnotation> _customAnnotations;
+    private volatile Collection<SourceAttribute> _sourceAttributes;
 
     private String _name;
     private TypeReference _fieldType;
@@ -40,27 +37,35 @@ public class FieldDefinition extends FieldReference implements IMemberDefinition
 
     protected FieldDefinition(final TypeReference fieldType) {
         _fieldType = fieldType;
-        _customAnnotations = new Collection<>();
-        _customAnnotationsView = Collections.unmodifiableList(_customAnnotations);
-        _sourceAttributes = new Collection<>();
-        _sourceAttributesView = Collections.unmodifiableList(_sourceAttributes);
     }
 
     @Override
     public final List<CustomAnnotation> getAnnotations() {
-        return _customAnnotationsView;
+        return Collection.readOnly(_customAnnotations);
     }
 
     protected final Collection<CustomAnnotation> getAnnotationsInternal() {
-        return _customAnnotations;
+        Collection<CustomAnnotation> customAnnotations = _customAnnotations;
+
+        if (customAnnotations == null) {
+            _customAnnotations = customAnnotations = new Collection<>();
+        }
+
+        return customAnnotations;
     }
 
     public final List<SourceAttribute> getSourceAttributes() {
-        return _sourceAttributesView;
+        return Collection.readOnly(_sourceAttributes);
     }
 
     protected final Collection<SourceAttribute> getSourceAttributesInternal() {
-        return _sourceAttributes;
+        Collection<SourceAttribute> sourceAttributes = _sourceAttributes;
+
+        if (sourceAttributes == null) {
+            _sourceAttributes = sourceAttributes = new Collection<>();
+        }
+
+        return sourceAttributes;
     }
 
     @Override
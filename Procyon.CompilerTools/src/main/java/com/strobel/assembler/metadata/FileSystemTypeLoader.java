@@ -0,0 +1,130 @@
+/*
+ * FileSystemTypeLoader.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.metadata;
+
+import com.strobel.core.VerifyArgument;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A type loader which reads class files from a list of jar files and class directories, then from the
+ * system class path.  The jar files stay open until the loader is closed.
+ * <p>
+ * Services which keep loaded metadata warm between requests use {@link #computeStamp(List)} to decide
+ * when a class path has changed on disk and its metadata must be loaded again; services which check before
+ * every request use a {@link ClassPathMonitor}, which walks class directories less often.
+ *
+ * @author Mike Strobel
+ */
+public final class FileSystemTypeLoader implements ITypeLoader, Closeable {
+    private final static Logger LOG = Logger.getLogger(FileSystemTypeLoader.class.getSimpleName());
+
+    private final List<JarFile> _jarFiles = new ArrayList<>();
+    private final ITypeLoader _typeLoader;
+
+    /**
+     * @param entries
+     *     The jar files and class directories to load types from.  Entries which do not exist are ignored.
+     */
+    public FileSystemTypeLoader(final List<File> entries) throws IOException {
+        VerifyArgument.noNullElements(entries, "entries");
+
+        final List<ITypeLoader> typeLoaders = new ArrayList<>();
+
+        try {
+            for (final File entry : entries) {
+                if (entry.isDirectory()) {
+                    typeLoaders.add(new DirectoryTypeLoader(entry));
+                }
+                else if (entry.isFile()) {
+                    final JarFile jarFile = new JarFile(entry);
+
+                    _jarFiles.add(jarFile);
+                    typeLoaders.add(new JarTypeLoader(jarFile));
+                }
+            }
+        }
+        catch (final IOException e) {
+            close();
+            throw e;
+        }
+
+        typeLoaders.add(new ClasspathTypeLoader());
+
+        _typeLoader = new CompositeTypeLoader(typeLoaders.toArray(new ITypeLoader[typeLoaders.size()]));
+    }
+
+    @Override
+    public boolean tryLoadType(final String internalName, final Buffer buffer) {
+        return _typeLoader.tryLoadType(internalName, buffer);
+    }
+
+    @Override
+    public void close() {
+        for (final JarFile jarFile : _jarFiles) {
+            try {
+                jarFile.close();
+            }
+            catch (final IOException e) {
+                LOG.log(Level.FINE, "Failed to close " + jarFile.getName() + ".", e);
+            }
+        }
+    }
+
+    /**
+     * Computes a value which changes when any of the given jar files, or any file beneath the given class
+     * directories, is added, removed, or modified.  Files are compared by name, modification time, and size.
+     */
+    public static long computeStamp(final List<File> entries) {
+        VerifyArgument.noNullElements(entries, "entries");
+
+        long stamp = 17L;
+
+        for (final File entry : entries) {
+            stamp = stamp * 31L + (entry.isDirectory() ? computeDirectoryStamp(entry) : computeFileStamp(entry));
+        }
+
+        return stamp;
+    }
+
+    static long computeFileStamp(final File file) {
+        return (file.getName().hashCode() * 31L + file.lastModified()) * 31L + file.length();
+    }
+
+    static long computeDirectoryStamp(final File directory) {
+        final File[] files = directory.listFiles();
+
+        if (files == null) {
+            return 0L;
+        }
+
+        //
+        // Combine the files with a sum, as listFiles() does not promise any particular order.
+        //
+        long stamp = directory.getName().hashCode();
+
+        for (final File file : files) {
+            stamp += file.isDirectory() ? computeDirectoryStamp(file) * 31L : computeFileStamp(file);
+        }
+
+        return stamp;
+    }
+}
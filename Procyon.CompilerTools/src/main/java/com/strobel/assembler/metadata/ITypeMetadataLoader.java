@@ -0,0 +1,29 @@
+/*
+ * ITypeMetadataLoader.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.metadata;
+
+/**
+ * A type loader which can serve a type as a metadata record in place of its class file.  A {@link MetadataSystem}
+ * builds a type from its record without reading the class file, and reads the class file from
+ * {@link #tryLoadType(String, Buffer)} only when a method body or the constant pool is needed.
+ *
+ * @author Mike Strobel
+ */
+public interface ITypeMetadataLoader extends ITypeLoader {
+    /**
+     * Loads a type's metadata record if the loader has one, and its class file otherwise.  {@link ClassFileReader}
+     * reads both, and tells them apart by their magic number.
+     */
+    public boolean tryLoadTypeMetadata(final String internalName, final Buffer buffer);
+}
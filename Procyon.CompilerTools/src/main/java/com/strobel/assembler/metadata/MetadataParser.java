@@ -49,6 +49,7 @@ public final class MetadataParser {
     private final Stack<IGenericContext> _genericContexts;
     private final CoreMetadataFactory _factory;
     private final AtomicInteger _suppressResolveDepth;
+    private final SignatureCache _signatureCache;
 
     public MetadataParser() {
         this(MetadataSystem.instance());
@@ -60,6 +61,7 @@ public final class MetadataParser {
         _genericContexts = new Stack<>();
         _factory = CoreMetadataFactory.make(resolver, new StackBasedGenericContext());
         _suppressResolveDepth = new AtomicInteger();
+        _signatureCache = getSignatureCache(resolver);
     }
 
     public MetadataParser(final TypeDefinition owner) {
@@ -70,6 +72,18 @@ public final class MetadataParser {
         _genericContexts = new Stack<>();
         _factory = CoreMetadataFactory.make(owner, new StackBasedGenericContext());
         _suppressResolveDepth = new AtomicInteger();
+        _signatureCache = getSignatureCache(owner.getResolver());
+    }
+
+    private static SignatureCache getSignatureCache(final IMetadataResolver resolver) {
+        //
+        // Reified types capture the factory's resolver, so results may only be shared between
+        // parsers whose factories resolve through the same resolver.
+        //
+        if (resolver instanceof MetadataResolver) {
+            return ((MetadataResolver) resolver).getSignatureCache();
+        }
+        return null;
     }
 
     public final SafeCloseable suppressTypeResolution() {
@@ -128,12 +142,39 @@ public final class MetadataParser {
     public TypeReference parseTypeSignature(final String signature) {
         VerifyArgument.notNull(signature, "signature");
 
-        final TypeSignature typeSignature = _signatureParser.parseTypeSignature(signature);
-        final Reifier reifier = Reifier.make(_factory);
+        final SignatureCache cache = _signatureCache;
+
+        if (cache != null) {
+            final TypeReference cachedType = cache.findType(signature, _factory);
+
+            if (cachedType != null) {
+                return cachedType;
+            }
+        }
+
+        final boolean tracking = cache != null && _factory.beginTrackingDependencies();
+
+        String[] namedTypes = null;
+        final TypeReference result;
+
+        try {
+            final TypeSignature typeSignature = _signatureParser.parseTypeSignature(signature);
+            final Reifier reifier = Reifier.make(_factory);
+
+            typeSignature.accept(reifier);
+            result = reifier.getResult();
+        }
+        finally {
+            if (tracking) {
+                namedTypes = _factory.endTrackingDependencies();
+            }
+        }
 
-        typeSignature.accept(reifier);
+        if (namedTypes != null && result != null) {
+            cache.putType(signature, result, namedTypes);
+        }
 
-        return reifier.getResult();
+        return result;
     }
 
     public FieldReference parseField(final TypeReference declaringType, final String name, final String signature) {
@@ -141,10 +182,22 @@ public final class MetadataParser {
         VerifyArgument.notNull(name, "name");
         VerifyArgument.notNull(signature, "signature");
 
+        final SignatureCache cache = _signatureCache;
+
+        if (cache != null) {
+            final FieldReference cachedField = cache.findField(declaringType, name, signature, _factory);
+
+            if (cachedField != null) {
+                return cachedField;
+            }
+        }
+
+        final FieldReference field;
+
         pushGenericContext(declaringType);
 
         try {
-            return new UnresolvedField(
+            field = new UnresolvedField(
                 declaringType,
                 name,
                 parseTypeSignature(signature)
@@ -153,6 +206,9 @@ public final class MetadataParser {
         finally {
             popGenericContext();
         }
+
+        return cache != null ? cache.putField(signature, field, _factory)
+                             : field;
     }
 
     public MethodReference parseMethod(final TypeReference declaringType, final String name, final String descriptor) {
@@ -160,15 +216,30 @@ public final class MetadataParser {
         VerifyArgument.notNull(name, "name");
         VerifyArgument.notNull(descriptor, "descriptor");
 
+        final SignatureCache cache = _signatureCache;
+
+        if (cache != null) {
+            final MethodReference cachedMethod = cache.findMethod(declaringType, name, descriptor, _factory);
+
+            if (cachedMethod != null) {
+                return cachedMethod;
+            }
+        }
+
+        final MethodReference method;
+
         pushGenericContext(declaringType);
 
         try {
             final IMethodSignature signature = parseMethodSignature(descriptor);
-            return lookupMethod(declaringType, name, signature);
+            method = lookupMethod(declaringType, name, signature);
         }
         finally {
             popGenericContext();
         }
+
+        return cache != null ? cache.putMethod(descriptor, method, _factory)
+                             : method;
     }
 
     public TypeReference lookupType(final String packageName, final String typeName) {
@@ -227,10 +298,75 @@ public final class MetadataParser {
         return null;
     }
 
-    @SuppressWarnings("ConstantConditions")
     public IMethodSignature parseMethodSignature(final String signature) {
         VerifyArgument.notNull(signature, "signature");
 
+        final SignatureCache cache = _signatureCache;
+
+        if (cache != null) {
+            final SignatureCache.MethodTypes cachedTypes = cache.findMethodSignature(signature, _factory);
+
+            if (cachedTypes != null) {
+                //
+                // Always build a new signature; its parameter definitions are mutable, and are
+                // adopted by whichever method declares them.
+                //
+                return _factory.makeMethodSignature(
+                    cachedTypes.returnType,
+                    cachedTypes.parameterTypes,
+                    Collections.<GenericParameter>emptyList(),
+                    cachedTypes.thrownTypes
+                );
+            }
+        }
+
+        final boolean tracking = cache != null && _factory.beginTrackingDependencies();
+
+        String[] namedTypes = null;
+        final IMethodSignature result;
+
+        try {
+            result = parseMethodSignatureCore(signature);
+        }
+        finally {
+            if (tracking) {
+                namedTypes = _factory.endTrackingDependencies();
+            }
+        }
+
+        if (namedTypes != null && !result.hasGenericParameters()) {
+            cache.putMethodSignature(
+                signature,
+                new SignatureCache.MethodTypes(
+                    result.getReturnType(),
+                    getParameterTypes(result),
+                    result.getThrownTypes()
+                ),
+                namedTypes
+            );
+        }
+
+        return result;
+    }
+
+    private static List<TypeReference> getParameterTypes(final IMethodSignature signature) {
+        final List<ParameterDefinition> parameters = signature.getParameters();
+
+        if (parameters.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final TypeReference[] parameterTypes = new TypeReference[parameters.size()];
+
+        for (int i = 0; i < parameterTypes.length; i++) {
+            parameterTypes[i] = parameters.get(i).getParameterType();
+        }
+
+        return ArrayUtilities.asUnmodifiableList(parameterTypes);
+    }
+
+    @SuppressWarnings("ConstantConditions")
+    private IMethodSignature parseMethodSignatureCore(final String signature) {
         final MethodTypeSignature methodTypeSignature = _signatureParser.parseMethodSignature(signature);
         final Reifier reifier = Reifier.make(_factory);
 
@@ -28,9 +28,15 @@ import java.util.Stack;
  */
 public abstract class MetadataResolver implements IMetadataResolver, IGenericContext {
     private final Stack<IResolverFrame> _frames;
+    private final SignatureCache _signatureCache;
 
     protected MetadataResolver() {
         _frames = new Stack<>();
+        _signatureCache = new SignatureCache();
+    }
+
+    final SignatureCache getSignatureCache() {
+        return _signatureCache;
     }
 
     @Override
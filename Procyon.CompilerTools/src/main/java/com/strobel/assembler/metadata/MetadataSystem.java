@@ -19,6 +19,8 @@ package com.strobel.assembler.metadata;
 import com.strobel.compilerservices.RuntimeHelpers;
 import com.strobel.core.Fences;
 import com.strobel.core.VerifyArgument;
+import com.strobel.decompiler.metrics.IMetricsListener;
+import com.strobel.decompiler.metrics.Metrics;
 
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -72,7 +74,14 @@ public class MetadataSystem extends MetadataResolver {
 
     public void addTypeDefinition(final TypeDefinition type) {
         VerifyArgument.notNull(type, "type");
-        _types.putIfAbsent(type.getInternalName(), type);
+
+        if (_types.putIfAbsent(type.getInternalName(), type) == null) {
+            final IMetricsListener listener = Metrics.getListener();
+
+            if (listener != null) {
+                listener.typeCached(_types.size());
+            }
+        }
     }
 
     @Override
@@ -115,14 +124,30 @@ public class MetadataSystem extends MetadataResolver {
         }
 
         TypeDefinition cachedDefinition = _types.get(descriptor);
+        final IMetricsListener listener = Metrics.getListener();
 
         if (cachedDefinition != null) {
+            if (listener != null) {
+                listener.typeCacheHit();
+            }
             return cachedDefinition;
         }
 
         final Buffer buffer = new Buffer(0);
 
-        if (!_typeLoader.tryLoadType(descriptor, buffer)) {
+        if (listener != null) {
+            listener.typeCacheMiss();
+
+            final long startTime = System.nanoTime();
+            final boolean loaded = tryLoadType(descriptor, buffer);
+
+            listener.typeLoaded(descriptor, loaded ? buffer.size() : -1, System.nanoTime() - startTime);
+
+            if (!loaded) {
+                return null;
+            }
+        }
+        else if (!tryLoadType(descriptor, buffer)) {
             return null;
         }
 
@@ -140,9 +165,24 @@ public class MetadataSystem extends MetadataResolver {
             return cachedDefinition;
         }
 
+        if (listener != null) {
+            listener.typeCached(_types.size());
+        }
+
         return typeDefinition;
     }
 
+    /**
+     * Loads the metadata record for a type if the type loader has one, and its class file otherwise.
+     */
+    private boolean tryLoadType(final String internalName, final Buffer buffer) {
+        if (_typeLoader instanceof ITypeMetadataLoader) {
+            return ((ITypeMetadataLoader) _typeLoader).tryLoadTypeMetadata(internalName, buffer);
+        }
+
+        return _typeLoader.tryLoadType(internalName, buffer);
+    }
+
     // <editor-fold defaultstate="collapsed" desc="Primitive Lookup">
 
     private final static TypeDefinition[] PRIMITIVE_TYPES_BY_NAME = new TypeDefinition['Z' - 'B' + 1];
@@ -25,26 +25,20 @@ import com.strobel.assembler.ir.attributes.SourceAttribute;
 import com.strobel.assembler.metadata.annotations.CustomAnnotation;
 import com.strobel.core.HashUtilities;
 import com.strobel.core.StringUtilities;
+import com.strobel.decompiler.metrics.IMetricsListener;
+import com.strobel.decompiler.metrics.Metrics;
 
 import java.lang.ref.SoftReference;
 import java.util.Collections;
 import java.util.List;
 
-import static java.lang.String.format;
-
 public class MethodDefinition extends MethodReference implements IMemberDefinition {
-    private final GenericParameterCollection _genericParameters;
-    private final ParameterDefinitionCollection _parameters;
-    private final AnonymousLocalTypeCollection _declaredTypes;
-    private final Collection<TypeReference> _thrownTypes;
-    private final Collection<CustomAnnotation> _customAnnotations;
-    private final Collection<SourceAttribute> _sourceAttributes;
-    private final List<GenericParameter> _genericParametersView;
-    private final List<TypeDefinition> _declaredTypesView;
-    private final List<ParameterDefinition> _parametersView;
-    private final List<TypeReference> _thrownTypesView;
-    private final List<CustomAnnotation> _customAnnotationsView;
-    private final List<SourceAttribute> _sourceAttributesView;
+    private volatile GenericParameterCollection _genericParameters;
+    private volatile ParameterDefinitionCollection _parameters;
+    private volatile AnonymousLocalTypeCollection _declaredTypes;
+    private volatile Collection<TypeReference> _thrownTypes;
+    private volatile Collection<CustomAnnotation> _customAnnotations;
+    private volatile Collection<SourceAttribute> _sourceAttributes;
 
     private SoftReference<MethodBody> _body;
     private String _name;
@@ -56,18 +50,6 @@ public class MethodDefinition extends MethodReference implements IMemberDefiniti
     private long _flags;
 
     protected MethodDefinition() {
-        _genericParameters = new GenericParameterCollection(this);
-        _parameters = new ParameterDefinitionCollection(this);
-        _declaredTypes = new AnonymousLocalTypeCollection(this);
-        _thrownTypes = new Collection<>();
-        _customAnnotations = new Collection<>();
-        _sourceAttributes = new Collection<>();
-        _genericParametersView = Collections.unmodifiableList(_genericParameters);
-        _parametersView = Collections.unmodifiableList(_parameters);
-        _declaredTypesView = Collections.unmodifiableList(_declaredTypes);
-        _thrownTypesView = Collections.unmodifiableList(_thrownTypes);
-        _customAnnotationsView = Collections.unmodifiableList(_customAnnotations);
-        _sourceAttributesView = Collections.unmodifiableList(_sourceAttributes);
     }
 
     public final boolean hasBody() {
@@ -104,21 +86,27 @@ public class MethodDefinition extends MethodReference implements IMemberDefiniti
     }
 
     public final List<TypeDefinition> getDeclaredTypes() {
-        return _declaredTypesView;
+        return Collection.readOnly(_declaredTypes);
     }
 
     protected final AnonymousLocalTypeCollection getDeclaredTypesInternal() {
-        return _declaredTypes;
+        AnonymousLocalTypeCollection declaredTypes = _declaredTypes;
+
+        if (declaredTypes == null) {
+            _declaredTypes = declaredTypes = new AnonymousLocalTypeCollection(this);
+        }
+
+        return declaredTypes;
     }
 
     @Override
     public final List<GenericParameter> getGenericParameters() {
-        return _genericParametersView;
+        return Collection.readOnly(_genericParameters);
     }
 
     @Override
     public final List<TypeReference> getThrownTypes() {
-        return _thrownTypesView;
+        return Collection.readOnly(_thrownTypes);
     }
 
     @Override
@@ -128,11 +116,11 @@ public class MethodDefinition extends MethodReference implements IMemberDefiniti
 
     @Override
     public final List<CustomAnnotation> getAnnotations() {
-        return _customAnnotationsView;
+        return Collection.readOnly(_customAnnotations);
     }
 
     public final List<SourceAttribute> getSourceAttributes() {
-        return _sourceAttributesView;
+        return Collection.readOnly(_sourceAttributes);
     }
 
     @Override
@@ -171,7 +159,7 @@ public class MethodDefinition extends MethodReference implements IMemberDefiniti
 
     @Override
     public final List<ParameterDefinition> getParameters() {
-        return _parametersView;
+        return Collection.readOnly(_parameters);
     }
 
     protected final void setName(final String name) {
@@ -185,7 +173,12 @@ public class MethodDefinition extends MethodReference implements IMemberDefiniti
 
     protected final void setDeclaringType(final TypeDefinition declaringType) {
         _declaringType = declaringType;
-        _parameters.setDeclaringType(declaringType);
+
+        final ParameterDefinitionCollection parameters = _parameters;
+
+        if (parameters != null) {
+            parameters.setDeclaringType(declaringType);
+        }
     }
 
     protected final void setFlags(final long flags) {
@@ -193,23 +186,55 @@ public class MethodDefinition extends MethodReference implements IMemberDefiniti
     }
 
     protected final GenericParameterCollection getGenericParametersInternal() {
-        return _genericParameters;
+        GenericParameterCollection genericParameters = _genericParameters;
+
+        if (genericParameters == null) {
+            _genericParameters = genericParameters = new GenericParameterCollection(this);
+        }
+
+        return genericParameters;
     }
 
     protected final ParameterDefinitionCollection getParametersInternal() {
-        return _parameters;
+        ParameterDefinitionCollection parameters = _parameters;
+
+        if (parameters == null) {
+            parameters = new ParameterDefinitionCollection(this);
+            parameters.setDeclaringType(_declaringType);
+            _parameters = parameters;
+        }
+
+        return parameters;
     }
 
     protected final Collection<TypeReference> getThrownTypesInternal() {
-        return _thrownTypes;
+        Collection<TypeReference> thrownTypes = _thrownTypes;
+
+        if (thrownTypes == null) {
+            _thrownTypes = thrownTypes = new Collection<>();
+        }
+
+        return thrownTypes;
     }
 
     protected final Collection<CustomAnnotation> getAnnotationsInternal() {
-        return _customAnnotations;
+        Collection<CustomAnnotation> customAnnotations = _customAnnotations;
+
+        if (customAnnotations == null) {
+            _customAnnotations = customAnnotations = new Collection<>();
+        }
+
+        return customAnnotations;
     }
 
     protected final Collection<SourceAttribute> getSourceAttributesInternal() {
-        return _sourceAttributes;
+        Collection<SourceAttribute> sourceAttributes = _sourceAttributes;
+
+        if (sourceAttributes == null) {
+            _sourceAttributes = sourceAttributes = new Collection<>();
+        }
+
+        return sourceAttributes;
     }
 
     @Override
@@ -660,7 +685,7 @@ public class MethodDefinition extends MethodReference implements IMemberDefiniti
             return null;
         }
 
-        final CodeAttribute codeAttribute = SourceAttribute.find(AttributeNames.Code, _sourceAttributes);
+        final CodeAttribute codeAttribute = SourceAttribute.find(AttributeNames.Code, getSourceAttributes());
 
         if (codeAttribute == null) {
             return null;
@@ -669,7 +694,7 @@ public class MethodDefinition extends MethodReference implements IMemberDefiniti
         final int codeAttributeIndex = _sourceAttributes.indexOf(codeAttribute);
 
         Buffer code = codeAttribute.getCode();
-        ConstantPool constantPool = _declaringType.getConstantPool();
+        final ConstantPool constantPool;
 
         if (code == null) {
             final ITypeLoader typeLoader = _declaringType.getTypeLoader();
@@ -681,7 +706,15 @@ public class MethodDefinition extends MethodReference implements IMemberDefiniti
 
             code = new Buffer();
 
-            if (!typeLoader.tryLoadType(_declaringType.getInternalName(), code)) {
+            final IMetricsListener listener = Metrics.getListener();
+            final long startTime = listener != null ? System.nanoTime() : 0L;
+            final boolean loaded = typeLoader.tryLoadType(_declaringType.getInternalName(), code);
+
+            if (listener != null) {
+                listener.typeLoaded(_declaringType.getInternalName(), loaded ? code.size() : -1, System.nanoTime() - startTime);
+            }
+
+            if (!loaded) {
                 _flags |= Flags.LOAD_BODY_FAILED;
                 return null;
             }
@@ -700,33 +733,27 @@ public class MethodDefinition extends MethodReference implements IMemberDefiniti
                 codeAttributes.toArray(new SourceAttribute[codeAttributes.size()])
             );
 
-            if (constantPool == null) {
-                final long magic = code.readInt() & 0xFFFFFFFFL;
-
-                if (magic != ClassFileReader.MAGIC) {
-                    throw new IllegalStateException(
-                        format(
-                            "Could not load method body for '%s:%s'; wrong magic number in class header: 0x%8X.",
-                            getFullName(),
-                            getSignature(),
-                            magic
-                        )
-                    );
-                }
-
-                code.readUnsignedShort(); // minor version
-                code.readUnsignedShort(); // major version
-
-                constantPool = ConstantPool.read(code);
-            }
+            //
+            // Types read from metadata records have not read their constant pool yet; it is in the
+            // class file we just loaded.
+            //
+            constantPool = _declaringType.getConstantPool(code);
 
             _sourceAttributes.set(codeAttributeIndex, newCode);
         }
+        else {
+            constantPool = _declaringType.getConstantPool();
+        }
 
         final MetadataParser parser = new MetadataParser(_declaringType);
         final IMetadataScope scope = new ClassFileReader.Scope(parser, _declaringType, constantPool);
 
         final MethodBody body = new MethodReader(this, scope).readBody();
+        final IMetricsListener listener = Metrics.getListener();
+
+        if (listener != null) {
+            listener.methodBodyLoaded(_body != null);
+        }
 
         _body = new SoftReference<>(body);
         _sourceAttributes.set(codeAttributeIndex, codeAttribute);
@@ -29,8 +29,7 @@ import java.util.List;
  * Time: 5:42 PM
  */
 public final class ParameterDefinition extends ParameterReference implements IAnnotationsProvider {
-    private final Collection<CustomAnnotation> _customAnnotations = new Collection<>();
-    private final List<CustomAnnotation> _customAnnotationsView = Collections.unmodifiableList(_customAnnotations);
+    private volatile Collection<CustomAnnotation> _customAnnotations;
 
     private final int _size;
     private int _slot;
@@ -97,11 +96,17 @@ public final class ParameterDefinition extends ParameterReference implements IAn
 
     @Override
     public List<CustomAnnotation> getAnnotations() {
-        return _customAnnotationsView;
+        return Collection.readOnly(_customAnnotations);
     }
 
     protected final Collection<CustomAnnotation> getAnnotationsInternal() {
-        return _customAnnotations;
+        Collection<CustomAnnotation> customAnnotations = _customAnnotations;
+
+        if (customAnnotations == null) {
+            _customAnnotations = customAnnotations = new Collection<>();
+        }
+
+        return customAnnotations;
     }
 
     @Override
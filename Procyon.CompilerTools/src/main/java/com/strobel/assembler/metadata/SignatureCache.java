@@ -0,0 +1,226 @@
+/*
+ * SignatureCache.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.metadata;
+
+import com.strobel.core.HashUtilities;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of reified descriptors and signatures, shared by every {@link MetadataParser} working
+ * against the same {@link MetadataResolver}.  Only results which do not depend on the generic
+ * context of the parser are cached.  Because a named type may be reified differently for a class
+ * which declares it in its {@code InnerClasses} attribute, each entry remembers the named types
+ * it was built from, and is only reused by parsers whose owner has no inner class entry for any
+ * of them.
+ * <p>
+ * Field and method references are canonicalized here as well, keyed on the identity of their
+ * declaring type along with their name and descriptor.  A reference is only shared while its
+ * descriptor is itself cached, so structurally equal references read from different classes
+ * resolve to the same instance, and equivalence checks between them succeed on identity.
+ *
+ * @author Mike Strobel
+ */
+final class SignatureCache {
+    private final static int MAX_ENTRIES = 1 << 16;
+
+    private final ConcurrentHashMap<String, Entry<TypeReference>> _types = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Entry<MethodTypes>> _methodSignatures = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<MemberKey, MemberReference> _members = new ConcurrentHashMap<>();
+
+    final TypeReference findType(final String signature, final CoreMetadataFactory factory) {
+        return find(_types, signature, factory);
+    }
+
+    final MethodTypes findMethodSignature(final String signature, final CoreMetadataFactory factory) {
+        return find(_methodSignatures, signature, factory);
+    }
+
+    final void putType(final String signature, final TypeReference type, final String[] namedTypes) {
+        put(_types, signature, type, namedTypes);
+    }
+
+    final void putMethodSignature(final String signature, final MethodTypes types, final String[] namedTypes) {
+        put(_methodSignatures, signature, types, namedTypes);
+    }
+
+    final FieldReference findField(
+        final TypeReference declaringType,
+        final String name,
+        final String descriptor,
+        final CoreMetadataFactory factory) {
+
+        final MemberReference field = _members.get(new MemberKey(declaringType, name, descriptor, false));
+
+        if (field == null || findType(descriptor, factory) == null) {
+            return null;
+        }
+
+        return (FieldReference) field;
+    }
+
+    final MethodReference findMethod(
+        final TypeReference declaringType,
+        final String name,
+        final String descriptor,
+        final CoreMetadataFactory factory) {
+
+        final MemberReference method = _members.get(new MemberKey(declaringType, name, descriptor, true));
+
+        if (method == null || findMethodSignature(descriptor, factory) == null) {
+            return null;
+        }
+
+        return (MethodReference) method;
+    }
+
+    /**
+     * Records {@code field} as the canonical reference for its declaring type, name, and descriptor,
+     * provided the descriptor was cached.  Returns the canonical reference.
+     */
+    final FieldReference putField(final String descriptor, final FieldReference field, final CoreMetadataFactory factory) {
+        if (findType(descriptor, factory) == null) {
+            return field;
+        }
+
+        return (FieldReference) putMember(new MemberKey(field.getDeclaringType(), field.getName(), descriptor, false), field);
+    }
+
+    /**
+     * Records {@code method} as the canonical reference for its declaring type, name, and descriptor,
+     * provided the descriptor was cached.  Returns the canonical reference.
+     */
+    final MethodReference putMethod(final String descriptor, final MethodReference method, final CoreMetadataFactory factory) {
+        if (findMethodSignature(descriptor, factory) == null) {
+            return method;
+        }
+
+        return (MethodReference) putMember(new MemberKey(method.getDeclaringType(), method.getName(), descriptor, true), method);
+    }
+
+    private MemberReference putMember(final MemberKey key, final MemberReference member) {
+        if (_members.size() >= MAX_ENTRIES) {
+            return member;
+        }
+
+        final MemberReference existing = _members.putIfAbsent(key, member);
+
+        return existing != null ? existing : member;
+    }
+
+    private static <T> T find(
+        final ConcurrentHashMap<String, Entry<T>> map,
+        final String signature,
+        final CoreMetadataFactory factory) {
+
+        final Entry<T> entry = map.get(signature);
+
+        if (entry == null || factory.hasInnerClassEntry(entry.namedTypes)) {
+            return null;
+        }
+
+        return entry.value;
+    }
+
+    private static <T> void put(
+        final ConcurrentHashMap<String, Entry<T>> map,
+        final String signature,
+        final T value,
+        final String[] namedTypes) {
+
+        //
+        // Past the limit, stop admitting new entries rather than evicting; descriptors which were
+        // hot early in a run tend to stay hot.
+        //
+        if (map.size() < MAX_ENTRIES) {
+            map.putIfAbsent(signature, new Entry<>(value, namedTypes));
+        }
+    }
+
+    private final static class Entry<T> {
+        final T value;
+        final String[] namedTypes;
+
+        Entry(final T value, final String[] namedTypes) {
+            this.value = value;
+            this.namedTypes = namedTypes;
+        }
+    }
+
+    private final static class MemberKey {
+        final TypeReference declaringType;
+        final String name;
+        final String descriptor;
+        final boolean isMethod;
+        final int hashCode;
+
+        MemberKey(final TypeReference declaringType, final String name, final String descriptor, final boolean isMethod) {
+            this.declaringType = declaringType;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.isMethod = isMethod;
+            this.hashCode = HashUtilities.combineHashCodes(
+                System.identityHashCode(declaringType),
+                name.hashCode(),
+                descriptor.hashCode(),
+                isMethod ? 1 : 0
+            );
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof MemberKey)) {
+                return false;
+            }
+
+            final MemberKey other = (MemberKey) o;
+
+            return declaringType == other.declaringType &&
+                   isMethod == other.isMethod &&
+                   name.equals(other.name) &&
+                   descriptor.equals(other.descriptor);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * The reified components of a method signature without formal type parameters.  A fresh
+     * {@link IMethodSignature} is built from these on every lookup, as its parameter definitions
+     * are mutable and are adopted by the method which declares them.
+     */
+    final static class MethodTypes {
+        final TypeReference returnType;
+        final List<TypeReference> parameterTypes;
+        final List<TypeReference> thrownTypes;
+
+        MethodTypes(
+            final TypeReference returnType,
+            final List<TypeReference> parameterTypes,
+            final List<TypeReference> thrownTypes) {
+
+            this.returnType = returnType;
+            this.parameterTypes = parameterTypes;
+            this.thrownTypes = thrownTypes;
+        }
+    }
+}
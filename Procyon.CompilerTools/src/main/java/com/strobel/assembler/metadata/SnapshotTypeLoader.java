@@ -0,0 +1,252 @@
+/*
+ * SnapshotTypeLoader.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.metadata;
+
+import com.strobel.core.VerifyArgument;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A type loader which serves types from a snapshot written by {@link SnapshotWriter}.  The snapshot is
+ * memory-mapped when the loader is opened, and nothing else is read up front: a lookup is a binary search
+ * of the snapshot's sorted index, followed by a copy of what was asked for.  A {@link MetadataSystem} asks
+ * for a type's metadata record, and builds the type from it without reading the class image; method bodies
+ * and the constant pool are read from the image when they are first needed.  Everyone else gets the image.
+ * <p>
+ * A snapshot of the platform classes is only valid for the JDK it was written from, and a snapshot
+ * of a jar only for that version of the jar.  The snapshot records where its classes came from; check
+ * {@link #findStaleSources()} before using it, as a stale snapshot would shadow the current classes.
+ * Place the loader ahead of the real type loader in a {@link CompositeTypeLoader}, so types missing
+ * from the snapshot are still found.
+ * <p>
+ * The index is validated when the snapshot is opened, so a truncated or corrupt snapshot fails with
+ * an {@link IOException} rather than during type loading.
+ * <p>
+ * This loader is thread-safe.
+ *
+ * @author Mike Strobel
+ */
+public final class SnapshotTypeLoader implements ITypeMetadataLoader {
+    private final static Logger LOG = Logger.getLogger(SnapshotTypeLoader.class.getSimpleName());
+
+    final static int MAGIC = 0x50524F53;
+    final static int VERSION = 3;
+    final static int HEADER_SIZE = 16;
+    final static int INDEX_ENTRY_SIZE = 24;
+    final static Charset UTF_8 = Charset.forName("UTF-8");
+
+    final static String PLATFORM_SOURCE = "platform";
+    final static String JAR_SOURCE = "jar";
+    final static char SOURCE_SEPARATOR = '\t';
+
+    private final File _file;
+    private final MappedByteBuffer _data;
+    private final List<String> _sources;
+    private final int _indexOffset;
+    private final int _typeCount;
+
+    public SnapshotTypeLoader(final File file) throws IOException {
+        _file = VerifyArgument.notNull(file, "file");
+
+        //
+        // The mapping stays valid after the file is closed.
+        //
+        try (final RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            _data = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0L, input.length());
+
+            if (_data.capacity() < HEADER_SIZE || _data.getInt(0) != MAGIC) {
+                throw new IOException("Not a type snapshot: " + file);
+            }
+
+            final int version = _data.getShort(4) & 0xFFFF;
+
+            if (version != VERSION) {
+                throw new IOException("Unsupported type snapshot version " + version + ": " + file);
+            }
+
+            _typeCount = _data.getInt(8);
+
+            final int sourcesLength = _data.getInt(12);
+            final int limit = _data.limit();
+
+            if (sourcesLength < 0 ||
+                _typeCount < 0 ||
+                HEADER_SIZE + (long) sourcesLength + (long) _typeCount * INDEX_ENTRY_SIZE > limit) {
+
+                throw new IOException("Corrupt type snapshot: " + file);
+            }
+
+            _sources = readSources(sourcesLength);
+            _indexOffset = HEADER_SIZE + sourcesLength;
+
+            for (int i = 0; i < _typeCount; i++) {
+                final int entry = _indexOffset + i * INDEX_ENTRY_SIZE;
+
+                if (!isInBounds(_data.getInt(entry), _data.getInt(entry + 4), limit) ||
+                    !isInBounds(_data.getInt(entry + 8), _data.getInt(entry + 12), limit) ||
+                    !isInBounds(_data.getInt(entry + 16), _data.getInt(entry + 20), limit)) {
+
+                    throw new IOException("Corrupt type snapshot: " + file);
+                }
+            }
+        }
+    }
+
+    private static boolean isInBounds(final int offset, final int length, final int limit) {
+        return offset >= 0 && length >= 0 && (long) offset + length <= limit;
+    }
+
+    private List<String> readSources(final int sourcesLength) {
+        if (sourcesLength == 0) {
+            return Collections.emptyList();
+        }
+
+        final byte[] bytes = new byte[sourcesLength];
+        final ByteBuffer sources = _data.duplicate();
+
+        sources.position(HEADER_SIZE);
+        sources.get(bytes);
+
+        final List<String> result = new ArrayList<>();
+
+        for (final String source : new String(bytes, UTF_8).split("\n")) {
+            if (!source.isEmpty()) {
+                result.add(source);
+            }
+        }
+
+        return Collections.unmodifiableList(result);
+    }
+
+    public final File getFile() {
+        return _file;
+    }
+
+    public final int getTypeCount() {
+        return _typeCount;
+    }
+
+    /**
+     * Returns the sources the snapshot's classes were read from, as recorded by {@link SnapshotWriter}.
+     */
+    public final List<String> getSources() {
+        return _sources;
+    }
+
+    /**
+     * Returns a description of each source which no longer matches the snapshot: a platform source written
+     * by a different JDK than the one running, or a jar which has since been modified, moved, or deleted.
+     * The snapshot is safe to use only if this list is empty.
+     */
+    public final List<String> findStaleSources() {
+        final List<String> staleSources = new ArrayList<>();
+
+        for (final String source : _sources) {
+            if (!source.equals(SnapshotWriter.currentSource(source))) {
+                staleSources.add(source.replace(SOURCE_SEPARATOR, ' '));
+            }
+        }
+
+        return staleSources;
+    }
+
+    @Override
+    public boolean tryLoadType(final String internalName, final Buffer buffer) {
+        return tryLoad(internalName, buffer, false);
+    }
+
+    @Override
+    public boolean tryLoadTypeMetadata(final String internalName, final Buffer buffer) {
+        return tryLoad(internalName, buffer, true);
+    }
+
+    private boolean tryLoad(final String internalName, final Buffer buffer, final boolean preferMetadata) {
+        final int index = find(internalName.getBytes(UTF_8));
+
+        if (index < 0) {
+            return false;
+        }
+
+        final int entry = _indexOffset + index * INDEX_ENTRY_SIZE;
+
+        //
+        // Types without a metadata record have a record length of zero; their image is served instead.
+        //
+        final boolean hasMetadata = preferMetadata && _data.getInt(entry + 20) > 0;
+        final int offset = _data.getInt(hasMetadata ? entry + 16 : entry + 8);
+        final int length = _data.getInt(hasMetadata ? entry + 20 : entry + 12);
+        final ByteBuffer source = _data.duplicate();
+
+        buffer.reset(length);
+        source.position(offset);
+        source.get(buffer.array(), 0, length);
+
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine(
+                (hasMetadata ? "Type metadata loaded from snapshot " : "Type loaded from snapshot ") +
+                _file + ": " + internalName + "."
+            );
+        }
+
+        return true;
+    }
+
+    private int find(final byte[] name) {
+        int low = 0;
+        int high = _typeCount - 1;
+
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int entry = _indexOffset + middle * INDEX_ENTRY_SIZE;
+            final int comparison = compareName(_data.getInt(entry), _data.getInt(entry + 4), name);
+
+            if (comparison < 0) {
+                low = middle + 1;
+            }
+            else if (comparison > 0) {
+                high = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+    private int compareName(final int offset, final int length, final byte[] name) {
+        final int commonLength = Math.min(length, name.length);
+
+        for (int i = 0; i < commonLength; i++) {
+            final int difference = (_data.get(offset + i) & 0xFF) - (name[i] & 0xFF);
+
+            if (difference != 0) {
+                return difference;
+            }
+        }
+
+        return length - name.length;
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * SnapshotWriter.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.metadata;
+
+import com.strobel.core.StringUtilities;
+import com.strobel.core.VerifyArgument;
+import com.strobel.util.EmptyArrayCache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Collects class files and writes them to a snapshot which can be served by a {@link SnapshotTypeLoader}.
+ * The snapshot holds a sorted index of type names, the class images, uncompressed, and a metadata record
+ * for each class: the class file reduced to its declarations, with the constant pool entries they refer to,
+ * and with each method's code replaced by its location in the image.  The loader maps the snapshot and looks
+ * types up without reading or inflating anything ahead of time, and a type is built from its record without
+ * parsing the image.  Classes which cannot be reduced, such as classes using constant pool entries this
+ * library does not read, are stored without a record.  The snapshot also records the JDK and the jar files its
+ * classes were read from, so that a loader can tell when it has gone stale; see
+ * {@link SnapshotTypeLoader#findStaleSources()}.
+ * <p>
+ * A snapshot of commonly used platform packages spares every run from locating and inflating the same
+ * JDK class files:
+ * <pre>{@code
+ * final SnapshotWriter writer = new SnapshotWriter();
+ *
+ * writer.addPlatformTypes("java/lang/", "java/util/");
+ * writer.write(new File("jdk.snapshot"));
+ * }</pre>
+ *
+ * @author Mike Strobel
+ */
+public final class SnapshotWriter {
+    private final static Comparator<byte[]> NAME_ORDER = new Comparator<byte[]>() {
+        @Override
+        public int compare(final byte[] x, final byte[] y) {
+            final int commonLength = Math.min(x.length, y.length);
+
+            for (int i = 0; i < commonLength; i++) {
+                final int difference = (x[i] & 0xFF) - (y[i] & 0xFF);
+
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+
+            return x.length - y.length;
+        }
+    };
+
+    private final Map<String, byte[]> _types = new LinkedHashMap<>();
+    private final Set<String> _sources = new LinkedHashSet<>();
+
+    public final int getTypeCount() {
+        return _types.size();
+    }
+
+    /**
+     * Adds a class image to the snapshot, replacing any image previously added under the same name.
+     */
+    public void add(final String internalName, final byte[] classFile) {
+        VerifyArgument.notNullOrEmpty(internalName, "internalName");
+        VerifyArgument.notNull(classFile, "classFile");
+
+        _types.put(internalName, classFile);
+    }
+
+    /**
+     * Adds the class image {@code typeLoader} finds for a type, if it finds one.
+     */
+    public boolean add(final String internalName, final ITypeLoader typeLoader) {
+        VerifyArgument.notNull(typeLoader, "typeLoader");
+
+        final Buffer buffer = new Buffer(0);
+
+        if (!typeLoader.tryLoadType(internalName, buffer)) {
+            return false;
+        }
+
+        add(internalName, Arrays.copyOf(buffer.array(), buffer.size()));
+        return true;
+    }
+
+    /**
+     * Adds every class in a jar file whose internal name starts with one of {@code prefixes}, or every
+     * class in the jar if no prefixes are given.
+     *
+     * @return The number of classes added.
+     */
+    public int addJar(final JarFile jarFile, final String... prefixes) throws IOException {
+        VerifyArgument.notNull(jarFile, "jarFile");
+
+        _sources.add(jarSource(new File(jarFile.getName())));
+
+        return addJarEntries(jarFile, prefixes);
+    }
+
+    private int addJarEntries(final JarFile jarFile, final String[] prefixes) throws IOException {
+        final Enumeration<JarEntry> entries = jarFile.entries();
+        int count = 0;
+
+        while (entries.hasMoreElements()) {
+            final JarEntry entry = entries.nextElement();
+            final String name = entry.getName();
+
+            if (!name.endsWith(".class") || !matchesAny(name, prefixes)) {
+                continue;
+            }
+
+            try (final InputStream in = jarFile.getInputStream(entry)) {
+                add(StringUtilities.removeRight(name, ".class"), readFully(in));
+                ++count;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Adds the platform classes whose internal names start with one of {@code prefixes}.  Classes are
+     * read from the boot class path on JDK 8 and earlier, and from the run-time image on later JDKs.
+     *
+     * @return The number of classes added.
+     */
+    public int addPlatformTypes(final String... prefixes) throws IOException {
+        _sources.add(platformSource());
+
+        final String bootClassPath = System.getProperty("sun.boot.class.path");
+
+        if (bootClassPath != null) {
+            int count = 0;
+
+            for (final String entry : bootClassPath.split(File.pathSeparator)) {
+                final File file = new File(entry);
+
+                if (file.isFile() && entry.endsWith(".jar")) {
+                    try (final JarFile jarFile = new JarFile(file)) {
+                        count += addJarEntries(jarFile, prefixes);
+                    }
+                }
+            }
+
+            return count;
+        }
+
+        try {
+            return addModules(FileSystems.getFileSystem(URI.create("jrt:/")).getPath("/modules"), prefixes);
+        }
+        catch (final FileSystemNotFoundException e) {
+            throw new IOException("Could not locate the platform classes.", e);
+        }
+    }
+
+    private int addModules(final Path modulesRoot, final String[] prefixes) throws IOException {
+        final int[] count = { 0 };
+
+        try (final DirectoryStream<Path> modules = Files.newDirectoryStream(modulesRoot)) {
+            for (final Path module : modules) {
+                Files.walkFileTree(
+                    module,
+                    new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) throws IOException {
+                            final String name = module.relativize(file).toString().replace('\\', '/');
+
+                            if (name.endsWith(".class") && matchesAny(name, prefixes)) {
+                                add(StringUtilities.removeRight(name, ".class"), Files.readAllBytes(file));
+                                ++count[0];
+                            }
+
+                            return FileVisitResult.CONTINUE;
+                        }
+                    }
+                );
+            }
+        }
+
+        return count[0];
+    }
+
+    /**
+     * Writes the collected class images, and their metadata records, to a snapshot file, replacing any
+     * existing file.
+     */
+    public void write(final File file) throws IOException {
+        VerifyArgument.notNull(file, "file");
+
+        final List<byte[]> names = new ArrayList<>(_types.size());
+        final Map<byte[], byte[]> images = new IdentityHashMap<>();
+        final Map<byte[], byte[]> records = new IdentityHashMap<>();
+
+        for (final Map.Entry<String, byte[]> entry : _types.entrySet()) {
+            final byte[] name = entry.getKey().getBytes(SnapshotTypeLoader.UTF_8);
+            final byte[] record = TypeMetadataWriter.write(entry.getValue());
+
+            names.add(name);
+            images.put(name, entry.getValue());
+            records.put(name, record != null ? record : EmptyArrayCache.EMPTY_BYTE_ARRAY);
+        }
+
+        Collections.sort(names, NAME_ORDER);
+
+        final StringBuilder sourceText = new StringBuilder();
+
+        for (final String source : _sources) {
+            sourceText.append(source).append('\n');
+        }
+
+        final byte[] sources = sourceText.toString().getBytes(SnapshotTypeLoader.UTF_8);
+        final int count = names.size();
+
+        long nameOffset = SnapshotTypeLoader.HEADER_SIZE + sources.length + (long) count * SnapshotTypeLoader.INDEX_ENTRY_SIZE;
+        long imageOffset = nameOffset;
+
+        for (final byte[] name : names) {
+            imageOffset += name.length;
+        }
+
+        long recordOffset = imageOffset;
+
+        for (final byte[] name : names) {
+            recordOffset += images.get(name).length;
+        }
+
+        try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536))) {
+            out.writeInt(SnapshotTypeLoader.MAGIC);
+            out.writeShort(SnapshotTypeLoader.VERSION);
+            out.writeShort(0);
+            out.writeInt(count);
+            out.writeInt(sources.length);
+            out.write(sources);
+
+            for (final byte[] name : names) {
+                final byte[] image = images.get(name);
+                final byte[] record = records.get(name);
+
+                if (recordOffset + record.length > Integer.MAX_VALUE) {
+                    throw new IOException("Type snapshot would exceed 2 GB.");
+                }
+
+                out.writeInt((int) nameOffset);
+                out.writeInt(name.length);
+                out.writeInt((int) imageOffset);
+                out.writeInt(image.length);
+                out.writeInt((int) recordOffset);
+                out.writeInt(record.length);
+
+                nameOffset += name.length;
+                imageOffset += image.length;
+                recordOffset += record.length;
+            }
+
+            for (final byte[] name : names) {
+                out.write(name);
+            }
+
+            for (final byte[] name : names) {
+                out.write(images.get(name));
+            }
+
+            for (final byte[] name : names) {
+                out.write(records.get(name));
+            }
+        }
+    }
+
+    /**
+     * Describes a source as it is now, in the form recorded in snapshots, or returns {@code null} if
+     * {@code recordedSource} is not a recognized source.
+     */
+    static String currentSource(final String recordedSource) {
+        final String[] parts = recordedSource.split(String.valueOf(SnapshotTypeLoader.SOURCE_SEPARATOR));
+
+        if (parts.length == 3 && SnapshotTypeLoader.PLATFORM_SOURCE.equals(parts[0])) {
+            return platformSource();
+        }
+
+        if (parts.length == 4 && SnapshotTypeLoader.JAR_SOURCE.equals(parts[0])) {
+            return jarSource(new File(parts[1]));
+        }
+
+        return null;
+    }
+
+    private static String platformSource() {
+        return SnapshotTypeLoader.PLATFORM_SOURCE + SnapshotTypeLoader.SOURCE_SEPARATOR +
+               System.getProperty("java.version") + SnapshotTypeLoader.SOURCE_SEPARATOR +
+               System.getProperty("java.home");
+    }
+
+    private static String jarSource(final File file) {
+        return SnapshotTypeLoader.JAR_SOURCE + SnapshotTypeLoader.SOURCE_SEPARATOR +
+               file.getAbsolutePath() + SnapshotTypeLoader.SOURCE_SEPARATOR +
+               file.lastModified() + SnapshotTypeLoader.SOURCE_SEPARATOR +
+               file.length();
+    }
+
+    private static boolean matchesAny(final String name, final String[] prefixes) {
+        if (prefixes == null || prefixes.length == 0) {
+            return true;
+        }
+
+        for (final String prefix : prefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static byte[] readFully(final InputStream in) throws IOException {
+        final Buffer buffer = new Buffer(8192);
+        final byte[] chunk = new byte[8192];
+
+        int bytesRead;
+
+        while ((bytesRead = in.read(chunk, 0, chunk.length)) > 0) {
+            buffer.ensureWriteableBytes(bytesRead);
+            buffer.putByteArray(chunk, 0, bytesRead);
+        }
+
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+}
@@ -0,0 +1,493 @@
+/*
+ * StreamingClassFileReader.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.metadata;
+
+import com.strobel.assembler.ir.ConstantPool;
+import com.strobel.assembler.ir.Instruction;
+import com.strobel.assembler.ir.InstructionVisitor;
+import com.strobel.assembler.ir.MetadataReader;
+import com.strobel.assembler.ir.attributes.*;
+import com.strobel.assembler.metadata.annotations.CustomAnnotation;
+import com.strobel.core.StringUtilities;
+import com.strobel.core.VerifyArgument;
+import com.strobel.util.EmptyArrayCache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a class file straight from a {@link Buffer} and reports it to a {@link TypeVisitor}, for
+ * indexing and scanning jobs which only need a stream of declarations, signatures, and instructions.
+ * No {@link TypeDefinition} is built, and nothing is registered with the resolver.
+ * <p>
+ * Field and method types are reified from their descriptors through a parser bound to the resolver,
+ * so repeated descriptors are shared via the resolver's signature cache.  Generic signatures are
+ * reported as {@link SignatureAttribute}s rather than reified, as doing so would require the
+ * declarations which supply their type variables; likewise, local variables in method bodies take
+ * their erased types.  For the same reason, inner types are not reported
+ * through {@link TypeVisitor#visitInnerType}; they may be found in the {@link InnerClassesAttribute}.
+ * <p>
+ * A method's {@code Code} attribute is only decoded if its visitor asks for the body.  The body is
+ * read against a transient {@link MethodDefinition}, declared by a stand-in {@link TypeDefinition}
+ * which carries the type's name, flags, and attributes but no members.  Neither is retained once the
+ * visitor is done with them.
+ *
+ * @author Mike Strobel
+ */
+final class StreamingClassFileReader extends MetadataReader {
+    private final static LocalVariableTableEntry[] EMPTY_LOCAL_VARIABLES = new LocalVariableTableEntry[0];
+
+    private final int _options;
+    private final IMetadataResolver _resolver;
+    private final Buffer _buffer;
+    private final ConstantPool _constantPool;
+    private final MetadataParser _parser;
+    private final ClassFileReader.Scope _scope;
+    private final List<SourceAttribute> _typeAttributes;
+    private final List<SourceAttribute> _memberAttributes;
+
+    private int _majorVersion;
+    private int _minorVersion;
+    private int _accessFlags;
+    private String _internalName;
+    private TypeDefinition _declaringType;
+    private int _codeAttributeOffset;
+    private int _codeAttributeLength;
+
+    private StreamingClassFileReader(
+        final int options,
+        final IMetadataResolver resolver,
+        final Buffer buffer,
+        final ConstantPool constantPool) {
+
+        _options = options;
+        _resolver = resolver;
+        _buffer = buffer;
+        _constantPool = constantPool;
+        _parser = new MetadataParser(resolver);
+        _typeAttributes = new ArrayList<>();
+        _memberAttributes = new ArrayList<>();
+        _scope = new ClassFileReader.Scope(_parser, _typeAttributes, constantPool);
+    }
+
+    static void accept(final int options, final IMetadataResolver resolver, final Buffer b, final TypeVisitor visitor) {
+        VerifyArgument.notNull(resolver, "resolver");
+        VerifyArgument.notNull(b, "b");
+        VerifyArgument.notNull(visitor, "visitor");
+
+        final long magic = b.readInt() & 0xFFFFFFFFL;
+
+        if (magic != ClassFileReader.MAGIC) {
+            throw new IllegalStateException("Wrong magic number: " + magic);
+        }
+
+        final int minorVersion = b.readUnsignedShort();
+        final int majorVersion = b.readUnsignedShort();
+        final ConstantPool constantPool = ConstantPool.read(b);
+
+        new StreamingClassFileReader(options, resolver, b, constantPool).accept(majorVersion, minorVersion, visitor);
+    }
+
+    @Override
+    protected IMetadataScope getScope() {
+        return _scope;
+    }
+
+    @Override
+    protected MetadataParser getParser() {
+        return _parser;
+    }
+
+    @Override
+    protected SourceAttribute readAttributeCore(final String name, final Buffer buffer, final int originalOffset, final int length) {
+        if (AttributeNames.InnerClasses.equals(name)) {
+            return ClassFileReader.readInnerClasses(_constantPool, buffer, length);
+        }
+
+        if (AttributeNames.LocalVariableTypeTable.equals(name)) {
+            //
+            // Generic local variable types cannot be reified without their type variables' declarations;
+            // bodies are read with the erased types from the LocalVariableTable instead.
+            //
+            buffer.advance(length);
+            return new LocalVariableTableAttribute(name, EMPTY_LOCAL_VARIABLES);
+        }
+
+        return super.readAttributeCore(name, buffer, originalOffset, length);
+    }
+
+    private boolean shouldProcessAnnotations() {
+        return (_options & ClassFileReader.OPTION_PROCESS_ANNOTATIONS) == ClassFileReader.OPTION_PROCESS_ANNOTATIONS;
+    }
+
+    private void accept(final int majorVersion, final int minorVersion, final TypeVisitor visitor) {
+        final Buffer b = _buffer;
+        final int accessFlags = b.readUnsignedShort();
+        final String name = _constantPool.<ConstantPool.TypeInfoEntry>getEntry(b.readUnsignedShort()).getName();
+
+        _majorVersion = majorVersion;
+        _minorVersion = minorVersion;
+        _accessFlags = accessFlags;
+        _internalName = name;
+
+        final int baseClassToken = b.readUnsignedShort();
+        final String baseTypeName = baseClassToken != 0 ? _constantPool.<ConstantPool.TypeInfoEntry>getEntry(baseClassToken).getName()
+                                                        : null;
+
+        final String[] interfaceNames = new String[b.readUnsignedShort()];
+
+        for (int i = 0; i < interfaceNames.length; i++) {
+            interfaceNames[i] = _constantPool.<ConstantPool.TypeInfoEntry>getEntry(b.readUnsignedShort()).getName();
+        }
+
+        //
+        // The type's own attributes follow its members, but the visitor must see them first.  Skip ahead
+        // to read them, then come back for the members.
+        //
+        final int membersOffset = b.position();
+
+        skipMembers();
+        skipMembers();
+        readAttributes(_typeAttributes);
+
+        final int endOffset = b.position();
+
+        final SignatureAttribute signature = SourceAttribute.find(AttributeNames.Signature, _typeAttributes);
+
+        visitor.visitParser(_parser);
+
+        visitor.visit(
+            majorVersion,
+            minorVersion,
+            accessFlags,
+            name,
+            signature != null ? signature.getSignature() : null,
+            baseTypeName,
+            interfaceNames
+        );
+
+        visitEnclosingTypes(name, visitor);
+
+        for (final SourceAttribute attribute : _typeAttributes) {
+            if (attribute instanceof AnnotationsAttribute) {
+                final boolean visible = AttributeNames.RuntimeVisibleAnnotations.equals(attribute.getName());
+
+                for (final CustomAnnotation annotation : ((AnnotationsAttribute) attribute).getAnnotations()) {
+                    visitor.visitAnnotation(annotation, visible);
+                }
+            }
+            else {
+                visitor.visitAttribute(attribute);
+            }
+        }
+
+        final ConstantPool.Visitor constantPoolVisitor = visitor.visitConstantPool();
+
+        if (constantPoolVisitor != null) {
+            _constantPool.accept(constantPoolVisitor);
+        }
+
+        b.position(membersOffset);
+
+        visitFields(visitor);
+        visitMethods(visitor);
+
+        b.position(endOffset);
+
+        visitor.visitEnd();
+    }
+
+    private void visitEnclosingTypes(final String name, final TypeVisitor visitor) {
+        final EnclosingMethodAttribute enclosingMethod = SourceAttribute.find(AttributeNames.EnclosingMethod, _typeAttributes);
+
+        if (enclosingMethod != null && enclosingMethod.getEnclosingMethod() != null) {
+            visitor.visitDeclaringMethod(enclosingMethod.getEnclosingMethod());
+        }
+
+        final InnerClassesAttribute innerClasses = SourceAttribute.find(AttributeNames.InnerClasses, _typeAttributes);
+
+        if (innerClasses != null) {
+            for (final InnerClassEntry entry : innerClasses.getEntries()) {
+                if (name.equals(entry.getInnerClassName()) && entry.getOuterClassName() != null) {
+                    visitor.visitOuterType(_parser.parseTypeDescriptor(entry.getOuterClassName()));
+                    return;
+                }
+            }
+        }
+
+        if (enclosingMethod != null && enclosingMethod.getEnclosingType() != null) {
+            visitor.visitOuterType(enclosingMethod.getEnclosingType());
+        }
+    }
+
+    private void visitFields(final TypeVisitor visitor) {
+        final Buffer b = _buffer;
+        final List<SourceAttribute> attributes = _memberAttributes;
+        final int fieldCount = b.readUnsignedShort();
+
+        for (int i = 0; i < fieldCount; i++) {
+            final int accessFlags = b.readUnsignedShort();
+            final String name = _constantPool.lookupUtf8Constant(b.readUnsignedShort());
+            final String descriptor = _constantPool.lookupUtf8Constant(b.readUnsignedShort());
+
+            readAttributes(attributes);
+
+            final FieldVisitor fieldVisitor = visitor.visitField(
+                Flags.fromStandardFlags(accessFlags, Flags.Kind.Field),
+                name,
+                _parser.parseTypeSignature(descriptor)
+            );
+
+            if (fieldVisitor == null) {
+                continue;
+            }
+
+            for (final SourceAttribute attribute : attributes) {
+                if (attribute instanceof AnnotationsAttribute) {
+                    final boolean visible = AttributeNames.RuntimeVisibleAnnotations.equals(attribute.getName());
+
+                    for (final CustomAnnotation annotation : ((AnnotationsAttribute) attribute).getAnnotations()) {
+                        fieldVisitor.visitAnnotation(annotation, visible);
+                    }
+                }
+                else {
+                    fieldVisitor.visitAttribute(attribute);
+                }
+            }
+
+            fieldVisitor.visitEnd();
+        }
+    }
+
+    private void visitMethods(final TypeVisitor visitor) {
+        final Buffer b = _buffer;
+        final List<SourceAttribute> attributes = _memberAttributes;
+        final int methodCount = b.readUnsignedShort();
+
+        for (int i = 0; i < methodCount; i++) {
+            final long flags = Flags.fromStandardFlags(b.readUnsignedShort(), Flags.Kind.Method);
+            final String name = _constantPool.lookupUtf8Constant(b.readUnsignedShort());
+            final String descriptor = _constantPool.lookupUtf8Constant(b.readUnsignedShort());
+
+            readAttributes(attributes);
+
+            final ExceptionsAttribute exceptions = SourceAttribute.find(AttributeNames.Exceptions, attributes);
+            final TypeReference[] thrownTypes;
+
+            if (exceptions != null) {
+                final List<TypeReference> exceptionTypes = exceptions.getExceptionTypes();
+                thrownTypes = exceptionTypes.toArray(new TypeReference[exceptionTypes.size()]);
+            }
+            else {
+                thrownTypes = EmptyArrayCache.fromElementType(TypeReference.class);
+            }
+
+            final MethodVisitor methodVisitor = visitor.visitMethod(
+                flags,
+                name,
+                _parser.parseMethodSignature(descriptor),
+                thrownTypes
+            );
+
+            if (methodVisitor == null) {
+                continue;
+            }
+
+            for (final SourceAttribute attribute : attributes) {
+                if (attribute instanceof AnnotationsAttribute) {
+                    final boolean visible = AttributeNames.RuntimeVisibleAnnotations.equals(attribute.getName());
+
+                    for (final CustomAnnotation annotation : ((AnnotationsAttribute) attribute).getAnnotations()) {
+                        methodVisitor.visitAnnotation(annotation, visible);
+                    }
+                }
+                else if (attribute instanceof ParameterAnnotationsAttribute) {
+                    final boolean visible = AttributeNames.RuntimeVisibleParameterAnnotations.equals(attribute.getName());
+                    final CustomAnnotation[][] annotations = ((ParameterAnnotationsAttribute) attribute).getAnnotations();
+
+                    for (int p = 0; p < annotations.length; p++) {
+                        for (final CustomAnnotation annotation : annotations[p]) {
+                            methodVisitor.visitParameterAnnotation(p, annotation, visible);
+                        }
+                    }
+                }
+                else {
+                    methodVisitor.visitAttribute(attribute);
+                }
+            }
+
+            if (_codeAttributeOffset >= 0 && methodVisitor.canVisitBody()) {
+                visitBody(flags, name, descriptor, methodVisitor);
+            }
+
+            methodVisitor.visitEnd();
+        }
+    }
+
+    private void visitBody(final long flags, final String name, final String descriptor, final MethodVisitor visitor) {
+        final Buffer b = _buffer;
+        final int position = b.position();
+
+        b.position(_codeAttributeOffset);
+
+        final CodeAttribute code = (CodeAttribute) readAttributeCore(AttributeNames.Code, b, -1, _codeAttributeLength);
+
+        b.position(position);
+
+        //
+        // Parse the descriptor afresh: the method we read the body against adopts its parameters.
+        //
+        final IMethodSignature signature = _parser.parseMethodSignature(descriptor);
+        final MethodDefinition method = new MethodDefinition();
+
+        method.setName(name);
+        method.setFlags(flags);
+        method.setDeclaringType(getDeclaringType());
+        method.setReturnType(signature.getReturnType());
+
+        final List<ParameterDefinition> parameters = signature.getParameters();
+
+        if (!parameters.isEmpty()) {
+            method.getParametersInternal().addAll(parameters);
+
+            int slot = Flags.testAny(flags, Flags.STATIC) ? 0 : 1;
+
+            for (final ParameterDefinition parameter : method.getParameters()) {
+                parameter.setSlot(slot);
+                slot += parameter.getSize();
+            }
+        }
+
+        method.getSourceAttributesInternal().add(code);
+        method.getSourceAttributesInternal().addAll(code.getAttributes());
+
+        final MethodBody body = new MethodReader(method, _scope).readBody();
+        final InstructionVisitor instructionVisitor = visitor.visitBody(body);
+
+        final LineNumberTableAttribute lineNumbers = SourceAttribute.find(AttributeNames.LineNumberTable, code.getAttributes());
+
+        if (lineNumbers != null) {
+            for (final LineNumberTableEntry entry : lineNumbers.getEntries()) {
+                final Instruction instruction = body.getInstructions().tryGetAtOffset(entry.getOffset());
+
+                if (instruction != null) {
+                    visitor.visitLineNumber(instruction, entry.getLineNumber());
+                }
+            }
+        }
+
+        if (instructionVisitor != null) {
+            for (final Instruction instruction : body.getInstructions()) {
+                instruction.accept(instructionVisitor);
+            }
+
+            instructionVisitor.visitEnd();
+        }
+    }
+
+    private TypeDefinition getDeclaringType() {
+        if (_declaringType == null) {
+            final TypeDefinition type = new TypeDefinition();
+            final int delimiter = _internalName.lastIndexOf('/');
+
+            type.setResolver(_resolver);
+            type.setFlags(_accessFlags);
+            type.setCompilerVersion(_majorVersion, _minorVersion);
+
+            if (delimiter < 0) {
+                type.setPackageName(StringUtilities.EMPTY);
+                type.setName(_internalName);
+            }
+            else {
+                type.setPackageName(_internalName.substring(0, delimiter).replace('/', '.'));
+                type.setName(_internalName.substring(delimiter + 1));
+            }
+
+            type.getSourceAttributesInternal().addAll(_typeAttributes);
+            type.setConstantPool(_constantPool);
+
+            _declaringType = type;
+        }
+
+        return _declaringType;
+    }
+
+    private void skipMembers() {
+        final Buffer b = _buffer;
+        final int memberCount = b.readUnsignedShort();
+
+        for (int i = 0; i < memberCount; i++) {
+            b.position(b.position() + 6);
+            skipAttributes();
+        }
+    }
+
+    private void skipAttributes() {
+        final Buffer b = _buffer;
+        final int attributeCount = b.readUnsignedShort();
+
+        for (int i = 0; i < attributeCount; i++) {
+            b.position(b.position() + 2);
+
+            final int length = b.readInt();
+
+            b.position(b.position() + length);
+        }
+    }
+
+    /**
+     * Reads the attribute table at the current position into {@code attributes}.  The {@code Code}
+     * attribute is not decoded; only its position is recorded, for {@link #visitBody}.  Annotations
+     * are skipped unless annotation processing was requested.
+     */
+    private void readAttributes(final List<SourceAttribute> attributes) {
+        final Buffer b = _buffer;
+        final int attributeCount = b.readUnsignedShort();
+        final boolean processAnnotations = shouldProcessAnnotations();
+
+        attributes.clear();
+
+        _codeAttributeOffset = -1;
+        _codeAttributeLength = 0;
+
+        for (int i = 0; i < attributeCount; i++) {
+            final String name = _constantPool.lookupUtf8Constant(b.readUnsignedShort());
+            final int length = b.readInt();
+            final int offset = b.position();
+
+            switch (name) {
+                case AttributeNames.Code:
+                    _codeAttributeOffset = offset;
+                    _codeAttributeLength = length;
+                    break;
+
+                case AttributeNames.RuntimeVisibleAnnotations:
+                case AttributeNames.RuntimeInvisibleAnnotations:
+                case AttributeNames.RuntimeVisibleParameterAnnotations:
+                case AttributeNames.RuntimeInvisibleParameterAnnotations:
+                case AttributeNames.AnnotationDefault:
+                    if (processAnnotations) {
+                        attributes.add(readAttributeCore(name, b, -1, length));
+                    }
+                    break;
+
+                default:
+                    attributes.add(readAttributeCore(name, b, -1, length));
+                    break;
+            }
+
+            b.position(offset + length);
+        }
+    }
+}
@@ -28,20 +28,13 @@ import java.util.Collections;
 import java.util.List;
 
 public class TypeDefinition extends TypeReference implements IMemberDefinition {
-    private final GenericParameterCollection _genericParameters;
-    private final Collection<TypeDefinition> _declaredTypes;
-    private final Collection<FieldDefinition> _declaredFields;
-    private final Collection<MethodDefinition> _declaredMethods;
-    private final Collection<TypeReference> _explicitInterfaces;
-    private final Collection<CustomAnnotation> _customAnnotations;
-    private final Collection<SourceAttribute> _sourceAttributes;
-    private final List<GenericParameter> _genericParametersView;
-    private final List<TypeDefinition> _declaredTypesView;
-    private final List<FieldDefinition> _declaredFieldsView;
-    private final List<MethodDefinition> _declaredMethodsView;
-    private final List<TypeReference> _explicitInterfacesView;
-    private final List<CustomAnnotation> _customAnnotationsView;
-    private final List<SourceAttribute> _sourceAttributesView;
+    private volatile GenericParameterCollection _genericParameters;
+    private volatile Collection<TypeDefinition> _declaredTypes;
+    private volatile Collection<FieldDefinition> _declaredFields;
+    private volatile Collection<MethodDefinition> _declaredMethods;
+    private volatile Collection<TypeReference> _explicitInterfaces;
+    private volatile Collection<CustomAnnotation> _customAnnotations;
+    private volatile Collection<SourceAttribute> _sourceAttributes;
 
     private IMetadataResolver _resolver;
     private String _simpleName;
@@ -60,20 +53,6 @@ public class TypeDefinition extends TypeReference implements IMemberDefinition {
     private ITypeLoader _typeLoader;
 
     public TypeDefinition() {
-        _genericParameters = new GenericParameterCollection(this);
-        _declaredTypes = new Collection<>();
-        _declaredFields = new Collection<>();
-        _declaredMethods = new Collection<>();
-        _explicitInterfaces = new Collection<>();
-        _customAnnotations = new Collection<>();
-        _sourceAttributes = new Collection<>();
-        _genericParametersView = Collections.unmodifiableList(_genericParameters);
-        _declaredTypesView = Collections.unmodifiableList(_declaredTypes);
-        _declaredFieldsView = Collections.unmodifiableList(_declaredFields);
-        _declaredMethodsView = Collections.unmodifiableList(_declaredMethods);
-        _explicitInterfacesView = Collections.unmodifiableList(_explicitInterfaces);
-        _customAnnotationsView = Collections.unmodifiableList(_customAnnotations);
-        _sourceAttributesView = Collections.unmodifiableList(_sourceAttributes);
     }
 
     public TypeDefinition(final IMetadataResolver resolver) {
@@ -102,7 +81,33 @@ public class TypeDefinition extends TypeReference implements IMemberDefinition {
     }
 
     public final ConstantPool getConstantPool() {
-        return _constantPool;
+        final ConstantPool constantPool = _constantPool;
+
+        if (constantPool == null && _typeLoader != null) {
+            //
+            // Types read from metadata records leave their constant pool in the class file.
+            //
+            final Buffer classFile = new Buffer(0);
+
+            if (_typeLoader.tryLoadType(getInternalName(), classFile)) {
+                return getConstantPool(classFile);
+            }
+        }
+
+        return constantPool;
+    }
+
+    /**
+     * Returns the constant pool, reading it from {@code classFile} if it has not been read yet.
+     */
+    final ConstantPool getConstantPool(final Buffer classFile) {
+        ConstantPool constantPool = _constantPool;
+
+        if (constantPool == null) {
+            _constantPool = constantPool = ClassFileReader.readConstantPool(classFile);
+        }
+
+        return constantPool;
     }
 
     protected final void setConstantPool(final ConstantPool constantPool) {
@@ -215,21 +220,21 @@ public class TypeDefinition extends TypeReference implements IMemberDefinition {
     }
 
     public final List<TypeReference> getExplicitInterfaces() {
-        return _explicitInterfacesView;
+        return Collection.readOnly(_explicitInterfaces);
     }
 
     @Override
     public final List<CustomAnnotation> getAnnotations() {
-        return _customAnnotationsView;
+        return Collection.readOnly(_customAnnotations);
     }
 
     public final List<SourceAttribute> getSourceAttributes() {
-        return _sourceAttributesView;
+        return Collection.readOnly(_sourceAttributes);
     }
 
     @Override
     public final List<GenericParameter> getGenericParameters() {
-        return _genericParametersView;
+        return Collection.readOnly(_genericParameters);
     }
 
     @Override
@@ -280,31 +285,73 @@ public class TypeDefinition extends TypeReference implements IMemberDefinition {
     }
 
     protected final GenericParameterCollection getGenericParametersInternal() {
-        return _genericParameters;
+        GenericParameterCollection genericParameters = _genericParameters;
+
+        if (genericParameters == null) {
+            _genericParameters = genericParameters = new GenericParameterCollection(this);
+        }
+
+        return genericParameters;
     }
 
     protected final Collection<TypeDefinition> getDeclaredTypesInternal() {
-        return _declaredTypes;
+        Collection<TypeDefinition> declaredTypes = _declaredTypes;
+
+        if (declaredTypes == null) {
+            _declaredTypes = declaredTypes = new Collection<>();
+        }
+
+        return declaredTypes;
     }
 
     protected final Collection<FieldDefinition> getDeclaredFieldsInternal() {
-        return _declaredFields;
+        Collection<FieldDefinition> declaredFields = _declaredFields;
+
+        if (declaredFields == null) {
+            _declaredFields = declaredFields = new Collection<>();
+        }
+
+        return declaredFields;
     }
 
     protected final Collection<MethodDefinition> getDeclaredMethodsInternal() {
-        return _declaredMethods;
+        Collection<MethodDefinition> declaredMethods = _declaredMethods;
+
+        if (declaredMethods == null) {
+            _declaredMethods = declaredMethods = new Collection<>();
+        }
+
+        return declaredMethods;
     }
 
     protected final Collection<TypeReference> getExplicitInterfacesInternal() {
-        return _explicitInterfaces;
+        Collection<TypeReference> explicitInterfaces = _explicitInterfaces;
+
+        if (explicitInterfaces == null) {
+            _explicitInterfaces = explicitInterfaces = new Collection<>();
+        }
+
+        return explicitInterfaces;
     }
 
     protected final Collection<CustomAnnotation> getAnnotationsInternal() {
-        return _customAnnotations;
+        Collection<CustomAnnotation> customAnnotations = _customAnnotations;
+
+        if (customAnnotations == null) {
+            _customAnnotations = customAnnotations = new Collection<>();
+        }
+
+        return customAnnotations;
     }
 
     protected final Collection<SourceAttribute> getSourceAttributesInternal() {
-        return _sourceAttributes;
+        Collection<SourceAttribute> sourceAttributes = _sourceAttributes;
+
+        if (sourceAttributes == null) {
+            _sourceAttributes = sourceAttributes = new Collection<>();
+        }
+
+        return sourceAttributes;
     }
 
     @Override
@@ -417,15 +464,15 @@ public class TypeDefinition extends TypeReference implements IMemberDefinition {
     // <editor-fold defaultstate="collapsed" desc="Members">
 
     public final List<FieldDefinition> getDeclaredFields() {
-        return _declaredFieldsView;
+        return Collection.readOnly(_declaredFields);
     }
 
     public final List<MethodDefinition> getDeclaredMethods() {
-        return _declaredMethodsView;
+        return Collection.readOnly(_declaredMethods);
     }
 
     public final List<TypeDefinition> getDeclaredTypes() {
-        return _declaredTypesView;
+        return Collection.readOnly(_declaredTypes);
     }
 
     // </editor-fold>
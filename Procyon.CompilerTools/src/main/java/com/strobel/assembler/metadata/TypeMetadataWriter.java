@@ -0,0 +1,536 @@
+/*
+ * TypeMetadataWriter.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.metadata;
+
+import com.strobel.assembler.ir.ConstantPool;
+import com.strobel.assembler.ir.attributes.AttributeNames;
+
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reduces a class file to a metadata record, which {@link ClassFileReader} can build a {@link TypeDefinition}
+ * from without reading the rest of the class file.  A record has the layout of a class file, with three
+ * differences:
+ * <ul>
+ * <li>It starts with {@link #MAGIC} instead of the class file magic number.</li>
+ * <li>Its constant pool holds only the entries which the declarations and the attributes {@link ClassFileReader}
+ * decodes refer to, renumbered; the entries only referenced from code are left out.  The attributes which are
+ * kept as blobs are copied as they are, so their tokens still refer to the class file's constant pool.</li>
+ * <li>The code of each method is left in the class file, and its {@code Code} attribute says where to find it:
+ * <pre>
+ * u4 length; u2 max_stack; u2 max_locals; u4 code_offset; u4 code_length;
+ * u2 exception_table_length; exception_table[]; u2 attributes_count; attributes[]
+ * </pre>
+ * where {@code length} is the attribute's length in the class file, and {@code code_offset} is the offset of
+ * the code from the start of the class file.</li>
+ * </ul>
+ * A type read from a record has no constant pool until it is asked for, at which point it is read from the class
+ * file, as are its method bodies.
+ *
+ * @author Mike Strobel
+ */
+final class TypeMetadataWriter {
+    private final static Logger LOG = Logger.getLogger(TypeMetadataWriter.class.getSimpleName());
+
+    final static long MAGIC = 0x50524F4DL;
+
+    private final byte[] _data;
+    private final Buffer _input;
+    private final Buffer _constants;
+    private final Buffer _pool = new Buffer();
+    private final Buffer _output = new Buffer();
+
+    private int[] _entryOffsets;
+    private int[] _newIndices;
+    private int _poolSize;
+
+    private TypeMetadataWriter(final byte[] classFile) {
+        _data = classFile;
+        _input = new Buffer(classFile);
+        _constants = new Buffer(classFile);
+    }
+
+    /**
+     * Returns the metadata record for a class file, or {@code null} if the class file cannot be read.
+     */
+    static byte[] write(final byte[] classFile) {
+        try {
+            return new TypeMetadataWriter(classFile).write();
+        }
+        catch (final RuntimeException e) {
+            LOG.log(Level.FINE, "Could not write metadata record; the class file will be used instead.", e);
+            return null;
+        }
+    }
+
+    private byte[] write() {
+        final Buffer in = _input;
+        final Buffer out = _output;
+
+        if ((in.readInt() & 0xFFFFFFFFL) != ClassFileReader.MAGIC) {
+            throw new IllegalStateException("Not a class file.");
+        }
+
+        final int minorVersion = in.readUnsignedShort();
+        final int majorVersion = in.readUnsignedShort();
+
+        skipConstantPool();
+
+        out.writeShort(in.readUnsignedShort());
+        out.writeShort(map(in.readUnsignedShort()));
+        out.writeShort(map(in.readUnsignedShort()));
+
+        final int interfaceCount = in.readUnsignedShort();
+
+        out.writeShort(interfaceCount);
+
+        for (int i = 0; i < interfaceCount; i++) {
+            out.writeShort(map(in.readUnsignedShort()));
+        }
+
+        copyMembers();
+        copyMembers();
+        copyAttributes();
+
+        final Buffer record = new Buffer(10 + _pool.position() + out.position());
+
+        record.writeInt((int) MAGIC);
+        record.writeShort(minorVersion);
+        record.writeShort(majorVersion);
+        record.writeShort(_poolSize + 1);
+        record.putByteArray(_pool.array(), 0, _pool.position());
+        record.putByteArray(out.array(), 0, out.position());
+
+        return Arrays.copyOf(record.array(), record.position());
+    }
+
+    private void skipConstantPool() {
+        final Buffer in = _input;
+        final int size = in.readUnsignedShort();
+
+        _entryOffsets = new int[size];
+        _newIndices = new int[size];
+
+        for (int i = 1; i < size; i++) {
+            _entryOffsets[i] = in.position();
+
+            final ConstantPool.Tag tag = ConstantPool.Tag.fromValue(in.readUnsignedByte());
+
+            if (tag == null) {
+                throw new IllegalStateException("Unsupported constant pool entry at index " + i + ".");
+            }
+
+            switch (tag) {
+                case Utf8StringConstant:
+                    in.advance(in.readUnsignedShort());
+                    break;
+                case IntegerConstant:
+                case FloatConstant:
+                    in.advance(4);
+                    break;
+                case LongConstant:
+                case DoubleConstant:
+                    in.advance(8);
+                    ++i;
+                    break;
+                case TypeInfo:
+                case StringConstant:
+                case MethodType:
+                    in.advance(2);
+                    break;
+                case MethodHandle:
+                    in.advance(3);
+                    break;
+                default:
+                    in.advance(4);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Copies a constant pool entry, and the entries it refers to, to the record's constant pool, and returns
+     * its index there.
+     */
+    private int map(final int index) {
+        if (index == 0) {
+            return 0;
+        }
+
+        final int offset = index < _entryOffsets.length ? _entryOffsets[index] : 0;
+
+        if (offset == 0) {
+            throw new IllegalStateException("Invalid constant pool index: " + index + ".");
+        }
+
+        if (_newIndices[index] != 0) {
+            return _newIndices[index];
+        }
+
+        final byte[] data = _data;
+        final Buffer pool = _pool;
+        final ConstantPool.Tag tag = ConstantPool.Tag.fromValue(data[offset] & 0xFF);
+
+        //
+        // Copy the entries this one refers to first, so we know their new indices.
+        //
+        switch (tag) {
+            case Utf8StringConstant:
+                pool.putByteArray(data, offset, 3 + readUnsignedShort(offset + 1));
+                break;
+
+            case IntegerConstant:
+            case FloatConstant:
+                pool.putByteArray(data, offset, 5);
+                break;
+
+            case LongConstant:
+            case DoubleConstant:
+                pool.putByteArray(data, offset, 9);
+                break;
+
+            case TypeInfo:
+            case StringConstant:
+            case MethodType: {
+                final int operand = map(readUnsignedShort(offset + 1));
+                pool.writeByte(tag.value).writeShort(operand);
+                break;
+            }
+
+            case MethodHandle: {
+                final int reference = map(readUnsignedShort(offset + 2));
+                pool.writeByte(tag.value).writeByte(data[offset + 1]).writeShort(reference);
+                break;
+            }
+
+            case InvokeDynamicInfo: {
+                final int nameAndType = map(readUnsignedShort(offset + 3));
+                pool.writeByte(tag.value).writeShort(readUnsignedShort(offset + 1)).writeShort(nameAndType);
+                break;
+            }
+
+            default: {
+                final int first = map(readUnsignedShort(offset + 1));
+                final int second = map(readUnsignedShort(offset + 3));
+                pool.writeByte(tag.value).writeShort(first).writeShort(second);
+                break;
+            }
+        }
+
+        final int newIndex = _poolSize + 1;
+
+        _poolSize += tag == ConstantPool.Tag.LongConstant || tag == ConstantPool.Tag.DoubleConstant ? 2 : 1;
+        _newIndices[index] = newIndex;
+
+        return newIndex;
+    }
+
+    private void copyMembers() {
+        final Buffer in = _input;
+        final Buffer out = _output;
+        final int memberCount = in.readUnsignedShort();
+
+        out.writeShort(memberCount);
+
+        for (int i = 0; i < memberCount; i++) {
+            out.writeShort(in.readUnsignedShort());
+            out.writeShort(map(in.readUnsignedShort()));
+            out.writeShort(map(in.readUnsignedShort()));
+            copyAttributes();
+        }
+    }
+
+    private void copyAttributes() {
+        final int attributeCount = _input.readUnsignedShort();
+
+        _output.writeShort(attributeCount);
+
+        for (int i = 0; i < attributeCount; i++) {
+            copyAttribute();
+        }
+    }
+
+    private void copyAttribute() {
+        final Buffer in = _input;
+        final Buffer out = _output;
+        final int nameIndex = in.readUnsignedShort();
+        final int length = in.readInt();
+        final int end = in.position() + length;
+        final String name = lookupUtf8(nameIndex);
+
+        out.writeShort(map(nameIndex));
+
+        final int lengthPosition = out.position();
+
+        out.writeInt(length);
+
+        if (length == 0) {
+            return;
+        }
+
+        switch (name) {
+            case AttributeNames.Code: {
+                copyCode(length);
+
+                final int position = out.position();
+
+                out.position(lengthPosition);
+                out.writeInt(position - lengthPosition - 4);
+                out.position(position);
+                break;
+            }
+
+            case AttributeNames.SourceFile:
+            case AttributeNames.ConstantValue:
+            case AttributeNames.Signature: {
+                copyToken();
+                break;
+            }
+
+            case AttributeNames.Exceptions: {
+                final int exceptionCount = copyShort();
+
+                for (int i = 0; i < exceptionCount; i++) {
+                    copyToken();
+                }
+
+                break;
+            }
+
+            case AttributeNames.LocalVariableTable:
+            case AttributeNames.LocalVariableTypeTable: {
+                final int entryCount = copyShort();
+
+                for (int i = 0; i < entryCount; i++) {
+                    copyBytes(4);
+                    copyToken();
+                    copyToken();
+                    copyBytes(2);
+                }
+
+                break;
+            }
+
+            case AttributeNames.EnclosingMethod: {
+                copyToken();
+                copyToken();
+                break;
+            }
+
+            case AttributeNames.InnerClasses: {
+                final int entryCount = copyShort();
+
+                for (int i = 0; i < entryCount; i++) {
+                    copyToken();
+                    copyToken();
+                    copyToken();
+                    copyBytes(2);
+                }
+
+                break;
+            }
+
+            case AttributeNames.MethodParameters: {
+                final int parameterCount = in.readUnsignedByte();
+
+                out.writeByte(parameterCount);
+
+                //
+                // Like the reader, ignore parameters which do not fit in the attribute.
+                //
+                for (int i = 0; i < parameterCount && i < (length - 1) / 4; i++) {
+                    copyToken();
+                    copyBytes(2);
+                }
+
+                copyBytes(end - in.position());
+                break;
+            }
+
+            case AttributeNames.RuntimeVisibleAnnotations:
+            case AttributeNames.RuntimeInvisibleAnnotations: {
+                final int annotationCount = copyShort();
+
+                for (int i = 0; i < annotationCount; i++) {
+                    copyAnnotation();
+                }
+
+                break;
+            }
+
+            case AttributeNames.RuntimeVisibleParameterAnnotations:
+            case AttributeNames.RuntimeInvisibleParameterAnnotations: {
+                final int parameterCount = in.readUnsignedByte();
+
+                out.writeByte(parameterCount);
+
+                for (int i = 0; i < parameterCount; i++) {
+                    final int annotationCount = copyShort();
+
+                    for (int j = 0; j < annotationCount; j++) {
+                        copyAnnotation();
+                    }
+                }
+
+                break;
+            }
+
+            case AttributeNames.AnnotationDefault: {
+                copyElement();
+                break;
+            }
+
+            case AttributeNames.BootstrapMethods: {
+                final int methodCount = copyShort();
+
+                for (int i = 0; i < methodCount; i++) {
+                    copyToken();
+
+                    final int argumentCount = copyShort();
+
+                    for (int j = 0; j < argumentCount; j++) {
+                        copyToken();
+                    }
+                }
+
+                break;
+            }
+
+            default: {
+                //
+                // Everything else either refers to no constants, like the line number table, or is left
+                // as a blob by the reader; both are copied as they are.
+                //
+                copyBytes(length);
+                break;
+            }
+        }
+
+        if (in.position() != end) {
+            throw new IllegalStateException("Malformed " + name + " attribute.");
+        }
+    }
+
+    private void copyCode(final int length) {
+        final Buffer in = _input;
+        final Buffer out = _output;
+
+        out.writeInt(length);
+        copyBytes(4);
+
+        final int codeLength = in.readInt();
+
+        out.writeInt(in.position());
+        out.writeInt(codeLength);
+        in.advance(codeLength);
+
+        final int exceptionTableLength = copyShort();
+
+        for (int i = 0; i < exceptionTableLength; i++) {
+            copyBytes(6);
+            copyToken();
+        }
+
+        copyAttributes();
+    }
+
+    private void copyAnnotation() {
+        copyToken();
+
+        final int parameterCount = copyShort();
+
+        for (int i = 0; i < parameterCount; i++) {
+            copyToken();
+            copyElement();
+        }
+    }
+
+    private void copyElement() {
+        final int tag = _input.readUnsignedByte();
+
+        _output.writeByte(tag);
+
+        switch (tag) {
+            case 'B':
+            case 'C':
+            case 'D':
+            case 'F':
+            case 'I':
+            case 'J':
+            case 'S':
+            case 'Z':
+            case 's':
+            case 'c':
+                copyToken();
+                break;
+
+            case 'e':
+                copyToken();
+                copyToken();
+                break;
+
+            case '@':
+                copyAnnotation();
+                break;
+
+            case '[': {
+                final int elementCount = copyShort();
+
+                for (int i = 0; i < elementCount; i++) {
+                    copyElement();
+                }
+
+                break;
+            }
+
+            default:
+                throw new IllegalStateException("Unknown annotation element tag: " + (char) tag + ".");
+        }
+    }
+
+    private void copyToken() {
+        _output.writeShort(map(_input.readUnsignedShort()));
+    }
+
+    private int copyShort() {
+        final int value = _input.readUnsignedShort();
+        _output.writeShort(value);
+        return value;
+    }
+
+    private void copyBytes(final int length) {
+        final int position = _input.position();
+
+        _input.advance(length);
+        _output.putByteArray(_data, position, length);
+    }
+
+    private String lookupUtf8(final int index) {
+        final int offset = index > 0 && index < _entryOffsets.length ? _entryOffsets[index] : 0;
+
+        if (offset == 0 || _data[offset] != ConstantPool.Tag.Utf8StringConstant.value) {
+            throw new IllegalStateException("Invalid attribute name index: " + index + ".");
+        }
+
+        _constants.position(offset + 1);
+
+        return _constants.readUtf8();
+    }
+
+    private int readUnsignedShort(final int offset) {
+        return ((_data[offset] & 0xFF) << 8) | (_data[offset + 1] & 0xFF);
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * TypePrefetcher.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.assembler.metadata;
+
+import com.strobel.assembler.ir.ConstantPool;
+import com.strobel.core.VerifyArgument;
+
+import java.io.Closeable;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A type loader which reads class files ahead of demand on a background thread, so that the I/O and
+ * inflation behind a {@link MetadataSystem}'s type lookups overlaps with decompilation.
+ * <p>
+ * Each type passed to {@link #enqueue(String)} is loaded in the background, and the types named by
+ * its constant pool (classes, and the types in field and method descriptors) are loaded after it.
+ * Only the direct references of enqueued types are prefetched, and references are only prefetched
+ * while fewer than {@code capacity} class images are pending; to make room, the oldest references
+ * which were prefetched but never consumed are discarded.  An image is released as soon as it is
+ * consumed by {@link #tryLoadType}.
+ * <p>
+ * Type loaders are not generally thread-safe, so every call to an underlying loader is serialized.
+ * Give the prefetcher a separate loader for the background thread, over its own files, so that the
+ * background thread never holds the lock a lookup is waiting for; with a single loader, the two
+ * threads take turns.  A lookup for a type which is still waiting to be prefetched loads it
+ * immediately, with the lookup's loader, rather than waiting its turn.
+ *
+ * @author Mike Strobel
+ */
+public final class TypePrefetcher implements ITypeLoader, Closeable {
+    private final static Logger LOG = Logger.getLogger(TypePrefetcher.class.getSimpleName());
+
+    private final static int QUEUED = 0;
+    private final static int LOADING = 1;
+    private final static int DONE = 2;
+
+    private final ITypeLoader _typeLoader;
+    private final ITypeLoader _prefetchLoader;
+    private final int _capacity;
+    private final Object _loaderLock = new Object();
+    private final Object _prefetchLoaderLock;
+    private final LinkedHashMap<String, Prefetch> _prefetches = new LinkedHashMap<>();
+    private final Set<String> _requested = new HashSet<>();
+    private final ExecutorService _executor;
+
+    public TypePrefetcher(final ITypeLoader typeLoader, final int capacity) {
+        this(typeLoader, typeLoader, capacity);
+    }
+
+    /**
+     * @param typeLoader
+     *     The loader for lookups which were not prefetched.
+     * @param prefetchLoader
+     *     The loader for the background thread.  It must load the same class files as {@code typeLoader},
+     *     and should share no state with it.
+     * @param capacity
+     *     The maximum number of class images pending before references are no longer prefetched.
+     */
+    public TypePrefetcher(final ITypeLoader typeLoader, final ITypeLoader prefetchLoader, final int capacity) {
+        _typeLoader = VerifyArgument.notNull(typeLoader, "typeLoader");
+        _prefetchLoader = VerifyArgument.notNull(prefetchLoader, "prefetchLoader");
+        _prefetchLoaderLock = prefetchLoader == typeLoader ? _loaderLock : new Object();
+        _capacity = VerifyArgument.isPositive(capacity, "capacity");
+        _executor = Executors.newSingleThreadExecutor(PrefetchThreadFactory.INSTANCE);
+    }
+
+    /**
+     * Schedules a type which is about to be decompiled, along with the types it references, to be
+     * loaded in the background.  Has no effect if the type was already scheduled.
+     */
+    public void enqueue(final String internalName) {
+        schedule(VerifyArgument.notNull(internalName, "internalName"), true);
+    }
+
+    @Override
+    public boolean tryLoadType(final String internalName, final Buffer buffer) {
+        final Prefetch prefetch;
+
+        synchronized (_prefetches) {
+            prefetch = _prefetches.remove(internalName);
+
+            //
+            // A type loaded on demand must not be prefetched again when a later class refers to it.
+            //
+            if (prefetch == null) {
+                _requested.add(internalName);
+            }
+        }
+
+        if (prefetch != null) {
+            if (prefetch.state.compareAndSet(QUEUED, LOADING)) {
+                prefetch.load(_typeLoader, _loaderLock);
+            }
+            else {
+                prefetch.await();
+            }
+
+            if (prefetch.data != null) {
+                buffer.reset(prefetch.data.length);
+                System.arraycopy(prefetch.data, 0, buffer.array(), 0, prefetch.data.length);
+                return true;
+            }
+
+            if (!prefetch.failed) {
+                return false;
+            }
+        }
+
+        synchronized (_loaderLock) {
+            return _typeLoader.tryLoadType(internalName, buffer);
+        }
+    }
+
+    @Override
+    public void close() {
+        _executor.shutdownNow();
+
+        synchronized (_prefetches) {
+            _prefetches.clear();
+            _requested.clear();
+        }
+    }
+
+    private void schedule(final String internalName, final boolean isEnqueued) {
+        final Prefetch prefetch;
+
+        synchronized (_prefetches) {
+            if (_requested.contains(internalName)) {
+                return;
+            }
+
+            //
+            // Enqueued types are always accepted.  References only get a slot if one is free, or if
+            // an older reference has been prefetched but not consumed (and probably never will be).
+            //
+            if (!isEnqueued && _prefetches.size() >= _capacity && !evictReference()) {
+                return;
+            }
+
+            _requested.add(internalName);
+
+            prefetch = new Prefetch(internalName, isEnqueued);
+            _prefetches.put(internalName, prefetch);
+        }
+
+        try {
+            _executor.execute(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        if (prefetch.state.compareAndSet(QUEUED, LOADING)) {
+                            prefetch.load(_prefetchLoader, _prefetchLoaderLock);
+                        }
+
+                        if (isEnqueued && prefetch.data != null) {
+                            scheduleReferences(prefetch.data);
+                        }
+                    }
+                }
+            );
+        }
+        catch (final RejectedExecutionException ignored) {
+            //
+            // We've been closed; the type will be loaded on demand.
+            //
+        }
+    }
+
+    private boolean evictReference() {
+        final Iterator<Map.Entry<String, Prefetch>> iterator = _prefetches.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            final Prefetch oldest = iterator.next().getValue();
+
+            if (!oldest.isEnqueued && oldest.state.get() == DONE) {
+                iterator.remove();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void scheduleReferences(final byte[] classFile) {
+        final ConstantPool pool;
+
+        try {
+            final Buffer b = new Buffer(classFile);
+
+            //
+            // Skip the magic number and version.
+            //
+            b.position(8);
+            pool = ConstantPool.read(b);
+        }
+        catch (final Throwable t) {
+            LOG.log(Level.FINE, "Could not read constant pool of prefetched class.", t);
+            return;
+        }
+
+        for (final ConstantPool.Entry entry : pool) {
+            if (entry instanceof ConstantPool.TypeInfoEntry) {
+                scheduleDescriptorTypes(((ConstantPool.TypeInfoEntry) entry).getName(), true);
+            }
+            else if (entry instanceof ConstantPool.ReferenceEntry) {
+                scheduleDescriptorTypes(((ConstantPool.ReferenceEntry) entry).getNameAndTypeInfo().getType(), false);
+            }
+        }
+    }
+
+    private void scheduleDescriptorTypes(final String descriptor, final boolean isClassName) {
+        if (isClassName && descriptor.charAt(0) != '[') {
+            schedule(descriptor, false);
+            return;
+        }
+
+        for (int start = descriptor.indexOf('L'); start >= 0; start = descriptor.indexOf('L', start)) {
+            final int end = descriptor.indexOf(';', start);
+
+            if (end < 0) {
+                return;
+            }
+
+            schedule(descriptor.substring(start + 1, end), false);
+            start = end + 1;
+        }
+    }
+
+    private final class Prefetch {
+        final String internalName;
+        final boolean isEnqueued;
+        final AtomicInteger state = new AtomicInteger(QUEUED);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        volatile byte[] data;
+        volatile boolean failed;
+
+        Prefetch(final String internalName, final boolean isEnqueued) {
+            this.internalName = internalName;
+            this.isEnqueued = isEnqueued;
+        }
+
+        void load(final ITypeLoader typeLoader, final Object lock) {
+            try {
+                final Buffer buffer = new Buffer(0);
+                final boolean loaded;
+
+                synchronized (lock) {
+                    loaded = typeLoader.tryLoadType(internalName, buffer);
+                }
+
+                if (loaded) {
+                    final byte[] bytes = new byte[buffer.size()];
+                    System.arraycopy(buffer.array(), 0, bytes, 0, bytes.length);
+                    data = bytes;
+                }
+            }
+            catch (final Throwable t) {
+                LOG.log(Level.FINE, "Failed to prefetch type " + internalName + ".", t);
+                failed = true;
+            }
+            finally {
+                state.set(DONE);
+                done.countDown();
+            }
+        }
+
+        void await() {
+            try {
+                done.await();
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed = true;
+            }
+        }
+    }
+
+    private final static class PrefetchThreadFactory implements ThreadFactory {
+        final static PrefetchThreadFactory INSTANCE = new PrefetchThreadFactory();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "Procyon Type Prefetcher");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
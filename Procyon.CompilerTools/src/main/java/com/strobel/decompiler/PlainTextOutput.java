@@ -19,15 +19,22 @@ package com.strobel.decompiler;
 import com.strobel.core.StringUtilities;
 import com.strobel.core.VerifyArgument;
 
+import java.io.Flushable;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.lang.reflect.UndeclaredThrowableException;
-
-public class PlainTextOutput implements ITextOutput {
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+public class PlainTextOutput implements ITextOutput, Flushable {
     private final static String NULL_TEXT = String.valueOf((Object) null);
 
-    private final Writer _writer;
+    private final Sink _sink;
     private String _indentToken = "    ";
     private int _indent;
     private boolean _needsIndent;
@@ -37,11 +44,39 @@ public class PlainTextOutput implements ITextOutput {
     protected int column = 1;
 
     public PlainTextOutput() {
-        _writer = new StringWriter();
+        _sink = new StringSink();
     }
 
+    /**
+     * Creates an output which writes through to {@code writer}; nothing is held back, so callers may
+     * flush or close the writer directly.
+     */
     public PlainTextOutput(final Writer writer) {
-        _writer = VerifyArgument.notNull(writer, "writer");
+        _sink = new WriterSink(VerifyArgument.notNull(writer, "writer"));
+    }
+
+    /**
+     * Creates an output which encodes text straight into {@code stream}.  Text is buffered, so
+     * {@link #flush()} must be called once writing is done.
+     */
+    public PlainTextOutput(final OutputStream stream, final Charset charset) {
+        _sink = new EncodingSink(
+            VerifyArgument.notNull(stream, "stream"),
+            null,
+            VerifyArgument.notNull(charset, "charset")
+        );
+    }
+
+    /**
+     * Creates an output which encodes text straight into {@code channel}.  Text is buffered, so
+     * {@link #flush()} must be called once writing is done.
+     */
+    public PlainTextOutput(final WritableByteChannel channel, final Charset charset) {
+        _sink = new EncodingSink(
+            null,
+            VerifyArgument.notNull(channel, "channel"),
+            VerifyArgument.notNull(charset, "charset")
+        );
     }
 
     @Override
@@ -71,7 +106,7 @@ public class PlainTextOutput implements ITextOutput {
 
             for (int i = 0; i < _indent; i++) {
                 try {
-                    _writer.write(indentToken);
+                    _sink.append(indentToken);
                 }
                 catch (IOException e) {
                     throw new UndeclaredThrowableException(e);
@@ -106,11 +141,11 @@ public class PlainTextOutput implements ITextOutput {
     public void write(final char ch) {
         writeIndent();
         try {
-            if (isUnicodeOutputEnabled()) {
-                _writer.write(ch);
+            if (isUnicodeOutputEnabled() || isPlainAscii(ch) && ch != '\'') {
+                _sink.append(ch);
             }
             else {
-                _writer.write(StringUtilities.escape(ch));
+                _sink.append(StringUtilities.escape(ch));
             }
             column++;
         }
@@ -121,7 +156,12 @@ public class PlainTextOutput implements ITextOutput {
 
     @Override
     public void write(final String text) {
-        writeRaw(isUnicodeOutputEnabled() ? text : StringUtilities.escape(text));
+        if (text == null || isUnicodeOutputEnabled() || isPlainAscii(text)) {
+            writeRaw(text);
+        }
+        else {
+            writeRaw(StringUtilities.escape(text));
+        }
     }
 
     /**
@@ -134,34 +174,63 @@ public class PlainTextOutput implements ITextOutput {
         writeIndent();
 
         try {
-            final int length = text != null ? text.length() : NULL_TEXT.length();
+            if (text == null) {
+                _sink.append(NULL_TEXT);
+                column += NULL_TEXT.length();
+                return;
+            }
 
-            _writer.write(text);
+            _sink.append(text);
 
-            column += length;
+            final int lastNewLine = text.lastIndexOf('\n');
 
-            if (text == null) {
+            if (lastNewLine < 0) {
+                column += text.length();
                 return;
             }
 
-            boolean newLineSeen = false;
-
-            for (int i = 0; i < length; i++) {
-                if (text.charAt(i) == '\n') {
-                    line++;
-                    column = 0;
-                    newLineSeen = true;
-                }
-                else if (newLineSeen) {
-                    column++;
-                }
+            for (int i = lastNewLine; i >= 0; i = text.lastIndexOf('\n', i - 1)) {
+                line++;
             }
+
+            column = text.length() - lastNewLine - 1;
+        }
+        catch (IOException e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    /**
+     * Writes out any buffered text, and flushes the underlying writer, stream, or channel.
+     */
+    @Override
+    public void flush() {
+        try {
+            _sink.flush();
         }
         catch (IOException e) {
             throw new UndeclaredThrowableException(e);
         }
     }
 
+    //
+    // Printable ASCII, tabs, and line breaks are never escaped, so the common case can skip
+    // the per-character type lookups in StringUtilities.escape().
+    //
+
+    private static boolean isPlainAscii(final char ch) {
+        return ch >= ' ' ? ch < 0x7F : ch == '\n' || ch == '\t' || ch == '\r';
+    }
+
+    private static boolean isPlainAscii(final String text) {
+        for (int i = 0, n = text.length(); i < n; i++) {
+            if (!isPlainAscii(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public void writeError(final String value) {
         write(value);
@@ -213,7 +282,7 @@ public class PlainTextOutput implements ITextOutput {
     public void writeLine() {
         writeIndent();
         try {
-            _writer.write("\n");
+            _sink.append('\n');
         }
         catch (IOException e) {
             throw new UndeclaredThrowableException(e);
@@ -278,6 +347,201 @@ public class PlainTextOutput implements ITextOutput {
 
     @Override
     public String toString() {
-        return _writer.toString();
+        return _sink.toString();
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Sinks">
+
+    private static abstract class Sink {
+        abstract void append(final char ch) throws IOException;
+        abstract void append(final String text) throws IOException;
+        abstract void flush() throws IOException;
+    }
+
+    private final static class StringSink extends Sink {
+        private final StringBuilder _text = new StringBuilder();
+
+        @Override
+        void append(final char ch) {
+            _text.append(ch);
+        }
+
+        @Override
+        void append(final String text) {
+            _text.append(text);
+        }
+
+        @Override
+        void flush() {
+        }
+
+        @Override
+        public String toString() {
+            return _text.toString();
+        }
     }
+
+    private final static class WriterSink extends Sink {
+        private final Writer _writer;
+
+        WriterSink(final Writer writer) {
+            _writer = writer;
+        }
+
+        @Override
+        void append(final char ch) throws IOException {
+            _writer.write(ch);
+        }
+
+        @Override
+        void append(final String text) throws IOException {
+            _writer.write(text);
+        }
+
+        @Override
+        void flush() throws IOException {
+            _writer.flush();
+        }
+
+        @Override
+        public String toString() {
+            return _writer.toString();
+        }
+    }
+
+    /**
+     * Collects text in a reusable character buffer and encodes it in bulk.  For charsets which
+     * agree with ASCII, runs of ASCII characters are copied straight into the byte buffer, and
+     * the encoder only sees what remains.
+     */
+    private final static class EncodingSink extends Sink {
+        private final static int BUFFER_SIZE = 8192;
+
+        private final OutputStream _stream;
+        private final WritableByteChannel _channel;
+        private final CharsetEncoder _encoder;
+        private final boolean _isAsciiCompatible;
+        private final char[] _chars = new char[BUFFER_SIZE];
+        private final ByteBuffer _bytes = ByteBuffer.allocate(BUFFER_SIZE);
+
+        private int _length;
+
+        EncodingSink(final OutputStream stream, final WritableByteChannel channel, final Charset charset) {
+            _stream = stream;
+            _channel = channel;
+
+            _encoder = charset.newEncoder()
+                              .onMalformedInput(CodingErrorAction.REPLACE)
+                              .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+            final String name = charset.name();
+
+            _isAsciiCompatible = "UTF-8".equals(name) ||
+                                 "US-ASCII".equals(name) ||
+                                 "ISO-8859-1".equals(name);
+        }
+
+        @Override
+        void append(final char ch) throws IOException {
+            if (_length == _chars.length) {
+                encodeChars();
+            }
+            _chars[_length++] = ch;
+        }
+
+        @Override
+        void append(final String text) throws IOException {
+            final int length = text.length();
+
+            for (int start = 0; start < length; ) {
+                if (_length == _chars.length) {
+                    encodeChars();
+                }
+
+                final int count = Math.min(length - start, _chars.length - _length);
+
+                text.getChars(start, start + count, _chars, _length);
+
+                _length += count;
+                start += count;
+            }
+        }
+
+        @Override
+        void flush() throws IOException {
+            encodeChars();
+            writeBytes();
+
+            if (_stream != null) {
+                _stream.flush();
+            }
+        }
+
+        private void encodeChars() throws IOException {
+            final char[] chars = _chars;
+            final int length = _length;
+
+            int i = 0;
+
+            if (_isAsciiCompatible) {
+                final byte[] bytes = _bytes.array();
+                int position = _bytes.position();
+
+                for (; i < length; i++) {
+                    final char ch = chars[i];
+
+                    if (ch >= 0x80) {
+                        break;
+                    }
+
+                    if (position == bytes.length) {
+                        _bytes.position(position);
+                        writeBytes();
+                        position = 0;
+                    }
+
+                    bytes[position++] = (byte) ch;
+                }
+
+                _bytes.position(position);
+            }
+
+            if (i == length) {
+                _length = 0;
+                return;
+            }
+
+            final CharBuffer input = CharBuffer.wrap(chars, i, length - i);
+
+            while (_encoder.encode(input, _bytes, false).isOverflow()) {
+                writeBytes();
+            }
+
+            //
+            // A high surrogate at the very end stays behind until the rest of its pair arrives.
+            //
+            final int remaining = input.remaining();
+
+            System.arraycopy(chars, input.position(), chars, 0, remaining);
+            _length = remaining;
+        }
+
+        private void writeBytes() throws IOException {
+            if (_stream != null) {
+                _stream.write(_bytes.array(), 0, _bytes.position());
+                _bytes.clear();
+                return;
+            }
+
+            _bytes.flip();
+
+            while (_bytes.hasRemaining()) {
+                _channel.write(_bytes);
+            }
+
+            _bytes.clear();
+        }
+    }
+
+    // </editor-fold>
 }
@@ -0,0 +1,399 @@
+/*
+ * SourceProvider.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler;
+
+import com.strobel.assembler.metadata.*;
+import com.strobel.core.ExceptionUtilities;
+import com.strobel.core.VerifyArgument;
+import com.strobel.decompiler.languages.java.JavaFormattingOptions;
+import com.strobel.decompiler.metrics.IMetricsListener;
+import com.strobel.decompiler.metrics.Metrics;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Renders decompiled source for the types on a class path, for services which serve source to many
+ * clients at once.  Concurrent requests for the same type share a single decompilation, and rendered
+ * source is kept in a least-recently-used cache bounded by its total length in characters.
+ * <p>
+ * A metadata system cannot be shared by concurrent decompilations, so the provider keeps a pool of
+ * workspaces, each with its own type loaders and warm metadata; concurrent requests for different types
+ * use different workspaces.  At most a fixed number of types are decompiled at once, and at most that
+ * many workspaces are kept; further requests wait for a workspace to be released.
+ * <p>
+ * Before each request, the provider checks the modification time and size of every jar file on the class
+ * path; the files beneath its class directories are checked at most once per
+ * {@linkplain ClassPathMonitor#DEFAULT_DIRECTORY_CHECK_INTERVAL interval}, or whenever {@link #refresh()}
+ * is called.  If anything has changed, the provider discards all cached source and workspaces.  Everything
+ * is discarded, not just the changed entry's types, because a type's source depends on the types it
+ * references.
+ * <p>
+ * The settings passed to the provider are shared by all decompilations, and must not be changed
+ * afterward.  Their type loader is ignored; types are loaded from the class path, then the system
+ * class path.
+ *
+ * @author Mike Strobel
+ */
+public final class SourceProvider implements Closeable {
+    public final static int DEFAULT_CACHE_CAPACITY = 16 * 1024 * 1024;
+
+    private final List<File> _classPath;
+    private final ClassPathMonitor _monitor;
+    private final DecompilationOptions _options;
+    private final int _cacheCapacity;
+    private final int _maxConcurrency;
+    private final Semaphore _permits;
+
+    private final Object _lock = new Object();
+    private final LinkedHashMap<String, String> _cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final ArrayDeque<Workspace> _idleWorkspaces = new ArrayDeque<>();
+    private final ConcurrentHashMap<String, FutureTask<String>> _pendingRequests = new ConcurrentHashMap<>();
+
+    private long _cachedCharacters;
+    private long _stamp;
+    private int _generation;
+    private boolean _isClosed;
+
+    public SourceProvider(final List<File> classPath) {
+        this(classPath, new DecompilerSettings(), DEFAULT_CACHE_CAPACITY);
+    }
+
+    /**
+     * @param classPath
+     *     The jar files and class directories to load types from.
+     * @param settings
+     *     The settings to decompile with.
+     * @param cacheCapacity
+     *     The maximum total length, in characters, of the source kept in the cache.
+     */
+    public SourceProvider(final List<File> classPath, final DecompilerSettings settings, final int cacheCapacity) {
+        this(classPath, settings, cacheCapacity, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param classPath
+     *     The jar files and class directories to load types from.
+     * @param settings
+     *     The settings to decompile with.
+     * @param cacheCapacity
+     *     The maximum total length, in characters, of the source kept in the cache.
+     * @param maxConcurrency
+     *     The maximum number of types decompiled at once, and of workspaces kept.
+     */
+    public SourceProvider(
+        final List<File> classPath,
+        final DecompilerSettings settings,
+        final int cacheCapacity,
+        final int maxConcurrency) {
+
+        VerifyArgument.noNullElements(classPath, "classPath");
+        VerifyArgument.notNull(settings, "settings");
+
+        _classPath = new ArrayList<>(classPath.size());
+
+        for (final File entry : classPath) {
+            _classPath.add(entry.getAbsoluteFile());
+        }
+
+        _cacheCapacity = VerifyArgument.isNonNegative(cacheCapacity, "cacheCapacity");
+        _maxConcurrency = VerifyArgument.isPositive(maxConcurrency, "maxConcurrency");
+        _permits = new Semaphore(maxConcurrency, true);
+        _monitor = new ClassPathMonitor(_classPath);
+        _stamp = _monitor.getStamp();
+
+        if (settings.getJavaFormattingOptions() == null) {
+            settings.setJavaFormattingOptions(JavaFormattingOptions.createDefault());
+        }
+
+        _options = new DecompilationOptions();
+        _options.setSettings(settings);
+        _options.setFullDecompilation(true);
+    }
+
+    /**
+     * Returns the decompiled source of a type, or {@code null} if the type cannot be found.
+     *
+     * @param internalName
+     *     The internal name of a top-level type, e.g., {@code java/util/ArrayList}.
+     */
+    public String getSource(final String internalName) {
+        VerifyArgument.notNullOrWhitespace(internalName, "internalName");
+
+        refresh(false);
+
+        synchronized (_lock) {
+            final String cachedSource = _cache.get(internalName);
+
+            if (cachedSource != null) {
+                return cachedSource;
+            }
+        }
+
+        final FutureTask<String> request = new FutureTask<>(
+            new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return decompile(internalName);
+                }
+            }
+        );
+
+        final FutureTask<String> pendingRequest = _pendingRequests.putIfAbsent(internalName, request);
+
+        if (pendingRequest == null) {
+            try {
+                request.run();
+            }
+            finally {
+                _pendingRequests.remove(internalName, request);
+            }
+        }
+
+        try {
+            return (pendingRequest != null ? pendingRequest : request).get();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw ExceptionUtilities.asRuntimeException(e);
+        }
+        catch (final ExecutionException e) {
+            throw ExceptionUtilities.asRuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Discards all cached source and warm metadata if any class path entry has changed on disk.
+     *
+     * @return {@code true} if anything was discarded.
+     */
+    public boolean refresh() {
+        return refresh(true);
+    }
+
+    private boolean refresh(final boolean checkDirectories) {
+        final long stamp = _monitor.getStamp(checkDirectories);
+
+        synchronized (_lock) {
+            if (stamp == _stamp) {
+                return false;
+            }
+
+            _stamp = stamp;
+        }
+
+        invalidate();
+        return true;
+    }
+
+    /**
+     * Discards all cached source and warm metadata.  Decompilations already in progress complete, but
+     * their results are not cached.
+     */
+    public void invalidate() {
+        final List<Workspace> workspaces;
+
+        synchronized (_lock) {
+            ++_generation;
+
+            _cache.clear();
+            _cachedCharacters = 0L;
+            _pendingRequests.clear();
+
+            workspaces = new ArrayList<>(_idleWorkspaces);
+            _idleWorkspaces.clear();
+        }
+
+        for (final Workspace workspace : workspaces) {
+            workspace.close();
+        }
+    }
+
+    public int getCachedTypeCount() {
+        synchronized (_lock) {
+            return _cache.size();
+        }
+    }
+
+    public long getCachedCharacters() {
+        synchronized (_lock) {
+            return _cachedCharacters;
+        }
+    }
+
+    int getIdleWorkspaceCount() {
+        synchronized (_lock) {
+            return _idleWorkspaces.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (_lock) {
+            _isClosed = true;
+        }
+
+        invalidate();
+    }
+
+    private String decompile(final String internalName) throws IOException, InterruptedException {
+        //
+        // Each permit stands for one workspace, so holding one keeps the number of live workspaces,
+        // idle or busy, within the limit.
+        //
+        _permits.acquire();
+
+        try {
+            return decompileWithPermit(internalName);
+        }
+        finally {
+            _permits.release();
+        }
+    }
+
+    private String decompileWithPermit(final String internalName) throws IOException {
+        final Workspace idleWorkspace;
+
+        synchronized (_lock) {
+            //
+            // Another request may have finished this type after we missed the cache.
+            //
+            final String cachedSource = _cache.get(internalName);
+
+            if (cachedSource != null) {
+                return cachedSource;
+            }
+
+            idleWorkspace = _idleWorkspaces.pollFirst();
+        }
+
+        final Workspace workspace = idleWorkspace != null ? idleWorkspace : new Workspace(_classPath, currentGeneration());
+
+        try {
+            final IMetricsListener listener = Metrics.getListener();
+            final long startTime = listener != null ? System.nanoTime() : 0L;
+            final TypeReference type = workspace.metadataSystem.lookupType(internalName);
+            final TypeDefinition resolvedType;
+
+            if (type == null || (resolvedType = type.resolve()) == null) {
+                if (listener != null) {
+                    listener.typeDecompilationFailed(internalName);
+                }
+                return null;
+            }
+
+            DeobfuscationUtilities.processType(resolvedType);
+
+            final PlainTextOutput output = new PlainTextOutput();
+            final DecompilerSettings settings = _options.getSettings();
+
+            output.setUnicodeOutputEnabled(settings.isUnicodeOutputEnabled());
+
+            try {
+                settings.getLanguage().decompileType(resolvedType, output, _options);
+            }
+            catch (final Throwable t) {
+                if (listener != null) {
+                    listener.typeDecompilationFailed(internalName);
+                }
+                throw t;
+            }
+
+            final String source = output.toString();
+
+            if (listener != null) {
+                listener.typeDecompiled(internalName, System.nanoTime() - startTime);
+            }
+
+            cache(internalName, source, workspace.generation);
+            return source;
+        }
+        finally {
+            release(workspace);
+        }
+    }
+
+    private int currentGeneration() {
+        synchronized (_lock) {
+            return _generation;
+        }
+    }
+
+    private void cache(final String internalName, final String source, final int generation) {
+        if (source.length() > _cacheCapacity) {
+            return;
+        }
+
+        synchronized (_lock) {
+            if (generation != _generation) {
+                return;
+            }
+
+            final String oldSource = _cache.put(internalName, source);
+
+            if (oldSource != null) {
+                _cachedCharacters -= oldSource.length();
+            }
+
+            _cachedCharacters += source.length();
+
+            final Iterator<Map.Entry<String, String>> iterator = _cache.entrySet().iterator();
+
+            while (_cachedCharacters > _cacheCapacity && iterator.hasNext()) {
+                _cachedCharacters -= iterator.next().getValue().length();
+                iterator.remove();
+            }
+        }
+    }
+
+    private void release(final Workspace workspace) {
+        synchronized (_lock) {
+            if (!_isClosed && workspace.generation == _generation && _idleWorkspaces.size() < _maxConcurrency) {
+                _idleWorkspaces.addFirst(workspace);
+                return;
+            }
+        }
+
+        workspace.close();
+    }
+
+    private final static class Workspace implements Closeable {
+        final int generation;
+        final FileSystemTypeLoader typeLoader;
+        final MetadataSystem metadataSystem;
+
+        Workspace(final List<File> classPath, final int generation) throws IOException {
+            this.generation = generation;
+            this.typeLoader = new FileSystemTypeLoader(classPath);
+            this.metadataSystem = new MetadataSystem(typeLoader);
+        }
+
+        @Override
+        public void close() {
+            typeLoader.close();
+        }
+    }
+}
@@ -25,6 +25,7 @@ import com.strobel.assembler.flowanalysis.ControlFlowNodeType;
 import com.strobel.assembler.flowanalysis.JumpType;
 import com.strobel.assembler.ir.*;
 import com.strobel.assembler.metadata.*;
+import com.strobel.collections.IntObjectHashMap;
 import com.strobel.core.*;
 import com.strobel.decompiler.DecompilerContext;
 import com.strobel.decompiler.ITextOutput;
@@ -44,11 +45,12 @@ public final class AstBuilder {
     private final static Logger LOG = Logger.getLogger(AstBuilder.class.getSimpleName());
     private final static AstCode[] CODES = AstCode.values();
     private final static StackSlot[] EMPTY_STACK = new StackSlot[0];
+    private final static int JVM_TYPE_COUNT = JvmType.values().length;
     private final static ByteCode[] EMPTY_DEFINITIONS = new ByteCode[0];
 
     private final Map<ExceptionHandler, ByteCode> _loadExceptions = new LinkedHashMap<>();
     private final Set<Instruction> _removed = new LinkedHashSet<>();
-    private Map<Instruction, Instruction> _originalInstructionMap;
+    private IntObjectHashMap<Instruction> _originalInstructions;
     private ControlFlowGraph _cfg;
     private InstructionCollection _instructions;
     private List<ExceptionHandler> _exceptionHandlers;
@@ -83,10 +85,10 @@ public final class AstBuilder {
         final InstructionCollection oldInstructions = body.getInstructions();
         final InstructionCollection newInstructions = builder._instructions;
 
-        builder._originalInstructionMap = new IdentityHashMap<>();
+        builder._originalInstructions = new IntObjectHashMap<>(newInstructions.size());
 
         for (int i = 0; i < newInstructions.size(); i++) {
-            builder._originalInstructionMap.put(newInstructions.get(i), oldInstructions.get(i));
+            builder._originalInstructions.put(newInstructions.get(i).getOffset(), oldInstructions.get(i));
         }
 
         builder._exceptionHandlers = remapHandlers(body.getExceptionHandlers(), builder._instructions);
@@ -253,7 +255,6 @@ public final class AstBuilder {
         }
 
         final InstructionCollection instructions = _instructions;
-        final Map<Instruction, Instruction> originalInstructionMap = _originalInstructionMap;
         final boolean nonEmpty = subroutine.start != subroutine.end && subroutine.start.getNext() != subroutine.end;
 
         if (nonEmpty) {
@@ -272,9 +273,19 @@ public final class AstBuilder {
             final Map<Instruction, Instruction> remappedJumps = new IdentityHashMap<>();
             final List<Instruction> contents = copyInstructions(originalContents);
 
+            //
+            // Inlining moves instructions, so the offset-keyed originals must be re-keyed afterward.
+            // Capture them by identity while the current offsets are still valid.
+            //
+            final Map<Instruction, Instruction> originalInstructions = new IdentityHashMap<>();
+
+            for (final Instruction instruction : instructions) {
+                originalInstructions.put(instruction, originalInstruction(instruction));
+            }
+
             for (int i = 0, n = originalContents.size(); i < n; i++) {
                 remappedJumps.put(originalContents.get(i), contents.get(i));
-                originalInstructionMap.put(contents.get(i), mappedInstruction(originalInstructionMap, originalContents.get(i)));
+                originalInstructions.put(contents.get(i), originalInstruction(originalContents.get(i)));
             }
 
             final Instruction newStart = mappedInstruction(remappedJumps, subroutine.start);
@@ -304,6 +315,16 @@ public final class AstBuilder {
             instructions.remove(reference);
             instructions.recomputeOffsets();
 
+            _originalInstructions.clear();
+
+            for (final Instruction instruction : instructions) {
+                final Instruction originalInstruction = originalInstructions.get(instruction);
+
+                if (originalInstruction != null) {
+                    _originalInstructions.put(instruction.getOffset(), originalInstruction);
+                }
+            }
+
             remappedJumps.put(reference, first(contents));
             remappedJumps.put(subroutine.end, newEnd);
             remappedJumps.put(subroutine.start, newStart);
@@ -1852,10 +1873,15 @@ public final class AstBuilder {
 
     @SuppressWarnings("ConstantConditions")
     private List<ByteCode> performStackAnalysis() {
-        final Set<ByteCode> handlerStarts = new HashSet<>();
-        final Map<Instruction, ByteCode> byteCodeMap = new LinkedHashMap<>();
-        final Map<Instruction, ControlFlowNode> nodeMap = new IdentityHashMap<>();
         final InstructionCollection instructions = _instructions;
+
+        //
+        // Instruction offsets are unique within the method body (subroutine inlining recomputes them),
+        // so key the per-instruction lookups on offset rather than hashing instructions by identity.
+        //
+        final BitSet handlerStarts = new BitSet();
+        final IntObjectHashMap<ByteCode> byteCodeMap = new IntObjectHashMap<>(instructions.size());
+        final IntObjectHashMap<ControlFlowNode> nodeMap = new IntObjectHashMap<>(instructions.size());
         final List<ExceptionHandler> exceptionHandlers = new ArrayList<>();
         final List<ControlFlowNode> successors = new ArrayList<>();
 
@@ -1872,7 +1898,7 @@ public final class AstBuilder {
                  p != null && p.getOffset() < node.getEnd().getEndOffset();
                  p = p.getNext()) {
 
-                nodeMap.put(p, node);
+                nodeMap.put(p.getOffset(), node);
             }
         }
 
@@ -1897,7 +1923,7 @@ public final class AstBuilder {
             codeBox.set(code);
             operandBox.set(operand);
 
-            final int offset = mappedInstruction(_originalInstructionMap, instruction).getOffset();
+            final int offset = originalInstruction(instruction).getOffset();
 
             if (AstCode.expandMacro(codeBox, operandBox, _body, offset)) {
                 code = codeBox.get();
@@ -1915,7 +1941,7 @@ public final class AstBuilder {
             byteCode.popCount = InstructionHelper.getPopDelta(instruction, _body);
             byteCode.pushCount = InstructionHelper.getPushDelta(instruction, _body);
 
-            byteCodeMap.put(instruction, byteCode);
+            byteCodeMap.put(instruction.getOffset(), byteCode);
             body.add(byteCode);
         }
 
@@ -1977,12 +2003,13 @@ public final class AstBuilder {
         }
 
         for (final ExceptionHandler handler : exceptionHandlers) {
-            final ByteCode handlerStart = byteCodeMap.get(handler.getHandlerBlock().getFirstInstruction());
+            final ByteCode handlerStart = byteCodeMap.get(handler.getHandlerBlock().getFirstInstruction().getOffset());
 
-            handlerStarts.add(handlerStart);
+            handlerStarts.set(handlerStart.offset);
 
             handlerStart.stackBefore = EMPTY_STACK;
-            handlerStart.variablesBefore = VariableSlot.cloneVariableState(unknownVariables);
+            handlerStart.variablesBefore = unknownVariables;
+            handlerStart.isVariableStateShared = true;
 
             final ByteCode loadException = new ByteCode();
             final TypeReference catchType;
@@ -2013,6 +2040,7 @@ public final class AstBuilder {
 
         body.get(0).stackBefore = EMPTY_STACK;
         body.get(0).variablesBefore = unknownVariables;
+        body.get(0).isVariableStateShared = true;
 
         agenda.addFirst(body.get(0));
 
@@ -2032,10 +2060,11 @@ public final class AstBuilder {
             final StackSlot[] newStack = createModifiedStack(byteCode, stackMapper);
 
             //
-            // Calculate new variable state.
+            // Calculate new variable state.  Most instructions leave the locals alone, so the state is
+            // shared with our successors, and only copied when this instruction or a merge changes it.
             //
 
-            final VariableSlot[] newVariableState = VariableSlot.cloneVariableState(byteCode.variablesBefore);
+            VariableSlot[] newVariableState = byteCode.variablesBefore;
             final Map<Instruction, TypeReference> initializations = stackMapper.getInitializations();
 
             for (int i = 0; i < newVariableState.length; i++) {
@@ -2049,6 +2078,10 @@ public final class AstBuilder {
                         final TypeReference initializedType = initializations.get(instruction);
 
                         if (initializedType != null) {
+                            if (newVariableState == byteCode.variablesBefore) {
+                                newVariableState = VariableSlot.cloneVariableState(newVariableState);
+                            }
+
                             newVariableState[i] = new VariableSlot(
                                 FrameValue.makeReference(initializedType),
                                 slot.definitions
@@ -2061,6 +2094,10 @@ public final class AstBuilder {
             if (byteCode.isVariableDefinition()) {
                 final int slot = ((VariableReference) byteCode.operand).getSlot();
 
+                if (newVariableState == byteCode.variablesBefore) {
+                    newVariableState = VariableSlot.cloneVariableState(newVariableState);
+                }
+
                 newVariableState[slot] = new VariableSlot(
                     stackMapper.getLocalValue(slot),
                     new ByteCode[] { byteCode }
@@ -2078,7 +2115,7 @@ public final class AstBuilder {
             // Find all successors.
             //
             final ArrayList<ByteCode> branchTargets = new ArrayList<>();
-            final ControlFlowNode node = nodeMap.get(byteCode.instruction);
+            final ControlFlowNode node = nodeMap.get(byteCode.offset);
 
             successors.clear();
 
@@ -2114,7 +2151,7 @@ public final class AstBuilder {
                 if (successor.getExceptionHandler() != null) {
                     successors.add(
                         nodeMap.get(
-                            successor.getExceptionHandler().getHandlerBlock().getFirstInstruction()
+                            successor.getExceptionHandler().getHandlerBlock().getFirstInstruction().getOffset()
                         )
                     );
                 }
@@ -2126,7 +2163,7 @@ public final class AstBuilder {
                 }
 
                 final Instruction targetInstruction = successor.getStart();
-                final ByteCode target = byteCodeMap.get(targetInstruction);
+                final ByteCode target = byteCodeMap.get(targetInstruction.getOffset());
 
                 if (target.label == null) {
                     target.label = new Label();
@@ -2166,16 +2203,22 @@ public final class AstBuilder {
 //                    }
 //                    else {
                     //
-                    // Do not share data for several bytecodes.
+                    // Do not share stacks between bytecodes.  Variable states are shared, and copied
+                    // before they are merged into (see below).
                     //
                     branchTarget.stackBefore = StackSlot.modifyStack(effectiveStack, 0, null);
-                    branchTarget.variablesBefore = VariableSlot.cloneVariableState(newVariableState);
+                    branchTarget.variablesBefore = newVariableState;
+                    branchTarget.isVariableStateShared = true;
+
+                    if (newVariableState == byteCode.variablesBefore) {
+                        byteCode.isVariableStateShared = true;
+                    }
 //                    }
 
                     agenda.push(branchTarget);
                 }
                 else {
-                    final boolean isHandlerStart = handlerStarts.contains(branchTarget);
+                    final boolean isHandlerStart = handlerStarts.get(branchTarget.offset);
 
                     if (branchTarget.stackBefore.length != effectiveStack.length && !isHandlerStart && !isSubroutineJump) {
                         throw new IllegalStateException(
@@ -2186,7 +2229,8 @@ public final class AstBuilder {
 
                     //
                     // Be careful not to change our new data; it might be reused for several branch targets.
-                    // In general, be careful that two bytecodes never share data structures.
+                    // Two bytecodes never share a stack, but they may share a variable state: a target whose
+                    // state is shared must copy it before any slot changes (see isVariableStateShared).
                     //
 
                     boolean modified = false;
@@ -2248,6 +2292,11 @@ public final class AstBuilder {
                         final ByteCode[] newDefinitions = ArrayUtilities.union(oldSlot.definitions, newSlot.definitions);
 
                         if (!Comparer.equals(oldLocal, newLocal) || newDefinitions.length > oldDefinitions.length) {
+                            if (branchTarget.isVariableStateShared) {
+                                branchTarget.variablesBefore = VariableSlot.cloneVariableState(branchTarget.variablesBefore);
+                                branchTarget.isVariableStateShared = false;
+                            }
+
                             branchTarget.variablesBefore[i] = new VariableSlot(newLocal, newDefinitions);
                             modified = true;
                         }
@@ -2453,14 +2502,13 @@ public final class AstBuilder {
                 final Label[] newOperand = new Label[branchTargets.length];
 
                 for (int i = 0; i < branchTargets.length; i++) {
-                    newOperand[i] = byteCodeMap.get(branchTargets[i]).label;
+                    newOperand[i] = byteCodeMap.get(branchTargets[i].getOffset()).label;
                 }
 
                 byteCode.operand = newOperand;
             }
             else if (byteCode.operand instanceof Instruction) {
-                //noinspection SuspiciousMethodCalls
-                byteCode.operand = byteCodeMap.get(byteCode.operand).label;
+                byteCode.operand = byteCodeMap.get(((Instruction) byteCode.operand).getOffset()).label;
             }
             else if (byteCode.operand instanceof SwitchInfo) {
                 final SwitchInfo switchInfo = (SwitchInfo) byteCode.operand;
@@ -2468,7 +2516,7 @@ public final class AstBuilder {
                 final Label[] newOperand = new Label[branchTargets.length];
 
                 for (int i = 0; i < branchTargets.length; i++) {
-                    newOperand[i] = byteCodeMap.get(branchTargets[i]).label;
+                    newOperand[i] = byteCodeMap.get(branchTargets[i].getOffset()).label;
                 }
 
                 byteCode.operand = newOperand;
@@ -2478,6 +2526,16 @@ public final class AstBuilder {
         return body;
     }
 
+    /**
+     * Returns the instruction in the original method body from which {@code instruction} was copied,
+     * or {@code instruction} itself if it was synthesized.  Offsets are unique within the working
+     * instruction list, and the originals are re-keyed whenever subroutine inlining moves them.
+     */
+    private Instruction originalInstruction(final Instruction instruction) {
+        final Instruction originalInstruction = _originalInstructions.get(instruction.getOffset());
+        return originalInstruction != null ? originalInstruction : instruction;
+    }
+
     private static Instruction mappedInstruction(final Map<Instruction, Instruction> map, final Instruction instruction) {
         Instruction current = instruction;
         Instruction newInstruction;
@@ -2637,7 +2695,7 @@ public final class AstBuilder {
             parameterMap[parameter.getSlot()] = parameter;
         }
 
-        final Set<Pair<Integer, JvmType>> undefinedSlots = new HashSet<>();
+        final BitSet undefinedSlots = new BitSet();
         final List<VariableReference> varReferences = new ArrayList<>();
         final Map<String, VariableDefinition> lookup = makeVariableLookup(variables);
 
@@ -2645,13 +2703,53 @@ public final class AstBuilder {
             varReferences.add(variableDefinition);
         }
 
+        //
+        // Index every variable access up front, both by the variable definition it resolves to and by
+        // slot and stack type, so each variable below only visits its own accesses.
+        //
+
+        final Map<VariableDefinition, VariableDefinition> resolvedDefinitions = new IdentityHashMap<>();
+        final Map<VariableDefinition, List<ByteCode>> accessesByDefinition = new IdentityHashMap<>();
+        final IntObjectHashMap<List<ByteCode>> accessesBySlot = new IntObjectHashMap<>();
+
         for (final ByteCode b : body) {
-            if (b.operand instanceof VariableReference && !(b.operand instanceof VariableDefinition)) {
-                final VariableReference reference = (VariableReference) b.operand;
+            if (!(b.operand instanceof VariableReference)) {
+                continue;
+            }
+
+            final VariableReference reference = (VariableReference) b.operand;
+            final int slotKey = slotKey(reference);
+
+            List<ByteCode> slotAccesses = accessesBySlot.get(slotKey);
+
+            if (slotAccesses == null) {
+                accessesBySlot.put(slotKey, slotAccesses = new ArrayList<>());
+            }
 
-                if (undefinedSlots.add(Pair.create(reference.getSlot(), getStackType(reference.getVariableType())))) {
-                    varReferences.add(reference);
+            slotAccesses.add(b);
+
+            if (reference instanceof VariableDefinition) {
+                final VariableDefinition definition = (VariableDefinition) reference;
+
+                VariableDefinition resolved = resolvedDefinitions.get(definition);
+
+                if (resolved == null && !resolvedDefinitions.containsKey(definition)) {
+                    resolvedDefinitions.put(definition, resolved = lookup.get(key(definition)));
                 }
+
+                if (resolved != null) {
+                    List<ByteCode> definitionAccesses = accessesByDefinition.get(resolved);
+
+                    if (definitionAccesses == null) {
+                        accessesByDefinition.put(resolved, definitionAccesses = new ArrayList<>());
+                    }
+
+                    definitionAccesses.add(b);
+                }
+            }
+            else if (!undefinedSlots.get(slotKey)) {
+                undefinedSlots.set(slotKey);
+                varReferences.add(reference);
             }
         }
 
@@ -2668,21 +2766,18 @@ public final class AstBuilder {
             final VariableDefinition vDef = vRef instanceof VariableDefinition ? lookup.get(key((VariableDefinition) vRef))
                                                                                : null;
 
-            for (final ByteCode b : body) {
-                if (vDef != null) {
-                    if (b.operand instanceof VariableDefinition &&
-                        lookup.get(key((VariableDefinition) b.operand)) == vDef) {
+            final List<ByteCode> accesses = vDef != null ? accessesByDefinition.get(vDef)
+                                                         : accessesBySlot.get(slotKey(vRef));
 
-                        if (b.isVariableDefinition()) {
-                            definitions.add(b);
-                        }
-                        else {
-                            references.add(b);
-                        }
+            if (accesses != null) {
+                for (final ByteCode b : accesses) {
+                    //
+                    // Accesses claimed by an earlier variable already had their operands replaced.
+                    //
+                    if (vDef != null ? !(b.operand instanceof VariableDefinition)
+                                     : !(b.operand instanceof VariableReference)) {
+                        continue;
                     }
-                }
-                else if (b.operand instanceof VariableReference &&
-                         variablesMatch(vRef, (VariableReference) b.operand)) {
 
                     if (b.isVariableDefinition()) {
                         definitions.add(b);
@@ -3258,14 +3353,11 @@ public final class AstBuilder {
         }
     }
 
-    private boolean variablesMatch(final VariableReference v1, final VariableReference v2) {
-        if (v1.getSlot() == v2.getSlot()) {
-            final JvmType t1 = getStackType(v1.getVariableType());
-            final JvmType t2 = getStackType(v2.getVariableType());
-
-            return t1 == t2;
-        }
-        return false;
+    private int slotKey(final VariableReference variable) {
+        //
+        // Variables in the same slot match if their stack types match; see getStackType().
+        //
+        return variable.getSlot() * JVM_TYPE_COUNT + getStackType(variable.getVariableType()).ordinal();
     }
 
     private static Map<String, VariableDefinition> makeVariableLookup(final VariableDefinitionCollection variables) {
@@ -3748,7 +3840,7 @@ public final class AstBuilder {
         // Convert stack-based bytecode to bytecode AST.
         //
         for (final ByteCode byteCode : body) {
-            final Instruction originalInstruction = mappedInstruction(_originalInstructionMap, byteCode.instruction);
+            final Instruction originalInstruction = originalInstruction(byteCode.instruction);
             final Range codeRange = new Range(originalInstruction.getOffset(), originalInstruction.getEndOffset());
 
             if (byteCode.stackBefore == null /*|| _removed.contains(byteCode.instruction)*/) {
@@ -3960,6 +4052,7 @@ public final class AstBuilder {
         FrameValue type;
         StackSlot[] stackBefore;
         VariableSlot[] variablesBefore;
+        boolean isVariableStateShared; // If set, 'variablesBefore' must be copied before it is modified.
         List<Variable> storeTo;
 
         public final String name() {
@@ -16,8 +16,10 @@
 
 package com.strobel.decompiler.languages.java;
 
-import com.strobel.assembler.metadata.TypeDefinition;
+import com.strobel.assembler.ir.Instruction;
+import com.strobel.assembler.metadata.*;
 import com.strobel.core.Predicate;
+import com.strobel.core.VerifyArgument;
 import com.strobel.decompiler.DecompilationOptions;
 import com.strobel.decompiler.DecompilerContext;
 import com.strobel.decompiler.DecompilerSettings;
@@ -26,10 +28,15 @@ import com.strobel.decompiler.languages.Language;
 import com.strobel.decompiler.languages.LineNumberPosition;
 import com.strobel.decompiler.languages.TypeDecompilationResults;
 import com.strobel.decompiler.languages.java.ast.AstBuilder;
+import com.strobel.decompiler.languages.java.ast.AstNode;
 import com.strobel.decompiler.languages.java.ast.CompilationUnit;
 import com.strobel.decompiler.languages.java.ast.transforms.IAstTransform;
 
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 public class JavaLanguage extends Language {
     private final String _name;
@@ -62,6 +69,56 @@ public class JavaLanguage extends Language {
         return new TypeDecompilationResults(lineNumberPositions);
     }
 
+    /**
+     * Decompiles a single method or constructor without building the rest of its declaring type.  Only
+     * the synthetic methods of the same type which the method's code (or that of its anonymous and local
+     * classes) references are decompiled alongside it, so that lambdas and accessors can be inlined.
+     */
+    @Override
+    public void decompileMethod(final MethodDefinition method, final ITextOutput output, final DecompilationOptions options) {
+        VerifyArgument.notNull(method, "method");
+        VerifyArgument.notNull(output, "output");
+        VerifyArgument.notNull(options, "options");
+
+        final AstBuilder builder = createAstBuilder(options, method.getDeclaringType(), true);
+        final AstNode declaration = builder.addMethod(method);
+
+        for (final MethodDefinition synthetic : findReferencedSynthetics(method)) {
+            builder.addMethod(synthetic);
+        }
+
+        runTransforms(builder, options, null);
+        writeMember(declaration, output, options);
+    }
+
+    /**
+     * Decompiles a single field.  As in whole-type output, the initializers of class fields remain in the
+     * constructors or static initializer which assign them, so only the declaration is written.  Interface
+     * fields must be initialized inline, so those are decompiled along with the interface's static
+     * initializer, from which the initializer is recovered.
+     */
+    @Override
+    public void decompileField(final FieldDefinition field, final ITextOutput output, final DecompilationOptions options) {
+        VerifyArgument.notNull(field, "field");
+        VerifyArgument.notNull(output, "output");
+        VerifyArgument.notNull(options, "options");
+
+        final TypeDefinition declaringType = field.getDeclaringType();
+        final AstBuilder builder = createAstBuilder(options, declaringType, true);
+        final AstNode declaration = builder.addField(field);
+
+        if (declaringType.isInterface() && !field.hasConstantValue()) {
+            for (final MethodDefinition method : declaringType.getDeclaredMethods()) {
+                if (method.isTypeInitializer()) {
+                    builder.addMethod(method);
+                }
+            }
+        }
+
+        runTransforms(builder, options, null);
+        writeMember(declaration, output, options);
+    }
+
     public CompilationUnit decompileTypeToAst(final TypeDefinition type, final DecompilationOptions options) {
         return buildAst(type, options).getCompilationUnit();
     }
@@ -88,6 +145,105 @@ public class JavaLanguage extends Language {
         return new AstBuilder(context);
     }
 
+    private static void writeMember(final AstNode declaration, final ITextOutput output, final DecompilationOptions options) {
+        declaration.acceptVisitor(new JavaOutputVisitor(output, options.getSettings()), null);
+    }
+
+    /**
+     * Finds the synthetic methods of a method's declaring type which are referenced by the method, by the
+     * anonymous and local classes it declares, or (transitively) by other such synthetic methods.
+     */
+    private static Set<MethodDefinition> findReferencedSynthetics(final MethodDefinition method) {
+        final TypeDefinition declaringType = method.getDeclaringType();
+        final Set<MethodDefinition> synthetics = new LinkedHashSet<>();
+        final Set<MethodDefinition> visited = new HashSet<>();
+        final ArrayDeque<MethodDefinition> queue = new ArrayDeque<>();
+
+        queue.add(method);
+        visited.add(method);
+
+        while (!queue.isEmpty()) {
+            final MethodDefinition current = queue.removeFirst();
+
+            for (final TypeDefinition localType : current.getDeclaredTypes()) {
+                addLocalType(localType, visited, queue);
+            }
+
+            final MethodBody body = current.hasBody() ? current.getBody() : null;
+
+            if (body == null) {
+                continue;
+            }
+
+            for (final Instruction instruction : body.getInstructions()) {
+                if (!instruction.hasOperand()) {
+                    continue;
+                }
+
+                final Object operand = instruction.getOperand(0);
+
+                if (operand instanceof MethodReference) {
+                    addSynthetic(declaringType, (MethodReference) operand, synthetics, visited, queue);
+                }
+                else if (operand instanceof DynamicCallSite) {
+                    for (final Object argument : ((DynamicCallSite) operand).getBootstrapArguments()) {
+                        if (argument instanceof MethodHandle) {
+                            addSynthetic(declaringType, ((MethodHandle) argument).getMethod(), synthetics, visited, queue);
+                        }
+                    }
+                }
+            }
+        }
+
+        return synthetics;
+    }
+
+    private static void addSynthetic(
+        final TypeDefinition declaringType,
+        final MethodReference reference,
+        final Set<MethodDefinition> synthetics,
+        final Set<MethodDefinition> visited,
+        final ArrayDeque<MethodDefinition> queue) {
+
+        if (reference.isConstructor()) {
+            //
+            // Anonymous classes created in field initializers are not declared by any one constructor,
+            // so we find them through their instantiations.
+            //
+            final TypeDefinition createdType = reference.getDeclaringType().resolve();
+
+            if (createdType != null &&
+                (createdType.isAnonymous() || createdType.isLocalClass()) &&
+                MetadataHelper.isEnclosedBy(createdType, declaringType)) {
+
+                addLocalType(createdType, visited, queue);
+            }
+        }
+
+        if (!MetadataResolver.areEquivalent(declaringType, reference.getDeclaringType())) {
+            return;
+        }
+
+        final MethodDefinition resolved = reference.resolve();
+
+        if (resolved != null && resolved.isSynthetic() && visited.add(resolved)) {
+            synthetics.add(resolved);
+            queue.add(resolved);
+        }
+    }
+
+    private static void addLocalType(
+        final TypeDefinition localType,
+        final Set<MethodDefinition> visited,
+        final ArrayDeque<MethodDefinition> queue) {
+
+        for (final MethodDefinition localMethod : localType.getDeclaredMethods()) {
+            if (visited.add(localMethod)) {
+                queue.add(localMethod);
+            }
+        }
+    }
+
     @SuppressWarnings("UnusedParameters")
     private void runTransforms(
         final AstBuilder astBuilder,
@@ -49,6 +49,7 @@ public final class AstBuilder {
     private final CompilationUnit _compileUnit = new CompilationUnit();
     private final Map<String, Reference<TypeDeclaration>> _typeDeclarations = new LinkedHashMap<>();
     private final Map<String, String> _unqualifiedTypeNames = new LinkedHashMap<>();
+    private final Map<String, TypeDeclaration> _memberContainers = new LinkedHashMap<>();
     private final TextNode _packagePlaceholder;
 
     private boolean _decompileMethodBodies = true;
@@ -137,6 +138,48 @@ public final class AstBuilder {
         _compileUnit.addChild(astType, CompilationUnit.TYPE_ROLE);
     }
 
+    /**
+     * Adds a declaration for a single method or constructor, contained by an otherwise empty declaration
+     * of its declaring type.  Used when decompiling individual members; other members of the same type
+     * may be added alongside it to supply context for transforms (e.g., synthetic lambda methods).
+     */
+    public final EntityDeclaration addMethod(final MethodDefinition method) {
+        VerifyArgument.notNull(method, "method");
+
+        final EntityDeclaration astMethod = method.isConstructor() ? createConstructor(method)
+                                                                   : createMethod(method);
+
+        getMemberContainer(method.getDeclaringType()).addChild(astMethod, Roles.TYPE_MEMBER);
+
+        return astMethod;
+    }
+
+    /**
+     * Adds a declaration for a single field, contained by an otherwise empty declaration of its declaring
+     * type.  Used when decompiling individual members.
+     */
+    public final FieldDeclaration addField(final FieldDefinition field) {
+        VerifyArgument.notNull(field, "field");
+
+        final FieldDeclaration astField = createField(field);
+
+        getMemberContainer(field.getDeclaringType()).addChild(astField, Roles.TYPE_MEMBER);
+
+        return astField;
+    }
+
+    private TypeDeclaration getMemberContainer(final TypeDefinition type) {
+        TypeDeclaration astType = _memberContainers.get(type.getInternalName());
+
+        if (astType == null) {
+            astType = createTypeHeader(type);
+            _memberContainers.put(type.getInternalName(), astType);
+            _compileUnit.addChild(astType, CompilationUnit.TYPE_ROLE);
+        }
+
+        return astType;
+    }
+
     public final TypeDeclaration createType(final TypeDefinition type) {
         VerifyArgument.notNull(type, "type");
 
@@ -443,6 +486,14 @@ public final class AstBuilder {
     }
 
     private TypeDeclaration createTypeCore(final TypeDefinition type) {
+        final TypeDeclaration astType = createTypeHeader(type);
+
+        addTypeMembers(astType, type);
+
+        return astType;
+    }
+
+    private TypeDeclaration createTypeHeader(final TypeDefinition type) {
         final TypeDeclaration astType = new TypeDeclaration();
         final String packageName = type.getPackageName();
 
@@ -516,8 +567,6 @@ public final class AstBuilder {
             astType.getAnnotations().add(createAnnotation(annotation));
         }
 
-        addTypeMembers(astType, type);
-
         return astType;
     }
 
@@ -31,6 +31,8 @@ import com.strobel.decompiler.PlainTextOutput;
 import com.strobel.decompiler.ast.*;
 import com.strobel.decompiler.ast.Label;
 import com.strobel.decompiler.languages.Languages;
+import com.strobel.decompiler.metrics.IMetricsListener;
+import com.strobel.decompiler.metrics.Metrics;
 import com.strobel.decompiler.patterns.AnyNode;
 import com.strobel.decompiler.patterns.Choice;
 import com.strobel.decompiler.patterns.INode;
@@ -94,6 +96,9 @@ public class AstMethodBodyBuilder {
 
         context.setCurrentMethod(method);
 
+        final IMetricsListener listener = Metrics.getListener();
+        final long startTime = listener != null ? System.nanoTime() : 0L;
+
         try {
             final AstMethodBodyBuilder builder = new AstMethodBodyBuilder(astBuilder, method, context);
             return builder.createMethodBody(parameters);
@@ -103,6 +108,10 @@ public class AstMethodBodyBuilder {
         }
         finally {
             context.setCurrentMethod(oldCurrentMethod);
+
+            if (listener != null) {
+                listener.methodDecompiled(method, System.nanoTime() - startTime);
+            }
         }
     }
 
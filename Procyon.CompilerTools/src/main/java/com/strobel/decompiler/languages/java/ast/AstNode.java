@@ -53,8 +53,9 @@ public abstract class AstNode extends Freezable implements INode, UserDataStore,
 
     final static int ROLE_INDEX_MASK = (1 << Role.ROLE_INDEX_BITS) - 1;
     final static int FROZEN_BIT = 1 << Role.ROLE_INDEX_BITS;
+    final static int MODIFIED_BIT = 1 << (Role.ROLE_INDEX_BITS + 1);
 
-    protected final static int AST_NODE_USED_FLAGS = Role.ROLE_INDEX_BITS + 1;
+    protected final static int AST_NODE_USED_FLAGS = Role.ROLE_INDEX_BITS + 2;
 
     @SuppressWarnings("ProtectedField")
     protected int flags = ROOT_ROLE.getIndex();
@@ -106,7 +107,7 @@ public abstract class AstNode extends Freezable implements INode, UserDataStore,
             clone._lastChild = null;
             clone._previousSibling = null;
             clone._nextSibling = null;
-            clone.flags &= ~FROZEN_BIT;
+            clone.flags &= ~(FROZEN_BIT | MODIFIED_BIT);
 
             for (final Key<?> key : Keys.ALL_KEYS) {
                 copyKey(this, clone, key);
@@ -447,6 +448,9 @@ public abstract class AstNode extends Freezable implements INode, UserDataStore,
             child._previousSibling = _lastChild;
             _lastChild = child;
         }
+
+        child.flags |= MODIFIED_BIT;
+        markModified();
     }
 
     @SafeVarargs
@@ -520,6 +524,9 @@ public abstract class AstNode extends Freezable implements INode, UserDataStore,
         }
 
         nextSibling._previousSibling = child;
+
+        child.flags |= MODIFIED_BIT;
+        markModified();
     }
 
     public final void remove() {
@@ -547,6 +554,8 @@ public abstract class AstNode extends Freezable implements INode, UserDataStore,
             _parent._lastChild = _previousSibling;
         }
 
+        _parent.markModified();
+
         _parent = null;
         _previousSibling = null;
         _nextSibling = null;
@@ -620,6 +629,9 @@ public abstract class AstNode extends Freezable implements INode, UserDataStore,
                 _parent._lastChild = newNode;
             }
 
+            newNode.flags |= MODIFIED_BIT;
+            _parent.markModified();
+
             _parent = null;
             _previousSibling = null;
             _nextSibling = null;
@@ -676,6 +688,41 @@ public abstract class AstNode extends Freezable implements INode, UserDataStore,
 
     // </editor-fold>
 
+    // <editor-fold defaultstate="collapsed" desc="Modification Tracking">
+
+    /**
+     * Returns whether children have been added to, removed from, or replaced within this node's subtree
+     * since the last call to {@link #clearModified()}.  Nodes which were added are marked too, and if a
+     * node is marked, so are its ancestors.
+     */
+    public final boolean isModified() {
+        return (flags & MODIFIED_BIT) != 0;
+    }
+
+    /**
+     * Clears the modification marks of this node and its descendants.
+     */
+    public final void clearModified() {
+        flags &= ~MODIFIED_BIT;
+
+        for (AstNode child = _firstChild; child != null; child = child._nextSibling) {
+            if ((child.flags & MODIFIED_BIT) != 0) {
+                child.clearModified();
+            }
+        }
+    }
+
+    private void markModified() {
+        //
+        // Ancestors of a marked node are always marked, so we can stop at the first marked one.
+        //
+        for (AstNode node = this; node != null && (node.flags & MODIFIED_BIT) == 0; node = node._parent) {
+            node.flags |= MODIFIED_BIT;
+        }
+    }
+
+    // </editor-fold>
+
     // <editor-fold defaultstate="collapsed" desc="Freezable Implementation">
 
     @Override
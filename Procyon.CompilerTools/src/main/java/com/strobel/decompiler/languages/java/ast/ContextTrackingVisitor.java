@@ -29,6 +29,8 @@ public abstract class ContextTrackingVisitor<TResult> extends DepthFirstAstVisit
     @SuppressWarnings("ProtectedField")
     protected final DecompilerContext context;
 
+    private boolean _isVisitingSingleNode;
+
     protected ContextTrackingVisitor(final DecompilerContext context) {
         this.context = VerifyArgument.notNull(context, "context");
     }
@@ -83,4 +85,27 @@ public abstract class ContextTrackingVisitor<TResult> extends DepthFirstAstVisit
     public void run(final AstNode compilationUnit) {
         compilationUnit.acceptVisitor(this, null);
     }
+
+    /**
+     * Visits a single node without descending into its children, which are assumed to have been visited
+     * already.  This lets several transforms share a single walk of the tree.
+     */
+    public void runOnNode(final AstNode node) {
+        _isVisitingSingleNode = true;
+
+        try {
+            node.acceptVisitor(this, null);
+        }
+        finally {
+            _isVisitingSingleNode = false;
+        }
+    }
+
+    @Override
+    protected TResult visitChildren(final AstNode node, final Void data) {
+        if (_isVisitingSingleNode) {
+            return null;
+        }
+        return super.visitChildren(node, data);
+    }
 }
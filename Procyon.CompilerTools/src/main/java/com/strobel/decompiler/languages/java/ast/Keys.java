@@ -27,15 +27,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 public final class Keys {
-    public final static Key<Variable> VARIABLE = Key.create("Variable");
+    public final static Key<Variable> VARIABLE = Key.createDense("Variable");
     public final static Key<VariableDefinition> VARIABLE_DEFINITION = Key.create("VariableDefinition");
-    public final static Key<ParameterDefinition> PARAMETER_DEFINITION = Key.create("ParameterDefinition");
-    public final static Key<MemberReference> MEMBER_REFERENCE = Key.create("MemberReference");
+    public final static Key<ParameterDefinition> PARAMETER_DEFINITION = Key.createDense("ParameterDefinition");
+    public final static Key<MemberReference> MEMBER_REFERENCE = Key.createDense("MemberReference");
     public final static Key<PackageReference> PACKAGE_REFERENCE = Key.create("PackageReference");
-    public final static Key<FieldDefinition> FIELD_DEFINITION = Key.create("FieldDefinition");
-    public final static Key<MethodDefinition> METHOD_DEFINITION = Key.create("MethodDefinition");
-    public final static Key<TypeDefinition> TYPE_DEFINITION = Key.create("TypeDefinition");
-    public final static Key<TypeReference> TYPE_REFERENCE = Key.create("TypeReference");
+    public final static Key<FieldDefinition> FIELD_DEFINITION = Key.createDense("FieldDefinition");
+    public final static Key<MethodDefinition> METHOD_DEFINITION = Key.createDense("MethodDefinition");
+    public final static Key<TypeDefinition> TYPE_DEFINITION = Key.createDense("TypeDefinition");
+    public final static Key<TypeReference> TYPE_REFERENCE = Key.createDense("TypeReference");
     public final static Key<TypeReference> ANONYMOUS_BASE_TYPE_REFERENCE = Key.create("AnonymousBaseTypeReference");
     public final static Key<DynamicCallSite> DYNAMIC_CALL_SITE = Key.create("DynamicCallSite");
     public final static Key<AstBuilder> AST_BUILDER = Key.create("AstBuilder");
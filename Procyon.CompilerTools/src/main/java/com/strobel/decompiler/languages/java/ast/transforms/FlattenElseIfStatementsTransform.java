@@ -19,11 +19,27 @@ package com.strobel.decompiler.languages.java.ast.transforms;
 import com.strobel.decompiler.DecompilerContext;
 import com.strobel.decompiler.languages.java.ast.*;
 
-public class FlattenElseIfStatementsTransform extends ContextTrackingVisitor<Void> {
+import java.util.Collections;
+import java.util.List;
+
+public class FlattenElseIfStatementsTransform extends ContextTrackingVisitor<Void> implements ILocalAstTransform {
+    private final static List<Class<? extends AstNode>> NODE_TYPES =
+        Collections.<Class<? extends AstNode>>singletonList(IfElseStatement.class);
+
     public FlattenElseIfStatementsTransform(final DecompilerContext context) {
         super(context);
     }
 
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public List<Class<? extends AstNode>> getNodeTypes() {
+        return NODE_TYPES;
+    }
+
     @Override
     public Void visitIfElseStatement(final IfElseStatement node, final Void data) {
         super.visitIfElseStatement(node, data);
@@ -0,0 +1,143 @@
+/*
+ * FusedAstTransform.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.languages.java.ast.transforms;
+
+import com.strobel.core.VerifyArgument;
+import com.strobel.decompiler.DecompilerContext;
+import com.strobel.decompiler.languages.java.ast.AstNode;
+import com.strobel.decompiler.languages.java.ast.ContextTrackingVisitor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a sequence of {@link ILocalAstTransform}s in a single post-order walk of the tree.  The walk tracks
+ * the current type and method, so each transform sees the same context it would see in a walk of its own.
+ */
+final class FusedAstTransform extends ContextTrackingVisitor<Void> {
+    private final static ILocalAstTransform[] EMPTY_TRANSFORMS = new ILocalAstTransform[0];
+
+    private final List<ILocalAstTransform> _transforms;
+    private final Map<Class<?>, ILocalAstTransform[]> _transformsByNodeType = new HashMap<>();
+    private final List<ILocalAstTransform> _enabledTransforms = new ArrayList<>();
+
+    FusedAstTransform(final DecompilerContext context, final List<ILocalAstTransform> transforms) {
+        super(context);
+        _transforms = VerifyArgument.notEmpty(transforms, "transforms");
+    }
+
+    final List<ILocalAstTransform> getTransforms() {
+        return _transforms;
+    }
+
+    @Override
+    public void run(final AstNode compilationUnit) {
+        _enabledTransforms.clear();
+        _transformsByNodeType.clear();
+
+        for (final ILocalAstTransform transform : _transforms) {
+            if (transform.isEnabled()) {
+                _enabledTransforms.add(transform);
+            }
+        }
+
+        if (!_enabledTransforms.isEmpty()) {
+            super.run(compilationUnit);
+        }
+    }
+
+    @Override
+    protected Void visitChildren(final AstNode node, final Void data) {
+        super.visitChildren(node, data);
+
+        AstNode current = node;
+        ILocalAstTransform[] transforms = getTransforms(current.getClass());
+
+        for (int i = 0; i < transforms.length; i++) {
+            final AstNode parent = current.getParent();
+            final AstNode previous = current.getPreviousSibling();
+            final AstNode next = current.getNextSibling();
+
+            transforms[i].runOnNode(current);
+
+            if (parent == null || current.getParent() == parent) {
+                continue;
+            }
+
+            //
+            // The node was replaced or removed.  The remaining transforms would have seen the
+            // replacement in their own walks, so hand it to them instead.
+            //
+            final AstNode replacement = previous != null ? previous.getNextSibling() : parent.getFirstChild();
+
+            if (replacement == null || replacement == next || replacement.getRole() != current.getRole()) {
+                break;
+            }
+
+            final ILocalAstTransform[] replacementTransforms = getTransforms(replacement.getClass());
+
+            current = replacement;
+
+            if (replacementTransforms != transforms) {
+                transforms = remaining(transforms[i], replacementTransforms);
+                i = -1;
+            }
+        }
+
+        return null;
+    }
+
+    private ILocalAstTransform[] getTransforms(final Class<?> nodeType) {
+        ILocalAstTransform[] transforms = _transformsByNodeType.get(nodeType);
+
+        if (transforms == null) {
+            final List<ILocalAstTransform> matches = new ArrayList<>();
+
+            for (final ILocalAstTransform transform : _enabledTransforms) {
+                for (final Class<? extends AstNode> type : transform.getNodeTypes()) {
+                    if (type.isAssignableFrom(nodeType)) {
+                        matches.add(transform);
+                        break;
+                    }
+                }
+            }
+
+            transforms = matches.isEmpty() ? EMPTY_TRANSFORMS
+                                           : matches.toArray(new ILocalAstTransform[matches.size()]);
+
+            _transformsByNodeType.put(nodeType, transforms);
+        }
+
+        return transforms;
+    }
+
+    private ILocalAstTransform[] remaining(final ILocalAstTransform lastRun, final ILocalAstTransform[] candidates) {
+        //
+        // Of the transforms which apply to the new node type, keep those which come after the one
+        // we just ran, preserving pipeline order.
+        //
+        final List<ILocalAstTransform> result = new ArrayList<>();
+        final int lastRunIndex = _enabledTransforms.indexOf(lastRun);
+
+        for (final ILocalAstTransform candidate : candidates) {
+            if (_enabledTransforms.indexOf(candidate) > lastRunIndex) {
+                result.add(candidate);
+            }
+        }
+
+        return result.toArray(new ILocalAstTransform[result.size()]);
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * IIncrementalAstTransform.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.languages.java.ast.transforms;
+
+/**
+ * A transform which has nothing left to do in code it has already processed, unless that code has since
+ * been modified.  When such a transform appears in the {@link TransformationPipeline} more than once, the
+ * later runs only visit the members which were modified after the previous run.
+ * <p>
+ * Only structural modifications (nodes being added, removed, or replaced) are tracked, so the transform's
+ * decisions must not depend on data which can change without one, e.g., node annotations.
+ */
+public interface IIncrementalAstTransform extends IAstTransform {
+}
@@ -0,0 +1,46 @@
+/*
+ * ILocalAstTransform.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.languages.java.ast.transforms;
+
+import com.strobel.decompiler.languages.java.ast.AstNode;
+
+import java.util.List;
+
+/**
+ * A transform which rewrites nodes of a few known types, and whose rewrite of a node depends only on
+ * that node's subtree.  A local transform may only modify the node it is given, its subtree, and parts of
+ * the tree which have already been visited (e.g., preceding sibling statements).
+ * <p>
+ * Consecutive local transforms in the {@link TransformationPipeline} share a single post-order walk of
+ * the tree: each node is passed to every transform in turn, after all of its children have been passed
+ * to every transform.
+ */
+public interface ILocalAstTransform extends IAstTransform {
+    /**
+     * Returns whether this transform has any work to do, e.g., whether it is enabled by the current
+     * settings.  Checked once per pipeline run.
+     */
+    boolean isEnabled();
+
+    /**
+     * Returns the node types this transform rewrites; other nodes are never passed to {@link #runOnNode}.
+     * Type and member declarations must not be included, as their context is maintained by the walk.
+     */
+    List<Class<? extends AstNode>> getNodeTypes();
+
+    /**
+     * Rewrites a single node whose children have already been transformed.
+     */
+    void runOnNode(final AstNode node);
+}
@@ -20,13 +20,31 @@ import com.strobel.decompiler.DecompilerContext;
 import com.strobel.decompiler.ast.Variable;
 import com.strobel.decompiler.languages.java.ast.*;
 
+import java.util.Arrays;
+import java.util.List;
+
 import static com.strobel.decompiler.patterns.Pattern.matchString;
 
-public class InlineEscapingAssignmentsTransform extends ContextTrackingVisitor<Void> {
+public class InlineEscapingAssignmentsTransform extends ContextTrackingVisitor<Void> implements ILocalAstTransform {
+    private final static List<Class<? extends AstNode>> NODE_TYPES = Arrays.<Class<? extends AstNode>>asList(
+        ReturnStatement.class,
+        ThrowStatement.class
+    );
+
     public InlineEscapingAssignmentsTransform(final DecompilerContext context) {
         super(context);
     }
 
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public List<Class<? extends AstNode>> getNodeTypes() {
+        return NODE_TYPES;
+    }
+
     @Override
     public Void visitReturnStatement(final ReturnStatement node, final Void data) {
         super.visitReturnStatement(node, data);
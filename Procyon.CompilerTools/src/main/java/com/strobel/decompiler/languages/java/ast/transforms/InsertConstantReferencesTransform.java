@@ -27,11 +27,27 @@ import com.strobel.core.StringUtilities;
 import com.strobel.decompiler.DecompilerContext;
 import com.strobel.decompiler.languages.java.ast.*;
 
-public class InsertConstantReferencesTransform extends ContextTrackingVisitor<Void> {
+import java.util.Collections;
+import java.util.List;
+
+public class InsertConstantReferencesTransform extends ContextTrackingVisitor<Void> implements ILocalAstTransform {
+    private final static List<Class<? extends AstNode>> NODE_TYPES =
+        Collections.<Class<? extends AstNode>>singletonList(PrimitiveExpression.class);
+
     public InsertConstantReferencesTransform(final DecompilerContext context) {
         super(context);
     }
 
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public List<Class<? extends AstNode>> getNodeTypes() {
+        return NODE_TYPES;
+    }
+
     @Override
     public Void visitPrimitiveExpression(final PrimitiveExpression node, final Void data) {
         final Object value = node.getValue();
@@ -27,7 +27,7 @@ import com.strobel.decompiler.languages.java.utilities.RedundantCastUtility;
 
 import java.util.List;
 
-public class RemoveRedundantCastsTransform extends ContextTrackingVisitor<Void> {
+public class RemoveRedundantCastsTransform extends ContextTrackingVisitor<Void> implements IIncrementalAstTransform {
     private final JavaResolver _resolver;
 
     public RemoveRedundantCastsTransform(final DecompilerContext context) {
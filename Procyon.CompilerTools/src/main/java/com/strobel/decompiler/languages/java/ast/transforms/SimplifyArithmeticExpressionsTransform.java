@@ -23,7 +23,16 @@ import com.strobel.decompiler.DecompilerContext;
 import com.strobel.decompiler.languages.java.ast.*;
 import com.strobel.decompiler.semantics.ResolveResult;
 
-public class SimplifyArithmeticExpressionsTransform extends ContextTrackingVisitor<Void> {
+import java.util.Arrays;
+import java.util.List;
+
+public class SimplifyArithmeticExpressionsTransform extends ContextTrackingVisitor<Void> implements ILocalAstTransform {
+    private final static List<Class<? extends AstNode>> NODE_TYPES = Arrays.<Class<? extends AstNode>>asList(
+        UnaryOperatorExpression.class,
+        BinaryOperatorExpression.class,
+        AssignmentExpression.class
+    );
+
     private final JavaResolver _resolver;
 
     public SimplifyArithmeticExpressionsTransform(final DecompilerContext context) {
@@ -31,6 +40,16 @@ public class SimplifyArithmeticExpressionsTransform extends ContextTrackingVisit
         _resolver = new JavaResolver(context);
     }
 
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public List<Class<? extends AstNode>> getNodeTypes() {
+        return NODE_TYPES;
+    }
+
     @Override
     public Void visitUnaryOperatorExpression(final UnaryOperatorExpression node, final Void data) {
         super.visitUnaryOperatorExpression(node, data);
@@ -25,7 +25,7 @@ import com.strobel.decompiler.languages.java.utilities.RedundantCastUtility;
 import com.strobel.decompiler.semantics.ResolveResult;
 import com.strobel.functions.Function;
 
-public class SimplifyAssignmentsTransform extends ContextTrackingVisitor<AstNode> implements IAstTransform {
+public class SimplifyAssignmentsTransform extends ContextTrackingVisitor<AstNode> implements IIncrementalAstTransform {
     private final static Function<AstNode, AstNode> NEGATE_FUNCTION = new Function<AstNode, AstNode>() {
         @Override
         public AstNode apply(final AstNode n) {
@@ -16,10 +16,21 @@
 
 package com.strobel.decompiler.languages.java.ast.transforms;
 
+import com.strobel.assembler.metadata.MethodDefinition;
+import com.strobel.assembler.metadata.TypeDefinition;
 import com.strobel.core.Predicate;
 import com.strobel.decompiler.DecompilerContext;
 import com.strobel.decompiler.languages.java.ast.AstNode;
+import com.strobel.decompiler.languages.java.ast.CompilationUnit;
+import com.strobel.decompiler.languages.java.ast.Keys;
+import com.strobel.decompiler.languages.java.ast.TypeDeclaration;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -77,20 +88,203 @@ public final class TransformationPipeline {
         final Predicate<IAstTransform> abortCondition,
         final DecompilerContext context) {
 
+        runTransformationsUntil(node, abortCondition, context, true, true);
+    }
+
+    /**
+     * Runs the pipeline, optionally without grouping local transforms (see {@link #schedule}) or without
+     * limiting repeated incremental transforms to modified regions.  Every combination must produce the
+     * same tree; the slower ones let tests check that they do.
+     */
+    static void runTransformationsUntil(
+        final AstNode node,
+        final Predicate<IAstTransform> abortCondition,
+        final DecompilerContext context,
+        final boolean fuseLocalTransforms,
+        final boolean runIncrementally) {
+
         if (node == null) {
             return;
         }
 
+        final List<IAstTransform> transforms = new ArrayList<>();
+
         for (final IAstTransform transform : createPipeline(context)) {
             if (abortCondition != null && abortCondition.test(transform)) {
-                return;
+                break;
             }
+            transforms.add(transform);
+        }
+
+        runTransforms(node, fuseLocalTransforms ? schedule(transforms, context) : transforms, context, runIncrementally);
+    }
+
+    /**
+     * Runs each transform in turn.  If {@code runIncrementally} is set, an {@link IIncrementalAstTransform}
+     * which has already run only visits the regions modified since (see {@link #collectModifiedRegions}).
+     */
+    static void runTransforms(
+        final AstNode node,
+        final List<IAstTransform> transforms,
+        final DecompilerContext context,
+        final boolean runIncrementally) {
+
+        //
+        // For each incremental transform which has already run, the regions modified since it last ran.
+        //
+        final Map<Class<?>, Set<AstNode>> modifiedRegions = new HashMap<>();
+
+        for (final IAstTransform transform : transforms) {
+            final boolean isIncremental = runIncrementally && transform instanceof IIncrementalAstTransform;
+            final Set<AstNode> regions = isIncremental ? modifiedRegions.get(transform.getClass()) : null;
 
             if (LOG.isLoggable(Level.FINE)) {
-                LOG.fine("Running Java AST transform: " + transform.getClass().getSimpleName() + "...");
+                LOG.fine(
+                    "Running Java AST transform: " + describe(transform) +
+                    (regions != null ? " (" + regions.size() + " modified regions)..." : "...")
+                );
+            }
+
+            if (regions != null) {
+                runOnRegions(transform, node, regions, context);
+                regions.clear();
+            }
+            else {
+                if (isIncremental) {
+                    if (modifiedRegions.isEmpty()) {
+                        //
+                        // Start tracking modifications from here on.
+                        //
+                        node.clearModified();
+                    }
+                    modifiedRegions.put(transform.getClass(), new LinkedHashSet<AstNode>());
+                }
+
+                transform.run(node);
+            }
+
+            if (!modifiedRegions.isEmpty() && node.isModified()) {
+                final Set<AstNode> modified = new LinkedHashSet<>();
+
+                collectModifiedRegions(node, modified);
+
+                for (final Set<AstNode> pending : modifiedRegions.values()) {
+                    pending.addAll(modified);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the outermost modified nodes which are not types or compilation units (usually members),
+     * and clears all modification marks.
+     */
+    private static void collectModifiedRegions(final AstNode node, final Set<AstNode> regions) {
+        if (!(node instanceof CompilationUnit || node instanceof TypeDeclaration)) {
+            regions.add(node);
+            node.clearModified();
+            return;
+        }
+
+        for (final AstNode child : node.getChildren()) {
+            if (child.isModified()) {
+                collectModifiedRegions(child, regions);
+            }
+        }
+
+        node.clearModified();
+    }
+
+    private static void runOnRegions(
+        final IAstTransform transform,
+        final AstNode root,
+        final Set<AstNode> regions,
+        final DecompilerContext context) {
+
+        final TypeDefinition oldType = context.getCurrentType();
+        final MethodDefinition oldMethod = context.getCurrentMethod();
+
+        try {
+            for (final AstNode region : regions) {
+                if (!isDescendantOf(region, root)) {
+                    continue;
+                }
+
+                final TypeDeclaration declaringType = region.getParent(TypeDeclaration.class);
+
+                context.setCurrentType(declaringType != null ? declaringType.getUserData(Keys.TYPE_DEFINITION) : oldType);
+                context.setCurrentMethod(null);
+
+                transform.run(region);
             }
+        }
+        finally {
+            context.setCurrentType(oldType);
+            context.setCurrentMethod(oldMethod);
+        }
+    }
 
-            transform.run(node);
+    private static boolean isDescendantOf(final AstNode node, final AstNode ancestor) {
+        for (AstNode current = node; current != null; current = current.getParent()) {
+            if (current == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Groups each run of consecutive {@link ILocalAstTransform}s into a single transform which applies
+     * them all in one walk of the tree.
+     */
+    static List<IAstTransform> schedule(final List<IAstTransform> transforms, final DecompilerContext context) {
+        final List<IAstTransform> scheduled = new ArrayList<>();
+        final List<ILocalAstTransform> localRun = new ArrayList<>();
+
+        for (final IAstTransform transform : transforms) {
+            if (transform instanceof ILocalAstTransform) {
+                localRun.add((ILocalAstTransform) transform);
+                continue;
+            }
+
+            flushLocalTransforms(localRun, scheduled, context);
+            scheduled.add(transform);
         }
+
+        flushLocalTransforms(localRun, scheduled, context);
+
+        return scheduled;
+    }
+
+    private static void flushLocalTransforms(
+        final List<ILocalAstTransform> localRun,
+        final List<IAstTransform> scheduled,
+        final DecompilerContext context) {
+
+        if (localRun.size() == 1) {
+            scheduled.add(localRun.get(0));
+        }
+        else if (!localRun.isEmpty()) {
+            scheduled.add(new FusedAstTransform(context, new ArrayList<>(localRun)));
+        }
+
+        localRun.clear();
+    }
+
+    private static String describe(final IAstTransform transform) {
+        if (!(transform instanceof FusedAstTransform)) {
+            return transform.getClass().getSimpleName();
+        }
+
+        final StringBuilder sb = new StringBuilder();
+
+        for (final ILocalAstTransform t : ((FusedAstTransform) transform).getTransforms()) {
+            if (sb.length() > 0) {
+                sb.append(" + ");
+            }
+            sb.append(t.getClass().getSimpleName());
+        }
+
+        return sb.toString();
     }
 }
@@ -28,9 +28,13 @@ import com.strobel.decompiler.languages.java.ast.*;
 import com.strobel.decompiler.semantics.ResolveResult;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-public class VarArgsTransform extends ContextTrackingVisitor<Void> {
+public class VarArgsTransform extends ContextTrackingVisitor<Void> implements ILocalAstTransform {
+    private final static List<Class<? extends AstNode>> NODE_TYPES =
+        Collections.<Class<? extends AstNode>>singletonList(InvocationExpression.class);
+
     private final JavaResolver _resolver;
 
     public VarArgsTransform(final DecompilerContext context) {
@@ -38,6 +42,16 @@ public class VarArgsTransform extends ContextTrackingVisitor<Void> {
         _resolver = new JavaResolver(context);
     }
 
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public List<Class<? extends AstNode>> getNodeTypes() {
+        return NODE_TYPES;
+    }
+
     @Override
     public Void visitInvocationExpression(final InvocationExpression node, final Void data) {
         super.visitInvocationExpression(node, data);
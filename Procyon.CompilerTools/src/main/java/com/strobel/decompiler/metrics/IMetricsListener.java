@@ -0,0 +1,81 @@
+/*
+ * IMetricsListener.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.metrics;
+
+import com.strobel.assembler.metadata.MethodDefinition;
+
+/**
+ * Receives instrumentation events from the metadata system and the decompiler.  Implementations are
+ * called on whatever thread raised the event, possibly from several threads at once, and must be
+ * thread-safe and cheap.
+ * <p>
+ * Events may be added to this interface over time; extend {@link MetricsListenerAdapter} to receive only
+ * some of them.
+ *
+ * @see Metrics#setListener(IMetricsListener)
+ * @author Mike Strobel
+ */
+public interface IMetricsListener {
+    /**
+     * A {@code MetadataSystem} found a type in its cache.
+     */
+    void typeCacheHit();
+
+    /**
+     * A {@code MetadataSystem} did not find a type in its cache, and will try to load it.
+     */
+    void typeCacheMiss();
+
+    /**
+     * A {@code MetadataSystem} added a type to its cache, which now holds {@code cacheSize} types.
+     */
+    void typeCached(final int cacheSize);
+
+    /**
+     * An {@code ITypeLoader} was asked for a class file.
+     *
+     * @param internalName
+     *     The internal name of the requested type.
+     * @param byteCount
+     *     The size of the class file, or {@code -1} if the loader could not find it.
+     * @param elapsedNanos
+     *     The time spent in the loader.
+     */
+    void typeLoaded(final String internalName, final int byteCount, final long elapsedNanos);
+
+    /**
+     * A {@code MethodDefinition} read its body.
+     *
+     * @param isReload
+     *     {@code true} if the body had been read before, but was reclaimed by the garbage collector.
+     */
+    void methodBodyLoaded(final boolean isReload);
+
+    /**
+     * The body of a method was decompiled into a syntax tree.  The elapsed time includes the bodies of
+     * any local or anonymous classes declared in the method, but not the transforms later applied to
+     * the whole type.
+     */
+    void methodDecompiled(final MethodDefinition method, final long elapsedNanos);
+
+    /**
+     * A type was decompiled successfully.
+     */
+    void typeDecompiled(final String typeName, final long elapsedNanos);
+
+    /**
+     * A type could not be loaded or decompiled.
+     */
+    void typeDecompilationFailed(final String typeName);
+}
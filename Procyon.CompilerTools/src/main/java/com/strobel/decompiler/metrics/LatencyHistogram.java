@@ -0,0 +1,121 @@
+/*
+ * LatencyHistogram.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative values with log-linear buckets: values below 16 are counted
+ * exactly, and every power-of-two range above that is split into 8 buckets, so percentiles are
+ * accurate to within about 6%.  Memory use is fixed, regardless of how many values are recorded.
+ */
+final class LatencyHistogram {
+    private final static int SUB_BUCKET_BITS = 3;
+    private final static int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private final static int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    private final static int BUCKET_COUNT = LINEAR_LIMIT + (64 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray _counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong _max = new AtomicLong();
+
+    void record(final long value) {
+        final long v = Math.max(value, 0L);
+
+        _counts.incrementAndGet(indexOf(v));
+
+        long max;
+
+        while (v > (max = _max.get()) && !_max.compareAndSet(max, v)) {
+            // Retry until we win or someone records a larger value.
+        }
+    }
+
+    long count() {
+        long count = 0L;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += _counts.get(i);
+        }
+
+        return count;
+    }
+
+    long max() {
+        return _max.get();
+    }
+
+    /**
+     * Returns an estimate of the value at the given percentile (between 0 and 1), or 0 if nothing
+     * has been recorded.
+     */
+    long percentile(final double percentile) {
+        final long[] counts = new long[BUCKET_COUNT];
+        long total = 0L;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += (counts[i] = _counts.get(i));
+        }
+
+        if (total == 0L) {
+            return 0L;
+        }
+
+        final long rank = Math.max(1L, (long) Math.ceil(percentile * total));
+        long seen = 0L;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+
+            if (seen >= rank) {
+                final long max = _max.get();
+                return rank == total ? max : Math.min(midpointOf(i), max);
+            }
+        }
+
+        return _max.get();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            _counts.set(i, 0L);
+        }
+        _max.set(0L);
+    }
+
+    static int indexOf(final long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+
+        return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long midpointOf(final int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+
+        final int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        final int subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+        final int shift = exponent - SUB_BUCKET_BITS;
+        final long lowest = (long) (SUB_BUCKETS + subBucket) << shift;
+
+        return lowest + ((1L << shift) >>> 1);
+    }
+}
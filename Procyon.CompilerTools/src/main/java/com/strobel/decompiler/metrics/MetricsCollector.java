@@ -0,0 +1,279 @@
+/*
+ * MetricsCollector.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.metrics;
+
+import com.strobel.assembler.metadata.MethodDefinition;
+import com.strobel.core.ExceptionUtilities;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * An {@link IMetricsListener} which aggregates events into counters and a latency histogram, and
+ * publishes them as a JMX MBean.  A typical setup:
+ * <pre>{@code
+ * final MetricsCollector collector = new MetricsCollector();
+ *
+ * Metrics.setListener(collector);
+ * collector.registerMBean();
+ * }</pre>
+ *
+ * @author Mike Strobel
+ */
+public final class MetricsCollector implements IMetricsListener, MetricsCollectorMBean {
+    public final static String OBJECT_NAME = "com.strobel.decompiler:type=Metrics";
+
+    private final AtomicLong _typeCacheHits = new AtomicLong();
+    private final AtomicLong _typeCacheMisses = new AtomicLong();
+    private final AtomicLong _typeLoads = new AtomicLong();
+    private final AtomicLong _failedTypeLoads = new AtomicLong();
+    private final AtomicLong _bytesRead = new AtomicLong();
+    private final AtomicLong _typeLoadNanos = new AtomicLong();
+    private final AtomicLong _methodBodyLoads = new AtomicLong();
+    private final AtomicLong _methodBodyReloads = new AtomicLong();
+    private final AtomicLong _methodsDecompiled = new AtomicLong();
+    private final AtomicLong _typesDecompiled = new AtomicLong();
+    private final AtomicLong _decompilationFailures = new AtomicLong();
+    private final LatencyHistogram _decompilationMicros = new LatencyHistogram();
+
+    private volatile int _typeCacheSize;
+    private volatile long _startNanos = System.nanoTime();
+
+    // <editor-fold defaultstate="collapsed" desc="IMetricsListener Implementation">
+
+    @Override
+    public void typeCacheHit() {
+        _typeCacheHits.incrementAndGet();
+    }
+
+    @Override
+    public void typeCacheMiss() {
+        _typeCacheMisses.incrementAndGet();
+    }
+
+    @Override
+    public void typeCached(final int cacheSize) {
+        _typeCacheSize = cacheSize;
+    }
+
+    @Override
+    public void typeLoaded(final String internalName, final int byteCount, final long elapsedNanos) {
+        _typeLoads.incrementAndGet();
+        _typeLoadNanos.addAndGet(elapsedNanos);
+
+        if (byteCount < 0) {
+            _failedTypeLoads.incrementAndGet();
+        }
+        else {
+            _bytesRead.addAndGet(byteCount);
+        }
+    }
+
+    @Override
+    public void methodBodyLoaded(final boolean isReload) {
+        _methodBodyLoads.incrementAndGet();
+
+        if (isReload) {
+            _methodBodyReloads.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void methodDecompiled(final MethodDefinition method, final long elapsedNanos) {
+        _methodsDecompiled.incrementAndGet();
+    }
+
+    @Override
+    public void typeDecompiled(final String typeName, final long elapsedNanos) {
+        _typesDecompiled.incrementAndGet();
+        _decompilationMicros.record(TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+    }
+
+    @Override
+    public void typeDecompilationFailed(final String typeName) {
+        _decompilationFailures.incrementAndGet();
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="MetricsCollectorMBean Implementation">
+
+    @Override
+    public int getTypeCacheSize() {
+        return _typeCacheSize;
+    }
+
+    @Override
+    public long getTypeCacheHits() {
+        return _typeCacheHits.get();
+    }
+
+    @Override
+    public long getTypeCacheMisses() {
+        return _typeCacheMisses.get();
+    }
+
+    @Override
+    public long getTypeLoads() {
+        return _typeLoads.get();
+    }
+
+    @Override
+    public long getFailedTypeLoads() {
+        return _failedTypeLoads.get();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return _bytesRead.get();
+    }
+
+    @Override
+    public long getTypeLoadTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(_typeLoadNanos.get());
+    }
+
+    @Override
+    public long getMethodBodyLoads() {
+        return _methodBodyLoads.get();
+    }
+
+    @Override
+    public long getMethodBodyReloads() {
+        return _methodBodyReloads.get();
+    }
+
+    @Override
+    public long getMethodsDecompiled() {
+        return _methodsDecompiled.get();
+    }
+
+    @Override
+    public long getTypesDecompiled() {
+        return _typesDecompiled.get();
+    }
+
+    @Override
+    public long getDecompilationFailures() {
+        return _decompilationFailures.get();
+    }
+
+    @Override
+    public double getTypesDecompiledPerSecond() {
+        final long elapsedNanos = System.nanoTime() - _startNanos;
+        return elapsedNanos > 0L ? _typesDecompiled.get() * 1e9 / elapsedNanos : 0d;
+    }
+
+    @Override
+    public double getDecompilationLatencyP50Millis() {
+        return _decompilationMicros.percentile(0.50) / 1000d;
+    }
+
+    @Override
+    public double getDecompilationLatencyP99Millis() {
+        return _decompilationMicros.percentile(0.99) / 1000d;
+    }
+
+    @Override
+    public double getDecompilationLatencyMaxMillis() {
+        return _decompilationMicros.max() / 1000d;
+    }
+
+    @Override
+    public void reset() {
+        _typeCacheHits.set(0L);
+        _typeCacheMisses.set(0L);
+        _typeLoads.set(0L);
+        _failedTypeLoads.set(0L);
+        _bytesRead.set(0L);
+        _typeLoadNanos.set(0L);
+        _methodBodyLoads.set(0L);
+        _methodBodyReloads.set(0L);
+        _methodsDecompiled.set(0L);
+        _typesDecompiled.set(0L);
+        _decompilationFailures.set(0L);
+        _decompilationMicros.reset();
+        _startNanos = System.nanoTime();
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="MBean Registration">
+
+    /**
+     * Registers this collector with the platform MBean server under {@link #OBJECT_NAME}, replacing
+     * any collector registered before.
+     */
+    public void registerMBean() {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+
+            server.registerMBean(this, name);
+        }
+        catch (final JMException e) {
+            throw ExceptionUtilities.asRuntimeException(e);
+        }
+    }
+
+    public void unregisterMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        }
+        catch (final InstanceNotFoundException ignored) {
+        }
+        catch (final JMException e) {
+            throw ExceptionUtilities.asRuntimeException(e);
+        }
+    }
+
+    // </editor-fold>
+
+    @Override
+    public String toString() {
+        return format(
+            "Decompiled %d types (%d failed) at %.1f types/s; latency p50 %.1f ms, p99 %.1f ms, max %.1f ms.%n" +
+            "Type cache: %d hits, %d misses, %d types in last cache.%n" +
+            "Type loads: %d (%d not found), %d bytes in %d ms.%n" +
+            "Method bodies: %d loads, %d reloads, %d decompiled.",
+            getTypesDecompiled(),
+            getDecompilationFailures(),
+            getTypesDecompiledPerSecond(),
+            getDecompilationLatencyP50Millis(),
+            getDecompilationLatencyP99Millis(),
+            getDecompilationLatencyMaxMillis(),
+            getTypeCacheHits(),
+            getTypeCacheMisses(),
+            getTypeCacheSize(),
+            getTypeLoads(),
+            getFailedTypeLoads(),
+            getBytesRead(),
+            getTypeLoadTimeMillis(),
+            getMethodBodyLoads(),
+            getMethodBodyReloads(),
+            getMethodsDecompiled()
+        );
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * MetricsCollectorMBean.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.metrics;
+
+/**
+ * The JMX management interface of {@link MetricsCollector}.  All counts are cumulative since the
+ * collector was created or last {@link #reset()}.
+ *
+ * @author Mike Strobel
+ */
+public interface MetricsCollectorMBean {
+    /**
+     * The size of the most recently grown {@code MetadataSystem} type cache.
+     */
+    int getTypeCacheSize();
+
+    long getTypeCacheHits();
+
+    long getTypeCacheMisses();
+
+    /**
+     * The number of class files requested from type loaders, whether or not they were found.
+     */
+    long getTypeLoads();
+
+    /**
+     * The number of class files requested from type loaders which could not be found.
+     */
+    long getFailedTypeLoads();
+
+    long getBytesRead();
+
+    long getTypeLoadTimeMillis();
+
+    long getMethodBodyLoads();
+
+    /**
+     * The number of method bodies read again after the garbage collector reclaimed them.
+     */
+    long getMethodBodyReloads();
+
+    long getMethodsDecompiled();
+
+    long getTypesDecompiled();
+
+    long getDecompilationFailures();
+
+    /**
+     * The number of types decompiled per second since the collector was created or reset.
+     */
+    double getTypesDecompiledPerSecond();
+
+    double getDecompilationLatencyP50Millis();
+
+    double getDecompilationLatencyP99Millis();
+
+    double getDecompilationLatencyMaxMillis();
+
+    void reset();
+}
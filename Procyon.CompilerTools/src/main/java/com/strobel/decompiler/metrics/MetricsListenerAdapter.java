@@ -0,0 +1,57 @@
+/*
+ * MetricsListenerAdapter.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler.metrics;
+
+import com.strobel.assembler.metadata.MethodDefinition;
+
+/**
+ * An {@link IMetricsListener} which ignores every event.  Listeners which extend this class, rather than
+ * implementing {@link IMetricsListener} directly, only override the events they care about, and keep
+ * compiling when new events are added to the interface.
+ *
+ * @author Mike Strobel
+ */
+public abstract class MetricsListenerAdapter implements IMetricsListener {
+    @Override
+    public void typeCacheHit() {
+    }
+
+    @Override
+    public void typeCacheMiss() {
+    }
+
+    @Override
+    public void typeCached(final int cacheSize) {
+    }
+
+    @Override
+    public void typeLoaded(final String internalName, final int byteCount, final long elapsedNanos) {
+    }
+
+    @Override
+    public void methodBodyLoaded(final boolean isReload) {
+    }
+
+    @Override
+    public void methodDecompiled(final MethodDefinition method, final long elapsedNanos) {
+    }
+
+    @Override
+    public void typeDecompiled(final String typeName, final long elapsedNanos) {
+    }
+
+    @Override
+    public void typeDecompilationFailed(final String typeName) {
+    }
+}
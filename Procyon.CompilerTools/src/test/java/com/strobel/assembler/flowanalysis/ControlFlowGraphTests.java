@@ -0,0 +1,124 @@
+package com.strobel.assembler.flowanalysis;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class ControlFlowGraphTests {
+    private static ControlFlowNode[] createNodes(final int count) {
+        final ControlFlowNode[] nodes = new ControlFlowNode[count];
+
+        nodes[0] = new ControlFlowNode(0, 0, ControlFlowNodeType.EntryPoint);
+        nodes[1] = new ControlFlowNode(1, -1, ControlFlowNodeType.RegularExit);
+        nodes[2] = new ControlFlowNode(2, -1, ControlFlowNodeType.ExceptionalExit);
+
+        for (int i = 3; i < count; i++) {
+            nodes[i] = new ControlFlowNode(i, -1, ControlFlowNodeType.Normal);
+        }
+
+        return nodes;
+    }
+
+    private static void connect(final ControlFlowNode source, final ControlFlowNode target) {
+        final ControlFlowEdge edge = new ControlFlowEdge(source, target, JumpType.Normal);
+
+        source.getOutgoing().add(edge);
+        target.getIncoming().add(edge);
+    }
+
+    //
+    //  entry -> 3 -> { 4, 5 } -> 6 -> { 3, 7 } -> exit;  8 -> 7 is unreachable.
+    //
+    private static ControlFlowNode[] createLoopGraph() {
+        final ControlFlowNode[] n = createNodes(9);
+
+        connect(n[0], n[3]);
+        connect(n[3], n[4]);
+        connect(n[3], n[5]);
+        connect(n[4], n[6]);
+        connect(n[5], n[6]);
+        connect(n[6], n[3]);
+        connect(n[6], n[7]);
+        connect(n[7], n[1]);
+        connect(n[8], n[7]);
+
+        return n;
+    }
+
+    @Test
+    public void testDominance() {
+        final ControlFlowNode[] n = createLoopGraph();
+        final ControlFlowGraph graph = new ControlFlowGraph(n);
+
+        graph.computeDominance();
+
+        assertNull(n[0].getImmediateDominator());
+        assertSame(n[0], n[3].getImmediateDominator());
+        assertSame(n[3], n[4].getImmediateDominator());
+        assertSame(n[3], n[5].getImmediateDominator());
+        assertSame(n[3], n[6].getImmediateDominator());
+        assertSame(n[6], n[7].getImmediateDominator());
+        assertSame(n[7], n[1].getImmediateDominator());
+        assertNull(n[8].getImmediateDominator());
+        assertFalse(n[8].isReachable());
+
+        assertEquals(Arrays.asList(n[4], n[5], n[6]), n[3].getDominatorTreeChildren());
+
+        assertTrue(n[0].dominates(n[1]));
+        assertTrue(n[3].dominates(n[7]));
+        assertTrue(n[6].dominates(n[6]));
+        assertFalse(n[4].dominates(n[6]));
+        assertFalse(n[7].dominates(n[3]));
+        assertFalse(n[3].dominates(n[8]));
+        assertTrue(n[8].dominates(n[8]));
+    }
+
+    @Test
+    public void testDominanceFrontier() {
+        final ControlFlowNode[] n = createLoopGraph();
+        final ControlFlowGraph graph = new ControlFlowGraph(n);
+
+        graph.computeDominance();
+        graph.computeDominanceFrontier();
+
+        assertEquals(Collections.singleton(n[6]), new HashSet<>(n[4].getDominanceFrontier()));
+        assertEquals(Collections.singleton(n[6]), new HashSet<>(n[5].getDominanceFrontier()));
+        assertEquals(Collections.singleton(n[3]), new HashSet<>(n[6].getDominanceFrontier()));
+        assertEquals(Collections.singleton(n[3]), new HashSet<>(n[3].getDominanceFrontier()));
+        assertTrue(n[7].getDominanceFrontier().isEmpty());
+        assertTrue(n[6].getDominanceFrontier().contains(n[3]));
+        assertFalse(n[6].getDominanceFrontier().contains(n[7]));
+        assertFalse(n[6].getDominanceFrontier().contains(n[8]));
+    }
+
+    @Test
+    public void testDominanceIsReusedUntilGraphChanges() {
+        final ControlFlowNode[] n = createLoopGraph();
+        final ControlFlowGraph graph = new ControlFlowGraph(n);
+
+        graph.computeDominance();
+        graph.computeDominance();
+
+        assertTrue(graph.isDominanceValid());
+        assertEquals(3, n[3].getDominatorTreeChildren().size());
+
+        connect(n[5], n[7]);
+
+        assertFalse(graph.isDominanceValid());
+
+        graph.computeDominance();
+
+        assertTrue(graph.isDominanceValid());
+        assertSame(n[3], n[7].getImmediateDominator());
+        assertFalse(n[6].dominates(n[7]));
+
+        n[7].setImmediateDominator(n[6]);
+
+        assertFalse(graph.isDominanceValid());
+        assertTrue(n[6].dominates(n[7]));
+    }
+}
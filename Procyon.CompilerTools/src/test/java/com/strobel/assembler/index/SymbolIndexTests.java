@@ -0,0 +1,151 @@
+package com.strobel.assembler.index;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SymbolIndexTests {
+    private final static String BASE = "com/strobel/assembler/index/SymbolIndexTests$Base";
+    private final static String DERIVED = "com/strobel/assembler/index/SymbolIndexTests$Derived";
+    private final static String MORE_DERIVED = "com/strobel/assembler/index/SymbolIndexTests$MoreDerived";
+    private final static String CALLER = "com/strobel/assembler/index/SymbolIndexTests$Caller";
+
+    private final static MemberSymbol BASE_RUN = new MemberSymbol(BASE, "run", "(I)I");
+    private final static MemberSymbol DERIVED_RUN = new MemberSymbol(DERIVED, "run", "(I)I");
+    private final static MemberSymbol MORE_DERIVED_RUN = new MemberSymbol(MORE_DERIVED, "run", "(I)I");
+    private final static MemberSymbol BASE_HELPER = new MemberSymbol(BASE, "helper", "(I)I");
+    private final static MemberSymbol CALLER_CALL = new MemberSymbol(CALLER, "call", "(L" + BASE + ";)I");
+    private final static MemberSymbol CALLER_COUNT = new MemberSymbol(CALLER, "count", "I");
+
+    private static SymbolIndex index;
+
+    @SuppressWarnings("UnusedDeclaration")
+    static class Base implements Runnable {
+        public int run(final int value) {
+            return helper(value);
+        }
+
+        static int helper(final int value) {
+            return value + 1;
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    static class Derived extends Base {
+        @Override
+        public int run(final int value) {
+            return super.run(value) * 2;
+        }
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    static class MoreDerived extends Derived {
+        @Override
+        public int run(final int value) {
+            return 0;
+        }
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    static class Caller {
+        int count;
+
+        int call(final Base base) {
+            count++;
+            return base.run(count);
+        }
+    }
+
+    @BeforeClass
+    public static void buildIndex() throws Throwable {
+        final File classes = new File(SymbolIndexTests.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        final File directory = new File(classes, "com/strobel/assembler/index");
+
+        index = new SymbolIndexBuilder().setParallelism(2)
+                                        .addDirectory(directory)
+                                        .build();
+    }
+
+    @Test
+    public void testTypesAndInheritance() throws Throwable {
+        assertTrue(index.containsType(BASE));
+        assertEquals("java/lang/Object", index.getBaseType(BASE));
+        assertEquals(1, index.getInterfaces(BASE).size());
+        assertEquals("java/lang/Runnable", index.getInterfaces(BASE).get(0));
+        assertEquals(BASE, index.getBaseType(DERIVED));
+
+        assertTrue(index.getDirectSubtypes("java/lang/Runnable").contains(BASE));
+        assertEquals(1, index.getDirectSubtypes(BASE).size());
+
+        final List<String> implementors = index.getAllSubtypes("java/lang/Runnable");
+
+        assertTrue(implementors.contains(BASE));
+        assertTrue(implementors.contains(DERIVED));
+        assertTrue(implementors.contains(MORE_DERIVED));
+    }
+
+    @Test
+    public void testMembersAndReferences() throws Throwable {
+        assertTrue(index.getDeclaredMembers(BASE).contains(BASE_RUN));
+        assertTrue(index.getDeclaredMembers(CALLER).contains(CALLER_COUNT));
+        assertTrue(index.getMemberFlags(BASE_RUN) != -1L);
+
+        assertTrue(index.getReferencingMembers(BASE_RUN).contains(CALLER_CALL));
+        assertTrue(index.getReferencingMembers(BASE_RUN).contains(DERIVED_RUN));
+        assertTrue(index.getReferencingMembers(BASE_HELPER).contains(BASE_RUN));
+        assertTrue(index.getReferencingMembers(CALLER_COUNT).contains(CALLER_CALL));
+
+        final List<MemberSymbol> referenced = index.getReferencedMembers(CALLER_CALL);
+
+        assertTrue(referenced.contains(BASE_RUN));
+        assertTrue(referenced.contains(CALLER_COUNT));
+    }
+
+    @Test
+    public void testOverrides() throws Throwable {
+        final List<MemberSymbol> overrides = index.getOverrides(BASE_RUN);
+
+        assertEquals(2, overrides.size());
+        assertTrue(overrides.contains(DERIVED_RUN));
+        assertTrue(overrides.contains(MORE_DERIVED_RUN));
+        assertTrue(index.getOverrides(BASE_HELPER).isEmpty());
+    }
+
+    @Test
+    public void testPersistenceRoundTrip() throws Throwable {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        index.write(out);
+
+        final SymbolIndex copy = SymbolIndex.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(index.getTypes(), copy.getTypes());
+        assertEquals(index.getMemberCount(), copy.getMemberCount());
+        assertEquals(index.getReferenceCount(), copy.getReferenceCount());
+
+        for (final String type : index.getTypes()) {
+            assertEquals(index.getTypeFlags(type), copy.getTypeFlags(type));
+            assertEquals(index.getBaseType(type), copy.getBaseType(type));
+            assertEquals(index.getInterfaces(type), copy.getInterfaces(type));
+            assertEquals(index.getDeclaredMembers(type), copy.getDeclaredMembers(type));
+
+            for (final MemberSymbol member : index.getDeclaredMembers(type)) {
+                assertEquals(index.getMemberFlags(member), copy.getMemberFlags(member));
+                assertEquals(index.getReferencingMembers(member), copy.getReferencingMembers(member));
+                assertEquals(index.getReferencedMembers(member), copy.getReferencedMembers(member));
+            }
+        }
+
+        assertEquals(index.getOverrides(BASE_RUN), copy.getOverrides(BASE_RUN));
+    }
+}
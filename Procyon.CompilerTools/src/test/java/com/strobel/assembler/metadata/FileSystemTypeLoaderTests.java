@@ -0,0 +1,142 @@
+package com.strobel.assembler.metadata;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FileSystemTypeLoaderTests {
+    private static void write(final File file, final byte[] data) throws IOException {
+        assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+
+        try (final OutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void testStampTracksFilesBeneathDirectories() throws Throwable {
+        final File directory = File.createTempFile("procyon", "");
+
+        assertTrue(directory.delete());
+
+        try {
+            final File classFile = new File(directory, "a/b/C.class");
+            final List<File> entries = Collections.singletonList(directory);
+
+            write(classFile, new byte[] { 1, 2, 3 });
+            assertTrue(classFile.setLastModified(1000000000000L));
+
+            final long stamp = FileSystemTypeLoader.computeStamp(entries);
+
+            assertEquals(stamp, FileSystemTypeLoader.computeStamp(entries));
+
+            assertTrue(classFile.setLastModified(1000000060000L));
+
+            final long modifiedStamp = FileSystemTypeLoader.computeStamp(entries);
+
+            assertNotEquals(stamp, modifiedStamp);
+
+            write(new File(directory, "a/D.class"), new byte[0]);
+
+            final long addedStamp = FileSystemTypeLoader.computeStamp(entries);
+
+            assertNotEquals(modifiedStamp, addedStamp);
+
+            assertTrue(new File(directory, "a/D.class").delete());
+            assertEquals(modifiedStamp, FileSystemTypeLoader.computeStamp(entries));
+        }
+        finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testMonitorWalksDirectoriesOnlyWhenAsked() throws Throwable {
+        final File directory = File.createTempFile("procyon", "");
+        final File jarFile = new File(directory.getParentFile(), directory.getName() + ".jar");
+
+        assertTrue(directory.delete());
+
+        try {
+            final File classFile = new File(directory, "a/b/C.class");
+            final List<File> entries = Arrays.asList(directory, jarFile);
+
+            write(classFile, new byte[] { 1, 2, 3 });
+            write(jarFile, new byte[] { 4, 5, 6 });
+            assertTrue(classFile.setLastModified(1000000000000L));
+            assertTrue(jarFile.setLastModified(1000000000000L));
+
+            final ClassPathMonitor monitor = new ClassPathMonitor(entries, 3600000L);
+            final long stamp = monitor.getStamp();
+
+            assertEquals(FileSystemTypeLoader.computeStamp(entries), stamp);
+
+            //
+            // Within the interval, only jar files are checked.
+            //
+            assertTrue(classFile.setLastModified(1000000060000L));
+            assertEquals(stamp, monitor.getStamp());
+
+            assertTrue(jarFile.setLastModified(1000000060000L));
+
+            final long jarStamp = monitor.getStamp();
+
+            assertNotEquals(stamp, jarStamp);
+
+            final long walkedStamp = monitor.getStamp(true);
+
+            assertNotEquals(jarStamp, walkedStamp);
+            assertEquals(FileSystemTypeLoader.computeStamp(entries), walkedStamp);
+            assertEquals(walkedStamp, monitor.getStamp());
+        }
+        finally {
+            delete(directory);
+            delete(jarFile);
+        }
+    }
+
+    @Test
+    public void testLoadsFromDirectoriesThenSystemClassPath() throws Throwable {
+        final File directory = File.createTempFile("procyon", "");
+
+        assertTrue(directory.delete());
+
+        try {
+            write(new File(directory, "a/b/C.class"), new byte[] { 1, 2, 3 });
+
+            try (final FileSystemTypeLoader loader = new FileSystemTypeLoader(
+                Arrays.asList(directory, new File(directory, "missing.jar")))) {
+
+                final Buffer buffer = new Buffer();
+
+                assertTrue(loader.tryLoadType("a/b/C", buffer));
+                assertArrayEquals(new byte[] { 1, 2, 3 }, Arrays.copyOf(buffer.array(), buffer.size()));
+                assertTrue(loader.tryLoadType("java/lang/Object", new Buffer()));
+                assertFalse(loader.tryLoadType("a/b/Missing", new Buffer()));
+            }
+        }
+        finally {
+            delete(directory);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.strobel.assembler.metadata;
+
+import java.io.File;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Loads every class in a jar (by default, the running JDK's {@code rt.jar}) into a fresh
+ * {@link MetadataSystem} and reports the heap retained by the resulting definitions.
+ * <p>
+ * Usage: {@code MetadataFootprintBenchmark [jar]}
+ */
+public final class MetadataFootprintBenchmark {
+    private static MetadataSystem retained;
+
+    public static void main(final String[] args) throws Throwable {
+        final File file = args.length > 0 ? new File(args[0])
+                                          : new File(System.getProperty("java.home"), "lib/rt.jar");
+
+        try (final JarFile jarFile = new JarFile(file)) {
+            final MetadataSystem metadataSystem = new MetadataSystem(new JarTypeLoader(jarFile));
+            final long before = usedMemory();
+            final long start = System.nanoTime();
+
+            int types = 0;
+            int methods = 0;
+            int fields = 0;
+
+            for (final Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements(); ) {
+                final String name = entries.nextElement().getName();
+
+                if (!name.endsWith(".class")) {
+                    continue;
+                }
+
+                final TypeReference type = metadataSystem.lookupType(name.substring(0, name.length() - ".class".length()));
+
+                if (type instanceof TypeDefinition) {
+                    final TypeDefinition definition = (TypeDefinition) type;
+
+                    ++types;
+                    methods += definition.getDeclaredMethods().size();
+                    fields += definition.getDeclaredFields().size();
+                }
+            }
+
+            final long elapsed = System.nanoTime() - start;
+
+            retained = metadataSystem;
+
+            final long after = usedMemory();
+            final long retainedBytes = after - before;
+
+            System.out.printf(
+                "%s: %d types, %d methods, %d fields loaded in %d ms%n",
+                file.getName(),
+                types,
+                methods,
+                fields,
+                elapsed / 1000000L
+            );
+
+            System.out.printf(
+                "Retained heap: %,d KB (%,d bytes/type, %,d bytes/member)%n",
+                retainedBytes / 1024,
+                types == 0 ? 0 : retainedBytes / types,
+                methods + fields == 0 ? 0 : retainedBytes / (methods + fields)
+            );
+
+            retained = null;
+        }
+    }
+
+    private static long usedMemory() throws InterruptedException {
+        final Runtime runtime = Runtime.getRuntime();
+
+        long used = Long.MAX_VALUE;
+
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+
+        return used;
+    }
+}
@@ -41,4 +41,90 @@ public class MetadataParserTests {
 
         assertNotNull(method2);
     }
+
+    @Test
+    public void testParsedSignaturesAreSharedAcrossParsers() throws Throwable {
+        final MetadataSystem metadataSystem = new MetadataSystem();
+        final MetadataParser parser1 = new MetadataParser(metadataSystem);
+        final MetadataParser parser2 = new MetadataParser(metadataSystem);
+
+        final String descriptor = "(Ljava/lang/String;[I)Ljava/util/List;";
+
+        assertSame(
+            parser1.parseTypeSignature("Ljava/util/Map$Entry;"),
+            parser2.parseTypeSignature("Ljava/util/Map$Entry;")
+        );
+
+        final IMethodSignature signature1 = parser1.parseMethodSignature(descriptor);
+        final IMethodSignature signature2 = parser2.parseMethodSignature(descriptor);
+
+        assertNotSame(signature1, signature2);
+        assertNotSame(signature1.getParameters().get(0), signature2.getParameters().get(0));
+        assertSame(signature1.getReturnType(), signature2.getReturnType());
+        assertSame(
+            signature1.getParameters().get(1).getParameterType(),
+            signature2.getParameters().get(1).getParameterType()
+        );
+    }
+
+    @Test
+    public void testMemberReferencesAreCanonicalized() throws Throwable {
+        final MetadataSystem metadataSystem = new MetadataSystem();
+        final MetadataParser parser1 = new MetadataParser(metadataSystem);
+        final MetadataParser parser2 = new MetadataParser(metadataSystem);
+
+        final TypeReference stringType = parser1.parseTypeDescriptor("java/lang/String");
+
+        assertSame(stringType, parser2.parseTypeDescriptor("java/lang/String"));
+
+        assertSame(
+            parser1.parseMethod(stringType, "indexOf", "(Ljava/lang/String;I)I"),
+            parser2.parseMethod(stringType, "indexOf", "(Ljava/lang/String;I)I")
+        );
+
+        assertSame(
+            parser1.parseField(stringType, "hash", "I"),
+            parser2.parseField(stringType, "hash", "I")
+        );
+
+        assertNotSame(
+            parser1.parseMethod(stringType, "indexOf", "(Ljava/lang/String;I)I"),
+            parser1.parseMethod(stringType, "indexOf", "(II)I")
+        );
+
+        assertNotSame(
+            parser1.parseField(stringType, "hash", "I"),
+            new MetadataParser(new MetadataSystem()).parseField(stringType, "hash", "I")
+        );
+    }
+
+    @Test
+    public void testTypeVariablesAreNotShared() throws Throwable {
+        final MetadataSystem metadataSystem = new MetadataSystem();
+        final MetadataParser parser = new MetadataParser(metadataSystem);
+        final TypeReference listType = parser.parseTypeDescriptor("java/util/List");
+
+        parser.pushGenericContext(metadataSystem.resolve(listType));
+
+        try {
+            final TypeReference t1 = parser.parseTypeSignature("TE;");
+            assertTrue(t1.isGenericParameter());
+        }
+        finally {
+            parser.popGenericContext();
+        }
+
+        final MetadataParser other = new MetadataParser(metadataSystem);
+
+        other.pushGenericContext(metadataSystem.resolve(parser.parseTypeDescriptor("java/util/Set")));
+
+        try {
+            final TypeReference t2 = other.parseTypeSignature("TE;");
+            assertTrue(t2.isGenericParameter());
+            assertSame(metadataSystem.resolve(other.parseTypeDescriptor("java/util/Set")), t2.getDeclaringType());
+        }
+        finally {
+            other.popGenericContext();
+        }
+    }
 }
@@ -0,0 +1,366 @@
+package com.strobel.assembler.metadata;
+
+import com.strobel.assembler.ir.ConstantPool;
+import com.strobel.assembler.ir.ExceptionHandler;
+import com.strobel.assembler.ir.Instruction;
+import com.strobel.assembler.metadata.annotations.CustomAnnotation;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.Assert.*;
+
+public class SnapshotTypeLoaderTests {
+    private static byte[] contents(final Buffer buffer) {
+        return Arrays.copyOf(buffer.array(), buffer.size());
+    }
+
+    @Test
+    public void testSnapshotMatchesDirectLoads() throws Throwable {
+        final ClasspathTypeLoader directLoader = new ClasspathTypeLoader();
+        final String[] names = { "java/util/ArrayList", "java/util/AbstractList", "java/lang/String", "java/lang/Object" };
+        final SnapshotWriter writer = new SnapshotWriter();
+
+        for (final String name : names) {
+            assertTrue(writer.add(name, directLoader));
+        }
+
+        writer.add("\u00e9t\u00e9/Caf\u00e9", new byte[] { 1, 2, 3 });
+        writer.add("a/Empty", new byte[0]);
+
+        final File file = File.createTempFile("procyon", ".snapshot");
+
+        try {
+            writer.write(file);
+
+            final SnapshotTypeLoader loader = new SnapshotTypeLoader(file);
+
+            assertEquals(names.length + 2, loader.getTypeCount());
+
+            for (final String name : names) {
+                final Buffer expected = new Buffer();
+                final Buffer actual = new Buffer();
+
+                assertTrue(directLoader.tryLoadType(name, expected));
+                assertTrue(loader.tryLoadType(name, actual));
+                assertArrayEquals(contents(expected), contents(actual));
+            }
+
+            final Buffer buffer = new Buffer();
+
+            assertTrue(loader.tryLoadType("\u00e9t\u00e9/Caf\u00e9", buffer));
+            assertArrayEquals(new byte[] { 1, 2, 3 }, contents(buffer));
+            assertTrue(loader.tryLoadType("a/Empty", buffer));
+            assertEquals(0, buffer.size());
+
+            assertFalse(loader.tryLoadType("java/util/ArrayLis", new Buffer()));
+            assertFalse(loader.tryLoadType("java/util/ArrayList2", new Buffer()));
+            assertFalse(loader.tryLoadType("", new Buffer()));
+        }
+        finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testMetadataSystemLoadsTypesAndBodiesFromSnapshot() throws Throwable {
+        final SnapshotWriter writer = new SnapshotWriter();
+
+        assertTrue(writer.addPlatformTypes("java/util/ArrayList") > 0);
+
+        final File file = File.createTempFile("procyon", ".snapshot");
+
+        try {
+            writer.write(file);
+
+            final MetadataSystem metadataSystem = new MetadataSystem(
+                new CompositeTypeLoader(new SnapshotTypeLoader(file), new ClasspathTypeLoader())
+            );
+
+            final TypeDefinition type = metadataSystem.lookupType("java/util/ArrayList").resolve();
+
+            assertNotNull(type);
+
+            int bodies = 0;
+
+            for (final MethodDefinition method : type.getDeclaredMethods()) {
+                if (method.getBody() != null) {
+                    ++bodies;
+                }
+            }
+
+            assertTrue(bodies > 0);
+            assertNotNull(metadataSystem.lookupType("java/lang/String").resolve());
+        }
+        finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    private static String describe(final TypeDefinition type) {
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append(type.getFlags()).append(' ').append(type.getSignature()).append('\n');
+
+        for (final TypeReference explicitInterface : type.getExplicitInterfaces()) {
+            sb.append("implements ").append(explicitInterface.getSignature()).append('\n');
+        }
+
+        describe(sb, type.getAnnotations());
+
+        for (final TypeDefinition declaredType : type.getDeclaredTypes()) {
+            sb.append("type ").append(declaredType.getInternalName()).append('\n');
+        }
+
+        for (final FieldDefinition field : type.getDeclaredFields()) {
+            sb.append(field.getFlags()).append(' ')
+              .append(field.getName()).append(' ')
+              .append(field.getSignature()).append(' ')
+              .append(field.getConstantValue()).append('\n');
+
+            describe(sb, field.getAnnotations());
+        }
+
+        for (final MethodDefinition method : type.getDeclaredMethods()) {
+            sb.append(method.getFlags()).append(' ')
+              .append(method.getName())
+              .append(method.getSignature()).append('\n');
+
+            describe(sb, method.getAnnotations());
+
+            for (final TypeReference thrownType : method.getThrownTypes()) {
+                sb.append("throws ").append(thrownType.getSignature()).append('\n');
+            }
+
+            final MethodBody body = method.getBody();
+
+            if (body != null) {
+                sb.append("stack ").append(body.getMaxStackSize())
+                  .append(" locals ").append(body.getMaxLocals()).append('\n');
+
+                for (final Instruction instruction : body.getInstructions()) {
+                    sb.append(instruction).append('\n');
+                }
+
+                for (final ExceptionHandler handler : body.getExceptionHandlers()) {
+                    sb.append(handler).append('\n');
+                }
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private static int countEntries(final ConstantPool pool) {
+        int count = 0;
+
+        for (final ConstantPool.Entry ignored : pool) {
+            ++count;
+        }
+
+        return count;
+    }
+
+    private static void describe(final StringBuilder sb, final List<CustomAnnotation> annotations) {
+        for (final CustomAnnotation annotation : annotations) {
+            sb.append('@').append(annotation.getAnnotationType().getInternalName())
+              .append(annotation.getParameters().size()).append('\n');
+        }
+    }
+
+    @Test
+    public void testSnapshotServesMetadataRecords() throws Throwable {
+        final ClasspathTypeLoader directLoader = new ClasspathTypeLoader();
+        final SnapshotWriter writer = new SnapshotWriter();
+
+        assertTrue(writer.add("java/util/ArrayList", directLoader));
+
+        writer.add("a/Garbage", new byte[] { 1, 2, 3 });
+
+        final File file = File.createTempFile("procyon", ".snapshot");
+
+        try {
+            writer.write(file);
+
+            final SnapshotTypeLoader loader = new SnapshotTypeLoader(file);
+            final Buffer image = new Buffer();
+            final Buffer record = new Buffer();
+
+            assertTrue(directLoader.tryLoadType("java/util/ArrayList", image));
+            assertTrue(loader.tryLoadTypeMetadata("java/util/ArrayList", record));
+            assertEquals(TypeMetadataWriter.MAGIC, record.readInt() & 0xFFFFFFFFL);
+            assertTrue(record.size() < image.size());
+
+            final Buffer buffer = new Buffer();
+
+            assertTrue(loader.tryLoadType("java/util/ArrayList", buffer));
+            assertArrayEquals(contents(image), contents(buffer));
+
+            //
+            // Types that could not be pre-parsed fall back to their images.
+            //
+            assertTrue(loader.tryLoadTypeMetadata("a/Garbage", buffer));
+            assertArrayEquals(new byte[] { 1, 2, 3 }, contents(buffer));
+            assertFalse(loader.tryLoadTypeMetadata("a/Missing", new Buffer()));
+        }
+        finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testTypesFromRecordsMatchTypesFromClassFiles() throws Throwable {
+        final String[] names = {
+            "java/util/ArrayList",
+            "java/util/HashMap",
+            "java/util/stream/Collectors",
+            "java/lang/annotation/Retention",
+            "java/lang/Thread$State"
+        };
+
+        final SnapshotWriter writer = new SnapshotWriter();
+
+        assertTrue(writer.addPlatformTypes(names) >= names.length);
+
+        final File file = File.createTempFile("procyon", ".snapshot");
+
+        try {
+            writer.write(file);
+
+            final MetadataSystem expectedSystem = new MetadataSystem(new ClasspathTypeLoader());
+            final MetadataSystem actualSystem = new MetadataSystem(new SnapshotTypeLoader(file));
+
+            for (final String name : names) {
+                final TypeDefinition expected = expectedSystem.lookupType(name).resolve();
+                final TypeDefinition actual = actualSystem.lookupType(name).resolve();
+
+                assertNotNull(name, actual);
+                assertEquals(name, describe(expected), describe(actual));
+                assertEquals(name, countEntries(expected.getConstantPool()), countEntries(actual.getConstantPool()));
+            }
+        }
+        finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws Throwable {
+        final File file = File.createTempFile("procyon", ".snapshot");
+
+        try {
+            try (final RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+                output.writeInt(0xCAFEBABE);
+                output.writeInt(0);
+                output.writeInt(0);
+            }
+
+            new SnapshotTypeLoader(file);
+        }
+        finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testRejectsCorruptIndexEntries() throws Throwable {
+        final SnapshotWriter writer = new SnapshotWriter();
+
+        writer.add("a/First", new byte[] { 1, 2, 3 });
+        writer.add("a/Second", new byte[] { 4, 5, 6, 7 });
+
+        final File file = File.createTempFile("procyon", ".snapshot");
+
+        try {
+            writer.write(file);
+
+            final long length = file.length();
+
+            assertEquals(2, new SnapshotTypeLoader(file).getTypeCount());
+
+            //
+            // Cut off the last image; its index entry now reaches past the end of the file.
+            //
+            try (final RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+                output.setLength(length - 1);
+            }
+
+            try {
+                new SnapshotTypeLoader(file);
+                fail("Expected a truncated snapshot to be rejected.");
+            }
+            catch (final IOException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().startsWith("Corrupt type snapshot"));
+            }
+        }
+        finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testPlatformSnapshotMatchesRunningJdk() throws Throwable {
+        final SnapshotWriter writer = new SnapshotWriter();
+
+        assertTrue(writer.addPlatformTypes("java/lang/Object") > 0);
+
+        final File file = File.createTempFile("procyon", ".snapshot");
+
+        try {
+            writer.write(file);
+
+            final SnapshotTypeLoader loader = new SnapshotTypeLoader(file);
+
+            assertEquals(1, loader.getSources().size());
+            assertTrue(loader.getSources().get(0).contains(System.getProperty("java.version")));
+            assertTrue(loader.findStaleSources().isEmpty());
+        }
+        finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testJarSnapshotGoesStaleWhenJarChanges() throws Throwable {
+        final File jar = File.createTempFile("procyon", ".jar");
+        final File file = File.createTempFile("procyon", ".snapshot");
+
+        try {
+            try (final JarOutputStream output = new JarOutputStream(new FileOutputStream(jar))) {
+                output.putNextEntry(new JarEntry("a/B.class"));
+                output.write(new byte[] { 1, 2, 3 });
+                output.closeEntry();
+            }
+
+            assertTrue(jar.setLastModified(1000000000000L));
+
+            final SnapshotWriter writer = new SnapshotWriter();
+
+            try (final JarFile jarFile = new JarFile(jar)) {
+                assertEquals(1, writer.addJar(jarFile));
+            }
+
+            writer.write(file);
+
+            assertTrue(new SnapshotTypeLoader(file).findStaleSources().isEmpty());
+            assertTrue(jar.setLastModified(1000000060000L));
+
+            final SnapshotTypeLoader loader = new SnapshotTypeLoader(file);
+
+            assertEquals(1, loader.findStaleSources().size());
+            assertTrue(loader.findStaleSources().get(0).contains(jar.getAbsolutePath()));
+        }
+        finally {
+            assertTrue(file.delete());
+            assertTrue(jar.delete());
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.strobel.assembler.metadata;
+
+import com.strobel.assembler.ir.ConstantPool;
+import com.strobel.assembler.ir.Frame;
+import com.strobel.assembler.ir.Instruction;
+import com.strobel.assembler.ir.InstructionVisitor;
+import com.strobel.assembler.ir.attributes.SourceAttribute;
+import com.strobel.assembler.metadata.annotations.CustomAnnotation;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StreamingClassFileReaderTests {
+    private final static String TYPE_NAME = "java/util/ArrayList";
+
+    private static Buffer loadType(final String internalName) {
+        final Buffer buffer = new Buffer();
+
+        assertTrue(new ClasspathTypeLoader().tryLoadType(internalName, buffer));
+
+        return buffer;
+    }
+
+    @Test
+    public void testDeclarationsMatchClassFileReader() throws Throwable {
+        final MetadataSystem metadataSystem = new MetadataSystem();
+        final RecordingVisitor visitor = new RecordingVisitor(false);
+
+        ClassFileReader.accept(metadataSystem, loadType(TYPE_NAME), visitor);
+
+        final TypeDefinition type = ClassFileReader.readClass(metadataSystem, loadType(TYPE_NAME));
+
+        assertEquals(TYPE_NAME, visitor.name);
+        assertEquals("java/util/AbstractList", visitor.baseTypeName);
+        assertTrue(visitor.genericSignature.startsWith("<E:"));
+        assertTrue(visitor.ended);
+
+        final List<String> fields = new ArrayList<>();
+        final List<String> methods = new ArrayList<>();
+
+        for (final FieldDefinition field : type.getDeclaredFields()) {
+            fields.add(field.getName() + ":" + field.getErasedSignature());
+        }
+
+        for (final MethodDefinition method : type.getDeclaredMethods()) {
+            methods.add(method.getName() + ":" + method.getErasedSignature());
+        }
+
+        assertEquals(fields, visitor.fields);
+        assertEquals(methods, visitor.methods);
+        assertTrue(visitor.bodies.isEmpty());
+    }
+
+    @Test
+    public void testBodiesMatchClassFileReader() throws Throwable {
+        final MetadataSystem metadataSystem = new MetadataSystem();
+        final RecordingVisitor visitor = new RecordingVisitor(true);
+
+        ClassFileReader.accept(metadataSystem, loadType(TYPE_NAME), visitor);
+
+        final TypeDefinition type = ClassFileReader.readClass(
+            ClassFileReader.OPTION_PROCESS_CODE,
+            metadataSystem,
+            loadType(TYPE_NAME)
+        );
+
+        final List<Integer> bodies = new ArrayList<>();
+
+        for (final MethodDefinition method : type.getDeclaredMethods()) {
+            if (method.hasBody()) {
+                bodies.add(method.getBody().getInstructions().size());
+            }
+        }
+
+        assertFalse(bodies.isEmpty());
+        assertEquals(bodies, visitor.bodies);
+        assertTrue(visitor.lineNumbers > 0);
+    }
+
+    private final static class RecordingVisitor implements TypeVisitor {
+        final boolean visitBodies;
+        final List<String> fields = new ArrayList<>();
+        final List<String> methods = new ArrayList<>();
+        final List<Integer> bodies = new ArrayList<>();
+
+        String name;
+        String genericSignature;
+        String baseTypeName;
+        int lineNumbers;
+        boolean ended;
+
+        RecordingVisitor(final boolean visitBodies) {
+            this.visitBodies = visitBodies;
+        }
+
+        @Override
+        public void visitParser(final MetadataParser parser) {
+        }
+
+        @Override
+        public void visit(
+            final int majorVersion,
+            final int minorVersion,
+            final long flags,
+            final String name,
+            final String genericSignature,
+            final String baseTypeName,
+            final String[] interfaceNames) {
+
+            this.name = name;
+            this.genericSignature = genericSignature;
+            this.baseTypeName = baseTypeName;
+        }
+
+        @Override
+        public void visitDeclaringMethod(final MethodReference method) {
+        }
+
+        @Override
+        public void visitOuterType(final TypeReference type) {
+        }
+
+        @Override
+        public void visitInnerType(final TypeDefinition type) {
+        }
+
+        @Override
+        public void visitAttribute(final SourceAttribute attribute) {
+        }
+
+        @Override
+        public void visitAnnotation(final CustomAnnotation annotation, final boolean visible) {
+        }
+
+        @Override
+        public FieldVisitor visitField(final long flags, final String name, final TypeReference fieldType) {
+            fields.add(name + ":" + fieldType.getErasedSignature());
+            return null;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(
+            final long flags,
+            final String name,
+            final IMethodSignature signature,
+            final TypeReference... thrownTypes) {
+
+            final StringBuilder sb = new StringBuilder(name).append(":(");
+
+            for (final ParameterDefinition parameter : signature.getParameters()) {
+                sb.append(parameter.getParameterType().getErasedSignature());
+            }
+
+            methods.add(sb.append(')').append(signature.getReturnType().getErasedSignature()).toString());
+
+            return new MethodVisitor() {
+                @Override
+                public boolean canVisitBody() {
+                    return visitBodies;
+                }
+
+                @Override
+                public InstructionVisitor visitBody(final MethodBody body) {
+                    bodies.add(body.getInstructions().size());
+                    return null;
+                }
+
+                @Override
+                public void visitEnd() {
+                }
+
+                @Override
+                public void visitFrame(final Frame frame) {
+                }
+
+                @Override
+                public void visitLineNumber(final Instruction instruction, final int lineNumber) {
+                    ++lineNumbers;
+                }
+
+                @Override
+                public void visitAttribute(final SourceAttribute attribute) {
+                }
+
+                @Override
+                public void visitAnnotation(final CustomAnnotation annotation, final boolean visible) {
+                }
+
+                @Override
+                public void visitParameterAnnotation(final int parameter, final CustomAnnotation annotation, final boolean visible) {
+                }
+            };
+        }
+
+        @Override
+        public ConstantPool.Visitor visitConstantPool() {
+            return null;
+        }
+
+        @Override
+        public void visitEnd() {
+            ended = true;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.strobel.assembler.metadata;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TypePrefetcherTests {
+    private static byte[] contents(final Buffer buffer) {
+        return Arrays.copyOf(buffer.array(), buffer.size());
+    }
+
+    @Test
+    public void testPrefetchedTypesMatchDirectLoads() throws Throwable {
+        final CountingTypeLoader typeLoader = new CountingTypeLoader();
+        final ClasspathTypeLoader directLoader = new ClasspathTypeLoader();
+
+        try (final TypePrefetcher prefetcher = new TypePrefetcher(typeLoader, 64)) {
+            prefetcher.enqueue("java/util/ArrayList");
+
+            for (final String name : new String[] { "java/util/ArrayList", "java/util/AbstractList", "java/util/Arrays" }) {
+                final Buffer expected = new Buffer();
+                final Buffer actual = new Buffer();
+
+                assertTrue(directLoader.tryLoadType(name, expected));
+                assertTrue(prefetcher.tryLoadType(name, actual));
+                assertArrayEquals(contents(expected), contents(actual));
+            }
+
+            assertFalse(prefetcher.tryLoadType("com/strobel/NoSuchType", new Buffer()));
+        }
+
+        assertEquals(1, typeLoader.count("java/util/ArrayList"));
+        assertTrue(typeLoader.count("java/util/AbstractList") <= 1);
+    }
+
+    @Test
+    public void testConsumedTypesAreLoadedAgainOnDemand() throws Throwable {
+        final CountingTypeLoader typeLoader = new CountingTypeLoader();
+
+        try (final TypePrefetcher prefetcher = new TypePrefetcher(typeLoader, 1)) {
+            prefetcher.enqueue("java/lang/String");
+
+            assertTrue(prefetcher.tryLoadType("java/lang/String", new Buffer()));
+            assertTrue(prefetcher.tryLoadType("java/lang/String", new Buffer()));
+        }
+
+        assertEquals(2, typeLoader.count("java/lang/String"));
+    }
+
+    @Test
+    public void testBackgroundThreadUsesPrefetchLoader() throws Throwable {
+        final CountingTypeLoader typeLoader = new CountingTypeLoader();
+        final CountingTypeLoader prefetchLoader = new CountingTypeLoader();
+
+        try (final TypePrefetcher prefetcher = new TypePrefetcher(typeLoader, prefetchLoader, 64)) {
+            prefetcher.enqueue("java/lang/String");
+
+            final long deadline = System.currentTimeMillis() + 10000L;
+
+            while (prefetchLoader.count("java/lang/String") == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10L);
+            }
+
+            assertTrue(prefetcher.tryLoadType("java/lang/String", new Buffer()));
+        }
+
+        assertEquals(1, prefetchLoader.count("java/lang/String"));
+        assertEquals(0, typeLoader.count("java/lang/String"));
+    }
+
+    private final static class CountingTypeLoader implements ITypeLoader {
+        private final ClasspathTypeLoader _loader = new ClasspathTypeLoader();
+        private final Map<String, Integer> _counts = new HashMap<>();
+
+        @Override
+        public synchronized boolean tryLoadType(final String internalName, final Buffer buffer) {
+            _counts.put(internalName, count(internalName) + 1);
+            return _loader.tryLoadType(internalName, buffer);
+        }
+
+        synchronized int count(final String internalName) {
+            final Integer count = _counts.get(internalName);
+            return count != null ? count : 0;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.strobel.decompiler;
+
+import com.strobel.assembler.metadata.FieldDefinition;
+import com.strobel.assembler.metadata.MetadataSystem;
+import com.strobel.assembler.metadata.MethodDefinition;
+import com.strobel.assembler.metadata.TypeDefinition;
+import com.strobel.assembler.metadata.TypeReference;
+import com.strobel.decompiler.languages.Languages;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MemberDecompilationTests extends DecompilerTest {
+    @SuppressWarnings("UnusedDeclaration")
+    private static class A {
+        private final StringBuilder sb = new StringBuilder("a");
+        private static int counter = 42;
+
+        private int x;
+
+        A() {
+            x = 1;
+        }
+
+        public int test(final int y) {
+            return x + y;
+        }
+
+        public Runnable test2() {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    System.out.println(x);
+                }
+            };
+        }
+
+        public int test3() {
+            return new B().secret();
+        }
+
+        private class B {
+            private int secret() {
+                return x;
+            }
+        }
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    private interface I {
+        int CONSTANT = 1;
+        StringBuilder PREFIX = new StringBuilder("p");
+    }
+
+    private static TypeDefinition resolve(final Class<?> type) {
+        final TypeReference reference = MetadataSystem.instance().lookupType(type.getName().replace('.', '/'));
+        final TypeDefinition resolved = reference != null ? reference.resolve() : null;
+
+        assertNotNull(resolved);
+
+        return resolved;
+    }
+
+    private static MethodDefinition findMethod(final TypeDefinition type, final String name) {
+        for (final MethodDefinition method : type.getDeclaredMethods()) {
+            if (method.getName().equals(name)) {
+                return method;
+            }
+        }
+
+        fail("Method not found: " + name);
+        return null;
+    }
+
+    private static FieldDefinition findField(final TypeDefinition type, final String name) {
+        for (final FieldDefinition field : type.getDeclaredFields()) {
+            if (field.getName().equals(name)) {
+                return field;
+            }
+        }
+
+        fail("Field not found: " + name);
+        return null;
+    }
+
+    private static DecompilationOptions createOptions() {
+        final DecompilationOptions options = new DecompilationOptions();
+        options.setSettings(defaultSettings());
+        return options;
+    }
+
+    private static void verifyMethod(final String name, final String expectedOutput) {
+        final PlainTextOutput output = new PlainTextOutput();
+
+        Languages.java().decompileMethod(findMethod(resolve(A.class), name), output, createOptions());
+
+        assertEquals(
+            WHITESPACE.matcher(expectedOutput.trim()).replaceAll(" "),
+            WHITESPACE.matcher(output.toString().trim()).replaceAll(" ")
+        );
+    }
+
+    private static void verifyField(final Class<?> type, final String name, final String expectedOutput) {
+        final PlainTextOutput output = new PlainTextOutput();
+
+        Languages.java().decompileField(findField(resolve(type), name), output, createOptions());
+
+        assertEquals(
+            WHITESPACE.matcher(expectedOutput.trim()).replaceAll(" "),
+            WHITESPACE.matcher(output.toString().trim()).replaceAll(" ")
+        );
+    }
+
+    @Test
+    public void testSimpleMethod() {
+        verifyMethod(
+            "test",
+            "public int test(final int y) {\n" +
+            "    return this.x + y;\n" +
+            "}"
+        );
+    }
+
+    @Test
+    public void testMethodWithAnonymousClass() {
+        verifyMethod(
+            "test2",
+            "public Runnable test2() {\n" +
+            "    return new Runnable() {\n" +
+            "        @Override\n" +
+            "        public void run() {\n" +
+            "            System.out.println(A.this.x);\n" +
+            "        }\n" +
+            "    };\n" +
+            "}"
+        );
+    }
+
+    @Test
+    public void testMethodWithSyntheticAccessor() {
+        verifyMethod(
+            "test3",
+            "public int test3() {\n" +
+            "    return new B().secret();\n" +
+            "}"
+        );
+    }
+
+    @Test
+    public void testFields() {
+        verifyField(A.class, "sb", "private final StringBuilder sb;");
+        verifyField(A.class, "counter", "private static int counter;");
+        verifyField(A.class, "x", "private int x;");
+    }
+
+    @Test
+    public void testInterfaceFields() {
+        verifyField(I.class, "CONSTANT", "public static final int CONSTANT = 1;");
+        verifyField(I.class, "PREFIX", "public static final StringBuilder PREFIX = new StringBuilder(\"p\");");
+    }
+}
@@ -0,0 +1,85 @@
+package com.strobel.decompiler;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+public class PlainTextOutputTests {
+    private final static Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static void writeSample(final PlainTextOutput output, final int repetitions) {
+        for (int i = 0; i < repetitions; i++) {
+            output.writeKeyword("public");
+            output.write(' ');
+            output.writeReference("caf\u00e9", null);
+            output.write('(');
+            output.writeLiteral("\ud83d\ude00");
+            output.write(')');
+            output.indent();
+            output.writeLine();
+            output.write("a\nbc\t'");
+            output.write('\'');
+            output.unindent();
+            output.writeLine();
+        }
+    }
+
+    @Test
+    public void testEscaping() {
+        final PlainTextOutput output = new PlainTextOutput();
+
+        output.write("a'b\u0000\u00e9\u0080");
+        output.write('\'');
+        output.write('\u00e9');
+
+        assertEquals("a'b\\u0000\\u00e9\\u0080\\'\\u00e9", output.toString());
+    }
+
+    @Test
+    public void testPositionTracking() {
+        final PlainTextOutput output = new PlainTextOutput();
+
+        output.write("abc");
+        assertEquals(1, output.getRow());
+        assertEquals(4, output.getColumn());
+
+        output.write("d\nef\ngh");
+        assertEquals(3, output.getRow());
+        assertEquals(2, output.getColumn());
+
+        output.indent();
+        output.writeLine();
+        assertEquals(4, output.getRow());
+        assertEquals(5, output.getColumn());
+
+        output.write("x\n");
+        assertEquals(5, output.getRow());
+        assertEquals(0, output.getColumn());
+    }
+
+    @Test
+    public void testEncodedOutputMatchesText() {
+        for (final boolean isUnicodeOutputEnabled : new boolean[] { false, true }) {
+            final PlainTextOutput expected = new PlainTextOutput();
+            final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            final ByteArrayOutputStream channelStream = new ByteArrayOutputStream();
+            final PlainTextOutput streamOutput = new PlainTextOutput(stream, UTF_8);
+            final PlainTextOutput channelOutput = new PlainTextOutput(Channels.newChannel(channelStream), UTF_8);
+
+            for (final PlainTextOutput output : new PlainTextOutput[] { expected, streamOutput, channelOutput }) {
+                output.setUnicodeOutputEnabled(isUnicodeOutputEnabled);
+                writeSample(output, 2000);
+                output.flush();
+            }
+
+            assertEquals(expected.toString(), new String(stream.toByteArray(), UTF_8));
+            assertEquals(expected.toString(), new String(channelStream.toByteArray(), UTF_8));
+            assertEquals(expected.getRow(), streamOutput.getRow());
+            assertEquals(expected.getColumn(), streamOutput.getColumn());
+        }
+    }
+}
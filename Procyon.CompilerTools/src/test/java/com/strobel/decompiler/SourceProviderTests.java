@@ -0,0 +1,207 @@
+package com.strobel.decompiler;
+
+import com.strobel.assembler.metadata.Buffer;
+import com.strobel.assembler.metadata.ClasspathTypeLoader;
+import com.strobel.decompiler.metrics.Metrics;
+import com.strobel.decompiler.metrics.MetricsCollector;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.Assert.*;
+
+public class SourceProviderTests {
+    private static void writeJar(final File file, final String... internalNames) throws IOException {
+        final ClasspathTypeLoader typeLoader = new ClasspathTypeLoader();
+
+        try (final JarOutputStream out = new JarOutputStream(new FileOutputStream(file))) {
+            for (final String internalName : internalNames) {
+                final Buffer buffer = new Buffer();
+
+                assertTrue(typeLoader.tryLoadType(internalName, buffer));
+
+                out.putNextEntry(new JarEntry(internalName + ".class"));
+                out.write(buffer.array(), 0, buffer.size());
+                out.closeEntry();
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneDecompilation() throws Throwable {
+        final File jar = File.createTempFile("procyon", ".jar");
+        final MetricsCollector collector = new MetricsCollector();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        writeJar(jar, "java/util/AbstractCollection");
+        Metrics.setListener(collector);
+
+        try (final SourceProvider provider = new SourceProvider(Collections.singletonList(jar))) {
+            final CountDownLatch start = new CountDownLatch(1);
+            final Callable<String> request = new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    start.await();
+                    return provider.getSource("java/util/AbstractCollection");
+                }
+            };
+
+            final Future<?>[] results = new Future<?>[8];
+
+            for (int i = 0; i < results.length; i++) {
+                results[i] = executor.submit(request);
+            }
+
+            start.countDown();
+
+            final String source = (String) results[0].get();
+
+            assertNotNull(source);
+            assertTrue(source.contains("class AbstractCollection"));
+
+            for (final Future<?> result : results) {
+                assertSame(source, result.get());
+            }
+
+            assertSame(source, provider.getSource("java/util/AbstractCollection"));
+            assertEquals(1L, collector.getTypesDecompiled());
+            assertEquals(1, provider.getCachedTypeCount());
+            assertEquals(source.length(), provider.getCachedCharacters());
+
+            assertNull(provider.getSource("com/strobel/NoSuchType"));
+        }
+        finally {
+            Metrics.setListener(null);
+            executor.shutdownNow();
+            assertTrue(jar.delete());
+        }
+    }
+
+    @Test
+    public void testWorkspacesAreCappedByConcurrency() throws Throwable {
+        final File jar = File.createTempFile("procyon", ".jar");
+        final ExecutorService executor = Executors.newFixedThreadPool(6);
+        final String[] types = {
+            "java/util/AbstractCollection",
+            "java/util/AbstractList",
+            "java/util/AbstractMap",
+            "java/util/AbstractQueue",
+            "java/util/AbstractSequentialList",
+            "java/util/AbstractSet"
+        };
+
+        writeJar(jar, types);
+
+        try (final SourceProvider provider = new SourceProvider(Collections.singletonList(jar), new DecompilerSettings(), SourceProvider.DEFAULT_CACHE_CAPACITY, 2)) {
+            final CountDownLatch start = new CountDownLatch(1);
+            final Future<?>[] results = new Future<?>[types.length];
+
+            for (int i = 0; i < types.length; i++) {
+                final String type = types[i];
+
+                results[i] = executor.submit(
+                    new Callable<String>() {
+                        @Override
+                        public String call() throws Exception {
+                            start.await();
+                            return provider.getSource(type);
+                        }
+                    }
+                );
+            }
+
+            start.countDown();
+
+            for (int i = 0; i < types.length; i++) {
+                final String source = (String) results[i].get();
+
+                assertNotNull(types[i], source);
+                assertTrue(types[i], source.contains("class " + types[i].substring(types[i].lastIndexOf('/') + 1)));
+            }
+
+            assertEquals(types.length, provider.getCachedTypeCount());
+            assertTrue(provider.getIdleWorkspaceCount() <= 2);
+        }
+        finally {
+            executor.shutdownNow();
+            assertTrue(jar.delete());
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedSourceIsEvicted() throws Throwable {
+        final File jar = File.createTempFile("procyon", ".jar");
+
+        writeJar(jar, "java/util/AbstractCollection", "java/util/AbstractList");
+
+        try {
+            final String collectionSource;
+            final String listSource;
+
+            try (final SourceProvider provider = new SourceProvider(Collections.singletonList(jar))) {
+                collectionSource = provider.getSource("java/util/AbstractCollection");
+                listSource = provider.getSource("java/util/AbstractList");
+                assertEquals(2, provider.getCachedTypeCount());
+            }
+
+            //
+            // Room for either type, but not both.
+            //
+            final int capacity = Math.max(collectionSource.length(), listSource.length()) +
+                                 Math.min(collectionSource.length(), listSource.length()) / 2;
+
+            try (final SourceProvider provider = new SourceProvider(Collections.singletonList(jar), new DecompilerSettings(), capacity)) {
+                assertEquals(collectionSource, provider.getSource("java/util/AbstractCollection"));
+                assertEquals(listSource, provider.getSource("java/util/AbstractList"));
+                assertEquals(1, provider.getCachedTypeCount());
+                assertEquals(listSource.length(), provider.getCachedCharacters());
+
+                assertEquals(collectionSource, provider.getSource("java/util/AbstractCollection"));
+                assertEquals(1, provider.getCachedTypeCount());
+                assertEquals(collectionSource.length(), provider.getCachedCharacters());
+            }
+        }
+        finally {
+            assertTrue(jar.delete());
+        }
+    }
+
+    @Test
+    public void testChangedJarInvalidatesCache() throws Throwable {
+        final File jar = File.createTempFile("procyon", ".jar");
+
+        writeJar(jar, "java/util/AbstractCollection");
+
+        try (final SourceProvider provider = new SourceProvider(Collections.singletonList(jar))) {
+            final String source = provider.getSource("java/util/AbstractCollection");
+
+            assertNotNull(source);
+            assertFalse(provider.refresh());
+            assertEquals(1, provider.getCachedTypeCount());
+
+            writeJar(jar, "java/util/AbstractCollection", "java/util/AbstractList");
+            assertTrue(jar.setLastModified(jar.lastModified() - 60000L));
+
+            assertTrue(provider.refresh());
+            assertEquals(0, provider.getCachedTypeCount());
+
+            final String newSource = provider.getSource("java/util/AbstractCollection");
+
+            assertNotSame(source, newSource);
+            assertEquals(source, newSource);
+        }
+        finally {
+            assertTrue(jar.delete());
+        }
+    }
+}
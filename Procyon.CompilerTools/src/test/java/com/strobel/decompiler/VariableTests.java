@@ -75,6 +75,42 @@ public class VariableTests extends DecompilerTest {
         }
     }
 
+    @SuppressWarnings("UnusedDeclaration")
+    private static class B {
+        public int test1(final boolean b, int i) {
+            if (b) {
+                i = 5;
+            }
+            else {
+                System.out.println(i);
+            }
+            return i;
+        }
+
+        public int test2(final boolean b, final int i) {
+            int x = i * 2;
+            if (b) {
+                x = i + 1;
+                System.out.println(x);
+            }
+            else {
+                System.out.println(x);
+            }
+            return x;
+        }
+
+        public void test3(final boolean b) {
+            if (b) {
+                final String s = "s";
+                System.out.println(s);
+            }
+            else {
+                final int n = Integer.parseInt("3");
+                System.out.println(n);
+            }
+        }
+    }
+
     @Test
     public void testNumberedVariablesDoNotBreakVariableNaming() throws Throwable {
         verifyOutput(
@@ -130,4 +166,76 @@ public class VariableTests extends DecompilerTest {
             "}\n"
         );
     }
+
+    @Test
+    public void testStoresOnOneBranchDoNotLeakIntoSibling() throws Throwable {
+        verifyOutput(
+            B.class,
+            defaultSettings(),
+            "private static class B {\n" +
+            "    public int test1(final boolean b, int i) {\n" +
+            "        if (b) {\n" +
+            "            i = 5;\n" +
+            "        }\n" +
+            "        else {\n" +
+            "            System.out.println(i);\n" +
+            "        }\n" +
+            "        return i;\n" +
+            "    }\n" +
+            "    public int test2(final boolean b, final int i) {\n" +
+            "        int x = i * 2;\n" +
+            "        if (b) {\n" +
+            "            x = i + 1;\n" +
+            "            System.out.println(x);\n" +
+            "        }\n" +
+            "        else {\n" +
+            "            System.out.println(x);\n" +
+            "        }\n" +
+            "        return x;\n" +
+            "    }\n" +
+            "    public void test3(final boolean b) {\n" +
+            "        if (b) {\n" +
+            "            final String s = \"s\";\n" +
+            "            System.out.println(\"s\");\n" +
+            "        }\n" +
+            "        else {\n" +
+            "            final int n = Integer.parseInt(\"3\");\n" +
+            "            System.out.println(n);\n" +
+            "        }\n" +
+            "    }\n" +
+            "}\n"
+        );
+    }
+
+    @Test
+    public void testMergesDoNotLeakIntoSharedVariableStates() throws Throwable {
+        //
+        // Compiled without debug information, so that variables are told apart by their definitions alone.
+        //
+        verifyOutput(
+            Class.forName("BranchLocalSlots"),
+            defaultSettings(),
+            "public class BranchLocalSlots {\n" +
+            "    public void scopedLocals(final boolean b) {\n" +
+            "        System.out.println(Integer.parseInt(\"1\"));\n" +
+            "        if (b) {\n" +
+            "            System.out.println(Integer.parseInt(\"2\"));\n" +
+            "        }\n" +
+            "        System.out.println(\"end\");\n" +
+            "    }\n" +
+            "    public int loopWithBranchStore(final int[] array) {\n" +
+            "        int n = 0;\n" +
+            "        for (int i = 0; i < array.length; ++i) {\n" +
+            "            if (array[i] < 0) {\n" +
+            "                n = -1;\n" +
+            "            }\n" +
+            "            else {\n" +
+            "                n += array[i];\n" +
+            "            }\n" +
+            "        }\n" +
+            "        return n;\n" +
+            "    }\n" +
+            "}\n"
+        );
+    }
 }
@@ -0,0 +1,204 @@
+package com.strobel.decompiler.ast;
+
+import com.strobel.assembler.metadata.Buffer;
+import com.strobel.assembler.metadata.ClasspathTypeLoader;
+import com.strobel.assembler.metadata.ITypeLoader;
+import com.strobel.assembler.metadata.MetadataSystem;
+import com.strobel.assembler.metadata.MethodBody;
+import com.strobel.assembler.metadata.MethodDefinition;
+import com.strobel.assembler.metadata.TypeDefinition;
+import com.strobel.decompiler.DecompilerContext;
+import com.strobel.decompiler.DecompilerSettings;
+
+import java.util.Random;
+
+/**
+ * Measures {@link AstBuilder#build} on a generated method with many locals, with and without a local
+ * variable table.  The method initializes every slot, then runs a long sequence of statements which
+ * each combine two locals into a third, so every slot has many definitions and references.  There is
+ * no branching, which keeps stack analysis linear and leaves local variable conversion to dominate.
+ * <p>
+ * Usage: {@code LocalVariableConversionBenchmark [slotCount] [blockCount] [iterations]}
+ */
+public final class LocalVariableConversionBenchmark {
+    private final static String TYPE_NAME = "LocalVariableConversionSubject";
+    private final static String METHOD_NAME = "run";
+
+    private static int sink;
+
+    public static void main(final String[] args) {
+        final int slotCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        final int blockCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        final int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        final byte[][] classFiles = {
+            createClassFile(slotCount, blockCount, false),
+            createClassFile(slotCount, blockCount, true)
+        };
+
+        for (int round = 0; round < 3; round++) {
+            System.out.printf("Round %d (%d slots, %d statements):%n", round + 1, slotCount, blockCount);
+
+            for (int j = 0; j < classFiles.length; j++) {
+                final MethodDefinition method = loadMethod(classFiles[j]);
+                final MethodBody body = method.getBody();
+                final DecompilerContext context = new DecompilerContext(DecompilerSettings.javaDefaults());
+
+                context.setCurrentType(method.getDeclaringType());
+                context.setCurrentMethod(method);
+
+                final long start = System.nanoTime();
+
+                for (int i = 0; i < iterations; i++) {
+                    sink += AstBuilder.build(body, true, context).size();
+                }
+
+                final long elapsed = System.nanoTime() - start;
+
+                System.out.printf(
+                    "  %-28s %8.1f ms/method%n",
+                    j == 0 ? "without local variable table" : "with local variable table",
+                    elapsed / 1e6 / iterations
+                );
+            }
+        }
+    }
+
+    private static MethodDefinition loadMethod(final byte[] classFile) {
+        final ClasspathTypeLoader classpathTypeLoader = new ClasspathTypeLoader();
+
+        final MetadataSystem metadataSystem = new MetadataSystem(
+            new ITypeLoader() {
+                @Override
+                public boolean tryLoadType(final String internalName, final Buffer buffer) {
+                    if (TYPE_NAME.equals(internalName)) {
+                        buffer.reset(classFile.length);
+                        System.arraycopy(classFile, 0, buffer.array(), 0, classFile.length);
+                        return true;
+                    }
+                    return classpathTypeLoader.tryLoadType(internalName, buffer);
+                }
+            }
+        );
+
+        final TypeDefinition type = metadataSystem.lookupType(TYPE_NAME).resolve();
+
+        for (final MethodDefinition method : type.getDeclaredMethods()) {
+            if (METHOD_NAME.equals(method.getName())) {
+                return method;
+            }
+        }
+
+        throw new IllegalStateException("Generated method not found.");
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Class File Generation">
+
+    private final static int ILOAD = 0x15;
+    private final static int ISTORE = 0x36;
+    private final static int IADD = 0x60;
+    private final static int IRETURN = 0xAC;
+
+    private static byte[] createClassFile(final int slotCount, final int blockCount, final boolean includeVariableTable) {
+        if (slotCount < 4 || slotCount > 256) {
+            throw new IllegalArgumentException("slotCount must be between 4 and 256.");
+        }
+
+        final Buffer code = new Buffer();
+        final Random random = new Random(0);
+
+        //
+        // Slot 0 is the parameter; define every other slot from it.
+        //
+        for (int slot = 1; slot < slotCount; slot++) {
+            code.writeByte(ILOAD).writeByte(0);
+            code.writeByte(ISTORE).writeByte(slot);
+        }
+
+        for (int i = 0; i < blockCount; i++) {
+            code.writeByte(ILOAD).writeByte(random.nextInt(slotCount));
+            code.writeByte(ILOAD).writeByte(random.nextInt(slotCount));
+            code.writeByte(IADD);
+            code.writeByte(ISTORE).writeByte(1 + random.nextInt(slotCount - 1));
+        }
+
+        code.writeByte(ILOAD).writeByte(slotCount - 1);
+        code.writeByte(IRETURN);
+
+        if (code.position() > 0xFFFF) {
+            throw new IllegalArgumentException("blockCount is too large.");
+        }
+
+        final Buffer classFile = new Buffer();
+
+        classFile.writeInt(0xCAFEBABE);
+        classFile.writeShort(0);
+        classFile.writeShort(50);
+
+        //
+        // Constant pool: #1 this class, #3 Object, #5 method name, #6 descriptor, #7 "Code",
+        // #8 "LocalVariableTable", #9 "I", and from #10 on, the name of each slot.
+        //
+        classFile.writeShort(10 + slotCount);
+        classFile.writeByte(1).writeUtf8(TYPE_NAME);
+        classFile.writeByte(7).writeShort(1);
+        classFile.writeByte(1).writeUtf8("java/lang/Object");
+        classFile.writeByte(7).writeShort(3);
+        classFile.writeByte(1).writeUtf8(METHOD_NAME);
+        classFile.writeByte(1).writeUtf8("(I)I");
+        classFile.writeByte(1).writeUtf8("Code");
+        classFile.writeByte(1).writeUtf8("LocalVariableTable");
+        classFile.writeByte(1).writeUtf8("I");
+
+        for (int slot = 0; slot < slotCount; slot++) {
+            classFile.writeByte(1).writeUtf8("v" + slot);
+        }
+
+        final int variableTableLength = includeVariableTable ? 8 + 10 * slotCount : 0;
+
+        classFile.writeShort(0x0021);
+        classFile.writeShort(2);
+        classFile.writeShort(4);
+        classFile.writeShort(0);
+        classFile.writeShort(0);
+
+        classFile.writeShort(1);
+        classFile.writeShort(0x0009);
+        classFile.writeShort(5);
+        classFile.writeShort(6);
+        classFile.writeShort(1);
+        classFile.writeShort(7);
+        classFile.writeInt(12 + code.position() + variableTableLength);
+        classFile.writeShort(2);
+        classFile.writeShort(slotCount);
+        classFile.writeInt(code.position());
+        classFile.putByteArray(code.array(), 0, code.position());
+        classFile.writeShort(0);
+
+        if (includeVariableTable) {
+            classFile.writeShort(1);
+            classFile.writeShort(8);
+            classFile.writeInt(variableTableLength - 6);
+            classFile.writeShort(slotCount);
+
+            for (int slot = 0; slot < slotCount; slot++) {
+                classFile.writeShort(0);
+                classFile.writeShort(code.position());
+                classFile.writeShort(10 + slot);
+                classFile.writeShort(9);
+                classFile.writeShort(slot);
+            }
+        }
+        else {
+            classFile.writeShort(0);
+        }
+
+        classFile.writeShort(0);
+
+        final byte[] result = new byte[classFile.position()];
+        System.arraycopy(classFile.array(), 0, result, 0, result.length);
+        return result;
+    }
+
+    // </editor-fold>
+}
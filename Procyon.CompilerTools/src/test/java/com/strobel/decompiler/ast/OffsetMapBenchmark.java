@@ -0,0 +1,87 @@
+package com.strobel.decompiler.ast;
+
+import com.strobel.assembler.ir.Instruction;
+import com.strobel.assembler.ir.OpCode;
+import com.strobel.collections.IntObjectHashMap;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the per-instruction lookups made during stack analysis when keyed on instruction identity
+ * versus bytecode offset.  Each iteration builds a map over a method-sized run of instructions and
+ * then performs one lookup per instruction, as {@code AstBuilder} does.
+ * <p>
+ * Usage: {@code OffsetMapBenchmark [instructionCount] [iterations]}
+ */
+public final class OffsetMapBenchmark {
+    private static int sink;
+
+    public static void main(final String[] args) {
+        final int instructionCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+        final Instruction[] instructions = createInstructions(instructionCount);
+
+        for (int round = 0; round < 3; round++) {
+            System.out.printf("Round %d (%d instructions, %d iterations):%n", round + 1, instructionCount, iterations);
+            report("LinkedHashMap<Instruction, V>", runMap(false, instructions, iterations), iterations);
+            report("IdentityHashMap<Instruction, V>", runMap(true, instructions, iterations), iterations);
+            report("IntObjectHashMap<V>", runIntMap(instructions, iterations), iterations);
+        }
+    }
+
+    private static Instruction[] createInstructions(final int count) {
+        final Random random = new Random(0);
+        final Instruction[] instructions = new Instruction[count];
+
+        for (int i = 0, offset = 0; i < count; i++) {
+            instructions[i] = new Instruction(offset, OpCode.NOP);
+            offset += 1 + random.nextInt(3);
+        }
+
+        return instructions;
+    }
+
+    private static long runMap(final boolean identity, final Instruction[] instructions, final int iterations) {
+        final long start = System.nanoTime();
+
+        for (int i = 0; i < iterations; i++) {
+            final Map<Instruction, Object> map = identity ? new IdentityHashMap<Instruction, Object>()
+                                                          : new LinkedHashMap<Instruction, Object>();
+
+            for (final Instruction instruction : instructions) {
+                map.put(instruction, instruction);
+            }
+
+            for (final Instruction instruction : instructions) {
+                sink += map.get(instruction) == instruction ? 1 : 0;
+            }
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    private static long runIntMap(final Instruction[] instructions, final int iterations) {
+        final long start = System.nanoTime();
+
+        for (int i = 0; i < iterations; i++) {
+            final IntObjectHashMap<Object> map = new IntObjectHashMap<>(instructions.length);
+
+            for (final Instruction instruction : instructions) {
+                map.put(instruction.getOffset(), instruction);
+            }
+
+            for (final Instruction instruction : instructions) {
+                sink += map.get(instruction.getOffset()) == instruction ? 1 : 0;
+            }
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    private static void report(final String name, final long elapsed, final int iterations) {
+        System.out.printf("  %-34s %8.1f ns/method%n", name, (double) elapsed / iterations);
+    }
+}
@@ -0,0 +1,49 @@
+package com.strobel.decompiler.languages.java.ast;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AstModificationTests {
+    private final static int OFFSET = Expression.MYSTERY_OFFSET;
+
+    @Test
+    public void testNewNodesAreModified() {
+        final ReturnStatement statement = new ReturnStatement(OFFSET, new IdentifierExpression(OFFSET, "x"));
+        final BlockStatement block = new BlockStatement(statement);
+
+        assertTrue(block.isModified());
+        assertTrue(statement.isModified());
+
+        block.clearModified();
+
+        assertFalse(block.isModified());
+        assertFalse(statement.isModified());
+        assertFalse(statement.getExpression().isModified());
+    }
+
+    @Test
+    public void testModificationsMarkAncestors() {
+        final ReturnStatement first = new ReturnStatement(OFFSET, new IdentifierExpression(OFFSET, "x"));
+        final ReturnStatement second = new ReturnStatement(OFFSET, new IdentifierExpression(OFFSET, "y"));
+        final BlockStatement block = new BlockStatement(first, second);
+
+        block.clearModified();
+
+        final Expression replacement = new IdentifierExpression(OFFSET, "z");
+
+        second.getExpression().replaceWith(replacement);
+
+        assertTrue(block.isModified());
+        assertTrue(second.isModified());
+        assertTrue(replacement.isModified());
+        assertFalse(first.isModified());
+
+        block.clearModified();
+        first.remove();
+
+        assertTrue(block.isModified());
+        assertFalse(second.isModified());
+        assertFalse(first.isModified());
+    }
+}
@@ -0,0 +1,293 @@
+package com.strobel.decompiler.languages.java.ast.transforms;
+
+import com.strobel.assembler.metadata.ClasspathTypeLoader;
+import com.strobel.assembler.metadata.MetadataSystem;
+import com.strobel.assembler.metadata.TypeDefinition;
+import com.strobel.assembler.metadata.TypeReference;
+import com.strobel.decompiler.DecompilerContext;
+import com.strobel.decompiler.DecompilerSettings;
+import com.strobel.decompiler.DecompilerTest;
+import com.strobel.decompiler.PlainTextOutput;
+import com.strobel.decompiler.languages.java.JavaFormattingOptions;
+import com.strobel.decompiler.languages.java.JavaOutputVisitor;
+import com.strobel.decompiler.languages.java.ast.AstBuilder;
+import com.strobel.decompiler.languages.java.ast.AstNode;
+import com.strobel.decompiler.languages.java.ast.CompilationUnit;
+import com.strobel.decompiler.languages.java.ast.EmptyStatement;
+import com.strobel.decompiler.languages.java.ast.InsertParenthesesVisitor;
+import com.strobel.decompiler.languages.java.ast.MethodDeclaration;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TransformationPipelineTests {
+    private static class LocalTransform implements ILocalAstTransform {
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public List<Class<? extends AstNode>> getNodeTypes() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void runOnNode(final AstNode node) {
+        }
+
+        @Override
+        public void run(final AstNode compilationUnit) {
+        }
+    }
+
+    private static class NonLocalTransform implements IAstTransform {
+        @Override
+        public void run(final AstNode compilationUnit) {
+        }
+    }
+
+    private static class RecordingTransform implements IIncrementalAstTransform {
+        private final List<AstNode> _visited;
+
+        RecordingTransform(final List<AstNode> visited) {
+            _visited = visited;
+        }
+
+        @Override
+        public void run(final AstNode compilationUnit) {
+            _visited.add(compilationUnit);
+        }
+    }
+
+    private static class AppendStatementTransform implements IAstTransform {
+        private final String _methodName;
+
+        AppendStatementTransform(final String methodName) {
+            _methodName = methodName;
+        }
+
+        @Override
+        public void run(final AstNode compilationUnit) {
+            findMethod(compilationUnit, _methodName).getBody().getStatements().add(new EmptyStatement());
+        }
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    private static class Regions {
+        void first() {
+        }
+
+        void second() {
+        }
+    }
+
+    private static MethodDeclaration findMethod(final AstNode root, final String name) {
+        for (final AstNode node : root.getDescendants()) {
+            if (node instanceof MethodDeclaration && name.equals(((MethodDeclaration) node).getName())) {
+                return (MethodDeclaration) node;
+            }
+        }
+
+        fail("Method not found: " + name);
+        return null;
+    }
+
+    private static DecompilerContext createContext(final boolean flattenSwitchBlocks) {
+        final DecompilerSettings settings = DecompilerSettings.javaDefaults();
+        final DecompilerContext context = new DecompilerContext();
+
+        settings.setTypeLoader(new ClasspathTypeLoader());
+        settings.setJavaFormattingOptions(JavaFormattingOptions.createDefault());
+        settings.setFlattenSwitchBlocks(flattenSwitchBlocks);
+
+        context.setSettings(settings);
+
+        return context;
+    }
+
+    /**
+     * Returns the internal names of the classes nested directly within the decompiler test classes.
+     */
+    private static List<String> findTestFixtures() throws Exception {
+        final File root = new File(DecompilerTest.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        final String packageName = DecompilerTest.class.getPackage().getName().replace('.', '/');
+        final String[] files = new File(root, packageName).list();
+        final List<String> fixtures = new ArrayList<>();
+
+        assertNotNull(files);
+
+        for (final String file : files) {
+            if (file.matches("[A-Za-z]+Tests\\$[A-Za-z_][A-Za-z0-9_]*\\.class")) {
+                fixtures.add(packageName + "/" + file.substring(0, file.length() - ".class".length()));
+            }
+        }
+
+        Collections.sort(fixtures);
+
+        return fixtures;
+    }
+
+    private static CompilationUnit buildAst(final String internalName, final DecompilerContext context) {
+        final MetadataSystem metadataSystem = new MetadataSystem(context.getSettings().getTypeLoader());
+        final TypeReference reference = metadataSystem.lookupType(internalName);
+        final TypeDefinition type = reference != null ? reference.resolve() : null;
+
+        assertNotNull(internalName, type);
+
+        context.setCurrentType(type);
+
+        final AstBuilder builder = new AstBuilder(context);
+
+        builder.addType(type);
+
+        return builder.getCompilationUnit();
+    }
+
+    private static String decompile(
+        final String internalName,
+        final boolean flattenSwitchBlocks,
+        final boolean fuseLocalTransforms,
+        final boolean runIncrementally) {
+
+        final DecompilerContext context = createContext(flattenSwitchBlocks);
+        final CompilationUnit compilationUnit = buildAst(internalName, context);
+
+        TransformationPipeline.runTransformationsUntil(
+            compilationUnit,
+            null,
+            context,
+            fuseLocalTransforms,
+            runIncrementally
+        );
+
+        compilationUnit.acceptVisitor(new InsertParenthesesVisitor(), null);
+
+        final PlainTextOutput output = new PlainTextOutput();
+
+        compilationUnit.acceptVisitor(new JavaOutputVisitor(output, context.getSettings()), null);
+
+        return output.toString();
+    }
+
+    @Test
+    public void testScheduleFusesOnlyConsecutiveLocalTransforms() {
+        final DecompilerContext context = new DecompilerContext();
+
+        final IAstTransform l1 = new LocalTransform();
+        final IAstTransform l2 = new LocalTransform();
+        final IAstTransform l3 = new LocalTransform();
+        final IAstTransform l4 = new LocalTransform();
+        final IAstTransform l5 = new LocalTransform();
+        final IAstTransform n1 = new NonLocalTransform();
+        final IAstTransform n2 = new NonLocalTransform();
+        final IAstTransform n3 = new NonLocalTransform();
+
+        final List<IAstTransform> scheduled = TransformationPipeline.schedule(
+            Arrays.asList(n1, l1, l2, n2, l3, n3, l4, l5),
+            context
+        );
+
+        assertEquals(6, scheduled.size());
+        assertSame(n1, scheduled.get(0));
+        assertEquals(Arrays.asList(l1, l2), ((FusedAstTransform) scheduled.get(1)).getTransforms());
+        assertSame(n2, scheduled.get(2));
+
+        //
+        // A lone local transform runs as is.
+        //
+        assertSame(l3, scheduled.get(3));
+        assertSame(n3, scheduled.get(4));
+
+        //
+        // A trailing run is flushed at the end of the pipeline.
+        //
+        assertEquals(Arrays.asList(l4, l5), ((FusedAstTransform) scheduled.get(5)).getTransforms());
+    }
+
+    @Test
+    public void testScheduleKeepsPipelineWithoutLocalTransforms() {
+        final List<IAstTransform> transforms = Arrays.<IAstTransform>asList(new NonLocalTransform(), new NonLocalTransform());
+
+        assertEquals(transforms, TransformationPipeline.schedule(transforms, new DecompilerContext()));
+    }
+
+    @Test
+    public void testFusedPipelineMatchesUnfusedPipeline() throws Throwable {
+        final List<String> fixtures = findTestFixtures();
+
+        assertFalse(fixtures.isEmpty());
+
+        for (final boolean flattenSwitchBlocks : new boolean[] { false, true }) {
+            for (final String fixture : fixtures) {
+                assertEquals(
+                    fixture,
+                    decompile(fixture, flattenSwitchBlocks, false, true),
+                    decompile(fixture, flattenSwitchBlocks, true, true)
+                );
+            }
+        }
+    }
+
+    @Test
+    public void testIncrementalPipelineMatchesFullPipeline() throws Throwable {
+        for (final String fixture : findTestFixtures()) {
+            assertEquals(
+                fixture,
+                decompile(fixture, false, true, false),
+                decompile(fixture, false, true, true)
+            );
+        }
+    }
+
+    @Test
+    public void testIncrementalTransformSkipsUnmodifiedMembers() throws Throwable {
+        final DecompilerContext context = createContext(false);
+        final CompilationUnit compilationUnit = buildAst(Regions.class.getName().replace('.', '/'), context);
+        final List<AstNode> visited = new ArrayList<>();
+
+        TransformationPipeline.runTransforms(
+            compilationUnit,
+            Arrays.asList(
+                new RecordingTransform(visited),
+                new AppendStatementTransform("second"),
+                new RecordingTransform(visited),
+                new RecordingTransform(visited)
+            ),
+            context,
+            true
+        );
+
+        //
+        // The first run sees the whole tree, the second only the modified method, and the third
+        // nothing at all, as there were no modifications after the second.
+        //
+        assertEquals(Arrays.<AstNode>asList(compilationUnit, findMethod(compilationUnit, "second")), visited);
+    }
+
+    @Test
+    public void testNonIncrementalRunsVisitWholeTree() throws Throwable {
+        final DecompilerContext context = createContext(false);
+        final CompilationUnit compilationUnit = buildAst(Regions.class.getName().replace('.', '/'), context);
+        final List<AstNode> visited = new ArrayList<>();
+
+        TransformationPipeline.runTransforms(
+            compilationUnit,
+            Arrays.asList(
+                new RecordingTransform(visited),
+                new AppendStatementTransform("second"),
+                new RecordingTransform(visited)
+            ),
+            context,
+            false
+        );
+
+        assertEquals(Arrays.<AstNode>asList(compilationUnit, compilationUnit), visited);
+    }
+}
@@ -0,0 +1,97 @@
+package com.strobel.decompiler.metrics;
+
+import com.strobel.assembler.metadata.MetadataSystem;
+import com.strobel.assembler.metadata.MethodDefinition;
+import com.strobel.assembler.metadata.TypeDefinition;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MetricsCollectorTests {
+    @Test
+    public void testHistogramPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0L, histogram.percentile(0.5));
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(1000L, histogram.count());
+        assertEquals(1000L, histogram.max());
+
+        final long p50 = histogram.percentile(0.50);
+        final long p99 = histogram.percentile(0.99);
+
+        assertTrue("p50 = " + p50, Math.abs(p50 - 500) <= 500 / 16);
+        assertTrue("p99 = " + p99, Math.abs(p99 - 990) <= 990 / 16);
+        assertEquals(1000L, histogram.percentile(1.0));
+
+        histogram.reset();
+
+        assertEquals(0L, histogram.count());
+        assertEquals(0L, histogram.max());
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        for (long value = 0L; value < 100000L; value++) {
+            final long midpoint = LatencyHistogram.midpointOf(LatencyHistogram.indexOf(value));
+
+            assertTrue(value + " -> " + midpoint, Math.abs(midpoint - value) <= Math.max(value / 16, 1L));
+        }
+
+        assertEquals(LatencyHistogram.indexOf(Long.MAX_VALUE), LatencyHistogram.indexOf(Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    public void testMetadataSystemEvents() {
+        final MetricsCollector collector = new MetricsCollector();
+
+        Metrics.setListener(collector);
+
+        try {
+            final MetadataSystem metadataSystem = new MetadataSystem();
+            final TypeDefinition type = metadataSystem.lookupType("java/lang/String").resolve();
+
+            assertNotNull(type);
+            assertSame(type, metadataSystem.lookupType("java/lang/String").resolve());
+
+            assertTrue(collector.getTypeCacheMisses() >= 1L);
+            assertTrue(collector.getTypeCacheHits() >= 1L);
+            assertTrue(collector.getTypeLoads() >= 1L);
+            assertTrue(collector.getBytesRead() > 0L);
+            assertTrue(collector.getTypeCacheSize() >= 1);
+
+            final long bodyLoads = collector.getMethodBodyLoads();
+
+            for (final MethodDefinition method : type.getDeclaredMethods()) {
+                if (method.getBody() != null) {
+                    break;
+                }
+            }
+
+            assertEquals(bodyLoads + 1L, collector.getMethodBodyLoads());
+            assertEquals(0L, collector.getMethodBodyReloads());
+
+            assertNull(metadataSystem.lookupType("com/strobel/DoesNotExist"));
+            assertTrue(collector.getFailedTypeLoads() >= 1L);
+
+            collector.typeDecompiled("A", 2000000L);
+            collector.typeDecompilationFailed("B");
+
+            assertEquals(1L, collector.getTypesDecompiled());
+            assertEquals(1L, collector.getDecompilationFailures());
+            assertEquals(2.0, collector.getDecompilationLatencyMaxMillis(), 0.001);
+
+            collector.reset();
+
+            assertEquals(0L, collector.getTypeCacheHits());
+            assertEquals(0L, collector.getTypesDecompiled());
+        }
+        finally {
+            Metrics.setListener(null);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+public class BranchLocalSlots {
+    public void scopedLocals(final boolean b) {
+        {
+            final int x = Integer.parseInt("1");
+            System.out.println(x);
+        }
+        if (b) {
+            final int y = Integer.parseInt("2");
+            System.out.println(y);
+        }
+        System.out.println("end");
+    }
+
+    public int loopWithBranchStore(final int[] a) {
+        int sum = 0;
+        for (int j = 0; j < a.length; j++) {
+            if (a[j] < 0) {
+                sum = -1;
+                continue;
+            }
+            sum += a[j];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * IntObjectHashMap.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.collections;
+
+import com.strobel.core.VerifyArgument;
+
+import java.util.Arrays;
+
+/**
+ * A map from primitive {@code int} keys to non-null values, backed by a pair of parallel arrays
+ * with open addressing and linear probing.  No entry objects are allocated and keys are never
+ * boxed.  This class is not thread safe.
+ */
+@SuppressWarnings("unchecked")
+public final class IntObjectHashMap<V> {
+    private final static int DEFAULT_INITIAL_CAPACITY = 16;
+    private final static int MAXIMUM_CAPACITY = 1 << 30;
+
+    private int[] _keys;
+    private Object[] _values;
+    private int _size;
+    private int _threshold;
+
+    public IntObjectHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public IntObjectHashMap(final int expectedSize) {
+        VerifyArgument.isNonNegative(expectedSize, "expectedSize");
+        allocate(capacityFor(expectedSize));
+    }
+
+    public final int size() {
+        return _size;
+    }
+
+    public final boolean isEmpty() {
+        return _size == 0;
+    }
+
+    public final boolean containsKey(final int key) {
+        return _values[indexOf(key)] != null;
+    }
+
+    public final V get(final int key) {
+        return (V) _values[indexOf(key)];
+    }
+
+    /**
+     * Associates {@code value} with {@code key}, returning the value previously associated with
+     * {@code key}, or {@code null} if there was none.
+     */
+    public final V put(final int key, final V value) {
+        VerifyArgument.notNull(value, "value");
+
+        final int index = indexOf(key);
+        final Object oldValue = _values[index];
+
+        _values[index] = value;
+
+        if (oldValue == null) {
+            _keys[index] = key;
+
+            if (++_size > _threshold) {
+                rehash(_keys.length << 1);
+            }
+        }
+
+        return (V) oldValue;
+    }
+
+    public final V remove(final int key) {
+        final int[] keys = _keys;
+        final Object[] values = _values;
+        final int mask = keys.length - 1;
+
+        int index = indexOf(key);
+
+        final Object oldValue = values[index];
+
+        if (oldValue == null) {
+            return null;
+        }
+
+        //
+        // Shift back any entries in the same probe run so that lookups never stop early on the
+        // hole we leave behind.
+        //
+        for (int next = (index + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            final int home = hash(keys[next]) & mask;
+
+            if (((next - home) & mask) >= ((next - index) & mask)) {
+                keys[index] = keys[next];
+                values[index] = values[next];
+                index = next;
+            }
+        }
+
+        values[index] = null;
+        --_size;
+
+        return (V) oldValue;
+    }
+
+    public final void clear() {
+        if (_size > 0) {
+            Arrays.fill(_values, null);
+            _size = 0;
+        }
+    }
+
+    private int indexOf(final int key) {
+        final int[] keys = _keys;
+        final Object[] values = _values;
+        final int mask = keys.length - 1;
+
+        int index = hash(key) & mask;
+
+        while (values[index] != null && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+
+        return index;
+    }
+
+    private void allocate(final int capacity) {
+        _keys = new int[capacity];
+        _values = new Object[capacity];
+        _threshold = capacity == MAXIMUM_CAPACITY ? capacity - 1 : (capacity >> 1) + (capacity >> 2);
+    }
+
+    private void rehash(final int newCapacity) {
+        if (newCapacity > MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("Map capacity exceeded.");
+        }
+
+        final int[] oldKeys = _keys;
+        final Object[] oldValues = _values;
+
+        allocate(newCapacity);
+
+        final int[] keys = _keys;
+        final Object[] values = _values;
+        final int mask = keys.length - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            final Object value = oldValues[i];
+
+            if (value == null) {
+                continue;
+            }
+
+            int index = hash(oldKeys[i]) & mask;
+
+            while (values[index] != null) {
+                index = (index + 1) & mask;
+            }
+
+            keys[index] = oldKeys[i];
+            values[index] = value;
+        }
+    }
+
+    static int capacityFor(final int expectedSize) {
+        final long minimumCapacity = (long) expectedSize * 4 / 3 + 1;
+
+        int capacity = 2;
+
+        while (capacity < minimumCapacity && capacity < MAXIMUM_CAPACITY) {
+            capacity <<= 1;
+        }
+
+        return capacity;
+    }
+
+    static int hash(final int key) {
+        //
+        // Bytecode offsets and local slots are small, dense, and often strided; spread them with a
+        // Fibonacci multiply so consecutive probe runs stay short.
+        //
+        final int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -22,7 +22,14 @@ import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class Key<T> {
+    /**
+     * The maximum number of dense keys.  Once exhausted, {@link #createDense(String)} falls back
+     * to creating ordinary keys.
+     */
+    public final static int MAX_DENSE_KEYS = 32;
+
     private final static AtomicInteger _keyCounter = new AtomicInteger();
+    private final static AtomicInteger _denseKeyCounter = new AtomicInteger();
     private final static ConcurrentWeakIntObjectHashMap<Key<?>> _allKeys = new ConcurrentWeakIntObjectHashMap<>();
 
     @SuppressWarnings("unchecked")
@@ -34,13 +41,49 @@ public class Key<T> {
         return new Key<>(name);
     }
 
+    /**
+     * Creates a key whose values {@link UserDataStoreBase} keeps in an index-addressed slot rather
+     * than in its {@link FrugalKeyMap}.  Intended for a small number of well-known keys which are
+     * read and written very frequently.
+     */
+    public static <T> Key<T> createDense(@NotNull final String name) {
+        return new Key<>(name, true);
+    }
+
     private final int _index = _keyCounter.getAndIncrement();
+    private final int _denseIndex;
 
     @NotNull
     private final String _name;
 
     public Key(@NotNull final String name) {
+        this(name, false);
+    }
+
+    protected Key(@NotNull final String name, final boolean dense) {
         _name = VerifyArgument.notNull(name, "name");
+        _denseIndex = dense ? allocateDenseIndex() : -1;
+    }
+
+    private static int allocateDenseIndex() {
+        while (true) {
+            final int index = _denseKeyCounter.get();
+
+            if (index >= MAX_DENSE_KEYS) {
+                return -1;
+            }
+
+            if (_denseKeyCounter.compareAndSet(index, index + 1)) {
+                return index;
+            }
+        }
+    }
+
+    /**
+     * Returns the slot index of a dense key, or {@code -1} if this is an ordinary key.
+     */
+    public final int getDenseIndex() {
+        return _denseIndex;
     }
 
     @Override
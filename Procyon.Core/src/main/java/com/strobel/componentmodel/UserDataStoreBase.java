@@ -17,6 +17,7 @@ import com.strobel.annotations.NotNull;
 import com.strobel.annotations.Nullable;
 import com.strobel.core.ExceptionUtilities;
 
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 public class UserDataStoreBase implements UserDataStore, Cloneable {
@@ -33,13 +34,39 @@ public class UserDataStoreBase implements UserDataStore, Cloneable {
     @SuppressWarnings("FieldMayBeFinal")
     private volatile FrugalKeyMap _map = FrugalKeyMap.EMPTY;
 
+    //
+    // Values of dense keys live in slots addressed by Key.getDenseIndex().  Slots are written under
+    // the monitor, and the array is re-published through the volatile field after every write.
+    //
+    @SuppressWarnings("VolatileArrayField")
+    private volatile Object[] _denseValues;
+
     @Override
+    @SuppressWarnings("unchecked")
     public <T> T getUserData(@NotNull final Key<T> key) {
+        final int denseIndex = key.getDenseIndex();
+
+        if (denseIndex >= 0) {
+            final Object[] values = _denseValues;
+
+            return values != null && denseIndex < values.length ? (T) values[denseIndex]
+                                                                : null;
+        }
+
         return _map.get(key);
     }
 
     @Override
     public <T> void putUserData(@NotNull final Key<T> key, @Nullable final T value) {
+        final int denseIndex = key.getDenseIndex();
+
+        if (denseIndex >= 0) {
+            synchronized (this) {
+                putDenseValue(denseIndex, value);
+            }
+            return;
+        }
+
         while (true) {
             final FrugalKeyMap oldMap = _map;
             final FrugalKeyMap newMap;
@@ -59,6 +86,21 @@ public class UserDataStoreBase implements UserDataStore, Cloneable {
 
     @Override
     public <T> T putUserDataIfAbsent(@NotNull final Key<T> key, @Nullable final T value) {
+        final int denseIndex = key.getDenseIndex();
+
+        if (denseIndex >= 0) {
+            synchronized (this) {
+                final T oldValue = getUserData(key);
+
+                if (oldValue != null) {
+                    return oldValue;
+                }
+
+                putDenseValue(denseIndex, value);
+                return value;
+            }
+        }
+
         while (true) {
             final FrugalKeyMap oldMap = _map;
             final FrugalKeyMap newMap;
@@ -84,6 +126,19 @@ public class UserDataStoreBase implements UserDataStore, Cloneable {
 
     @Override
     public <T> boolean replace(@NotNull final Key<T> key, @Nullable final T oldValue, @Nullable final T newValue) {
+        final int denseIndex = key.getDenseIndex();
+
+        if (denseIndex >= 0) {
+            synchronized (this) {
+                if (getUserData(key) != oldValue) {
+                    return false;
+                }
+
+                putDenseValue(denseIndex, newValue);
+                return true;
+            }
+        }
+
         while (true) {
             final FrugalKeyMap oldMap = _map;
             final T currentValue = _map.get(key);
@@ -107,10 +162,33 @@ public class UserDataStoreBase implements UserDataStore, Cloneable {
         }
     }
 
+    private void putDenseValue(final int index, final Object value) {
+        Object[] values = _denseValues;
+
+        if (values == null || index >= values.length) {
+            if (value == null) {
+                return;
+            }
+
+            values = values == null ? new Object[index + 1]
+                                    : Arrays.copyOf(values, index + 1);
+        }
+
+        values[index] = value;
+        _denseValues = values;
+    }
+
     @Override
     public final UserDataStoreBase clone() {
         try {
-            return (UserDataStoreBase) super.clone();
+            final UserDataStoreBase clone = (UserDataStoreBase) super.clone();
+            final Object[] values = _denseValues;
+
+            if (values != null) {
+                clone._denseValues = values.clone();
+            }
+
+            return clone;
         }
         catch (CloneNotSupportedException e) {
             throw ExceptionUtilities.asRuntimeException(e);
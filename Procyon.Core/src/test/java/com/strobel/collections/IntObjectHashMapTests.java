@@ -0,0 +1,186 @@
+package com.strobel.collections;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IntObjectHashMapTests {
+    private final static int CAPACITY = IntObjectHashMap.capacityFor(16);
+
+    private static List<Integer> keysWithHome(final int home, final int count) {
+        final List<Integer> keys = new ArrayList<>();
+
+        for (int key = 0; keys.size() < count; key++) {
+            if ((IntObjectHashMap.hash(key) & (CAPACITY - 1)) == home) {
+                keys.add(key);
+            }
+        }
+
+        return keys;
+    }
+
+    private static void assertSameContents(final Map<Integer, String> expected, final IntObjectHashMap<String> actual, final int keyRange) {
+        assertEquals(expected.size(), actual.size());
+
+        for (int key = -keyRange; key <= keyRange; key++) {
+            assertEquals("key " + key, expected.get(key), actual.get(key));
+            assertEquals("key " + key, expected.containsKey(key), actual.containsKey(key));
+        }
+    }
+
+    @Test
+    public void testRandomOperationsMatchHashMap() {
+        for (final int keyRange : new int[] { 8, 64, 1024, 100000 }) {
+            final Random random = new Random(keyRange);
+            final Map<Integer, String> expected = new HashMap<>();
+            final IntObjectHashMap<String> actual = new IntObjectHashMap<>();
+
+            for (int i = 0; i < 20000; i++) {
+                final int key = random.nextInt(2 * keyRange + 1) - keyRange;
+                final int operation = random.nextInt(10);
+
+                if (operation < 5) {
+                    final String value = "v" + i;
+                    assertEquals(expected.put(key, value), actual.put(key, value));
+                }
+                else if (operation < 9) {
+                    assertEquals(expected.remove(key), actual.remove(key));
+                }
+                else {
+                    assertEquals(expected.get(key), actual.get(key));
+                }
+
+                assertEquals(expected.size(), actual.size());
+
+                if (i % 1000 == 0 && keyRange <= 1024) {
+                    assertSameContents(expected, actual, keyRange);
+                }
+            }
+
+            for (final Map.Entry<Integer, String> entry : expected.entrySet()) {
+                assertEquals(entry.getValue(), actual.get(entry.getKey()));
+            }
+
+            actual.clear();
+
+            assertTrue(actual.isEmpty());
+
+            for (final Integer key : expected.keySet()) {
+                assertNull(actual.get(key));
+            }
+        }
+    }
+
+    @Test
+    public void testRemoveWithinCollisionChain() {
+        //
+        // Five keys with the same home slot form one probe run; removing any of them must leave
+        // the others reachable.
+        //
+        final List<Integer> keys = keysWithHome(3, 5);
+
+        for (int removed = 0; removed < keys.size(); removed++) {
+            final IntObjectHashMap<String> map = new IntObjectHashMap<>();
+
+            for (final int key : keys) {
+                map.put(key, "v" + key);
+            }
+
+            assertEquals("v" + keys.get(removed), map.remove(keys.get(removed)));
+            assertNull(map.remove(keys.get(removed)));
+            assertEquals(keys.size() - 1, map.size());
+
+            for (final int key : keys) {
+                assertEquals(key == keys.get(removed) ? null : "v" + key, map.get(key));
+            }
+        }
+    }
+
+    @Test
+    public void testRemoveWithinInterleavedChains() {
+        //
+        // Keys homed at slots 3 and 4 interleave in one run.  Shifting a slot-4 key back into
+        // slot 3 would hide it, so only keys whose home precedes the hole may move.
+        //
+        final List<Integer> first = keysWithHome(3, 3);
+        final List<Integer> second = keysWithHome(4, 3);
+        final List<Integer> keys = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            keys.add(first.get(i));
+            keys.add(second.get(i));
+        }
+
+        for (final int removed : keys) {
+            final IntObjectHashMap<String> map = new IntObjectHashMap<>();
+
+            for (final int key : keys) {
+                map.put(key, "v" + key);
+            }
+
+            map.remove(removed);
+
+            for (final int key : keys) {
+                assertEquals(key == removed ? null : "v" + key, map.get(key));
+            }
+
+            map.put(removed, "again");
+
+            assertEquals("again", map.get(removed));
+            assertEquals(keys.size(), map.size());
+        }
+    }
+
+    @Test
+    public void testRemoveAcrossWraparound() {
+        //
+        // Keys homed at the last slot wrap around to the start of the table; keys homed at slot 0
+        // then continue the same run.
+        //
+        final List<Integer> last = keysWithHome(CAPACITY - 1, 3);
+        final List<Integer> zero = keysWithHome(0, 2);
+        final List<Integer> keys = new ArrayList<>(last);
+
+        keys.addAll(zero);
+
+        for (final int removed : keys) {
+            final IntObjectHashMap<String> map = new IntObjectHashMap<>();
+
+            for (final int key : keys) {
+                map.put(key, "v" + key);
+            }
+
+            assertEquals("v" + removed, map.remove(removed));
+
+            for (final int key : keys) {
+                assertEquals(key == removed ? null : "v" + key, map.get(key));
+            }
+        }
+    }
+
+    @Test
+    public void testGrowsPastInitialCapacity() {
+        final IntObjectHashMap<String> map = new IntObjectHashMap<>(0);
+
+        for (int key = 0; key < 10000; key += 3) {
+            assertNull(map.put(key, "v" + key));
+        }
+
+        for (int key = 0; key < 10000; key++) {
+            assertEquals(key % 3 == 0 ? "v" + key : null, map.get(key));
+        }
+
+        assertEquals(3334, map.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNullValues() {
+        new IntObjectHashMap<String>().put(1, null);
+    }
+}
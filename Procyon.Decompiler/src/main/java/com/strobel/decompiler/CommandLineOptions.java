@@ -160,6 +160,33 @@ public class CommandLineOptions {
         description = "Enable eager loading of method bodies (may speed up decompilation of larger archives).")
     private boolean _isEagerMethodLoadingEnabled;
 
+    @Parameter(
+        names = { "-pf", "--prefetch-types" },
+        description = "Load the classes referenced by a jar's classes on a background thread ahead of decompilation.")
+    private boolean _isTypePrefetchingEnabled;
+
+    @Parameter(
+        names = { "--server" },
+        description = "Run as a resident decompiler serving requests on the specified loopback port (0 picks a free port).",
+        arity = 1)
+    private Integer _serverPort;
+
+    @Parameter(
+        names = { "--snapshot" },
+        description = "Load platform and library types from a type snapshot before searching the class path.")
+    private String _snapshotFile;
+
+    @Parameter(
+        names = { "--write-snapshot" },
+        description = "Write a type snapshot of the platform packages given as inputs (default: java/lang/ and " +
+                      "java/util/), plus the classes in the jar given by -jar, to the specified file and exit.")
+    private String _snapshotFileToWrite;
+
+    @Parameter(
+        names = { "--metrics" },
+        description = "Collect decompiler metrics, publish them over JMX, and print a summary when done.")
+    private boolean _isMetricsEnabled;
+
     @Parameter(
         names = { "-sm", "--simplify-member-references" },
         description = "Simplify type-qualified member references in Java output [EXPERIMENTAL].")
@@ -375,6 +402,46 @@ public class CommandLineOptions {
         _isEagerMethodLoadingEnabled = isEagerMethodLoadingEnabled;
     }
 
+    public final boolean isTypePrefetchingEnabled() {
+        return _isTypePrefetchingEnabled;
+    }
+
+    public final void setTypePrefetchingEnabled(final boolean isTypePrefetchingEnabled) {
+        _isTypePrefetchingEnabled = isTypePrefetchingEnabled;
+    }
+
+    public final Integer getServerPort() {
+        return _serverPort;
+    }
+
+    public final void setServerPort(final Integer serverPort) {
+        _serverPort = serverPort;
+    }
+
+    public final String getSnapshotFile() {
+        return _snapshotFile;
+    }
+
+    public final void setSnapshotFile(final String snapshotFile) {
+        _snapshotFile = snapshotFile;
+    }
+
+    public final String getSnapshotFileToWrite() {
+        return _snapshotFileToWrite;
+    }
+
+    public final void setSnapshotFileToWrite(final String snapshotFileToWrite) {
+        _snapshotFileToWrite = snapshotFileToWrite;
+    }
+
+    public final boolean isMetricsEnabled() {
+        return _isMetricsEnabled;
+    }
+
+    public final void setMetricsEnabled(final boolean isMetricsEnabled) {
+        _isMetricsEnabled = isMetricsEnabled;
+    }
+
     public final boolean getSimplifyMemberReferences() {
         return _simplifyMemberReferences;
     }
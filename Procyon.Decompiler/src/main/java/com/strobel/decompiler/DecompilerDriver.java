@@ -14,6 +14,9 @@ import com.strobel.decompiler.languages.Languages;
 import com.strobel.decompiler.languages.LineNumberPosition;
 import com.strobel.decompiler.languages.TypeDecompilationResults;
 import com.strobel.decompiler.languages.java.JavaFormattingOptions;
+import com.strobel.decompiler.metrics.IMetricsListener;
+import com.strobel.decompiler.metrics.Metrics;
+import com.strobel.decompiler.metrics.MetricsCollector;
 import com.strobel.io.PathHelper;
 
 import java.io.File;
@@ -25,12 +28,12 @@ import java.io.Writer;
 import java.nio.charset.Charset;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.Enumeration;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.logging.ConsoleHandler;
@@ -41,6 +44,15 @@ import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
 public class DecompilerDriver {
+    //
+    // How many classes ahead of the current one to prefetch, and how many class files the prefetcher
+    // may hold at once.
+    //
+    private final static int PREFETCH_DISTANCE = 8;
+    private final static int PREFETCH_CAPACITY = 512;
+
+    private final static String[] DEFAULT_SNAPSHOT_PACKAGES = { "java/lang/", "java/util/" };
+
     public static void main(final String[] args) {
         final CommandLineOptions options = new CommandLineOptions();
         final JCommander jCommander;
@@ -71,6 +83,39 @@ public class DecompilerDriver {
             return;
         }
 
+        final MetricsCollector metrics;
+
+        if (options.isMetricsEnabled()) {
+            metrics = new MetricsCollector();
+            Metrics.setListener(metrics);
+            metrics.registerMBean();
+        }
+        else {
+            metrics = null;
+        }
+
+        if (options.getServerPort() != null) {
+            try {
+                new DecompilerServer(options.getServerPort()).run();
+            }
+            catch (final Throwable t) {
+                System.err.println(ExceptionUtilities.getMessage(t));
+                System.exit(-1);
+            }
+            return;
+        }
+
+        if (options.getSnapshotFileToWrite() != null) {
+            try {
+                writeSnapshot(options.getSnapshotFileToWrite(), typeNames, jarFile);
+            }
+            catch (final Throwable t) {
+                System.err.println(ExceptionUtilities.getMessage(t));
+                System.exit(-1);
+            }
+            return;
+        }
+
         if (options.getPrintUsage() ||
             typeNames.isEmpty() && !decompileJar) {
 
@@ -78,6 +123,47 @@ public class DecompilerDriver {
             return;
         }
 
+        final DecompilerSettings settings = createSettings(options);
+        final DecompilationOptions decompilationOptions = new DecompilationOptions();
+
+        decompilationOptions.setSettings(settings);
+        decompilationOptions.setFullDecompilation(true);
+
+        if (decompileJar) {
+            try {
+                decompileJar(jarFile, options, decompilationOptions);
+            }
+            catch (final Throwable t) {
+                System.err.println(ExceptionUtilities.getMessage(t));
+                System.exit(-1);
+            }
+        }
+        else {
+            final MetadataSystem metadataSystem = new NoRetryMetadataSystem(settings.getTypeLoader());
+
+            metadataSystem.setEagerMethodLoadingEnabled(options.isEagerMethodLoadingEnabled());
+
+            for (final String typeName : typeNames) {
+                try {
+                    if (typeName.endsWith(".jar")) {
+                        decompileJar(typeName, options, decompilationOptions);
+                    }
+                    else {
+                        decompileType(metadataSystem, typeName, options, decompilationOptions, true);
+                    }
+                }
+                catch (final Throwable t) {
+                    t.printStackTrace();
+                }
+            }
+        }
+
+        if (metrics != null) {
+            System.err.println(metrics);
+        }
+    }
+
+    static DecompilerSettings createSettings(final CommandLineOptions options) {
         final DecompilerSettings settings = new DecompilerSettings();
 
         settings.setFlattenSwitchBlocks(options.getFlattenSwitchBlocks());
@@ -95,7 +181,7 @@ public class DecompilerDriver {
         settings.setSimplifyMemberReferences(options.getSimplifyMemberReferences());
         settings.setForceFullyQualifiedReferences(options.getForceFullyQualifiedReferences());
         settings.setDisableForEachTransforms(options.getDisableForEachTransforms());
-        settings.setTypeLoader(new InputTypeLoader());
+        settings.setTypeLoader(createTypeLoader(options));
 
         if (!options.getSuppressBanner()) {
             settings.setOutputFileHeaderText("\nDecompiled by Procyon v" + Procyon.version() + "\n");
@@ -112,43 +198,67 @@ public class DecompilerDriver {
             );
         }
 
-        final DecompilationOptions decompilationOptions = new DecompilationOptions();
-
-        decompilationOptions.setSettings(settings);
-        decompilationOptions.setFullDecompilation(true);
-
         if (settings.getJavaFormattingOptions() == null) {
             settings.setJavaFormattingOptions(JavaFormattingOptions.createDefault());
         }
 
-        if (decompileJar) {
-            try {
-                decompileJar(jarFile, options, decompilationOptions);
-            }
-            catch (final Throwable t) {
-                System.err.println(ExceptionUtilities.getMessage(t));
-                System.exit(-1);
+        return settings;
+    }
+
+    private static ITypeLoader createTypeLoader(final CommandLineOptions options) {
+        final ITypeLoader typeLoader = new InputTypeLoader();
+        final String snapshotFile = options.getSnapshotFile();
+
+        if (StringUtilities.isNullOrWhitespace(snapshotFile)) {
+            return typeLoader;
+        }
+
+        try {
+            final SnapshotTypeLoader snapshotLoader = new SnapshotTypeLoader(new File(snapshotFile));
+            final List<String> staleSources = snapshotLoader.findStaleSources();
+
+            if (!staleSources.isEmpty()) {
+                System.err.printf(
+                    "!!! WARNING: Ignoring stale type snapshot %s; its sources have changed: %s\n",
+                    snapshotFile,
+                    StringUtilities.join(", ", staleSources)
+                );
+
+                return typeLoader;
             }
+
+            return new CompositeTypeLoader(snapshotLoader, typeLoader);
         }
-        else {
-            final MetadataSystem metadataSystem = new NoRetryMetadataSystem(settings.getTypeLoader());
+        catch (final IOException e) {
+            System.err.printf("!!! WARNING: Failed to load type snapshot: %s\n", ExceptionUtilities.getMessage(e));
+            return typeLoader;
+        }
+    }
 
-            metadataSystem.setEagerMethodLoadingEnabled(options.isEagerMethodLoadingEnabled());
+    private static void writeSnapshot(
+        final String snapshotFile,
+        final List<String> packages,
+        final String jarFile) throws IOException {
 
-            for (final String typeName : typeNames) {
-                try {
-                    if (typeName.endsWith(".jar")) {
-                        decompileJar(typeName, options, decompilationOptions);
-                    }
-                    else {
-                        decompileType(metadataSystem, typeName, options, decompilationOptions, true);
-                    }
-                }
-                catch (final Throwable t) {
-                    t.printStackTrace();
-                }
+        final SnapshotWriter writer = new SnapshotWriter();
+        final List<String> prefixes = new ArrayList<>();
+
+        for (final String p : packages.isEmpty() ? Arrays.asList(DEFAULT_SNAPSHOT_PACKAGES) : packages) {
+            final String prefix = p.replace('.', '/');
+            prefixes.add(prefix.endsWith("/") ? prefix : prefix + "/");
+        }
+
+        writer.addPlatformTypes(prefixes.toArray(new String[prefixes.size()]));
+
+        if (!StringUtilities.isNullOrWhitespace(jarFile)) {
+            try (final JarFile jar = new JarFile(jarFile)) {
+                writer.addJar(jar);
             }
         }
+
+        writer.write(new File(snapshotFile));
+
+        System.out.printf("Wrote %d types to %s.\n", writer.getTypeCount(), snapshotFile);
     }
 
     private static BytecodeOutputOptions createBytecodeFormattingOptions(final CommandLineOptions options) {
@@ -227,25 +337,61 @@ public class DecompilerDriver {
         final boolean oldShowSyntheticMembers = settings.getShowSyntheticMembers();
         final ITypeLoader oldTypeLoader = settings.getTypeLoader();
 
+        final ITypeLoader jarTypeLoader = new CompositeTypeLoader(new JarTypeLoader(jar), oldTypeLoader);
+
+        final JarFile prefetchJar;
+        final TypePrefetcher prefetcher;
+
+        if (options.isTypePrefetchingEnabled()) {
+            //
+            // The prefetcher's background thread reads through its own jar file and input loader, so it
+            // never holds the lock the decompiler's lookups go through.  It skips the type snapshot, if
+            // any; a snapshot is only used while it matches the class path anyway.
+            //
+            prefetchJar = new JarFile(jarFile);
+            prefetcher = new TypePrefetcher(
+                jarTypeLoader,
+                new CompositeTypeLoader(new JarTypeLoader(prefetchJar), new InputTypeLoader()),
+                PREFETCH_CAPACITY
+            );
+        }
+        else {
+            prefetchJar = null;
+            prefetcher = null;
+        }
+
         settings.setShowSyntheticMembers(false);
-        settings.setTypeLoader(new CompositeTypeLoader(new JarTypeLoader(jar), oldTypeLoader));
+        settings.setTypeLoader(prefetcher != null ? prefetcher : jarTypeLoader);
 
         try {
             MetadataSystem metadataSystem = new NoRetryMetadataSystem(settings.getTypeLoader());
 
             metadataSystem.setEagerMethodLoadingEnabled(options.isEagerMethodLoadingEnabled());
 
-            int classesDecompiled = 0;
+            final List<String> internalNames = new ArrayList<>();
 
             while (entries.hasMoreElements()) {
-                final JarEntry entry = entries.nextElement();
-                final String name = entry.getName();
+                final String name = entries.nextElement().getName();
+
+                if (name.endsWith(".class")) {
+                    internalNames.add(StringUtilities.removeRight(name, ".class"));
+                }
+            }
 
-                if (!name.endsWith(".class")) {
-                    continue;
+            if (prefetcher != null) {
+                for (int i = 0; i < PREFETCH_DISTANCE && i < internalNames.size(); i++) {
+                    prefetcher.enqueue(internalNames.get(i));
                 }
+            }
+
+            int classesDecompiled = 0;
 
-                final String internalName = StringUtilities.removeRight(name, ".class");
+            for (int i = 0; i < internalNames.size(); i++) {
+                final String internalName = internalNames.get(i);
+
+                if (prefetcher != null && i + PREFETCH_DISTANCE < internalNames.size()) {
+                    prefetcher.enqueue(internalNames.get(i + PREFETCH_DISTANCE));
+                }
 
                 try {
                     decompileType(metadataSystem, internalName, options, decompilationOptions, false);
@@ -260,6 +406,11 @@ public class DecompilerDriver {
             }
         }
         finally {
+            if (prefetcher != null) {
+                prefetcher.close();
+                prefetchJar.close();
+            }
+
             settings.setShowSyntheticMembers(oldShowSyntheticMembers);
             settings.setTypeLoader(oldTypeLoader);
         }
@@ -272,6 +423,36 @@ public class DecompilerDriver {
         final DecompilationOptions options,
         final boolean includeNested) throws IOException {
 
+        final IMetricsListener listener = Metrics.getListener();
+
+        if (listener == null) {
+            tryDecompileType(metadataSystem, typeName, commandLineOptions, options, includeNested);
+            return;
+        }
+
+        final long startTime = System.nanoTime();
+        final boolean decompiled;
+
+        try {
+            decompiled = tryDecompileType(metadataSystem, typeName, commandLineOptions, options, includeNested);
+        }
+        catch (final Throwable t) {
+            listener.typeDecompilationFailed(typeName);
+            throw t;
+        }
+
+        if (decompiled) {
+            listener.typeDecompiled(typeName, System.nanoTime() - startTime);
+        }
+    }
+
+    private static boolean tryDecompileType(
+        final MetadataSystem metadataSystem,
+        final String typeName,
+        final CommandLineOptions commandLineOptions,
+        final DecompilationOptions options,
+        final boolean includeNested) throws IOException {
+
         final TypeReference type;
         final DecompilerSettings settings = options.getSettings();
 
@@ -293,13 +474,20 @@ public class DecompilerDriver {
 
         if (type == null || (resolvedType = type.resolve()) == null) {
             System.err.printf("!!! ERROR: Failed to load class %s.\n", typeName);
-            return;
+
+            final IMetricsListener listener = Metrics.getListener();
+
+            if (listener != null) {
+                listener.typeDecompilationFailed(typeName);
+            }
+
+            return false;
         }
 
         DeobfuscationUtilities.processType(resolvedType);
 
         if (!includeNested && (resolvedType.isNested() || resolvedType.isAnonymous() || resolvedType.isSynthetic())) {
-            return;
+            return false;
         }
 
         final Writer writer = createWriter(resolvedType, settings);
@@ -358,6 +546,8 @@ public class DecompilerDriver {
 
             lineFormatter.reformatFile();
         }
+
+        return true;
     }
 
     private static Writer createWriter(final TypeDefinition type, final DecompilerSettings settings) throws IOException {
@@ -452,33 +642,3 @@ final class BriefLogFormatter extends Formatter {
                loggerName + ": " + record.getMessage() + ' ' + lineSep;
     }
 }
-
-final class NoRetryMetadataSystem extends MetadataSystem {
-    private final Set<String> _failedTypes = new HashSet<>();
-
-    NoRetryMetadataSystem() {
-    }
-
-//    NoRetryMetadataSystem(final String classPath) {
-//        super(classPath);
-//    }
-
-    NoRetryMetadataSystem(final ITypeLoader typeLoader) {
-        super(typeLoader);
-    }
-
-    @Override
-    protected TypeDefinition resolveType(final String descriptor, final boolean mightBePrimitive) {
-        if (_failedTypes.contains(descriptor)) {
-            return null;
-        }
-
-        final TypeDefinition result = super.resolveType(descriptor, mightBePrimitive);
-
-        if (result == null) {
-            _failedTypes.add(descriptor);
-        }
-
-        return result;
-    }
-}
\ No newline at end of file
@@ -0,0 +1,444 @@
+/*
+ * DecompilerServer.java
+ *
+ * Copyright (c) 2013 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.decompiler;
+
+import com.beust.jcommander.JCommander;
+import com.strobel.assembler.metadata.*;
+import com.strobel.core.ExceptionUtilities;
+import com.strobel.core.StringUtilities;
+import com.strobel.core.VerifyArgument;
+import com.strobel.decompiler.languages.BytecodeLanguage;
+import com.strobel.decompiler.metrics.IMetricsListener;
+import com.strobel.decompiler.metrics.Metrics;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A resident decompiler which serves requests on a loopback socket, so that tools which look up one type
+ * at a time do not pay for JVM startup, JIT warm-up and cold metadata on every lookup.
+ * <p>
+ * Each connection carries a single request, one item per line: first the class path to load types from
+ * (entries are jar files or class directories, separated by the platform path separator), then the options
+ * and type names exactly as they would be passed to {@link DecompilerDriver}, one argument per line, so that
+ * arguments may contain spaces.  The request ends at an empty line or at the end of the input.  The
+ * decompiled types are written back on the same connection, which is then closed.  Failures are reported
+ * as lines starting with {@code "!!! ERROR:"}.  Output directories are ignored; results always go to the
+ * connection.
+ * <p>
+ * Loaded metadata stays warm between requests for the most recently used class paths.  A metadata system
+ * cannot be shared by concurrent decompilations, so each class path keeps a pool of workspaces with their
+ * own type loaders and metadata; concurrent requests for the same class path use different workspaces.  A
+ * class path is loaded again from scratch when any of its jar files, or any file beneath its class
+ * directories, changes on disk.  Jar files are checked on every request, but class directories are walked
+ * at most once per interval.
+ *
+ * @author Mike Strobel
+ */
+public final class DecompilerServer implements Closeable {
+    private final static Logger LOG = Logger.getLogger(DecompilerServer.class.getSimpleName());
+    private final static Charset UTF_8 = Charset.forName("UTF-8");
+    private final static String ERROR_PREFIX = "!!! ERROR: ";
+
+    private final static int MAX_CLASS_PATHS = 8;
+
+    private final int _port;
+    private final int _parallelism;
+    private final long _directoryCheckInterval;
+    private final LinkedHashMap<String, ClassPath> _classPaths = new LinkedHashMap<>(16, 0.75f, true);
+
+    private ServerSocket _serverSocket;
+    private Thread _acceptThread;
+
+    public DecompilerServer(final int port) {
+        this(port, Runtime.getRuntime().availableProcessors());
+    }
+
+    public DecompilerServer(final int port, final int parallelism) {
+        this(port, parallelism, ClassPathMonitor.DEFAULT_DIRECTORY_CHECK_INTERVAL);
+    }
+
+    /**
+     * @param port
+     *     The loopback port to accept requests on, or {@code 0} for any free port.
+     * @param parallelism
+     *     The maximum number of requests served at once.
+     * @param directoryCheckInterval
+     *     The minimum time, in milliseconds, between two checks of a class path's class directories.
+     */
+    public DecompilerServer(final int port, final int parallelism, final long directoryCheckInterval) {
+        VerifyArgument.isNonNegative(directoryCheckInterval, "directoryCheckInterval");
+
+        _port = VerifyArgument.inRange(0, 0xFFFF, port, "port");
+        _parallelism = VerifyArgument.isPositive(parallelism, "parallelism");
+        _directoryCheckInterval = directoryCheckInterval;
+    }
+
+    /**
+     * Serves requests until the process is terminated.
+     */
+    public void run() throws IOException {
+        final int port = start();
+
+        System.out.printf("Listening on port %d...\n", port);
+        System.out.flush();
+
+        try {
+            _acceptThread.join();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            close();
+        }
+    }
+
+    /**
+     * Starts serving requests on background threads.
+     *
+     * @return The loopback port on which requests are accepted.
+     */
+    public synchronized int start() throws IOException {
+        if (_serverSocket != null) {
+            throw new IllegalStateException("The server has already been started.");
+        }
+
+        final ServerSocket serverSocket = new ServerSocket(_port, 50, InetAddress.getLoopbackAddress());
+
+        _serverSocket = serverSocket;
+
+        _acceptThread = new Thread(
+            new Runnable() {
+                @Override
+                public void run() {
+                    accept(serverSocket);
+                }
+            },
+            "DecompilerServer"
+        );
+
+        _acceptThread.start();
+
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting requests and releases all warm class paths.  Requests already being served complete.
+     */
+    @Override
+    public void close() throws IOException {
+        final ServerSocket serverSocket;
+
+        synchronized (this) {
+            serverSocket = _serverSocket;
+        }
+
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+
+        synchronized (_classPaths) {
+            for (final ClassPath classPath : _classPaths.values()) {
+                classPath.evict();
+            }
+
+            _classPaths.clear();
+        }
+    }
+
+    private void accept(final ServerSocket serverSocket) {
+        final ExecutorService executor = Executors.newFixedThreadPool(_parallelism);
+
+        try {
+            while (true) {
+                final Socket socket = serverSocket.accept();
+
+                executor.execute(
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            serve(socket);
+                        }
+                    }
+                );
+            }
+        }
+        catch (final IOException e) {
+            if (!serverSocket.isClosed()) {
+                LOG.log(Level.SEVERE, "Stopped accepting requests.", e);
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    private void serve(final Socket socket) {
+        try (final Socket s = socket) {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream(), UTF_8));
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), UTF_8));
+
+            final String classPath = reader.readLine();
+            final List<String> arguments = new ArrayList<>();
+
+            for (String line = reader.readLine(); !StringUtilities.isNullOrEmpty(line); line = reader.readLine()) {
+                arguments.add(line);
+            }
+
+            if (classPath == null) {
+                writer.write(ERROR_PREFIX + "Expected a class path and a command line.\n");
+            }
+            else {
+                serve(classPath, arguments, writer);
+            }
+
+            writer.flush();
+        }
+        catch (final IOException e) {
+            LOG.log(Level.FINE, "Failed to serve request.", e);
+        }
+    }
+
+    private void serve(final String classPath, final List<String> arguments, final Writer writer) throws IOException {
+        final CommandLineOptions options = new CommandLineOptions();
+
+        try {
+            final JCommander jCommander = new JCommander(options);
+
+            jCommander.setAllowAbbreviatedOptions(false);
+            jCommander.parse(arguments.toArray(new String[arguments.size()]));
+        }
+        catch (final Throwable t) {
+            writer.write(ERROR_PREFIX + ExceptionUtilities.getMessage(t) + "\n");
+            return;
+        }
+
+        final Workspace workspace;
+
+        try {
+            workspace = acquireWorkspace(classPath);
+        }
+        catch (final IOException e) {
+            writer.write(ERROR_PREFIX + "Failed to open class path: " + ExceptionUtilities.getMessage(e) + "\n");
+            return;
+        }
+
+        try {
+            final DecompilerSettings settings = DecompilerDriver.createSettings(options);
+            final DecompilationOptions decompilationOptions = new DecompilationOptions();
+
+            settings.setTypeLoader(workspace.typeLoader);
+            settings.setOutputDirectory(null);
+
+            decompilationOptions.setSettings(settings);
+            decompilationOptions.setFullDecompilation(true);
+
+            workspace.metadataSystem.setEagerMethodLoadingEnabled(options.isEagerMethodLoadingEnabled());
+
+            for (final String typeName : options.getInputs()) {
+                final IMetricsListener listener = Metrics.getListener();
+                final long startTime = listener != null ? System.nanoTime() : 0L;
+
+                try {
+                    if (decompileType(workspace.metadataSystem, typeName, decompilationOptions, writer)) {
+                        if (listener != null) {
+                            listener.typeDecompiled(typeName, System.nanoTime() - startTime);
+                        }
+                    }
+                    else if (listener != null) {
+                        listener.typeDecompilationFailed(typeName);
+                    }
+                }
+                catch (final Throwable t) {
+                    if (listener != null) {
+                        listener.typeDecompilationFailed(typeName);
+                    }
+                    writer.write(ERROR_PREFIX + "Failed to decompile " + typeName + ": " + ExceptionUtilities.getMessage(t) + "\n");
+                }
+            }
+        }
+        finally {
+            releaseWorkspace(workspace);
+        }
+    }
+
+    private static boolean decompileType(
+        final MetadataSystem metadataSystem,
+        final String typeName,
+        final DecompilationOptions options,
+        final Writer writer) throws IOException {
+
+        final DecompilerSettings settings = options.getSettings();
+        final TypeReference type = metadataSystem.lookupType(typeName.replace('.', '/'));
+        final TypeDefinition resolvedType;
+
+        if (type == null || (resolvedType = type.resolve()) == null) {
+            writer.write(String.format(ERROR_PREFIX + "Failed to load class %s.\n", typeName));
+            return false;
+        }
+
+        DeobfuscationUtilities.processType(resolvedType);
+
+        final PlainTextOutput output = new PlainTextOutput(writer);
+
+        output.setUnicodeOutputEnabled(settings.isUnicodeOutputEnabled());
+
+        if (settings.getLanguage() instanceof BytecodeLanguage) {
+            output.setIndentToken("  ");
+        }
+
+        settings.getLanguage().decompileType(resolvedType, output, options);
+        return true;
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Workspaces">
+
+    private Workspace acquireWorkspace(final String classPathText) throws IOException {
+        final List<File> entries = new ArrayList<>();
+
+        for (final String entry : classPathText.split(File.pathSeparator)) {
+            if (!StringUtilities.isNullOrWhitespace(entry)) {
+                entries.add(new File(entry).getAbsoluteFile());
+            }
+        }
+
+        ClassPathMonitor monitor;
+
+        synchronized (_classPaths) {
+            final ClassPath existing = _classPaths.get(classPathText);
+
+            monitor = existing != null ? existing.monitor : null;
+        }
+
+        if (monitor == null) {
+            monitor = new ClassPathMonitor(entries, _directoryCheckInterval);
+        }
+
+        final long stamp = monitor.getStamp();
+        final ClassPath classPath;
+
+        synchronized (_classPaths) {
+            final ClassPath existing = _classPaths.get(classPathText);
+
+            if (existing != null && existing.stamp == stamp) {
+                final Workspace idle = existing.idleWorkspaces.pollFirst();
+
+                if (idle != null) {
+                    return idle;
+                }
+
+                classPath = existing;
+            }
+            else {
+                if (existing != null) {
+                    _classPaths.remove(classPathText);
+                    existing.evict();
+                }
+
+                classPath = new ClassPath(entries, monitor, stamp);
+                _classPaths.put(classPathText, classPath);
+
+                final Iterator<Map.Entry<String, ClassPath>> iterator = _classPaths.entrySet().iterator();
+
+                while (_classPaths.size() > MAX_CLASS_PATHS && iterator.hasNext()) {
+                    final ClassPath eldest = iterator.next().getValue();
+
+                    iterator.remove();
+                    eldest.evict();
+                }
+            }
+        }
+
+        //
+        // Opening the class path happens outside the lock; it may take a while for large jars.
+        //
+        return new Workspace(classPath);
+    }
+
+    private void releaseWorkspace(final Workspace workspace) {
+        synchronized (_classPaths) {
+            if (!workspace.classPath.isEvicted) {
+                workspace.classPath.idleWorkspaces.addFirst(workspace);
+                return;
+            }
+        }
+
+        workspace.close();
+    }
+
+    private final static class ClassPath {
+        final List<File> entries;
+        final ClassPathMonitor monitor;
+        final long stamp;
+        final ArrayDeque<Workspace> idleWorkspaces = new ArrayDeque<>();
+
+        boolean isEvicted;
+
+        ClassPath(final List<File> entries, final ClassPathMonitor monitor, final long stamp) {
+            this.entries = entries;
+            this.monitor = monitor;
+            this.stamp = stamp;
+        }
+
+        void evict() {
+            isEvicted = true;
+
+            for (final Workspace workspace : idleWorkspaces) {
+                workspace.close();
+            }
+
+            idleWorkspaces.clear();
+        }
+    }
+
+    private final static class Workspace implements Closeable {
+        final ClassPath classPath;
+        final FileSystemTypeLoader typeLoader;
+        final MetadataSystem metadataSystem;
+
+        Workspace(final ClassPath classPath) throws IOException {
+            this.classPath = classPath;
+            this.typeLoader = new FileSystemTypeLoader(classPath.entries);
+            this.metadataSystem = new NoRetryMetadataSystem(typeLoader);
+        }
+
+        @Override
+        public void close() {
+            typeLoader.close();
+        }
+    }
+
+    // </editor-fold>
+}
@@ -0,0 +1,509 @@
+package com.strobel.decompiler;
+
+import com.strobel.assembler.metadata.MethodDefinition;
+import com.strobel.core.StringUtilities;
+import com.strobel.decompiler.metrics.Metrics;
+import com.strobel.decompiler.metrics.MetricsListenerAdapter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Decompiles a fixed corpus of jars end to end, through the same path as {@code DecompilerDriver -jar},
+ * and reports throughput, per-type latency percentiles, the slowest method bodies, peak heap use and
+ * garbage collection time.  Results are written as a properties file so runs can be compared between
+ * commits; given a baseline from an earlier run, the benchmark exits with status 1 if throughput, median
+ * or p95 latency, or peak heap regresses by more than the threshold.
+ * <p>
+ * Without corpus jars, a corpus of the platform's {@code java/util} classes is generated once per JDK
+ * version in the temporary directory.  Compare results from the same JDK and machine only.
+ * <p>
+ * Usage: {@code CorpusBenchmark [--warmup n] [--iterations n] [--results file] [--baseline file]
+ * [--threshold percent] [corpus.jar...]}
+ */
+public final class CorpusBenchmark {
+    private final static Charset UTF_8 = Charset.forName("UTF-8");
+    private final static String DEFAULT_CORPUS_PACKAGE = "java/util/";
+    private final static int SLOWEST_METHOD_COUNT = 20;
+
+    private final static String[] HIGHER_IS_BETTER = { "classesPerSecond" };
+    private final static String[] LOWER_IS_BETTER = { "latency.p50Millis", "latency.p95Millis", "heap.peakBytes" };
+
+    public static void main(final String[] args) throws Throwable {
+        int warmup = 1;
+        int iterations = 3;
+        double threshold = 10d;
+        File resultsFile = new File("corpus-benchmark.properties");
+        File baselineFile = null;
+
+        final List<File> corpus = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--warmup":
+                    warmup = Integer.parseInt(args[++i]);
+                    break;
+                case "--iterations":
+                    iterations = Integer.parseInt(args[++i]);
+                    break;
+                case "--results":
+                    resultsFile = new File(args[++i]);
+                    break;
+                case "--baseline":
+                    baselineFile = new File(args[++i]);
+                    break;
+                case "--threshold":
+                    threshold = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    corpus.add(new File(args[i]));
+                    break;
+            }
+        }
+
+        if (corpus.isEmpty()) {
+            corpus.add(generatePlatformCorpus(DEFAULT_CORPUS_PACKAGE));
+        }
+
+        final Recorder recorder = new Recorder();
+
+        Metrics.setListener(recorder);
+
+        try {
+            for (int i = 0; i < warmup; i++) {
+                System.out.printf("Warm-up pass %d of %d...%n", i + 1, warmup);
+                runPass(corpus);
+            }
+
+            recorder.reset();
+            System.gc();
+
+            final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+
+            for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    pool.resetPeakUsage();
+                    heapPools.add(pool);
+                }
+            }
+
+            final long gcTimeBefore = totalCollectionTime();
+            final long gcCountBefore = totalCollectionCount();
+
+            long elapsedNanos = 0L;
+
+            for (int i = 0; i < iterations; i++) {
+                System.out.printf("Measured pass %d of %d...%n", i + 1, iterations);
+                elapsedNanos += runPass(corpus);
+            }
+
+            long peakHeap = 0L;
+
+            for (final MemoryPoolMXBean pool : heapPools) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+
+            final Map<String, String> results = new LinkedHashMap<>();
+            final long[] latencies = recorder.latencies();
+
+            results.put("jdk", System.getProperty("java.version"));
+            results.put("corpus", StringUtilities.join(File.pathSeparator, corpus));
+            results.put("iterations", String.valueOf(iterations));
+            results.put("types", String.valueOf(latencies.length / Math.max(iterations, 1)));
+            results.put("failures", String.valueOf(recorder.failures() / Math.max(iterations, 1)));
+            results.put("classesPerSecond", format(latencies.length * 1e9 / Math.max(elapsedNanos, 1L)));
+            results.put("latency.p50Millis", format(percentile(latencies, 0.50) / 1e6));
+            results.put("latency.p95Millis", format(percentile(latencies, 0.95) / 1e6));
+            results.put("latency.p99Millis", format(percentile(latencies, 0.99) / 1e6));
+            results.put("latency.maxMillis", format(percentile(latencies, 1.00) / 1e6));
+            results.put("heap.peakBytes", String.valueOf(peakHeap));
+            results.put("gc.timeMillis", String.valueOf(totalCollectionTime() - gcTimeBefore));
+            results.put("gc.count", String.valueOf(totalCollectionCount() - gcCountBefore));
+
+            final List<Map.Entry<String, Long>> slowestMethods = recorder.slowestMethods(SLOWEST_METHOD_COUNT);
+
+            for (int i = 0; i < slowestMethods.size(); i++) {
+                final Map.Entry<String, Long> method = slowestMethods.get(i);
+
+                results.put(
+                    "slowestMethod." + (i + 1),
+                    format(method.getValue() / 1e6 / Math.max(iterations, 1)) + " ms " + method.getKey()
+                );
+            }
+
+            writeResults(results, resultsFile);
+
+            for (final Map.Entry<String, String> entry : results.entrySet()) {
+                System.out.printf("%-20s %s%n", entry.getKey(), entry.getValue());
+            }
+
+            System.out.printf("Results written to %s.%n", resultsFile);
+
+            if (baselineFile != null && !compareWithBaseline(results, baselineFile, threshold)) {
+                System.exit(1);
+            }
+        }
+        finally {
+            Metrics.setListener(null);
+        }
+    }
+
+    private static long runPass(final List<File> corpus) throws IOException {
+        final File outputDirectory = Files.createTempDirectory("procyon-corpus").toFile();
+        final PrintStream out = System.out;
+
+        //
+        // The driver reports every type it writes; keep that out of the benchmark's own output.
+        //
+        System.setOut(new PrintStream(new NullOutputStream()));
+
+        try {
+            final long startTime = System.nanoTime();
+
+            for (final File jar : corpus) {
+                DecompilerDriver.main(new String[] { "-jar", jar.getPath(), "-o", outputDirectory.getPath() });
+            }
+
+            return System.nanoTime() - startTime;
+        }
+        finally {
+            System.setOut(out);
+            deleteRecursively(outputDirectory);
+        }
+    }
+
+    private static boolean compareWithBaseline(
+        final Map<String, String> results,
+        final File baselineFile,
+        final double threshold) throws IOException {
+
+        final Properties baseline = new Properties();
+
+        try (final Reader reader = new InputStreamReader(new FileInputStream(baselineFile), UTF_8)) {
+            baseline.load(reader);
+        }
+
+        final String baselineJdk = baseline.getProperty("jdk");
+
+        if (baselineJdk != null && !baselineJdk.equals(results.get("jdk"))) {
+            System.out.printf("WARNING: The baseline was recorded on JDK %s.%n", baselineJdk);
+        }
+
+        boolean passed = true;
+
+        for (final String key : HIGHER_IS_BETTER) {
+            passed &= compare(key, baseline, results, -threshold);
+        }
+
+        for (final String key : LOWER_IS_BETTER) {
+            passed &= compare(key, baseline, results, threshold);
+        }
+
+        System.out.println(passed ? "No regressions beyond " + threshold + "%." : "REGRESSION beyond " + threshold + "%.");
+
+        return passed;
+    }
+
+    private static boolean compare(
+        final String key,
+        final Properties baseline,
+        final Map<String, String> results,
+        final double threshold) {
+
+        final String baselineText = baseline.getProperty(key);
+
+        if (baselineText == null) {
+            return true;
+        }
+
+        final double expected = Double.parseDouble(baselineText);
+        final double actual = Double.parseDouble(results.get(key));
+        final double change = expected == 0d ? 0d : (actual - expected) * 100d / expected;
+        final boolean regressed = threshold < 0d ? change < threshold : change > threshold;
+
+        System.out.printf(
+            "%-20s %14s -> %14s (%+.1f%%)%s%n",
+            key,
+            baselineText,
+            results.get(key),
+            change,
+            regressed ? "  REGRESSED" : ""
+        );
+
+        return !regressed;
+    }
+
+    private static void writeResults(final Map<String, String> results, final File file) throws IOException {
+        try (final Writer writer = new OutputStreamWriter(new FileOutputStream(file), UTF_8)) {
+            writer.write("# Procyon corpus benchmark results\n");
+
+            for (final Map.Entry<String, String> entry : results.entrySet()) {
+                writer.write(entry.getKey());
+                writer.write('=');
+                writer.write(entry.getValue().replace("\\", "\\\\"));
+                writer.write('\n');
+            }
+        }
+    }
+
+    private static long percentile(final long[] sortedValues, final double percentile) {
+        if (sortedValues.length == 0) {
+            return 0L;
+        }
+
+        final int rank = (int) Math.ceil(percentile * sortedValues.length);
+
+        return sortedValues[Math.max(rank, 1) - 1];
+    }
+
+    private static String format(final double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static long totalCollectionTime() {
+        long total = 0L;
+
+        for (final GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(collector.getCollectionTime(), 0L);
+        }
+
+        return total;
+    }
+
+    private static long totalCollectionCount() {
+        long total = 0L;
+
+        for (final GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(collector.getCollectionCount(), 0L);
+        }
+
+        return total;
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Corpus Generation">
+
+    private static File generatePlatformCorpus(final String packageName) throws IOException {
+        final File jar = new File(
+            System.getProperty("java.io.tmpdir"),
+            "procyon-corpus-" + packageName.replace('/', '-') + System.getProperty("java.version") + ".jar"
+        );
+
+        if (jar.isFile()) {
+            return jar;
+        }
+
+        final Map<String, byte[]> classes = new HashMap<>();
+        final String bootClassPath = System.getProperty("sun.boot.class.path");
+
+        if (bootClassPath != null) {
+            for (final String entry : bootClassPath.split(File.pathSeparator)) {
+                if (entry.endsWith(".jar") && new File(entry).isFile()) {
+                    try (final JarFile jarFile = new JarFile(entry)) {
+                        final Enumeration<JarEntry> entries = jarFile.entries();
+
+                        while (entries.hasMoreElements()) {
+                            final JarEntry e = entries.nextElement();
+
+                            if (isInPackage(e.getName(), packageName)) {
+                                try (final InputStream in = jarFile.getInputStream(e)) {
+                                    classes.put(e.getName(), readFully(in));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        else {
+            final Path modulesRoot = FileSystems.getFileSystem(URI.create("jrt:/")).getPath("/modules");
+
+            try (final DirectoryStream<Path> modules = Files.newDirectoryStream(modulesRoot)) {
+                for (final Path module : modules) {
+                    Files.walkFileTree(
+                        module,
+                        new SimpleFileVisitor<Path>() {
+                            @Override
+                            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) throws IOException {
+                                final String name = module.relativize(file).toString().replace('\\', '/');
+
+                                if (isInPackage(name, packageName)) {
+                                    classes.put(name, Files.readAllBytes(file));
+                                }
+
+                                return FileVisitResult.CONTINUE;
+                            }
+                        }
+                    );
+                }
+            }
+        }
+
+        final List<String> names = new ArrayList<>(classes.keySet());
+
+        Collections.sort(names);
+
+        final File temporaryJar = new File(jar.getPath() + ".tmp");
+
+        try (final JarOutputStream out = new JarOutputStream(new FileOutputStream(temporaryJar))) {
+            for (final String name : names) {
+                out.putNextEntry(new JarEntry(name));
+                out.write(classes.get(name));
+                out.closeEntry();
+            }
+        }
+
+        if (!temporaryJar.renameTo(jar)) {
+            throw new IOException("Could not create corpus " + jar + ".");
+        }
+
+        System.out.printf("Generated corpus %s with %d classes.%n", jar, names.size());
+
+        return jar;
+    }
+
+    private static boolean isInPackage(final String entryName, final String packageName) {
+        return entryName.startsWith(packageName) &&
+               entryName.endsWith(".class") &&
+               entryName.indexOf('/', packageName.length()) < 0;
+    }
+
+    private static byte[] readFully(final InputStream in) throws IOException {
+        final byte[] buffer = new byte[8192];
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        int bytesRead;
+
+        while ((bytesRead = in.read(buffer)) > 0) {
+            out.write(buffer, 0, bytesRead);
+        }
+
+        return out.toByteArray();
+    }
+
+    private static void deleteRecursively(final File file) {
+        final File[] children = file.listFiles();
+
+        if (children != null) {
+            for (final File child : children) {
+                deleteRecursively(child);
+            }
+        }
+
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Recorder Class">
+
+    private final static class Recorder extends MetricsListenerAdapter {
+        private final List<Long> _latencies = new ArrayList<>();
+        private final Map<String, Long> _methodTimes = new HashMap<>();
+        private int _failures;
+
+        synchronized void reset() {
+            _latencies.clear();
+            _methodTimes.clear();
+            _failures = 0;
+        }
+
+        synchronized long[] latencies() {
+            final long[] latencies = new long[_latencies.size()];
+
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = _latencies.get(i);
+            }
+
+            Arrays.sort(latencies);
+            return latencies;
+        }
+
+        synchronized int failures() {
+            return _failures;
+        }
+
+        synchronized List<Map.Entry<String, Long>> slowestMethods(final int count) {
+            final List<Map.Entry<String, Long>> methods = new ArrayList<>(_methodTimes.entrySet());
+
+            Collections.sort(
+                methods,
+                new Comparator<Map.Entry<String, Long>>() {
+                    @Override
+                    public int compare(final Map.Entry<String, Long> x, final Map.Entry<String, Long> y) {
+                        return Long.compare(y.getValue(), x.getValue());
+                    }
+                }
+            );
+
+            return new ArrayList<>(methods.subList(0, Math.min(count, methods.size())));
+        }
+
+        @Override
+        public synchronized void methodDecompiled(final MethodDefinition method, final long elapsedNanos) {
+            final String key = method.getDeclaringType().getInternalName() + "." + method.getName() + method.getErasedSignature();
+            final Long total = _methodTimes.get(key);
+
+            _methodTimes.put(key, total != null ? total + elapsedNanos : elapsedNanos);
+        }
+
+        @Override
+        public synchronized void typeDecompiled(final String typeName, final long elapsedNanos) {
+            _latencies.add(elapsedNanos);
+        }
+
+        @Override
+        public synchronized void typeDecompilationFailed(final String typeName) {
+            ++_failures;
+        }
+    }
+
+    // </editor-fold>
+
+    private final static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(final int b) {
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+        }
+    }
+}
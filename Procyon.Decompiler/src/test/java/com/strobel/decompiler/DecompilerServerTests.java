@@ -0,0 +1,153 @@
+package com.strobel.decompiler;
+
+import com.strobel.assembler.metadata.Buffer;
+import com.strobel.assembler.metadata.ClasspathTypeLoader;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class DecompilerServerTests {
+    private final static Charset UTF_8 = Charset.forName("UTF-8");
+    private final static String PROBE_NAME = "com/strobel/decompiler/DecompilerServerTests$Probe0";
+
+    @SuppressWarnings("UnusedDeclaration")
+    private static class ProbeA {
+        int value() {
+            return 1;
+        }
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    private static class ProbeB {
+        int value() {
+            return 2;
+        }
+    }
+
+    /**
+     * Returns the class file of a nested probe class, renamed to {@code Probe0} so that the type can only
+     * be found on the class path the test gives the server.
+     */
+    private static byte[] probeClassFile(final Class<?> probe) {
+        final Buffer buffer = new Buffer();
+
+        assertTrue(new ClasspathTypeLoader().tryLoadType(probe.getName().replace('.', '/'), buffer));
+
+        final byte[] data = Arrays.copyOf(buffer.array(), buffer.size());
+        final byte[] oldName = probe.getSimpleName().getBytes(UTF_8);
+        final byte[] newName = "Probe0".getBytes(UTF_8);
+
+        assertEquals(oldName.length, newName.length);
+
+        for (int i = 0; i + oldName.length <= data.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(data, i, i + oldName.length), oldName)) {
+                System.arraycopy(newName, 0, data, i, newName.length);
+            }
+        }
+
+        return data;
+    }
+
+    private static void write(final File file, final byte[] data) throws IOException {
+        assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+
+        try (final OutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+    }
+
+    private static String request(final int port, final String... lines) throws IOException {
+        try (final Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            final OutputStream out = socket.getOutputStream();
+
+            for (final String line : lines) {
+                out.write((line + "\n").getBytes(UTF_8));
+            }
+
+            out.write("\n".getBytes(UTF_8));
+            out.flush();
+
+            final InputStream in = socket.getInputStream();
+            final ByteArrayOutputStream response = new ByteArrayOutputStream();
+            final byte[] temp = new byte[4096];
+
+            for (int n; (n = in.read(temp)) > 0; ) {
+                response.write(temp, 0, n);
+            }
+
+            return new String(response.toByteArray(), UTF_8);
+        }
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void testServesRequestsAndReloadsChangedDirectories() throws Throwable {
+        final File root = File.createTempFile("procyon", "");
+
+        assertTrue(root.delete());
+
+        //
+        // Class path entries may contain spaces.
+        //
+        final File classDirectory = new File(root, "class directory");
+        final File classFile = new File(classDirectory, PROBE_NAME + ".class");
+
+        write(classFile, probeClassFile(ProbeA.class));
+
+        //
+        // Check class directories on every request, so the change below is seen at once.
+        //
+        final DecompilerServer server = new DecompilerServer(0, 2, 0L);
+
+        try {
+            final int port = server.start();
+            final String first = request(port, classDirectory.getPath(), PROBE_NAME);
+
+            assertFalse(first, first.contains("!!! ERROR"));
+            assertTrue(first, first.contains("Probe0"));
+            assertTrue(first, first.contains("return 1;"));
+
+            assertEquals(first, request(port, classDirectory.getPath(), PROBE_NAME));
+
+            //
+            // Replace a class file nested beneath the directory entry; the server must notice.
+            //
+            write(classFile, probeClassFile(ProbeB.class));
+            assertTrue(classFile.setLastModified(classFile.lastModified() - 60000L));
+
+            final String second = request(port, classDirectory.getPath(), PROBE_NAME);
+
+            assertTrue(second, second.contains("return 2;"));
+
+            final String missing = request(port, classDirectory.getPath(), "com/strobel/NoSuchType");
+
+            assertTrue(missing, missing.startsWith("!!! ERROR: Failed to load class com/strobel/NoSuchType."));
+        }
+        finally {
+            server.close();
+            delete(root);
+        }
+    }
+}
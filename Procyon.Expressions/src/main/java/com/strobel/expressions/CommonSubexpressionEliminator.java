@@ -0,0 +1,445 @@
+/*
+ * CommonSubexpressionEliminator.java
+ *
+ * Copyright (c) 2012 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.expressions;
+
+import com.strobel.reflection.PrimitiveTypes;
+import com.strobel.reflection.Type;
+import com.strobel.util.TypeUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static com.strobel.expressions.Expression.*;
+
+/**
+ * Hoists repeated subtrees of a lambda body into block-local variables.  Only subtrees which
+ * have no side effects, cannot throw, and depend solely on constants and on variables which
+ * are never reassigned are considered, so evaluating them once, up front, is unobservable.
+ *
+ * @author Mike Strobel
+ */
+final class CommonSubexpressionEliminator {
+    private final Set<ParameterExpression> _invariantVariables;
+    private final Map<Expression, Boolean> _pure = new IdentityHashMap<>();
+    private final Map<Expression, Integer> _hashCodes = new IdentityHashMap<>();
+    private final Map<Expression, Integer> _sizes = new IdentityHashMap<>();
+
+    private CommonSubexpressionEliminator(final Collection<ParameterExpression> invariantVariables) {
+        _invariantVariables = Collections.newSetFromMap(new IdentityHashMap<ParameterExpression, Boolean>());
+        _invariantVariables.addAll(invariantVariables);
+    }
+
+    static Expression eliminate(final Expression body, final Collection<ParameterExpression> invariantVariables) {
+        return new CommonSubexpressionEliminator(invariantVariables).eliminate(body);
+    }
+
+    private Expression eliminate(final Expression body) {
+        final ArrayList<ParameterExpression> temporaries = new ArrayList<>();
+        final ArrayList<Expression> initializers = new ArrayList<>();
+
+        Expression currentBody = body;
+
+        while (true) {
+            final Expression candidate = findBestCandidate(currentBody, initializers);
+
+            if (candidate == null) {
+                break;
+            }
+
+            final ParameterExpression temporary = variable(candidate.getType());
+            final Replacer replacer = new Replacer(new StructuralKey(candidate), temporary);
+
+            for (int i = 0; i < initializers.size(); i++) {
+                initializers.set(i, replacer.visit(initializers.get(i)));
+            }
+
+            currentBody = replacer.visit(currentBody);
+
+            //
+            // Smaller candidates are found later and may feed into the initializers of larger
+            // ones, so each new temporary is initialized ahead of those found before it.
+            //
+            temporaries.add(0, temporary);
+            initializers.add(0, candidate);
+
+            //
+            // Temporaries are assigned exactly once, so expressions over them are invariant too.
+            //
+            _invariantVariables.add(temporary);
+        }
+
+        if (temporaries.isEmpty()) {
+            return body;
+        }
+
+        final Expression[] expressions = new Expression[temporaries.size() + 1];
+
+        for (int i = 0; i < temporaries.size(); i++) {
+            expressions[i] = assign(temporaries.get(i), initializers.get(i));
+        }
+
+        expressions[temporaries.size()] = currentBody;
+
+        return block(
+            currentBody.getType(),
+            new ParameterExpressionList(temporaries.toArray(new ParameterExpression[temporaries.size()])),
+            expressions
+        );
+    }
+
+    private Expression findBestCandidate(final Expression body, final ArrayList<Expression> initializers) {
+        final Counter counter = new Counter();
+
+        counter.visit(body);
+
+        for (final Expression initializer : initializers) {
+            counter.visit(initializer);
+        }
+
+        Expression best = null;
+        int bestSize = 0;
+
+        for (final Map.Entry<StructuralKey, Integer> entry : counter.counts.entrySet()) {
+            if (entry.getValue() < 2) {
+                continue;
+            }
+
+            final Expression expression = entry.getKey().expression;
+            final int size = sizeOf(expression);
+
+            if (size > bestSize) {
+                best = expression;
+                bestSize = size;
+            }
+        }
+
+        return best;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // PURITY ANALYSIS                                                                                                    //
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private boolean isCandidate(final Expression node) {
+        return !isLeaf(node) && isPure(node);
+    }
+
+    private static boolean isLeaf(final Expression node) {
+        switch (node.getNodeType()) {
+            case Constant:
+            case Parameter:
+            case DefaultValue:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean isPure(final Expression node) {
+        final Boolean cached = _pure.get(node);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final boolean result = computeIsPure(node);
+
+        _pure.put(node, result);
+
+        return result;
+    }
+
+    private boolean computeIsPure(final Expression node) {
+        switch (node.getNodeType()) {
+            case Constant:
+            case DefaultValue:
+                return true;
+
+            case Parameter:
+                return _invariantVariables.contains(node);
+
+            case Negate:
+            case UnaryPlus:
+            case Not:
+            case OnesComplement:
+            case IsTrue:
+            case IsFalse:
+            case IsNull:
+            case IsNotNull:
+            case Increment:
+            case Decrement: {
+                final UnaryExpression unary = (UnaryExpression) node;
+
+                final boolean isNullCheck = node.getNodeType() == ExpressionType.IsNull ||
+                                            node.getNodeType() == ExpressionType.IsNotNull;
+
+                return unary.getMethod() == null &&
+                       unary.getOperand().getType().isPrimitive() != isNullCheck &&
+                       isPure(unary.getOperand());
+            }
+
+            case Convert: {
+                //
+                // Only primitive-to-primitive conversions; unboxing may throw, and boxing allocates.
+                //
+                final UnaryExpression unary = (UnaryExpression) node;
+
+                return unary.getMethod() == null &&
+                       unary.getType().isPrimitive() &&
+                       unary.getOperand().getType().isPrimitive() &&
+                       isPure(unary.getOperand());
+            }
+
+            case Divide:
+            case Modulo: {
+                //
+                // Integer division may throw.
+                //
+                final BinaryExpression binary = (BinaryExpression) node;
+                final Type<?> type = binary.getType();
+
+                return (type == PrimitiveTypes.Float ||
+                        type == PrimitiveTypes.Double) &&
+                       binary.getLeft().getType().isPrimitive() &&
+                       binary.getRight().getType().isPrimitive() &&
+                       isPureBinary(binary);
+            }
+
+            case Add:
+            case Subtract:
+            case Multiply:
+            case And:
+            case Or:
+            case ExclusiveOr:
+            case AndAlso:
+            case OrElse:
+            case LeftShift:
+            case RightShift:
+            case UnsignedRightShift:
+            case Equal:
+            case NotEqual:
+            case LessThan:
+            case LessThanOrEqual:
+            case GreaterThan:
+            case GreaterThanOrEqual: {
+                final BinaryExpression binary = (BinaryExpression) node;
+
+                return binary.getLeft().getType().isPrimitive() &&
+                       binary.getRight().getType().isPrimitive() &&
+                       isPureBinary(binary);
+            }
+
+            case ReferenceEqual:
+            case ReferenceNotEqual:
+                return isPureBinary((BinaryExpression) node);
+
+            case InstanceOf:
+                return isPure(((TypeBinaryExpression) node).getOperand());
+
+            default:
+                return false;
+        }
+    }
+
+    private boolean isPureBinary(final BinaryExpression node) {
+        return node.getMethod() == null &&
+               node.getConversion() == null &&
+               isPure(node.getLeft()) &&
+               isPure(node.getRight());
+    }
+
+    private int sizeOf(final Expression node) {
+        final Integer cached = _sizes.get(node);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        int size = 1;
+
+        if (node instanceof UnaryExpression) {
+            size += sizeOf(((UnaryExpression) node).getOperand());
+        }
+        else if (node instanceof BinaryExpression) {
+            size += sizeOf(((BinaryExpression) node).getLeft()) + sizeOf(((BinaryExpression) node).getRight());
+        }
+        else if (node instanceof TypeBinaryExpression) {
+            size += sizeOf(((TypeBinaryExpression) node).getOperand());
+        }
+
+        _sizes.put(node, size);
+
+        return size;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // STRUCTURAL EQUALITY                                                                                                //
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private int structuralHashCode(final Expression node) {
+        final Integer cached = _hashCodes.get(node);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        int hash = node.getNodeType().hashCode() * 31 + node.getType().hashCode();
+
+        switch (node.getNodeType()) {
+            case Constant:
+                hash = hash * 31 + Objects.hashCode(((ConstantExpression) node).getValue());
+                break;
+
+            case Parameter:
+                hash = hash * 31 + System.identityHashCode(node);
+                break;
+
+            default:
+                if (node instanceof UnaryExpression) {
+                    hash = hash * 31 + structuralHashCode(((UnaryExpression) node).getOperand());
+                }
+                else if (node instanceof BinaryExpression) {
+                    hash = hash * 31 + structuralHashCode(((BinaryExpression) node).getLeft());
+                    hash = hash * 31 + structuralHashCode(((BinaryExpression) node).getRight());
+                }
+                else if (node instanceof TypeBinaryExpression) {
+                    hash = hash * 31 + ((TypeBinaryExpression) node).getTypeOperand().hashCode();
+                    hash = hash * 31 + structuralHashCode(((TypeBinaryExpression) node).getOperand());
+                }
+                break;
+        }
+
+        _hashCodes.put(node, hash);
+
+        return hash;
+    }
+
+    private static boolean structurallyEqual(final Expression a, final Expression b) {
+        if (a == b) {
+            return true;
+        }
+
+        if (a.getNodeType() != b.getNodeType() || !TypeUtils.areEquivalent(a.getType(), b.getType())) {
+            return false;
+        }
+
+        switch (a.getNodeType()) {
+            case Constant:
+                return Objects.equals(((ConstantExpression) a).getValue(), ((ConstantExpression) b).getValue());
+
+            case Parameter:
+                return false;
+
+            case DefaultValue:
+                return true;
+
+            default:
+                if (a instanceof UnaryExpression) {
+                    return structurallyEqual(((UnaryExpression) a).getOperand(), ((UnaryExpression) b).getOperand());
+                }
+
+                if (a instanceof BinaryExpression) {
+                    return structurallyEqual(((BinaryExpression) a).getLeft(), ((BinaryExpression) b).getLeft()) &&
+                           structurallyEqual(((BinaryExpression) a).getRight(), ((BinaryExpression) b).getRight());
+                }
+
+                if (a instanceof TypeBinaryExpression) {
+                    return TypeUtils.areEquivalent(((TypeBinaryExpression) a).getTypeOperand(), ((TypeBinaryExpression) b).getTypeOperand()) &&
+                           structurallyEqual(((TypeBinaryExpression) a).getOperand(), ((TypeBinaryExpression) b).getOperand());
+                }
+
+                return false;
+        }
+    }
+
+    private final class StructuralKey {
+        final Expression expression;
+        final int hashCode;
+
+        StructuralKey(final Expression expression) {
+            this.expression = expression;
+            this.hashCode = structuralHashCode(expression);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof StructuralKey &&
+                   ((StructuralKey) o).hashCode == hashCode &&
+                   structurallyEqual(expression, ((StructuralKey) o).expression);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // VISITORS                                                                                                           //
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private final class Counter extends ExpressionVisitor {
+        final Map<StructuralKey, Integer> counts = new HashMap<>();
+
+        @Override
+        public Expression visit(final Expression node) {
+            if (node != null && isCandidate(node)) {
+                final StructuralKey key = new StructuralKey(node);
+                final Integer count = counts.get(key);
+
+                counts.put(key, count == null ? 1 : count + 1);
+            }
+
+            return super.visit(node);
+        }
+
+        @Override
+        protected <T> LambdaExpression<T> visitLambda(final LambdaExpression<T> node) {
+            //
+            // Nested lambdas are compiled separately; leave their bodies alone.
+            //
+            return node;
+        }
+    }
+
+    private final class Replacer extends ExpressionVisitor {
+        private final StructuralKey _key;
+        private final ParameterExpression _replacement;
+
+        Replacer(final StructuralKey key, final ParameterExpression replacement) {
+            _key = key;
+            _replacement = replacement;
+        }
+
+        @Override
+        public Expression visit(final Expression node) {
+            if (node != null && isCandidate(node) && _key.equals(new StructuralKey(node))) {
+                return _replacement;
+            }
+
+            return super.visit(node);
+        }
+
+        @Override
+        protected <T> LambdaExpression<T> visitLambda(final LambdaExpression<T> node) {
+            return node;
+        }
+    }
+}
@@ -0,0 +1,417 @@
+/*
+ * CompiledLambdaCache.java
+ *
+ * Copyright (c) 2012 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.expressions;
+
+import com.strobel.Procyon;
+import com.strobel.compilerservices.DebugInfoGenerator;
+import com.strobel.core.ExceptionUtilities;
+import com.strobel.core.VerifyArgument;
+import com.strobel.reflection.MemberInfo;
+import com.strobel.reflection.MethodInfo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A persistent, on-disk cache of compiled lambda classes.  Each entry is keyed by a stable
+ * structural hash of the lambda's expression tree and the Procyon version, so a later process
+ * building the same tree can define the stored class directly instead of running the binder,
+ * stack spiller, and compiler again.
+ * <p>
+ * Only lambdas which compile to a single, self-contained class are persisted: trees containing
+ * nested lambdas, constants other than primitives, strings, and nulls, or anything else which
+ * requires a closure are compiled normally on every call.  Cached classes are defined in their
+ * own class loaders, parented to the context class loader, so they may only reference types and
+ * members which are publicly accessible.
+ *
+ * @author Mike Strobel
+ */
+public final class CompiledLambdaCache {
+    private final static Logger LOG = Logger.getLogger(CompiledLambdaCache.class.getSimpleName());
+    private final static String CLASS_FILE_EXTENSION = ".class";
+
+    private final File _directory;
+    private final ConcurrentHashMap<String, Class<?>> _loadedClasses = new ConcurrentHashMap<>();
+
+    public CompiledLambdaCache(final File directory) {
+        _directory = VerifyArgument.notNull(directory, "directory");
+    }
+
+    public final File getDirectory() {
+        return _directory;
+    }
+
+    public final <T> T compile(final LambdaExpression<T> lambda) {
+        return compileDelegate(lambda).getInstance();
+    }
+
+    @SuppressWarnings("unchecked")
+    public final <T> Delegate<T> compileDelegate(final LambdaExpression<T> lambda) {
+        VerifyArgument.notNull(lambda, "lambda");
+
+        final String key = computeKey(lambda);
+
+        if (key == null) {
+            return LambdaCompiler.compile(lambda, DebugInfoGenerator.empty());
+        }
+
+        final Class<T> cachedClass = (Class<T>) loadClass(key);
+
+        if (cachedClass != null) {
+            return LambdaCompiler.createDelegate(cachedClass, lambda.getType(), null);
+        }
+
+        final ByteArrayOutputStream classBytes = new ByteArrayOutputStream(1024);
+        final Delegate<T> delegate = LambdaCompiler.compile(lambda, DebugInfoGenerator.empty(), classBytes);
+        final Class<?> generatedClass = delegate.getInstance().getClass();
+
+        if (isSelfContained(generatedClass)) {
+            store(key, classBytes.toByteArray());
+            _loadedClasses.putIfAbsent(key, generatedClass);
+        }
+
+        return delegate;
+    }
+
+    private static boolean isSelfContained(final Class<?> generatedClass) {
+        //
+        // Lambdas which need a closure only have a constructor accepting it.
+        //
+        try {
+            generatedClass.getConstructor();
+            return true;
+        }
+        catch (final NoSuchMethodException ignored) {
+            return false;
+        }
+    }
+
+    private Class<?> loadClass(final String key) {
+        final Class<?> loadedClass = _loadedClasses.get(key);
+
+        if (loadedClass != null) {
+            return loadedClass;
+        }
+
+        final File file = new File(_directory, key + CLASS_FILE_EXTENSION);
+
+        if (!file.isFile()) {
+            return null;
+        }
+
+        final byte[] classBytes;
+
+        try {
+            classBytes = Files.readAllBytes(file.toPath());
+        }
+        catch (final IOException ignored) {
+            return null;
+        }
+
+        final Class<?> definedClass;
+
+        try {
+            definedClass = new CachedLambdaClassLoader(Thread.currentThread().getContextClassLoader())
+                .defineClass(classBytes);
+        }
+        catch (final LinkageError ignored) {
+            //
+            // The entry is unreadable or no longer links against the current class path;
+            // recompile and let the fresh class bytes replace it.
+            //
+            return null;
+        }
+
+        final Class<?> existingClass = _loadedClasses.putIfAbsent(key, definedClass);
+
+        return existingClass != null ? existingClass : definedClass;
+    }
+
+    private void store(final String key, final byte[] classBytes) {
+        try {
+            final Path directory = _directory.toPath();
+
+            Files.createDirectories(directory);
+
+            //
+            // Write to a temporary file first so concurrent readers never see a partial entry.
+            //
+            final Path tempFile = Files.createTempFile(directory, key, ".tmp");
+
+            try {
+                Files.write(tempFile, classBytes);
+                Files.move(
+                    tempFile,
+                    directory.resolve(key + CLASS_FILE_EXTENSION),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE
+                );
+            }
+            finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+        catch (final IOException e) {
+            //
+            // A cache we cannot write to is no worse than no cache at all; the caller still gets
+            // its freshly compiled class, and the next process simply compiles it again.
+            //
+            LOG.log(Level.FINE, "Could not store compiled lambda " + key + " in " + _directory + ".", e);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // STRUCTURAL KEYS                                                                                                    //
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Computes the cache key for a lambda, or {@code null} if the lambda cannot be cached.
+     */
+    static String computeKey(final LambdaExpression<?> lambda) {
+        final KeyBuilder builder = new KeyBuilder(lambda);
+
+        builder.visit(lambda.getBody());
+
+        if (!builder.isCacheable()) {
+            return null;
+        }
+
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final byte[] hash = digest.digest(builder.toString().getBytes(StandardCharsets.UTF_8));
+            final StringBuilder sb = new StringBuilder(hash.length * 2);
+
+            for (final byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+
+            return sb.toString();
+        }
+        catch (final NoSuchAlgorithmException e) {
+            throw ExceptionUtilities.asRuntimeException(e);
+        }
+    }
+
+    private final static class KeyBuilder extends ExpressionVisitor {
+        private final StringBuilder _key = new StringBuilder();
+        private final Map<ParameterExpression, Integer> _variables = new IdentityHashMap<>();
+        private final Map<LabelTarget, Integer> _labels = new IdentityHashMap<>();
+        private boolean _cacheable = true;
+
+        KeyBuilder(final LambdaExpression<?> lambda) {
+            _key.append(Procyon.version())
+                .append('|')
+                .append(lambda.getType().getSignature())
+                .append('|')
+                .append(lambda.isTailCall());
+
+            for (final ParameterExpression parameter : lambda.getParameters()) {
+                appendVariable(parameter);
+            }
+        }
+
+        boolean isCacheable() {
+            return _cacheable;
+        }
+
+        @Override
+        public String toString() {
+            return _key.toString();
+        }
+
+        @Override
+        public Expression visit(final Expression node) {
+            if (!_cacheable) {
+                return node;
+            }
+
+            if (node == null) {
+                _key.append("()");
+                return null;
+            }
+
+            if (node.getClass().getPackage() != KeyBuilder.class.getPackage()) {
+                //
+                // Extension nodes from elsewhere may carry state we cannot see.
+                //
+                _cacheable = false;
+                return node;
+            }
+
+            _key.append('(')
+                .append(node.getClass().getSimpleName())
+                .append(' ')
+                .append(node.getNodeType())
+                .append(' ')
+                .append(node.getType().getSignature());
+
+            appendNodeData(node);
+
+            final Expression result = super.visit(node);
+
+            _key.append(')');
+
+            return result;
+        }
+
+        private void appendNodeData(final Expression node) {
+            if (node instanceof ConstantExpression) {
+                final Object value = ((ConstantExpression) node).getValue();
+
+                if (value == null) {
+                    _key.append(" null");
+                }
+                else if (value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Character) {
+                    final String s = value.toString();
+
+                    _key.append(' ')
+                        .append(value.getClass().getName())
+                        .append(':')
+                        .append(s.length())
+                        .append(':')
+                        .append(s);
+                }
+                else {
+                    //
+                    // Arbitrary objects are bound into a closure and cannot be persisted.
+                    //
+                    _cacheable = false;
+                }
+            }
+            else if (node instanceof ParameterExpression) {
+                appendVariable((ParameterExpression) node);
+            }
+            else if (node instanceof UnaryExpression) {
+                appendMember(((UnaryExpression) node).getMethod());
+            }
+            else if (node instanceof BinaryExpression) {
+                appendMember(((BinaryExpression) node).getMethod());
+            }
+            else if (node instanceof MethodCallExpression) {
+                appendMember(((MethodCallExpression) node).getMethod());
+            }
+            else if (node instanceof NewExpression) {
+                appendMember(((NewExpression) node).getConstructor());
+            }
+            else if (node instanceof MemberExpression) {
+                appendMember(((MemberExpression) node).getMember());
+            }
+            else if (node instanceof TypeBinaryExpression) {
+                _key.append(' ').append(((TypeBinaryExpression) node).getTypeOperand().getSignature());
+            }
+            else if (node instanceof GotoExpression) {
+                _key.append(' ').append(((GotoExpression) node).getKind());
+            }
+            else if (node instanceof SwitchExpression) {
+                _key.append(' ').append(((SwitchExpression) node).getOptions());
+                appendMember(((SwitchExpression) node).getComparison());
+            }
+            else if (node instanceof LambdaExpression) {
+                //
+                // Nested lambdas compile to classes of their own, which the outer class refers to.
+                //
+                _cacheable = false;
+            }
+        }
+
+        private void appendVariable(final ParameterExpression variable) {
+            Integer index = _variables.get(variable);
+
+            if (index == null) {
+                index = _variables.size();
+                _variables.put(variable, index);
+                _key.append(" var")
+                    .append(index)
+                    .append(':')
+                    .append(variable.getType().getSignature());
+            }
+            else {
+                _key.append(" var").append(index);
+            }
+        }
+
+        private void appendMember(final MemberInfo member) {
+            if (member == null) {
+                return;
+            }
+
+            _key.append(' ')
+                .append(member.getDeclaringType().getSignature())
+                .append('.')
+                .append(member.getName())
+                .append(member.getErasedSignature());
+
+            if (member instanceof MethodInfo && ((MethodInfo) member).isGenericMethod()) {
+                _key.append(member.getSignature());
+            }
+        }
+
+        @Override
+        protected LabelTarget visitLabelTarget(final LabelTarget node) {
+            if (node == null) {
+                _key.append(" label()");
+                return null;
+            }
+
+            Integer index = _labels.get(node);
+
+            if (index == null) {
+                index = _labels.size();
+                _labels.put(node, index);
+            }
+
+            _key.append(" label")
+                .append(index)
+                .append(':')
+                .append(node.getType().getSignature());
+
+            return node;
+        }
+
+        @Override
+        protected CatchBlock visitCatchBlock(final CatchBlock node) {
+            _key.append(" catch ").append(node.getTest().getSignature());
+            return super.visitCatchBlock(node);
+        }
+
+        @Override
+        protected SwitchCase visitSwitchCase(final SwitchCase node) {
+            _key.append(" case ").append(node.getTestValues().size());
+            return super.visitSwitchCase(node);
+        }
+    }
+
+    private final static class CachedLambdaClassLoader extends ClassLoader {
+        CachedLambdaClassLoader(final ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> defineClass(final byte[] classBytes) {
+            return defineClass(null, classBytes, 0, classBytes.length);
+        }
+    }
+}
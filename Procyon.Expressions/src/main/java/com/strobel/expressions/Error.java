@@ -818,4 +818,22 @@ final class Error {
             "from a MethodHandle."
         );
     }
+
+    public static IllegalArgumentException invariantParameterNotInLambda(final ParameterExpression parameter) {
+        return new IllegalArgumentException(
+            format(
+                "Invariant parameter '%s' is not a parameter of the lambda being optimized.",
+                parameter.getName()
+            )
+        );
+    }
+
+    public static IllegalArgumentException invariantParameterIsAssigned(final ParameterExpression parameter) {
+        return new IllegalArgumentException(
+            format(
+                "Parameter '%s' cannot be treated as invariant because it is assigned within the lambda body.",
+                parameter.getName()
+            )
+        );
+    }
 }
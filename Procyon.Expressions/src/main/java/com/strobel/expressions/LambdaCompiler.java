@@ -27,6 +27,7 @@ import com.strobel.reflection.emit.*;
 import com.strobel.util.ContractUtils;
 import com.strobel.util.TypeUtils;
 
+import java.io.OutputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
@@ -274,11 +275,19 @@ final class LambdaCompiler {
         return notEmpty(node)/* && !(node instanceof DebugInfoExpression)*/;
     }
 
-    @SuppressWarnings("unchecked")
     static <T> Delegate<T> compile(
         final LambdaExpression<T> lambda,
         final DebugInfoGenerator debugInfoGenerator) {
 
+        return compile(lambda, debugInfoGenerator, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Delegate<T> compile(
+        final LambdaExpression<T> lambda,
+        final DebugInfoGenerator debugInfoGenerator,
+        final OutputStream classBytes) {
+
         // 1. Bind lambda
         final Pair<AnalyzedTree, LambdaExpression<T>> result = analyzeLambda(lambda);
         final AnalyzedTree tree = result.getFirst();
@@ -292,20 +301,29 @@ final class LambdaCompiler {
         // 3. emit
         c.emitLambdaBody();
 
-        final Type<T> generatedType = (Type<T>) c.typeBuilder.createType();
+        final Type<T> generatedType = (Type<T>) (classBytes != null ? c.typeBuilder.createType(classBytes)
+                                                                     : c.typeBuilder.createType());
+
         final Class<T> generatedClass = generatedType.getErasedClass();
 
-        return c.createDelegate(generatedClass);
+        return createDelegate(
+            generatedClass,
+            lambda.getType(),
+            c._hasClosureArgument ? new Closure(c._boundConstants.toArray(), null) : null
+        );
     }
 
     @SuppressWarnings("unchecked")
-    private <T> Delegate<T> createDelegate(final Class<T> generatedClass) {
+    static <T> Delegate<T> createDelegate(
+        final Class<T> generatedClass,
+        final Type<T> interfaceType,
+        final Closure closure) {
+
         try {
             final T instance;
 
-            if (_hasClosureArgument) {
+            if (closure != null) {
                 final Constructor<?> constructor = generatedClass.getConstructor(Closure.class);
-                final Closure closure = new Closure(_boundConstants.toArray(), null);
                 instance = (T) constructor.newInstance(closure);
             }
             else {
@@ -316,7 +334,7 @@ final class LambdaCompiler {
                 MemberType.methodsOnly(),
                 BindingFlags.PublicInstanceDeclared,
                 Type.FilterMethodOverride,
-                Expression.getInvokeMethod(lambda.getType(), true)
+                Expression.getInvokeMethod(interfaceType, true)
             );
 
             return new Delegate<>(
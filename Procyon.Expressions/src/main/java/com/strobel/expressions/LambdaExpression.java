@@ -27,6 +27,7 @@ import com.strobel.reflection.emit.TypeBuilder;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Modifier;
+import java.util.Map;
 
 /**
  * @author Mike Strobel
@@ -133,6 +134,23 @@ public final class LambdaExpression<T> extends Expression {
         return _creationContext;
     }
 
+    /**
+     * Returns an equivalent lambda with constant subtrees folded, untaken branches removed, and
+     * repeated side effect free subtrees computed only once.
+     */
+    public final LambdaExpression<T> optimize() {
+        return Optimizer.optimize(this);
+    }
+
+    /**
+     * Like {@link #optimize()}, but first specializes the lambda for the given parameter values.
+     * Each key must be one of this lambda's parameters, and must never be assigned within its
+     * body.  The returned lambda keeps the same signature; the specialized parameters are ignored.
+     */
+    public final LambdaExpression<T> optimize(final Map<ParameterExpression, ?> invariantArguments) {
+        return Optimizer.optimize(this, invariantArguments);
+    }
+
     public final T compile() {
         return compileDelegate().getInstance();
     }
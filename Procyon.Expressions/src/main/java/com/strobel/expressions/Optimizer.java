@@ -16,58 +16,330 @@
 
 package com.strobel.expressions;
 
+import com.strobel.core.ReadOnlyList;
+import com.strobel.core.VerifyArgument;
 import com.strobel.reflection.PrimitiveTypes;
 import com.strobel.reflection.Type;
+import com.strobel.reflection.Types;
 import com.strobel.util.TypeUtils;
 
+import javax.lang.model.type.TypeKind;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
 import static com.strobel.expressions.Expression.*;
 
 /**
+ * Rewrites expression trees into cheaper equivalents:
+ * <ul>
+ * <li>null and boolean constant comparisons are reduced;</li>
+ * <li>arithmetic, logical, conversion, and concat nodes over constant operands are folded;</li>
+ * <li>untaken branches of conditionals and switches with constant tests are removed;</li>
+ * <li>side effect free subtrees repeated within a lambda are computed once into block-local variables;</li>
+ * <li>parameters the caller marks as invariant are replaced with their values before folding.</li>
+ * </ul>
+ *
  * @author strobelm
  */
 final class Optimizer extends ExpressionVisitor {
-    private final static Optimizer OPTIMIZER = new Optimizer();
-    
+    private final Map<ParameterExpression, ConstantExpression> _invariants;
+
+    private Optimizer(final Map<ParameterExpression, ConstantExpression> invariants) {
+        _invariants = invariants;
+    }
+
     static Expression optimize(final Expression node) {
-        return OPTIMIZER.visit(node);
+        return new Optimizer(Collections.<ParameterExpression, ConstantExpression>emptyMap()).visit(node);
     }
 
     static <T> LambdaExpression<T> optimize(final LambdaExpression<T> node) {
-        return OPTIMIZER.visitLambda(node);
+        return optimize(node, Collections.<ParameterExpression, Object>emptyMap());
+    }
+
+    static <T> LambdaExpression<T> optimize(
+        final LambdaExpression<T> node,
+        final Map<ParameterExpression, ?> invariantArguments) {
+
+        VerifyArgument.notNull(node, "node");
+        VerifyArgument.notNull(invariantArguments, "invariantArguments");
+
+        final ParameterExpressionList parameters = node.getParameters();
+        final Set<ParameterExpression> assigned = AssignedVariableFinder.find(node.getBody());
+        final Map<ParameterExpression, ConstantExpression> invariants = new IdentityHashMap<>();
+
+        for (final Map.Entry<ParameterExpression, ?> entry : invariantArguments.entrySet()) {
+            final ParameterExpression parameter = entry.getKey();
+
+            if (!parameters.contains(parameter)) {
+                throw Error.invariantParameterNotInLambda(parameter);
+            }
+
+            if (assigned.contains(parameter)) {
+                throw Error.invariantParameterIsAssigned(parameter);
+            }
+
+            invariants.put(parameter, constant(entry.getValue(), parameter.getType()));
+        }
+
+        final Expression body = new Optimizer(invariants).visit(node.getBody());
+        final ArrayList<ParameterExpression> invariantParameters = new ArrayList<>();
+
+        for (final ParameterExpression parameter : parameters) {
+            if (!assigned.contains(parameter)) {
+                invariantParameters.add(parameter);
+            }
+        }
+
+        return node.update(
+            CommonSubexpressionEliminator.eliminate(body, invariantParameters),
+            parameters
+        );
+    }
+
+    @Override
+    protected Expression visitParameter(final ParameterExpression node) {
+        final ConstantExpression value = _invariants.get(node);
+
+        if (value != null) {
+            return value;
+        }
+
+        return node;
     }
 
     @Override
     protected Expression visitBinary(final BinaryExpression node) {
-        Expression reduced = reduceNullConstantComparison(node);
+        Expression reduced;
+        final Expression visited;
+
+        if (isBooleanShortCircuit(node)) {
+            //
+            // Visit the left operand only once; visiting it again for each level of a nested chain
+            // would make the optimizer exponential in the depth of the chain.
+            //
+            final Expression left = visit(node.getLeft());
+
+            reduced = reduceShortCircuitConstant(node, left);
+
+            if (reduced != null) {
+                return reduced;
+            }
+
+            visited = node.update(left, node.getConversion(), visit(node.getRight()));
+        }
+        else {
+            visited = super.visitBinary(node);
+        }
+
+        if (!(visited instanceof BinaryExpression)) {
+            return visited;
+        }
+
+        final BinaryExpression binary = (BinaryExpression) visited;
+
+        reduced = reduceNullConstantComparison(binary);
 
         if (reduced != null) {
             return visit(reduced);
         }
-        
-        reduced = reduceBooleanConstantComparison(node);
+
+        reduced = reduceBooleanConstantComparison(binary);
 
         if (reduced != null) {
             return visit(reduced);
         }
 
-        return super.visitBinary(node);
+        reduced = foldBinary(binary);
+
+        if (reduced != null) {
+            return reduced;
+        }
+
+        return binary;
     }
-    
+
     @Override
     protected Expression visitUnary(final UnaryExpression node) {
-        Expression reduced = reduceNullConstantCheck(node);
+        final Expression visited = super.visitUnary(node);
+
+        if (!(visited instanceof UnaryExpression)) {
+            return visited;
+        }
+
+        final UnaryExpression unary = (UnaryExpression) visited;
+
+        Expression reduced = reduceNullConstantCheck(unary);
 
         if (reduced != null) {
             return visit(reduced);
         }
 
-        reduced = reduceDoubleNot(node);
+        reduced = reduceDoubleNot(unary);
 
         if (reduced != null) {
             return visit(reduced);
         }
 
-        return super.visitUnary(node);
+        reduced = foldUnary(unary);
+
+        if (reduced != null) {
+            return reduced;
+        }
+
+        return unary;
+    }
+
+    @Override
+    protected Expression visitConcat(final ConcatExpression node) {
+        final Expression visited = super.visitConcat(node);
+
+        if (!(visited instanceof ConcatExpression)) {
+            return visited;
+        }
+
+        final Expression reduced = foldConcat((ConcatExpression) visited);
+
+        if (reduced != null) {
+            return reduced;
+        }
+
+        return visited;
+    }
+
+    @Override
+    protected Expression visitConditional(final ConditionalExpression node) {
+        final Expression visited = super.visitConditional(node);
+
+        if (!(visited instanceof ConditionalExpression)) {
+            return visited;
+        }
+
+        final ConditionalExpression conditional = (ConditionalExpression) visited;
+        final Expression test = conditional.getTest();
+
+        final Expression taken;
+        final Expression untaken;
+
+        if (ConstantCheck.isTrue(test)) {
+            taken = conditional.getIfTrue();
+            untaken = conditional.getIfFalse();
+        }
+        else if (ConstantCheck.isFalse(test)) {
+            taken = conditional.getIfFalse();
+            untaken = conditional.getIfTrue();
+        }
+        else {
+            return conditional;
+        }
+
+        if (LabelFinder.containsLabel(untaken)) {
+            return conditional;
+        }
+
+        final Expression result = retype(taken, conditional.getType());
+
+        return result != null ? result : conditional;
+    }
+
+    @Override
+    protected Expression visitSwitch(final SwitchExpression node) {
+        final Expression visited = super.visitSwitch(node);
+
+        if (!(visited instanceof SwitchExpression)) {
+            return visited;
+        }
+
+        final SwitchExpression switchExpression = (SwitchExpression) visited;
+        final Expression switchValue = switchExpression.getSwitchValue();
+
+        if (switchValue.getNodeType() != ExpressionType.Constant ||
+            switchExpression.getComparison() != null) {
+
+            return switchExpression;
+        }
+
+        final Object value = ((ConstantExpression) switchValue).getValue();
+        final Type<?> switchValueType = switchValue.getType();
+
+        if (value == null ||
+            !TypeUtils.getUnderlyingPrimitiveOrSelf(switchValueType).isPrimitive() &&
+            switchValueType != Types.String &&
+            !switchValueType.isEnum()) {
+
+            return switchExpression;
+        }
+
+        final ReadOnlyList<SwitchCase> cases = switchExpression.getCases();
+
+        SwitchCase match = null;
+
+        for (final SwitchCase switchCase : cases) {
+            for (final Expression testValue : switchCase.getTestValues()) {
+                if (testValue.getNodeType() != ExpressionType.Constant) {
+                    return switchExpression;
+                }
+
+                if (match == null && value.equals(((ConstantExpression) testValue).getValue())) {
+                    match = switchCase;
+                }
+            }
+        }
+
+        final Expression defaultBody = switchExpression.getDefaultBody();
+        final Expression taken = match != null ? match.getBody() : defaultBody;
+
+        for (final SwitchCase switchCase : cases) {
+            if (switchCase != match && LabelFinder.containsLabel(switchCase.getBody())) {
+                return switchExpression;
+            }
+        }
+
+        if (taken != defaultBody && LabelFinder.containsLabel(defaultBody)) {
+            return switchExpression;
+        }
+
+        final Expression result = retype(
+            taken != null ? taken : empty(),
+            switchExpression.getType()
+        );
+
+        return result != null ? result : switchExpression;
+    }
+
+    private static boolean isBooleanShortCircuit(final BinaryExpression node) {
+        final ExpressionType nodeType = node.getNodeType();
+
+        return (nodeType == ExpressionType.AndAlso || nodeType == ExpressionType.OrElse) &&
+               node.getMethod() == null &&
+               node.getType() == PrimitiveTypes.Boolean;
+    }
+
+    private Expression reduceShortCircuitConstant(final BinaryExpression node, final Expression left) {
+        if (node.getNodeType() == ExpressionType.AndAlso) {
+            // false && expr
+            if (ConstantCheck.isFalse(left) && !LabelFinder.containsLabel(node.getRight())) {
+                return constant(Boolean.FALSE);
+            }
+            // true && expr
+            if (ConstantCheck.isTrue(left)) {
+                return visit(node.getRight());
+            }
+        }
+        else {
+            // true || expr
+            if (ConstantCheck.isTrue(left) && !LabelFinder.containsLabel(node.getRight())) {
+                return constant(Boolean.TRUE);
+            }
+            // false || expr
+            if (ConstantCheck.isFalse(left)) {
+                return visit(node.getRight());
+            }
+        }
+
+        return null;
     }
 
     private Expression reduceNullConstantCheck(final UnaryExpression node) {
@@ -95,10 +367,10 @@ final class Optimizer extends ExpressionVisitor {
                 return block(operand, constant(Boolean.FALSE));
             }
         }
-        
+
         return null;
     }
-    
+
     private Expression reduceDoubleNot(final UnaryExpression node) {
         final Type<?> type = node.getType();
         final Expression operand = node.getOperand();
@@ -109,10 +381,10 @@ final class Optimizer extends ExpressionVisitor {
 
         final ExpressionType nodeType = node.getNodeType();
         final ExpressionType operandNodeType = operand.getNodeType();
-        
+
         if ((nodeType == ExpressionType.Not || nodeType == ExpressionType.IsFalse) &&
             (operandNodeType == ExpressionType.Not || operandNodeType == ExpressionType.IsFalse)) {
-            
+
             return ((UnaryExpression)operand).getOperand();
         }
 
@@ -120,8 +392,8 @@ final class Optimizer extends ExpressionVisitor {
     }
 
     private Expression reduceNullConstantComparison(final BinaryExpression node) {
-        final Expression left = visit(node.getLeft());
-        final Expression right = visit(node.getRight());
+        final Expression left = node.getLeft();
+        final Expression right = node.getRight();
 
         if (node.getType() != PrimitiveTypes.Boolean) {
             return null;
@@ -159,8 +431,8 @@ final class Optimizer extends ExpressionVisitor {
     }
 
     private Expression reduceBooleanConstantComparison(final BinaryExpression node) {
-        final Expression left = visit(node.getLeft());
-        final Expression right = visit(node.getRight());
+        final Expression left = node.getLeft();
+        final Expression right = node.getRight();
 
         final ExpressionType nodeType = node.getNodeType();
 
@@ -216,4 +488,601 @@ final class Optimizer extends ExpressionVisitor {
 
         return null;
     }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // CONSTANT FOLDING                                                                                                   //
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private static Expression foldBinary(final BinaryExpression node) {
+        if (node.getMethod() != null || node.getConversion() != null) {
+            return null;
+        }
+
+        final Object left = primitiveConstantValue(node.getLeft(), false);
+        final Object right = primitiveConstantValue(node.getRight(), false);
+
+        if (left == null || right == null) {
+            return null;
+        }
+
+        final Object result;
+
+        if (left instanceof Boolean && right instanceof Boolean) {
+            result = foldBoolean(node.getNodeType(), (Boolean) left, (Boolean) right);
+        }
+        else if (left instanceof Boolean || right instanceof Boolean) {
+            return null;
+        }
+        else {
+            result = foldNumeric(
+                node.getNodeType(),
+                node.getLeft().getType().getKind(),
+                node.getRight().getType().getKind(),
+                left,
+                right
+            );
+        }
+
+        if (result == null) {
+            return null;
+        }
+
+        return makeConstant(result, node.getType());
+    }
+
+    private static Object foldBoolean(final ExpressionType nodeType, final boolean left, final boolean right) {
+        switch (nodeType) {
+            case And:
+            case AndAlso:
+                return left & right;
+            case Or:
+            case OrElse:
+                return left | right;
+            case ExclusiveOr:
+            case NotEqual:
+                return left ^ right;
+            case Equal:
+                return left == right;
+            default:
+                return null;
+        }
+    }
+
+    private static Object foldNumeric(
+        final ExpressionType nodeType,
+        final TypeKind leftKind,
+        final TypeKind rightKind,
+        final Object left,
+        final Object right) {
+
+        final TypeKind kind;
+
+        switch (nodeType) {
+            case LeftShift:
+            case RightShift:
+            case UnsignedRightShift:
+                //
+                // The type of a shift depends only on its left operand.
+                //
+                kind = promote(leftKind, leftKind);
+                break;
+
+            default:
+                kind = promote(leftKind, rightKind);
+                break;
+        }
+
+        switch (nodeType) {
+            case Equal:
+            case NotEqual:
+            case LessThan:
+            case LessThanOrEqual:
+            case GreaterThan:
+            case GreaterThanOrEqual:
+                return foldComparison(nodeType, kind, left, right);
+        }
+
+        switch (kind) {
+            case FLOAT: {
+                final float l = toNumber(left).floatValue();
+                final float r = toNumber(right).floatValue();
+
+                switch (nodeType) {
+                    case Add:
+                        return l + r;
+                    case Subtract:
+                        return l - r;
+                    case Multiply:
+                        return l * r;
+                    case Divide:
+                        return l / r;
+                    case Modulo:
+                        return l % r;
+                    default:
+                        return null;
+                }
+            }
+
+            case DOUBLE: {
+                final double l = toNumber(left).doubleValue();
+                final double r = toNumber(right).doubleValue();
+
+                switch (nodeType) {
+                    case Add:
+                        return l + r;
+                    case Subtract:
+                        return l - r;
+                    case Multiply:
+                        return l * r;
+                    case Divide:
+                        return l / r;
+                    case Modulo:
+                        return l % r;
+                    default:
+                        return null;
+                }
+            }
+
+            case LONG: {
+                final long l = toNumber(left).longValue();
+                final long r = toNumber(right).longValue();
+
+                switch (nodeType) {
+                    case Add:
+                        return l + r;
+                    case Subtract:
+                        return l - r;
+                    case Multiply:
+                        return l * r;
+                    case Divide:
+                        return r == 0L ? null : l / r;
+                    case Modulo:
+                        return r == 0L ? null : l % r;
+                    case And:
+                        return l & r;
+                    case Or:
+                        return l | r;
+                    case ExclusiveOr:
+                        return l ^ r;
+                    case LeftShift:
+                        return l << r;
+                    case RightShift:
+                        return l >> r;
+                    case UnsignedRightShift:
+                        return l >>> r;
+                    default:
+                        return null;
+                }
+            }
+
+            case INT: {
+                final int l = toNumber(left).intValue();
+                final int r = toNumber(right).intValue();
+
+                switch (nodeType) {
+                    case Add:
+                        return l + r;
+                    case Subtract:
+                        return l - r;
+                    case Multiply:
+                        return l * r;
+                    case Divide:
+                        return r == 0 ? null : l / r;
+                    case Modulo:
+                        return r == 0 ? null : l % r;
+                    case And:
+                        return l & r;
+                    case Or:
+                        return l | r;
+                    case ExclusiveOr:
+                        return l ^ r;
+                    case LeftShift:
+                        return l << r;
+                    case RightShift:
+                        return l >> r;
+                    case UnsignedRightShift:
+                        return l >>> r;
+                    default:
+                        return null;
+                }
+            }
+
+            default:
+                return null;
+        }
+    }
+
+    private static TypeKind promote(final TypeKind left, final TypeKind right) {
+        if (left == TypeKind.DOUBLE || right == TypeKind.DOUBLE) {
+            return TypeKind.DOUBLE;
+        }
+        if (left == TypeKind.FLOAT || right == TypeKind.FLOAT) {
+            return TypeKind.FLOAT;
+        }
+        if (left == TypeKind.LONG || right == TypeKind.LONG) {
+            return TypeKind.LONG;
+        }
+        return TypeKind.INT;
+    }
+
+    private static Object foldComparison(final ExpressionType nodeType, final TypeKind kind, final Object left, final Object right) {
+        final int comparison;
+
+        switch (kind) {
+            case FLOAT:
+            case DOUBLE: {
+                final double l = toNumber(left).doubleValue();
+                final double r = toNumber(right).doubleValue();
+
+                //
+                // Every comparison involving NaN is false, except for !=.
+                //
+                if (Double.isNaN(l) || Double.isNaN(r)) {
+                    return nodeType == ExpressionType.NotEqual;
+                }
+
+                comparison = l < r ? -1 : (l == r ? 0 : 1);
+                break;
+            }
+
+            case LONG:
+            case INT: {
+                final long l = toNumber(left).longValue();
+                final long r = toNumber(right).longValue();
+
+                comparison = l < r ? -1 : (l == r ? 0 : 1);
+                break;
+            }
+
+            default:
+                return null;
+        }
+
+        switch (nodeType) {
+            case Equal:
+                return comparison == 0;
+            case NotEqual:
+                return comparison != 0;
+            case LessThan:
+                return comparison < 0;
+            case LessThanOrEqual:
+                return comparison <= 0;
+            case GreaterThan:
+                return comparison > 0;
+            case GreaterThanOrEqual:
+                return comparison >= 0;
+            default:
+                return null;
+        }
+    }
+
+    private static Expression foldUnary(final UnaryExpression node) {
+        if (node.getMethod() != null) {
+            return null;
+        }
+
+        final Object operand = primitiveConstantValue(
+            node.getOperand(),
+            node.getNodeType() == ExpressionType.Convert
+        );
+
+        if (operand == null) {
+            return null;
+        }
+
+        final Type<?> type = node.getType();
+
+        switch (node.getNodeType()) {
+            case Convert: {
+                if (!TypeUtils.isArithmetic(type) && !TypeUtils.isBoolean(type)) {
+                    return null;
+                }
+                return makeConstant(operand, type);
+            }
+
+            case UnaryPlus:
+                return makeConstant(operand, type);
+
+            case Not:
+            case IsFalse:
+            case OnesComplement: {
+                if (operand instanceof Boolean) {
+                    return makeConstant(!(Boolean) operand, type);
+                }
+                if (node.getNodeType() == ExpressionType.IsFalse) {
+                    return null;
+                }
+                return makeConstant(TypeUtils.getUnderlyingPrimitiveOrSelf(type).getKind() == TypeKind.LONG
+                                    ? (Object) ~toNumber(operand).longValue()
+                                    : (Object) ~toNumber(operand).intValue(), type);
+            }
+
+            case IsTrue: {
+                return operand instanceof Boolean ? makeConstant(operand, type) : null;
+            }
+
+            case Negate:
+            case Increment:
+            case Decrement: {
+                if (operand instanceof Boolean) {
+                    return null;
+                }
+
+                final ExpressionType nodeType = node.getNodeType();
+
+                switch (TypeUtils.getUnderlyingPrimitiveOrSelf(type).getKind()) {
+                    case FLOAT: {
+                        final float value = toNumber(operand).floatValue();
+                        return makeConstant(nodeType == ExpressionType.Negate ? -value
+                                                                              : value + (nodeType == ExpressionType.Increment ? 1f : -1f), type);
+                    }
+
+                    case DOUBLE: {
+                        final double value = toNumber(operand).doubleValue();
+                        return makeConstant(nodeType == ExpressionType.Negate ? -value
+                                                                              : value + (nodeType == ExpressionType.Increment ? 1d : -1d), type);
+                    }
+
+                    case LONG: {
+                        final long value = toNumber(operand).longValue();
+                        return makeConstant(nodeType == ExpressionType.Negate ? -value
+                                                                              : value + (nodeType == ExpressionType.Increment ? 1L : -1L), type);
+                    }
+
+                    default: {
+                        final int value = toNumber(operand).intValue();
+                        return makeConstant(nodeType == ExpressionType.Negate ? -value
+                                                                              : value + (nodeType == ExpressionType.Increment ? 1 : -1), type);
+                    }
+                }
+            }
+
+            default:
+                return null;
+        }
+    }
+
+    private static Expression foldConcat(final ConcatExpression node) {
+        final ExpressionList<? extends Expression> operands = node.getOperands();
+        final ArrayList<Expression> newOperands = new ArrayList<>(operands.size());
+
+        StringBuilder run = null;
+        boolean changed = false;
+
+        for (final Expression operand : operands) {
+            if (isFoldableConcatOperand(operand)) {
+                if (run == null) {
+                    run = new StringBuilder();
+                }
+                else {
+                    changed = true;
+                }
+                run.append(((ConstantExpression) operand).getValue());
+                continue;
+            }
+
+            if (run != null) {
+                newOperands.add(constant(run.toString()));
+                run = null;
+            }
+
+            newOperands.add(operand);
+        }
+
+        if (run != null) {
+            if (newOperands.isEmpty()) {
+                return constant(run.toString());
+            }
+            newOperands.add(constant(run.toString()));
+        }
+
+        if (!changed) {
+            return null;
+        }
+
+        return concat(new ExpressionList<>(newOperands.toArray(new Expression[newOperands.size()])));
+    }
+
+    private static boolean isFoldableConcatOperand(final Expression e) {
+        if (e.getNodeType() != ExpressionType.Constant) {
+            return false;
+        }
+
+        final Type<?> type = TypeUtils.getUnderlyingPrimitiveOrSelf(e.getType());
+
+        return type.isPrimitive() ||
+               type == Types.String ||
+               ((ConstantExpression) e).getValue() == null;
+    }
+
+    private static Object primitiveConstantValue(final Expression e, final boolean allowBoxed) {
+        if (e.getNodeType() != ExpressionType.Constant) {
+            return null;
+        }
+
+        final Object value = ((ConstantExpression) e).getValue();
+        final Type<?> type = allowBoxed ? TypeUtils.getUnderlyingPrimitiveOrSelf(e.getType()) : e.getType();
+
+        if (value == null || !type.isPrimitive()) {
+            return null;
+        }
+
+        return value;
+    }
+
+    private static Number toNumber(final Object value) {
+        if (value instanceof Character) {
+            return (int) (Character) value;
+        }
+        return (Number) value;
+    }
+
+    private static Expression makeConstant(final Object value, final Type<?> type) {
+        final Type<?> primitiveType = TypeUtils.getUnderlyingPrimitiveOrSelf(type);
+
+        if (!primitiveType.isPrimitive()) {
+            return null;
+        }
+
+        final Object coerced;
+
+        if (value instanceof Boolean) {
+            if (primitiveType != PrimitiveTypes.Boolean) {
+                return null;
+            }
+            coerced = value;
+        }
+        else {
+            final Number number = toNumber(value);
+
+            switch (primitiveType.getKind()) {
+                case BYTE:
+                    coerced = number.byteValue();
+                    break;
+                case SHORT:
+                    coerced = number.shortValue();
+                    break;
+                case CHAR:
+                    coerced = (char) number.intValue();
+                    break;
+                case INT:
+                    coerced = number.intValue();
+                    break;
+                case LONG:
+                    coerced = number.longValue();
+                    break;
+                case FLOAT:
+                    coerced = number.floatValue();
+                    break;
+                case DOUBLE:
+                    coerced = number.doubleValue();
+                    break;
+                default:
+                    return null;
+            }
+        }
+
+        return constant(coerced, type);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // DEAD BRANCH ELIMINATION                                                                                            //
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private static Expression retype(final Expression e, final Type<?> type) {
+        final Type<?> actualType = e.getType();
+
+        if (actualType == type) {
+            return e;
+        }
+
+        if (type == PrimitiveTypes.Void) {
+            return block(PrimitiveTypes.Void, e);
+        }
+
+        if (!type.isPrimitive() && !actualType.isPrimitive() && TypeUtils.areReferenceAssignable(type, actualType)) {
+            return convert(e, type);
+        }
+
+        return null;
+    }
+
+    private final static class LabelFinder extends ExpressionVisitor {
+        private boolean _found;
+
+        static boolean containsLabel(final Expression node) {
+            if (node == null) {
+                return false;
+            }
+
+            final LabelFinder finder = new LabelFinder();
+
+            finder.visit(node);
+
+            return finder._found;
+        }
+
+        @Override
+        public Expression visit(final Expression node) {
+            return _found ? node : super.visit(node);
+        }
+
+        @Override
+        protected Expression visitLabel(final LabelExpression node) {
+            _found = true;
+            return node;
+        }
+    }
+
+    final static class AssignedVariableFinder extends ExpressionVisitor {
+        private final Set<ParameterExpression> _assigned = Collections.newSetFromMap(
+            new IdentityHashMap<ParameterExpression, Boolean>()
+        );
+
+        static Set<ParameterExpression> find(final Expression node) {
+            final AssignedVariableFinder finder = new AssignedVariableFinder();
+            finder.visit(node);
+            return finder._assigned;
+        }
+
+        @Override
+        protected Expression visitBinary(final BinaryExpression node) {
+            switch (node.getNodeType()) {
+                case Assign:
+                case AddAssign:
+                case AndAssign:
+                case DivideAssign:
+                case ExclusiveOrAssign:
+                case LeftShiftAssign:
+                case ModuloAssign:
+                case MultiplyAssign:
+                case OrAssign:
+                case RightShiftAssign:
+                case UnsignedRightShiftAssign:
+                case SubtractAssign:
+                    markAssigned(node.getLeft());
+                    break;
+            }
+            return super.visitBinary(node);
+        }
+
+        @Override
+        protected Expression visitUnary(final UnaryExpression node) {
+            switch (node.getNodeType()) {
+                case PreIncrementAssign:
+                case PreDecrementAssign:
+                case PostIncrementAssign:
+                case PostDecrementAssign:
+                    markAssigned(node.getOperand());
+                    break;
+            }
+            return super.visitUnary(node);
+        }
+
+        @Override
+        protected Expression visitRuntimeVariables(final RuntimeVariablesExpression node) {
+            for (final ParameterExpression variable : node.getVariables()) {
+                _assigned.add(variable);
+            }
+            return super.visitRuntimeVariables(node);
+        }
+
+        @Override
+        protected Expression visitForEach(final ForEachExpression node) {
+            _assigned.add(node.getVariable());
+            return super.visitForEach(node);
+        }
+
+        @Override
+        protected Expression visitFor(final ForExpression node) {
+            _assigned.add(node.getVariable());
+            return super.visitFor(node);
+        }
+
+        private void markAssigned(final Expression target) {
+            if (target instanceof ParameterExpression) {
+                _assigned.add((ParameterExpression) target);
+            }
+        }
+    }
 }
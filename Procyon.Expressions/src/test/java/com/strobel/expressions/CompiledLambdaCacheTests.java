@@ -0,0 +1,133 @@
+/*
+ * CompiledLambdaCacheTests.java
+ *
+ * Copyright (c) 2012 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.expressions;
+
+import com.strobel.reflection.PrimitiveTypes;
+import com.strobel.reflection.Type;
+import com.strobel.reflection.Types;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import static com.strobel.expressions.Expression.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author Mike Strobel
+ */
+public class CompiledLambdaCacheTests extends AbstractExpressionTest {
+    public interface IntOperator {
+        int apply(int a, int b);
+    }
+
+    private static final Type<IntOperator> INT_OPERATOR = Type.of(IntOperator.class);
+
+    private File _directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        _directory = Files.createTempDirectory("procyon-lambda-cache").toFile();
+    }
+
+    @After
+    public void deleteDirectory() {
+        final File[] files = _directory.listFiles();
+
+        if (files != null) {
+            for (final File file : files) {
+                assertTrue(file.delete());
+            }
+        }
+
+        assertTrue(_directory.delete());
+    }
+
+    private static LambdaExpression<IntOperator> makeLambda(final int offset) {
+        final ParameterExpression a = parameter(PrimitiveTypes.Integer, "a");
+        final ParameterExpression b = parameter(PrimitiveTypes.Integer, "b");
+
+        return lambda(
+            INT_OPERATOR,
+            add(multiply(a, b), constant(offset)),
+            a,
+            b
+        );
+    }
+
+    @Test
+    public void testStructurallyEqualTreesShareKey() throws Throwable {
+        assertEquals(
+            CompiledLambdaCache.computeKey(makeLambda(1)),
+            CompiledLambdaCache.computeKey(makeLambda(1))
+        );
+
+        assertNotEquals(
+            CompiledLambdaCache.computeKey(makeLambda(1)),
+            CompiledLambdaCache.computeKey(makeLambda(2))
+        );
+    }
+
+    @Test
+    public void testCompiledClassIsPersistedAndReloaded() throws Throwable {
+        final IntOperator first = new CompiledLambdaCache(_directory).compile(makeLambda(3));
+
+        assertEquals(9, first.apply(2, 3));
+        assertEquals(1, _directory.listFiles().length);
+
+        //
+        // A fresh cache over the same directory stands in for a new process.
+        //
+        final IntOperator second = new CompiledLambdaCache(_directory).compile(makeLambda(3));
+
+        assertEquals(9, second.apply(2, 3));
+        assertNotSame(first.getClass(), second.getClass());
+        assertNotSame(first.getClass().getClassLoader(), second.getClass().getClassLoader());
+    }
+
+    @Test
+    public void testLambdaRequiringClosureIsNotPersisted() throws Throwable {
+        final ParameterExpression list = parameter(Types.Object, "list");
+
+        final LambdaExpression<?> lambda = lambda(
+            referenceEqual(list, constant(new ArrayList<>(), Types.Object)),
+            list
+        );
+
+        assertNull(CompiledLambdaCache.computeKey(lambda));
+
+        new CompiledLambdaCache(_directory).compileDelegate(lambda);
+
+        assertEquals(0, _directory.listFiles().length);
+    }
+
+    @Test
+    public void testUnwritableCacheStillCompiles() throws Throwable {
+        //
+        // A regular file where the cache expects a directory makes every write fail.
+        //
+        final File notADirectory = new File(_directory, "entries");
+
+        assertTrue(notADirectory.createNewFile());
+
+        final IntOperator operator = new CompiledLambdaCache(notADirectory).compile(makeLambda(4));
+
+        assertEquals(10, operator.apply(2, 3));
+        assertTrue(notADirectory.isFile());
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * OptimizerTests.java
+ *
+ * Copyright (c) 2012 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.expressions;
+
+import com.strobel.reflection.PrimitiveTypes;
+import com.strobel.reflection.Type;
+import com.strobel.reflection.Types;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static com.strobel.expressions.Expression.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author Mike Strobel
+ */
+public class OptimizerTests extends AbstractExpressionTest {
+    interface IntOperator {
+        int apply(int a, int b);
+    }
+
+    interface StringOperator {
+        String apply(int a, int b);
+    }
+
+    private static final Type<IntOperator> INT_OPERATOR = Type.of(IntOperator.class);
+    private static final Type<StringOperator> STRING_OPERATOR = Type.of(StringOperator.class);
+
+    @Test
+    public void testArithmeticConstantFolding() throws Throwable {
+        final ParameterExpression a = parameter(PrimitiveTypes.Integer, "a");
+        final ParameterExpression b = parameter(PrimitiveTypes.Integer, "b");
+
+        final LambdaExpression<IntOperator> lambda = lambda(
+            INT_OPERATOR,
+            add(
+                constant(2),
+                multiply(
+                    convert(constant(3L), PrimitiveTypes.Integer),
+                    subtract(constant(7), leftShift(constant(1), constant(1)))
+                )
+            ),
+            a,
+            b
+        );
+
+        final LambdaExpression<IntOperator> optimized = lambda.optimize();
+
+        assertEquals(ExpressionType.Constant, optimized.getBody().getNodeType());
+        assertEquals(17, ((ConstantExpression) optimized.getBody()).getValue());
+        assertEquals(17, optimized.compile().apply(0, 0));
+    }
+
+    @Test(timeout = 30000)
+    public void testDeepShortCircuitChain() throws Throwable {
+        final ParameterExpression a = parameter(PrimitiveTypes.Integer, "a");
+        final ParameterExpression b = parameter(PrimitiveTypes.Integer, "b");
+
+        //
+        // A left-deep chain: ((true && a < 1) && a < 2) && ...; each operand must be optimized once.
+        //
+        Expression chain = constant(true);
+
+        for (int i = 1; i <= 60; i++) {
+            chain = andAlso(chain, lessThan(a, constant(i)));
+        }
+
+        chain = orElse(chain, greaterThan(b, constant(100)));
+
+        final LambdaExpression<IntOperator> lambda = lambda(
+            INT_OPERATOR,
+            condition(chain, constant(1), constant(0)),
+            a,
+            b
+        );
+
+        final IntOperator delegate = lambda.optimize().compile();
+
+        assertEquals(1, delegate.apply(0, 0));
+        assertEquals(0, delegate.apply(30, 0));
+        assertEquals(1, delegate.apply(30, 101));
+    }
+
+    @Test
+    public void testIntegerDivisionByZeroIsNotFolded() throws Throwable {
+        final ParameterExpression a = parameter(PrimitiveTypes.Integer, "a");
+        final ParameterExpression b = parameter(PrimitiveTypes.Integer, "b");
+
+        final LambdaExpression<IntOperator> lambda = lambda(
+            INT_OPERATOR,
+            divide(constant(1), constant(0)),
+            a,
+            b
+        );
+
+        assertEquals(ExpressionType.Divide, lambda.optimize().getBody().getNodeType());
+    }
+
+    @Test
+    public void testConcatConstantFolding() throws Throwable {
+        final ParameterExpression a = parameter(PrimitiveTypes.Integer, "a");
+        final ParameterExpression b = parameter(PrimitiveTypes.Integer, "b");
+
+        final LambdaExpression<StringOperator> lambda = lambda(
+            STRING_OPERATOR,
+            concat(constant("x"), constant('y'), constant(1), a, constant(true), constant("z")),
+            a,
+            b
+        );
+
+        final LambdaExpression<StringOperator> optimized = lambda.optimize();
+        final ConcatExpression concat = (ConcatExpression) optimized.getBody();
+
+        assertEquals(3, concat.getOperands().size());
+        assertEquals("xy1", ((ConstantExpression) concat.getOperands().get(0)).getValue());
+        assertEquals("truez", ((ConstantExpression) concat.getOperands().get(2)).getValue());
+        assertEquals("xy142truez", optimized.compile().apply(42, 0));
+    }
+
+    @Test
+    public void testDeadBranchElimination() throws Throwable {
+        final ParameterExpression a = parameter(PrimitiveTypes.Integer, "a");
+        final ParameterExpression b = parameter(PrimitiveTypes.Integer, "b");
+
+        final LambdaExpression<IntOperator> lambda = lambda(
+            INT_OPERATOR,
+            condition(
+                lessThan(constant(1), constant(2)),
+                makeSwitch(
+                    constant(3),
+                    constant(-1),
+                    switchCase(a, constant(1), constant(2)),
+                    switchCase(b, constant(3))
+                ),
+                constant(-2)
+            ),
+            a,
+            b
+        );
+
+        final LambdaExpression<IntOperator> optimized = lambda.optimize();
+
+        assertSame(b, optimized.getBody());
+        assertEquals(5, optimized.compile().apply(4, 5));
+    }
+
+    @Test
+    public void testCommonSubexpressionElimination() throws Throwable {
+        final ParameterExpression a = parameter(PrimitiveTypes.Integer, "a");
+        final ParameterExpression b = parameter(PrimitiveTypes.Integer, "b");
+
+        final LambdaExpression<IntOperator> lambda = lambda(
+            INT_OPERATOR,
+            add(
+                multiply(add(a, b), add(a, b)),
+                condition(greaterThan(add(a, b), constant(10)), constant(1), constant(0))
+            ),
+            a,
+            b
+        );
+
+        final LambdaExpression<IntOperator> optimized = lambda.optimize();
+        final BlockExpression block = (BlockExpression) optimized.getBody();
+
+        assertEquals(1, block.getVariables().size());
+        assertEquals(25, optimized.compile().apply(2, 3));
+        assertEquals(122, optimized.compile().apply(5, 6));
+    }
+
+    @Test
+    public void testAssignedParametersAreNotShared() throws Throwable {
+        final ParameterExpression a = parameter(PrimitiveTypes.Integer, "a");
+        final ParameterExpression b = parameter(PrimitiveTypes.Integer, "b");
+
+        final LambdaExpression<IntOperator> lambda = lambda(
+            INT_OPERATOR,
+            block(
+                assign(b, add(a, b)),
+                add(add(a, b), add(a, b))
+            ),
+            a,
+            b
+        );
+
+        final LambdaExpression<IntOperator> optimized = lambda.optimize();
+
+        assertSame(lambda, optimized);
+        assertEquals(10, optimized.compile().apply(1, 3));
+    }
+
+    @Test
+    public void testPartialEvaluation() throws Throwable {
+        final ParameterExpression a = parameter(PrimitiveTypes.Integer, "a");
+        final ParameterExpression b = parameter(PrimitiveTypes.Integer, "b");
+
+        final LambdaExpression<StringOperator> lambda = lambda(
+            STRING_OPERATOR,
+            condition(
+                equal(a, constant(0)),
+                concat(constant("zero:"), b),
+                concat(constant("a="), a, constant(",b="), b)
+            ),
+            a,
+            b
+        );
+
+        final LambdaExpression<StringOperator> optimized = lambda.optimize(
+            Collections.singletonMap(a, (Object) 7)
+        );
+
+        final ConcatExpression concat = (ConcatExpression) optimized.getBody();
+
+        assertEquals(2, concat.getOperands().size());
+        assertEquals("a=7,b=", ((ConstantExpression) concat.getOperands().get(0)).getValue());
+        assertEquals("a=7,b=3", optimized.compile().apply(0, 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAssignedParameterCannotBeInvariant() throws Throwable {
+        final ParameterExpression a = parameter(PrimitiveTypes.Integer, "a");
+        final ParameterExpression b = parameter(PrimitiveTypes.Integer, "b");
+
+        final LambdaExpression<IntOperator> lambda = lambda(
+            INT_OPERATOR,
+            block(assign(a, b), a),
+            a,
+            b
+        );
+
+        lambda.optimize(Collections.singletonMap(a, (Object) 1));
+    }
+
+    @Test
+    public void testBooleanConstantComparisonReduction() throws Throwable {
+        final ParameterExpression s = parameter(Types.String, "s");
+
+        final LambdaExpression<?> lambda = lambda(
+            equal(notEqual(s, constant(null, Types.String)), constant(true)),
+            s
+        );
+
+        assertEquals(ExpressionType.IsNotNull, lambda.optimize().getBody().getNodeType());
+    }
+}
@@ -964,7 +964,7 @@ class ReflectedType<T> extends Type<T> {
     private          Type<? super T> _baseType;
     private          TypeList        _interfaces;
     private volatile int             _flags;
-    private          boolean         _completed;
+    private volatile boolean         _completed;
     private          Type<?>         _declaringType;
     private          MethodBase      _declaringMethod;
 
@@ -1232,14 +1232,17 @@ class ReflectedType<T> extends Type<T> {
             return;
         }
 
-        _completed = true;
-
         if (_genericParameters == null || _genericParameters.isEmpty()) {
             _typeBindings = TypeBindings.empty();
         }
         else {
             _typeBindings = TypeBindings.createUnbound(list(_genericParameters));
         }
+
+        //
+        // Set last: completeIfNecessary() reads this flag without holding the cache lock.
+        //
+        _completed = true;
     }
 
     @Override
@@ -1274,6 +1277,12 @@ class ReflectedType<T> extends Type<T> {
 
     @Override
     protected Type makeGenericTypeCore(final TypeList typeArguments) {
+        final Type<?> resolvedType = CACHE.findResolvedGenericType(getGenericTypeDefinition(), typeArguments);
+
+        if (resolvedType != null) {
+            return resolvedType;
+        }
+
         synchronized (CACHE_LOCK) {
             return CACHE.getGenericType(getGenericTypeDefinition(), typeArguments);
         }
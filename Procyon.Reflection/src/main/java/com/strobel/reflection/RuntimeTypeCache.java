@@ -29,9 +29,13 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 enum MemberListType {
     All,
@@ -69,11 +73,31 @@ final class RuntimeTypeCache<T> {
     private String _internalName;
     private String _genericSignature;
     private Package _package;
-    private MemberInfoCache<RuntimeMethodInfo> _methodCache;
-    private MemberInfoCache<RuntimeConstructorInfo> _constructorCache;
-    private MemberInfoCache<RuntimeFieldInfo> _fieldCache;
-    private MemberInfoCache<Type<?>> _interfaceCache;
-    private MemberInfoCache<Type<?>> _nestedTypeCache;
+    private volatile MemberInfoCache<RuntimeMethodInfo> _methodCache;
+    private volatile MemberInfoCache<RuntimeConstructorInfo> _constructorCache;
+    private volatile MemberInfoCache<RuntimeFieldInfo> _fieldCache;
+    private volatile MemberInfoCache<Type<?>> _interfaceCache;
+    private volatile MemberInfoCache<Type<?>> _nestedTypeCache;
+
+    @SuppressWarnings("rawtypes")
+    private final static AtomicReferenceFieldUpdater<RuntimeTypeCache, MemberInfoCache> METHOD_CACHE_UPDATER =
+        AtomicReferenceFieldUpdater.newUpdater(RuntimeTypeCache.class, MemberInfoCache.class, "_methodCache");
+
+    @SuppressWarnings("rawtypes")
+    private final static AtomicReferenceFieldUpdater<RuntimeTypeCache, MemberInfoCache> CONSTRUCTOR_CACHE_UPDATER =
+        AtomicReferenceFieldUpdater.newUpdater(RuntimeTypeCache.class, MemberInfoCache.class, "_constructorCache");
+
+    @SuppressWarnings("rawtypes")
+    private final static AtomicReferenceFieldUpdater<RuntimeTypeCache, MemberInfoCache> FIELD_CACHE_UPDATER =
+        AtomicReferenceFieldUpdater.newUpdater(RuntimeTypeCache.class, MemberInfoCache.class, "_fieldCache");
+
+    @SuppressWarnings("rawtypes")
+    private final static AtomicReferenceFieldUpdater<RuntimeTypeCache, MemberInfoCache> INTERFACE_CACHE_UPDATER =
+        AtomicReferenceFieldUpdater.newUpdater(RuntimeTypeCache.class, MemberInfoCache.class, "_interfaceCache");
+
+    @SuppressWarnings("rawtypes")
+    private final static AtomicReferenceFieldUpdater<RuntimeTypeCache, MemberInfoCache> NESTED_TYPE_CACHE_UPDATER =
+        AtomicReferenceFieldUpdater.newUpdater(RuntimeTypeCache.class, MemberInfoCache.class, "_nestedTypeCache");
 
 //    private static HashMap<RuntimeMethodInfo, RuntimeMethodInfo> _methodInstantiations;
 
@@ -156,25 +180,6 @@ final class RuntimeTypeCache<T> {
         return _enclosingType;
     }
 
-    private final static class Filter {
-        private final String _name;
-        private final MemberListType _listType;
-
-        private Filter(final String name, final MemberListType listType) {
-            this._name = name;
-            this._listType = VerifyArgument.notNull(listType, "listType");
-        }
-
-        private boolean match(final String name) {
-            if (_listType == MemberListType.CaseSensitive) {
-                return _name == null || _name.equals(name);
-            }
-            return _listType != MemberListType.CaseInsensitive ||
-                   _name == null ||
-                   _name.equalsIgnoreCase(name);
-        }
-    }
-
 /*
     final MethodInfo getGenericMethodInfo(final RuntimeMethodInfo genericMethod) {
         if (_methodInstantiations == null) {
@@ -232,243 +237,184 @@ final class RuntimeTypeCache<T> {
     }
 */
 
-    ArrayList<RuntimeMethodInfo> getMethodList(final MemberListType listType, final String name) {
+    //
+    // Member caches are created lazily and installed with a CAS; losing a race merely discards
+    // an empty cache, so no lock is needed.
+    //
+
+    private MemberInfoCache<RuntimeMethodInfo> methodCache() {
         if (_methodCache == null) {
-            synchronized (Type.CACHE_LOCK) {
-                if (_methodCache == null) {
-                    _methodCache = new MemberInfoCache<>(this);
-                }
-            }
+            METHOD_CACHE_UPDATER.compareAndSet(this, null, new MemberInfoCache<RuntimeMethodInfo>(this));
         }
-
-        return _methodCache.getMemberList(listType, name, CacheType.Method);
+        return _methodCache;
     }
 
-    ArrayList<RuntimeConstructorInfo> getConstructorList(final MemberListType listType, final String name) {
+    private MemberInfoCache<RuntimeConstructorInfo> constructorCache() {
         if (_constructorCache == null) {
-            synchronized (Type.CACHE_LOCK) {
-                if (_constructorCache == null) {
-                    _constructorCache = new MemberInfoCache<>(this);
-                }
-            }
+            CONSTRUCTOR_CACHE_UPDATER.compareAndSet(this, null, new MemberInfoCache<RuntimeConstructorInfo>(this));
         }
-
-        return _constructorCache.getMemberList(listType, name, CacheType.Constructor);
+        return _constructorCache;
     }
 
-    ArrayList<RuntimeFieldInfo> getFieldList(final MemberListType listType, final String name) {
+    private MemberInfoCache<RuntimeFieldInfo> fieldCache() {
         if (_fieldCache == null) {
-            synchronized (Type.CACHE_LOCK) {
-                if (_fieldCache == null) {
-                    _fieldCache = new MemberInfoCache<>(this);
-                }
-            }
+            FIELD_CACHE_UPDATER.compareAndSet(this, null, new MemberInfoCache<RuntimeFieldInfo>(this));
         }
-
-        return _fieldCache.getMemberList(listType, name, CacheType.Field);
+        return _fieldCache;
     }
 
-    ArrayList<Type<?>> getInterfaceList(final MemberListType listType, final String name) {
+    private MemberInfoCache<Type<?>> interfaceCache() {
         if (_interfaceCache == null) {
-            synchronized (Type.CACHE_LOCK) {
-                if (_interfaceCache == null) {
-                    _interfaceCache = new MemberInfoCache<>(this);
-                }
-            }
+            INTERFACE_CACHE_UPDATER.compareAndSet(this, null, new MemberInfoCache<Type<?>>(this));
         }
-
-        return _interfaceCache.getMemberList(listType, name, CacheType.Interface);
+        return _interfaceCache;
     }
 
-    ArrayList<Type<?>> getNestedTypeList(final MemberListType listType, final String name) {
+    private MemberInfoCache<Type<?>> nestedTypeCache() {
         if (_nestedTypeCache == null) {
-            synchronized (Type.CACHE_LOCK) {
-                if (_nestedTypeCache == null) {
-                    _nestedTypeCache = new MemberInfoCache<>(this);
-                }
-            }
+            NESTED_TYPE_CACHE_UPDATER.compareAndSet(this, null, new MemberInfoCache<Type<?>>(this));
         }
+        return _nestedTypeCache;
+    }
 
-        return _nestedTypeCache.getMemberList(listType, name, CacheType.NestedType);
+    List<RuntimeMethodInfo> getMethodList(final MemberListType listType, final String name) {
+        return methodCache().getMemberList(listType, name, CacheType.Method);
     }
 
-    MethodBase getMethod(final Type<? super T> declaringType, final MethodInfo method) {
-        if (_methodCache == null) {
-            synchronized (Type.CACHE_LOCK) {
-                if (_methodCache == null) {
-                    _methodCache = new MemberInfoCache<>(this);
-                }
-            }
-        }
+    List<RuntimeConstructorInfo> getConstructorList(final MemberListType listType, final String name) {
+        return constructorCache().getMemberList(listType, name, CacheType.Constructor);
+    }
 
-        return _methodCache.addMethod(declaringType, method, CacheType.Method);
+    List<RuntimeFieldInfo> getFieldList(final MemberListType listType, final String name) {
+        return fieldCache().getMemberList(listType, name, CacheType.Field);
     }
 
-    MethodBase getConstructor(final Type<? super T> declaringType, final MethodInfo constructor) {
-        if (_constructorCache == null) {
-            synchronized (Type.CACHE_LOCK) {
-                if (_constructorCache == null) {
-                    _constructorCache = new MemberInfoCache<>(this);
-                }
-            }
-        }
+    List<Type<?>> getInterfaceList(final MemberListType listType, final String name) {
+        return interfaceCache().getMemberList(listType, name, CacheType.Interface);
+    }
+
+    List<Type<?>> getNestedTypeList(final MemberListType listType, final String name) {
+        return nestedTypeCache().getMemberList(listType, name, CacheType.NestedType);
+    }
+
+    MethodBase getMethod(final Type<? super T> declaringType, final MethodInfo method) {
+        return methodCache().addMethod(declaringType, method, CacheType.Method);
+    }
 
-        return _constructorCache.addMethod(declaringType, constructor, CacheType.Constructor);
+    MethodBase getConstructor(final Type<? super T> declaringType, final MethodInfo constructor) {
+        return constructorCache().addMethod(declaringType, constructor, CacheType.Constructor);
     }
 
     FieldInfo getField(final FieldInfo field) {
-        if (_fieldCache == null) {
-            synchronized (Type.CACHE_LOCK) {
-                if (_fieldCache == null) {
-                    _fieldCache = new MemberInfoCache<>(this);
-                }
-            }
-        }
-        return _fieldCache.addField(field);
+        return fieldCache().addField(field);
     }
 
     @SuppressWarnings("unchecked")
     final static class MemberInfoCache<T extends MemberInfo> {
-        private HashMap<String, ArrayList<T>> _caseSensitiveMembers;
-        private HashMap<String, ArrayList<T>> _caseInsensitiveMembers;
-        private ArrayList<T> _root;
-        private boolean _cacheComplete;
+        private volatile MemberIndex<T> _index;
+        private final HashMap<T, T> _addedMembers = new HashMap<>();
 
         // This is the strong reference back to the cache
         private final RuntimeTypeCache<?> _typeCache;
 
         private MemberInfoCache(final RuntimeTypeCache<?> typeCache) {
             _typeCache = VerifyArgument.notNull(typeCache, "typeCache");
-            _cacheComplete = false;
         }
 
         Type<?> getReflectedType() {
             return _typeCache.getRuntimeType();
         }
 
-        private void mergeWithGlobalList(final ArrayList<T> list) {
-            final int cachedCount = _root.size();
-
-            for (int i = 0, n = list.size(); i < n; i++) {
-                final T newMemberInfo = list.get(i);
-
-                T cachedMemberInfo = null;
+        final List<T> getMemberList(final MemberListType listType, final String name, final CacheType cacheType) {
+            final MemberIndex<T> index = getIndex(cacheType);
 
-                for (int j = 0; j < cachedCount; j++) {
-                    cachedMemberInfo = _root.get(j);
-
-                    if (newMemberInfo.equals(cachedMemberInfo)) {
-                        list.set(i, cachedMemberInfo);
-                        break;
-                    }
-                }
+            if (name == null || name.length() == 0 ||
+                (cacheType == CacheType.Constructor && name.charAt(0) != '.' && name.charAt(0) != '*')) {
 
-                if (list.get(i) != cachedMemberInfo) {
-                    _root.add(newMemberInfo);
-                }
+                return index.all;
             }
-        }
 
-        final ArrayList<T> getMemberList(final MemberListType listType, final String name, final CacheType cacheType) {
-            final ArrayList<T> list;
+            final List<T> list;
 
             switch (listType) {
                 case CaseSensitive:
-                    if (_caseSensitiveMembers == null) {
-                        return populate(name, listType, cacheType);
-                    }
+                    list = index.byName.get(name);
+                    break;
 
-                    list = _caseSensitiveMembers.get(name);
+                case CaseInsensitive:
+                    list = index.byNameIgnoreCase.get(name.toLowerCase());
+                    break;
 
-                    if (list == null) {
-                        return populate(name, listType, cacheType);
-                    }
+                default:
+                    return index.all;
+            }
 
-                    return list;
+            return list != null ? list : Collections.<T>emptyList();
+        }
 
-                case All:
-                    if (_cacheComplete) {
-                        return _root;
-                    }
+        private MemberIndex<T> getIndex(final CacheType cacheType) {
+            final MemberIndex<T> index = _index;
 
-                    return populate(null, listType, cacheType);
+            if (index != null) {
+                return index;
+            }
 
-                default:
-                    if (_caseInsensitiveMembers == null) {
-                        return populate(name, listType, cacheType);
-                    }
+            //
+            // Build outside the monitor: populating may resolve types under CACHE_LOCK, and
+            // a thread holding that lock may be waiting on this cache.  Losers discard their copy.
+            //
+            final ArrayList<T> members = populate(cacheType);
 
-                    list = _caseInsensitiveMembers.get(name);
+            while (true) {
+                final ArrayList<T> addedMembers;
 
-                    if (list == null) {
-                        return populate(name, listType, cacheType);
+                synchronized (this) {
+                    if (_index != null) {
+                        return _index;
                     }
+                    addedMembers = new ArrayList<>(_addedMembers.values());
+                }
+
+                //
+                // Members handed out before the index existed must stay identical to the ones in it.
+                // If more were handed out while we were building, build again.
+                //
+                final MemberIndex<T> newIndex = new MemberIndex<>(members, addedMembers, cacheType);
 
-                    return list;
+                synchronized (this) {
+                    if (_index == null && _addedMembers.size() == addedMembers.size()) {
+                        _index = newIndex;
+                    }
+                    if (_index != null) {
+                        return _index;
+                    }
+                }
             }
         }
 
-        final ArrayList<T> insert(final ArrayList<T> list, final String name, final MemberListType listType) {
-            boolean preallocationComplete = false;
-
-            ArrayList<T> result = list;
+        private T canonicalize(final T member, final CacheType cacheType) {
+            final String key = MemberIndex.signatureKey(member, cacheType);
 
             synchronized (this) {
-                try {
+                final MemberIndex<T> index = _index;
 
-                    if (listType == MemberListType.CaseSensitive) {
-                        if (_caseSensitiveMembers == null) {
-                            _caseSensitiveMembers = new HashMap<>(1);
-                        }
-                    }
-                    else if (listType == MemberListType.CaseInsensitive) {
-                        if (_caseInsensitiveMembers == null) {
-                            _caseInsensitiveMembers = new HashMap<>(1);
-                        }
-                    }
+                if (index != null) {
+                    final T existing = index.findEquivalent(key, member);
 
-                    if (_root == null) {
-                        _root = new ArrayList<>(list.size());
+                    if (existing != null) {
+                        return existing;
                     }
-
-                    preallocationComplete = true;
                 }
-                finally {
-                    if (preallocationComplete) {
-                        if (listType == MemberListType.CaseSensitive) {
-                            // Ensure we always return a list that has been merged with the global list.
-                            final ArrayList<T> cachedList = _caseSensitiveMembers.get(name);
-                            if (cachedList == null) {
-                                mergeWithGlobalList(list);
-                                _caseSensitiveMembers.put(name, list);
-                            }
-                            else {
-                                result = cachedList;
-                            }
-                        }
-                        else if (listType == MemberListType.CaseInsensitive) {
-                            // Ensure we always return a list that has been merged with the global list.
-                            final ArrayList<T> cachedList = _caseInsensitiveMembers.get(name);
-                            if (cachedList == null) {
-                                mergeWithGlobalList(list);
-                                _caseInsensitiveMembers.put(name, list);
-                            }
-                            else {
-                                result = cachedList;
-                            }
-                        }
-                        else {
-                            mergeWithGlobalList(list);
-                        }
 
-                        if (listType == MemberListType.All) {
-                            _cacheComplete = true;
-                        }
-                    }
+                final T existing = _addedMembers.get(member);
+
+                if (existing != null) {
+                    return existing;
                 }
-            }
 
-            return result;
+                _addedMembers.put(member, member);
+                return member;
+            }
         }
 
         final MethodBase addMethod(final Type<?> declaringType, final MethodBase method, final CacheType cacheType) {
@@ -521,7 +467,7 @@ final class RuntimeTypeCache<T> {
                     throw ContractUtils.unreachable();
             }
 
-            return (MethodBase) insert(list, null, MemberListType.HandleToInfo).get(0);
+            return (MethodBase) canonicalize(list.get(0), cacheType);
         }
 
         final FieldInfo addField(final FieldInfo field) {
@@ -544,11 +490,10 @@ final class RuntimeTypeCache<T> {
                 )
             );
 
-            return (FieldInfo) insert(list, null, MemberListType.HandleToInfo).get(0);
+            return (FieldInfo) canonicalize(list.get(0), CacheType.Field);
         }
 
         private void populateRuntimeFields(
-            final Filter filter,
             final FieldList declaredFields,
             final Type<?> declaringType,
             final ArrayList<RuntimeFieldInfo> list) {
@@ -562,10 +507,6 @@ final class RuntimeTypeCache<T> {
             for (int i = 0, n = declaredFields.size(); i < n; i++) {
                 final FieldInfo declaredField = declaredFields.get(i);
 
-                if (!filter.match(declaredField.getName())) {
-                    continue;
-                }
-
                 assert declaredField.getFieldType() != Type.NullType;
 
                 final int fieldModifiers = declaredField.getModifiers();
@@ -592,7 +533,7 @@ final class RuntimeTypeCache<T> {
             }
         }
 
-        private ArrayList<RuntimeFieldInfo> populateFields(final Filter filter) {
+        private ArrayList<RuntimeFieldInfo> populateFields() {
             final ArrayList<RuntimeFieldInfo> list = new ArrayList<>();
             final Type<?> reflectedType = getReflectedType();
 
@@ -603,7 +544,7 @@ final class RuntimeTypeCache<T> {
             }
 
             while (declaringType != null && declaringType != Type.NullType) {
-                populateRuntimeFields(filter, declaringType.getDeclaredFields(), declaringType, list);
+                populateRuntimeFields(declaringType.getDeclaredFields(), declaringType, list);
                 declaringType = declaringType.getBaseType();
             }
 
@@ -614,14 +555,14 @@ final class RuntimeTypeCache<T> {
             for (int i = 0, n = interfaces.size(); i < n; i++) {
                 // Populate literal fields defined on any of the interfaces implemented by the declaring type 
                 final Type<?> interfaceType = interfaces.get(i);
-                populateRuntimeFields(filter, interfaceType.getDeclaredFields(), interfaceType, list);
+                populateRuntimeFields(interfaceType.getDeclaredFields(), interfaceType, list);
             }
 
             return list;
         }
 
         @SuppressWarnings("ConstantConditions")
-        private ArrayList<RuntimeMethodInfo> populateMethods(final Filter filter) {
+        private ArrayList<RuntimeMethodInfo> populateMethods() {
             final HashMap<String, ArrayList<RuntimeMethodInfo>> nameLookup = new HashMap<>();
             final ArrayList<RuntimeMethodInfo> list = new ArrayList<>();
             final Type<?> reflectedType = getReflectedType();
@@ -645,7 +586,7 @@ final class RuntimeTypeCache<T> {
                 for (final MethodInfo method : declaringType.getDeclaredMethods()) {
                     final String name = method.getName();
 
-                    if ((method.getModifiers() & Flags.ACC_BRIDGE) == Flags.ACC_BRIDGE || !filter.match(name)) {
+                    if ((method.getModifiers() & Flags.ACC_BRIDGE) == Flags.ACC_BRIDGE) {
                         continue;
                     }
 
@@ -739,7 +680,7 @@ final class RuntimeTypeCache<T> {
             return false;
         }
 
-        private ArrayList<RuntimeConstructorInfo> populateConstructors(final Filter filter) {
+        private ArrayList<RuntimeConstructorInfo> populateConstructors() {
             final Type<?> reflectedType = getReflectedType();
             final ArrayList<RuntimeConstructorInfo> list = new ArrayList<>();
 
@@ -748,12 +689,6 @@ final class RuntimeTypeCache<T> {
             }
 
             for (final ConstructorInfo constructor : reflectedType.getDeclaredConstructors()) {
-                final String name = constructor.getName();
-
-                if (!filter.match(name)) {
-                    continue;
-                }
-
                 final int modifiers = constructor.getModifiers();
 
                 assert constructor.getDeclaringType() != Type.NullType;
@@ -777,7 +712,7 @@ final class RuntimeTypeCache<T> {
             return list;
         }
 
-        private ArrayList<Type<?>> populateInterfaces(final Filter filter) {
+        private ArrayList<Type<?>> populateInterfaces() {
             final ArrayList<Type<?>> list = new ArrayList<>();
 
             final Type<?> reflectedType = getReflectedType();
@@ -786,9 +721,7 @@ final class RuntimeTypeCache<T> {
             final ImmutableList<Type<?>> interfaceList = Helper.interfaces(reflectedType);
 
             for (final Type interfaceType : interfaceList) {
-                final String name = interfaceType.getFullName();
-
-                if (filter.match(name) && set.add(interfaceType)) {
+                if (set.add(interfaceType)) {
                     list.add(interfaceType);
                 }
             }
@@ -796,7 +729,7 @@ final class RuntimeTypeCache<T> {
             return list;
         }
 
-        private ArrayList<Type<?>> populateNestedClasses(final Filter filter) {
+        private ArrayList<Type<?>> populateNestedClasses() {
             final ArrayList<Type<?>> list = new ArrayList<>();
 
             Type<?> declaringType = getReflectedType();
@@ -816,50 +749,119 @@ final class RuntimeTypeCache<T> {
             for (int i = 0, n = declaredTypes.size(); i < n; i++) {
                 final Type<?> nestedType = declaredTypes.get(i);
 
-                if (!filter.match(nestedType.getName())) {
-                    continue;
-                }
-
                 list.add(nestedType);
             }
 
             return list;
         }
 
-        private ArrayList<T> populate(final String name, final MemberListType listType, final CacheType cacheType) {
-            final Filter filter;
-
-            if (name == null || name.length() == 0 ||
-                (cacheType == CacheType.Constructor && name.charAt(0) != '.' && name.charAt(0) != '*')) {
-                filter = new Filter(null, listType);
-            }
-            else {
-                filter = new Filter(name, listType);
-            }
-
-            final ArrayList<T> list;
-
+        private ArrayList<T> populate(final CacheType cacheType) {
             switch (cacheType) {
                 case Method:
-                    list = (ArrayList<T>) populateMethods(filter);
-                    break;
+                    return (ArrayList<T>) populateMethods();
                 case Field:
-                    list = (ArrayList<T>) populateFields(filter);
-                    break;
+                    return (ArrayList<T>) populateFields();
                 case Constructor:
-                    list = (ArrayList<T>) populateConstructors(filter);
-                    break;
+                    return (ArrayList<T>) populateConstructors();
                 case NestedType:
-                    list = (ArrayList<T>) populateNestedClasses(filter);
-                    break;
+                    return (ArrayList<T>) populateNestedClasses();
                 case Interface:
-                    list = (ArrayList<T>) populateInterfaces(filter);
-                    break;
+                    return (ArrayList<T>) populateInterfaces();
                 default:
                     throw ContractUtils.unreachable();
             }
+        }
+    }
+
+    /**
+     * An immutable snapshot of every member of one kind visible on a type, with override
+     * resolution already applied, indexed by name and by erased signature.  The signature
+     * index resolves handles to the canonical member instance with a single probe, rather
+     * than comparing against every overload of the same name.
+     */
+    private final static class MemberIndex<T extends MemberInfo> {
+        final List<T> all;
+        final HashMap<String, List<T>> byName;
+        final HashMap<String, List<T>> byNameIgnoreCase;
+        final HashMap<String, List<T>> bySignature;
+
+        MemberIndex(final ArrayList<T> members, final ArrayList<T> addedMembers, final CacheType cacheType) {
+            final ArrayList<T> allMembers = new ArrayList<>(members.size());
+
+            byName = new HashMap<>();
+            byNameIgnoreCase = new HashMap<>();
+            bySignature = new HashMap<>(members.size() * 2);
+
+            for (int i = 0, n = addedMembers.size(); i < n; i++) {
+                final T member = addedMembers.get(i);
+                add(bySignature, signatureKey(member, cacheType), member);
+            }
+
+            for (int i = 0, n = members.size(); i < n; i++) {
+                final String key = signatureKey(members.get(i), cacheType);
+                final T existing = findEquivalent(key, members.get(i));
+                final T member;
+
+                if (existing != null) {
+                    member = existing;
+                }
+                else {
+                    member = members.get(i);
+                    add(bySignature, key, member);
+                }
+
+                final String name = cacheType == CacheType.Interface ? ((Type<?>) member).getFullName()
+                                                                     : member.getName();
+
+                allMembers.add(member);
+                add(byName, name, member);
+                add(byNameIgnoreCase, name.toLowerCase(), member);
+            }
+
+            all = Collections.unmodifiableList(allMembers);
 
-            return insert(list, name, listType);
+            freeze(byName);
+            freeze(byNameIgnoreCase);
+        }
+
+        static String signatureKey(final MemberInfo member, final CacheType cacheType) {
+            if (cacheType == CacheType.Interface || cacheType == CacheType.NestedType) {
+                return member.getErasedSignature();
+            }
+            return member.getName() + member.getErasedSignature();
+        }
+
+        T findEquivalent(final String key, final T member) {
+            final List<T> candidates = bySignature.get(key);
+
+            if (candidates != null) {
+                for (int i = 0, n = candidates.size(); i < n; i++) {
+                    final T candidate = candidates.get(i);
+
+                    if (candidate.equals(member)) {
+                        return candidate;
+                    }
+                }
+            }
+
+            return null;
+        }
+
+        private static <T> void add(final HashMap<String, List<T>> map, final String key, final T member) {
+            List<T> list = map.get(key);
+
+            if (list == null) {
+                list = new ArrayList<>(1);
+                map.put(key, list);
+            }
+
+            list.add(member);
+        }
+
+        private static <T> void freeze(final HashMap<String, List<T>> map) {
+            for (final Map.Entry<String, List<T>> entry : map.entrySet()) {
+                entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            }
         }
     }
 }
@@ -1655,4 +1657,4 @@ final class RuntimeType<T> extends Type<T> {
         }
         return _basedOn.isEquivalentTo(other);
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -34,6 +34,7 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * @author Mike Strobel
@@ -165,13 +166,13 @@ public abstract class Type<T> extends MemberInfo implements java.lang.reflect.Ty
         return Type.of(Object.class);
     }
 
-    private TypeList _interfaces;
+    private volatile TypeList _interfaces;
 
     public TypeList getInterfaces() {
         if (_interfaces == null) {
             synchronized (CACHE_LOCK) {
                 if (_interfaces == null) {
-                    final ArrayList<Type<?>> interfaces = getCache().getInterfaceList(MemberListType.All, null);
+                    final List<Type<?>> interfaces = getCache().getInterfaceList(MemberListType.All, null);
                     if (interfaces.isEmpty()) {
                         _interfaces = TypeList.empty();
                     }
@@ -1078,7 +1079,7 @@ public abstract class Type<T> extends MemberInfo implements java.lang.reflect.Ty
         }
 
         final FilterOptions filterOptions = getFilterOptions(name, bindingFlags, false);
-        final ArrayList<Type<?>> nestedTypes = getCache().getNestedTypeList(filterOptions.listOptions, name);
+        final List<Type<?>> nestedTypes = getCache().getNestedTypeList(filterOptions.listOptions, name);
         final Set<BindingFlags> flags = EnumSet.copyOf(bindingFlags);
 
         if (!flags.remove(BindingFlags.Static)) {
@@ -1122,6 +1123,12 @@ public abstract class Type<T> extends MemberInfo implements java.lang.reflect.Ty
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
     public final Type<T[]> makeArrayType() {
+        final Type<T[]> arrayType = CACHE.findResolvedArrayType(this);
+
+        if (arrayType != null) {
+            return arrayType;
+        }
+
         synchronized (CACHE_LOCK) {
             return CACHE.getArrayType(this);
         }
@@ -1144,7 +1151,11 @@ public abstract class Type<T> extends MemberInfo implements java.lang.reflect.Ty
         );
     }
 
-    private ErasedType<T> _erasedType;
+    private volatile ErasedType<T> _erasedType;
+
+    @SuppressWarnings("rawtypes")
+    private final static AtomicReferenceFieldUpdater<Type, ErasedType> ERASED_TYPE_UPDATER =
+        AtomicReferenceFieldUpdater.newUpdater(Type.class, ErasedType.class, "_erasedType");
 
     public final Type<?> getErasedType() {
         if (isArray()) {
@@ -1163,14 +1174,14 @@ public abstract class Type<T> extends MemberInfo implements java.lang.reflect.Ty
             return getGenericTypeDefinition().getErasedType();
         }
 
-        if (_erasedType == null) {
-            synchronized (CACHE_LOCK) {
-                //noinspection ConstantConditions
-                if (_erasedType == null) {
-                    _erasedType = new ErasedType<>(this);
-                }
-            }
+        final ErasedType<T> erasedType = _erasedType;
+
+        if (erasedType != null) {
+            return erasedType;
         }
+
+        ERASED_TYPE_UPDATER.compareAndSet(this, null, new ErasedType<>(this));
+
         return _erasedType;
     }
 
@@ -1525,6 +1536,10 @@ public abstract class Type<T> extends MemberInfo implements java.lang.reflect.Ty
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
     final static Object CACHE_LOCK = new Object();
+
+    @SuppressWarnings("rawtypes")
+    private final static AtomicReferenceFieldUpdater<Type, RuntimeTypeCache> CACHE_UPDATER =
+        AtomicReferenceFieldUpdater.newUpdater(Type.class, RuntimeTypeCache.class, "_cache");
     final static TypeCache CACHE;
     final static Resolver RESOLVER;
     final static Type<?>[] PRIMITIVE_TYPES;
@@ -1558,34 +1573,53 @@ public abstract class Type<T> extends MemberInfo implements java.lang.reflect.Ty
     }
 
     public static <T> Type<T> of(final Class<T> clazz) {
+        final Type<T> cachedType = CACHE.findResolved(clazz);
+
+        if (cachedType != null) {
+            return cachedType;
+        }
+
         synchronized (CACHE_LOCK) {
-            final Type<T> reflectedType = CACHE.find(clazz);
+            CACHE.beginResolution();
 
-            if (reflectedType != null) {
-                return reflectedType;
+            try {
+                final Type<T> resolvedType = resolve(clazz);
+                CACHE.publish(clazz, resolvedType);
+                return resolvedType;
             }
+            finally {
+                CACHE.endResolution();
+            }
+        }
+    }
 
-            int arrayDepth = 0;
-            Class<?> actualClass = clazz;
+    private static <T> Type<T> resolve(final Class<T> clazz) {
+        final Type<T> reflectedType = CACHE.find(clazz);
 
-            while (actualClass.isArray()) {
-                actualClass = actualClass.getComponentType();
-                ++arrayDepth;
-            }
+        if (reflectedType != null) {
+            return reflectedType;
+        }
 
-            Type<?> resolvedType = resolveClassType(actualClass);
+        int arrayDepth = 0;
+        Class<?> actualClass = clazz;
 
-            if (resolvedType == null) {
-                throw Error.couldNotResolveType(clazz);
-            }
+        while (actualClass.isArray()) {
+            actualClass = actualClass.getComponentType();
+            ++arrayDepth;
+        }
 
-            while (arrayDepth > 0) {
-                resolvedType = resolvedType.makeArrayType();
-                --arrayDepth;
-            }
+        Type<?> resolvedType = resolveClassType(actualClass);
+
+        if (resolvedType == null) {
+            throw Error.couldNotResolveType(clazz);
+        }
 
-            return (Type<T>) resolvedType;
+        while (arrayDepth > 0) {
+            resolvedType = resolvedType.makeArrayType();
+            --arrayDepth;
         }
+
+        return (Type<T>) resolvedType;
     }
 
     public static Type<?> forName(final String name) {
@@ -1735,7 +1769,14 @@ public abstract class Type<T> extends MemberInfo implements java.lang.reflect.Ty
 
 //            loadAncestors(type);
 
-            resultType = (Type<T>) RESOLVER.resolve(type);
+            CACHE.beginResolution();
+
+            try {
+                resultType = (Type<T>) RESOLVER.resolve(type);
+            }
+            finally {
+                CACHE.endResolution();
+            }
 
             if (resultType != null) {
                 return resultType;
@@ -1753,6 +1794,12 @@ public abstract class Type<T> extends MemberInfo implements java.lang.reflect.Ty
                 return of(classType);
             }
 
+            final Type<?> resolvedType = CACHE.findResolved(classType);
+
+            if (resolvedType != null) {
+                return resolvedType;
+            }
+
             synchronized (CACHE_LOCK) {
                 return CACHE.find(classType);
             }
@@ -1867,16 +1914,17 @@ public abstract class Type<T> extends MemberInfo implements java.lang.reflect.Ty
     // TYPE HIERARCHY AND MEMBER RESOLUTION INFO                                                                          //
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
-    private RuntimeTypeCache<T> _cache;
+    private volatile RuntimeTypeCache<T> _cache;
 
     final RuntimeTypeCache<T> getCache() {
-        if (_cache == null) {
-            synchronized (CACHE_LOCK) {
-                if (_cache == null) {
-                    _cache = new RuntimeTypeCache<>(this);
-                }
-            }
+        final RuntimeTypeCache<T> cache = _cache;
+
+        if (cache != null) {
+            return cache;
         }
+
+        CACHE_UPDATER.compareAndSet(this, null, new RuntimeTypeCache<>(this));
+
         return _cache;
     }
 
@@ -1907,13 +1955,13 @@ public abstract class Type<T> extends MemberInfo implements java.lang.reflect.Ty
 
         final FilterOptions filterOptions = getFilterOptions(name, bindingFlags, allowPrefixLookup);
 
-        final ArrayList<T> source;
+        final List<T> source;
 
         if (type == MemberType.Constructor) {
-            source = (ArrayList<T>) getCache().getConstructorList(filterOptions.listOptions, name);
+            source = (List<T>) getCache().getConstructorList(filterOptions.listOptions, name);
         }
         else {
-            source = (ArrayList<T>) getCache().getMethodList(filterOptions.listOptions, name);
+            source = (List<T>) getCache().getMethodList(filterOptions.listOptions, name);
         }
 
         final Set<BindingFlags> flags = EnumSet.copyOf(bindingFlags);
@@ -1997,7 +2045,7 @@ public abstract class Type<T> extends MemberInfo implements java.lang.reflect.Ty
         }
 
         final FilterOptions filterOptions = getFilterOptions(name, flags, allowPrefixLookup);
-        final ArrayList<RuntimeFieldInfo> fields = getCache().getFieldList(filterOptions.listOptions, name);
+        final List<RuntimeFieldInfo> fields = getCache().getFieldList(filterOptions.listOptions, name);
 
         List<FieldInfo> candidates = null;
 
@@ -2063,7 +2111,7 @@ public abstract class Type<T> extends MemberInfo implements java.lang.reflect.Ty
 
         final FilterOptions filterOptions = getFilterOptions(name, bindingFlags, allowPrefixLookup);
 
-        final ArrayList<Type<?>> nestedTypes = getCache().getNestedTypeList(filterOptions.listOptions, name);
+        final List<Type<?>> nestedTypes = getCache().getNestedTypeList(filterOptions.listOptions, name);
         final ListBuffer<Type<?>> candidates = new ListBuffer<>();
 
         for (int i = 0, n = nestedTypes.size(); i < n; i++) {
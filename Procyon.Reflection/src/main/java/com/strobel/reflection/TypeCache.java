@@ -17,9 +17,16 @@ import com.strobel.core.Comparer;
 import com.strobel.core.HashUtilities;
 import com.strobel.util.TypeUtils;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * The global cache of resolved types.  The primary maps may only be accessed while holding
+ * {@link Type#CACHE_LOCK}, as the {@link Resolver} registers types in them before they are fully
+ * initialized.  Once the outermost resolution completes, its results are published to concurrent
+ * maps, which may be read without any locking.
+ *
  * @author strobelm
  */
 @SuppressWarnings("unchecked")
@@ -28,6 +35,86 @@ final class TypeCache {
     private final LinkedHashMap<String, Type<?>> _definitionMap = new LinkedHashMap<>();
     private final LinkedHashMap<Type<?>, Type<?>> _arrayMap = new LinkedHashMap<>();
 
+    private final ConcurrentHashMap<Class<?>, Type<?>> _resolvedClassMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Type<?>, Type<?>> _resolvedArrayMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Key, Type<?>> _resolvedGenericMap = new ConcurrentHashMap<>();
+    private final ArrayList<Publication<?>> _pendingPublications = new ArrayList<>();
+
+    private int _resolutionDepth;
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // LOCK-FREE LOOKUPS                                                                                                  //
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public <T> Type<T> findResolved(final Class<T> clazz) {
+        return (Type<T>) _resolvedClassMap.get(clazz);
+    }
+
+    public <T> Type<T[]> findResolvedArrayType(final Type<T> elementType) {
+        return (Type<T[]>) _resolvedArrayMap.get(elementType);
+    }
+
+    public <T> Type<T> findResolvedGenericType(final Type<T> type, final TypeList typeArguments) {
+        return (Type<T>) _resolvedGenericMap.get(key(type, typeArguments));
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // PUBLICATION (REQUIRES CACHE_LOCK)                                                                                  //
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public void beginResolution() {
+        ++_resolutionDepth;
+    }
+
+    public void endResolution() {
+        if (--_resolutionDepth > 0) {
+            return;
+        }
+
+        for (final Publication<?> publication : _pendingPublications) {
+            publication.publish();
+        }
+
+        _pendingPublications.clear();
+    }
+
+    public void publish(final Class<?> clazz, final Type<?> type) {
+        publish(_resolvedClassMap, clazz, type);
+    }
+
+    private <K> void publish(final ConcurrentHashMap<K, Type<?>> map, final K key, final Type<?> type) {
+        if (_resolutionDepth > 0) {
+            //
+            // The type may still be under construction; hold it back until the outermost
+            // resolution completes.
+            //
+            _pendingPublications.add(new Publication<>(map, key, type));
+        }
+        else {
+            map.putIfAbsent(key, type);
+        }
+    }
+
+    private final static class Publication<K> {
+        private final ConcurrentHashMap<K, Type<?>> _map;
+        private final K _key;
+        private final Type<?> _type;
+
+        Publication(final ConcurrentHashMap<K, Type<?>> map, final K key, final Type<?> type) {
+            _map = map;
+            _key = key;
+            _type = type;
+        }
+
+        void publish() {
+            _map.putIfAbsent(_key, _type);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // PRIMARY CACHE (REQUIRES CACHE_LOCK)                                                                                //
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
     public Key key(final Type<?> type) {
         return key(type, TypeList.empty());
     }
@@ -43,12 +130,12 @@ final class TypeCache {
     public <T> Type<T[]> getArrayType(final Type<T> elementType) {
         Type<T[]> arrayType = (Type<T[]>) _arrayMap.get(elementType);
 
-        if (arrayType != null) {
-            return arrayType;
+        if (arrayType == null) {
+            arrayType = elementType.createArrayType();
+            add(arrayType);
         }
 
-        arrayType = elementType.createArrayType();
-        add(arrayType);
+        publish(_resolvedArrayMap, elementType, arrayType);
 
         return arrayType;
     }
@@ -70,10 +157,12 @@ final class TypeCache {
             final Type existing = _map.put(key, genericType);
 
             if (existing != null) {
-                return existing;
+                genericType = existing;
             }
         }
 
+        publish(_resolvedGenericMap, key, genericType);
+
         return genericType;
     }
 
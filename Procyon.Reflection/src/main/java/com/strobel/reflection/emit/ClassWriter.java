@@ -152,9 +152,11 @@ final class ClassWriter {
         attributeCount += writeEnclosingMethodAttribute(t);
         attributeCount += writeInnerTypes();
 
+        final CompilationTarget target = t.getCompilationTarget();
+
         _poolBuffer.putInt(JAVA_MAGIC);
-        _poolBuffer.putShort(CompilationTarget.JDK1_5.minorVersion);
-        _poolBuffer.putShort(CompilationTarget.JDK1_5.majorVersion);
+        _poolBuffer.putShort(target.minorVersion);
+        _poolBuffer.putShort(target.majorVersion);
 
         t.constantPool.write(_poolBuffer);
 
@@ -355,95 +357,33 @@ final class ClassWriter {
 
     private void writeBody(final MethodBuilder method) {
         final CodeGenerator generator = method.getCodeGenerator();
-
-        _dataBuffer.putShort(generator.getMaxStackSize());
-
         final int maxLocals = generator.translateLocal(generator.localCount);
 
-        _dataBuffer.putShort(maxLocals);
-        _dataBuffer.putInt(generator.offset());
-
-        final byte[] body = method.getBody();
-
-        _dataBuffer.putByteArray(body, 0, body.length);
-
-        final __ExceptionInfo[] exceptionsInfo = generator.getExceptions();
-
-        if (exceptionsInfo != null) {
-            int tryCatchTableEntries = 0;
-
-            for (final __ExceptionInfo exception : exceptionsInfo) {
-                if (exception.getFinallyEndAddress() != -1) {
-                    if (exception.getNumberOfCatches() == 1) {
-                        tryCatchTableEntries += 2;
-                    }
-                    else {
-                        tryCatchTableEntries += (exception.getNumberOfCatches() - 1) * 3;
-                    }
-                }
-                else {
-                    tryCatchTableEntries += exception.getNumberOfCatches();
-                }
-            }
+        byte[] body = method.getBody();
+        int maxStackSize = generator.getMaxStackSize();
+        List<int[]> exceptionTable = getExceptionTable(body, generator.getExceptions());
+        StackMapTableWriter stackMapTable = null;
 
-            _dataBuffer.putShort(tryCatchTableEntries);
+        if (_typeBuilder.getCompilationTarget().generateStackMapTable()) {
+            stackMapTable = new StackMapTableWriter(_typeBuilder, method, body, maxLocals, maxStackSize, exceptionTable);
+            stackMapTable.compute();
 
-            // TODO: Some of these addresses might be wide; put them in the constants table.
-
-            for (final __ExceptionInfo exception : exceptionsInfo) {
-                final int[] catchAddresses = exception.getCatchAddresses();
-                final int[] catchEndAddresses = exception.getCatchEndAddresses();
-                final Type[] catchTypes = exception.getCatchClass();
-
-                int finallyIndex = -1;
-
-                for (int i = 0, n = exception.getNumberOfCatches(); i < n; i++) {
-                    if (catchTypes[i] == null) {
-                        finallyIndex = i;
-                        break;
-                    }
-                }
-
-                for (int i = 0, n = exception.getNumberOfCatches(); i < n; i++) {
-                    if (catchTypes[i] != null) {
-                        // Catch
-                        _dataBuffer.putShort(exception.getStartAddress());
-                        _dataBuffer.putShort(exception.getEndAddress());
-                        _dataBuffer.putShort(catchAddresses[i]);
-                        _dataBuffer.putShort(_typeBuilder.getTypeToken(catchTypes[i]));
-
-                        if (finallyIndex != -1) {
-                            _dataBuffer.putShort(exception.getStartAddress());
-                            _dataBuffer.putShort(exception.getEndAddress());
-                            _dataBuffer.putShort(catchAddresses[finallyIndex]);
-                            _dataBuffer.putShort(0);
-
-                            _dataBuffer.putShort(catchAddresses[i]);
-                            _dataBuffer.putShort(catchEndAddresses[i]);
-                            _dataBuffer.putShort(catchAddresses[finallyIndex]);
-                            _dataBuffer.putShort(0);
-                        }
-                    }
-                }
-
-                if (finallyIndex != -1 && exception.getNumberOfCatches() == 1) {
-                    // No catch blocks; only finally.
-                    _dataBuffer.putShort(exception.getStartAddress());
-                    _dataBuffer.putShort(exception.getEndAddress());
-                    _dataBuffer.putShort(catchAddresses[finallyIndex]);
-                    _dataBuffer.putShort(0);
+            body = stackMapTable.getCode();
+            maxStackSize = stackMapTable.getMaxStack();
+            exceptionTable = stackMapTable.getExceptionTable();
+        }
 
-                    final int storeOpSize = OpCode.get(body[exception.getFinallyEndAddress()]).getSizeWithOperands();
+        _dataBuffer.putShort(maxStackSize);
+        _dataBuffer.putShort(maxLocals);
+        _dataBuffer.putInt(body.length);
+        _dataBuffer.putByteArray(body, 0, body.length);
+        _dataBuffer.putShort(exceptionTable.size());
 
-                    _dataBuffer.putShort(catchAddresses[finallyIndex]);
-                    _dataBuffer.putShort(exception.getFinallyEndAddress() + storeOpSize);
-                    _dataBuffer.putShort(catchAddresses[finallyIndex]);
-                    _dataBuffer.putShort(0);
-                }
-            }
-        }
-        else {
-            _dataBuffer.putShort(0);
+        for (final int[] entry : exceptionTable) {
+            _dataBuffer.putShort(entry[0]);
+            _dataBuffer.putShort(entry[1]);
+            _dataBuffer.putShort(entry[2]);
+            _dataBuffer.putShort(entry[3]);
         }
 
         final int attributeCountIndex = beginAttributes();
@@ -506,11 +446,102 @@ final class ClassWriter {
             attributeCount++;
         }
 
-        // TODO: Stack map?
+        if (stackMapTable != null && stackMapTable.getFrameCount() > 0) {
+            final int attributeLengthIndex = writeAttribute("StackMapTable");
+
+            stackMapTable.write(_dataBuffer);
+
+            endAttribute(attributeLengthIndex);
+            attributeCount++;
+        }
 
         endAttributes(attributeCountIndex, attributeCount);
     }
 
+    private List<int[]> getExceptionTable(final byte[] body, final __ExceptionInfo[] exceptionsInfo) {
+        final List<int[]> exceptionTable = new ArrayList<>();
+
+        if (exceptionsInfo == null) {
+            return exceptionTable;
+        }
+
+        // TODO: Some of these addresses might be wide; put them in the constants table.
+
+        for (final __ExceptionInfo exception : exceptionsInfo) {
+            final int[] catchAddresses = exception.getCatchAddresses();
+            final int[] catchEndAddresses = exception.getCatchEndAddresses();
+            final Type[] catchTypes = exception.getCatchClass();
+
+            int finallyIndex = -1;
+
+            for (int i = 0, n = exception.getNumberOfCatches(); i < n; i++) {
+                if (catchTypes[i] == null) {
+                    finallyIndex = i;
+                    break;
+                }
+            }
+
+            for (int i = 0, n = exception.getNumberOfCatches(); i < n; i++) {
+                if (catchTypes[i] != null) {
+                    // Catch
+                    exceptionTable.add(
+                        new int[] {
+                            exception.getStartAddress(),
+                            exception.getEndAddress(),
+                            catchAddresses[i],
+                            _typeBuilder.getTypeToken(catchTypes[i]) & 0xFFFF
+                        }
+                    );
+
+                    if (finallyIndex != -1) {
+                        exceptionTable.add(
+                            new int[] {
+                                exception.getStartAddress(),
+                                exception.getEndAddress(),
+                                catchAddresses[finallyIndex],
+                                0
+                            }
+                        );
+
+                        exceptionTable.add(
+                            new int[] {
+                                catchAddresses[i],
+                                catchEndAddresses[i],
+                                catchAddresses[finallyIndex],
+                                0
+                            }
+                        );
+                    }
+                }
+            }
+
+            if (finallyIndex != -1 && exception.getNumberOfCatches() == 1) {
+                // No catch blocks; only finally.
+                exceptionTable.add(
+                    new int[] {
+                        exception.getStartAddress(),
+                        exception.getEndAddress(),
+                        catchAddresses[finallyIndex],
+                        0
+                    }
+                );
+
+                final int storeOpSize = OpCode.get(body[exception.getFinallyEndAddress()]).getSizeWithOperands();
+
+                exceptionTable.add(
+                    new int[] {
+                        catchAddresses[finallyIndex],
+                        exception.getFinallyEndAddress() + storeOpSize,
+                        catchAddresses[finallyIndex],
+                        0
+                    }
+                );
+            }
+        }
+
+        return exceptionTable;
+    }
+
     private boolean needsLocalVariableTableEntry(final Type<?> localType) {
         return !localType.isEquivalentTo(localType.getErasedType()) &&
                !localType.isCompoundType();
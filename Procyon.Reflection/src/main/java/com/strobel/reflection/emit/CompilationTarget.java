@@ -45,7 +45,10 @@ enum CompilationTarget {
     JDK1_6("1.6", 50, 0),
 
     /** JDK 7. */
-    JDK1_7("1.7", 51, 0);
+    JDK1_7("1.7", 51, 0),
+
+    /** JDK 8. */
+    JDK1_8("1.8", 52, 0);
 
     private static CompilationTarget MIN;
     public static CompilationTarget MIN() { return MIN; }
@@ -65,6 +68,7 @@ enum CompilationTarget {
         tab.put("5", JDK1_5);
         tab.put("6", JDK1_6);
         tab.put("7", JDK1_7);
+        tab.put("8", JDK1_8);
     }
 
     public final String name;
@@ -183,6 +183,22 @@ final class ConstantPool {
         return (TypeInfo)entry;
     }
 
+    public TypeInfo getTypeInfo(final String internalName) {
+        final Utf8StringConstant name = getUtf8StringConstant(internalName);
+
+        _lookupKey.set(Tag.TypeInfo, name.index);
+
+        Entry entry = _entryMap.get(_lookupKey);
+
+        if (entry == null) {
+            entry = new TypeInfo(this, name.index);
+        }
+
+        _lookupKey.clear();
+
+        return (TypeInfo)entry;
+    }
+
     public FieldReference getFieldReference(final FieldInfo field) {
         final TypeInfo typeInfo = getTypeInfo(field.getDeclaringType());
         final NameAndTypeDescriptor nameAndDescriptor = getNameAndTypeDescriptor(
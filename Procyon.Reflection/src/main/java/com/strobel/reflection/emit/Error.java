@@ -464,4 +464,26 @@ final class Error {
     public static IllegalStateException cannotModifyFieldAfterTypeCreated() {
         return new IllegalStateException("Field cannot be modified after declaring type has been created.");
     }
+
+    public static IllegalArgumentException unsupportedTargetVersion(final String version) {
+        return new IllegalArgumentException(
+            format("Unsupported class file target version: '%s'.", version)
+        );
+    }
+
+    public static IllegalStateException invalidBytecode(final MethodBuilder method, final int offset) {
+        return new IllegalStateException(
+            format(
+                "Could not compute stack map frames for method '%s': invalid bytecode at offset %d.",
+                method.getName(),
+                offset
+            )
+        );
+    }
+
+    public static IllegalStateException invalidConstantForLoad(final ConstantPool.Entry entry) {
+        return new IllegalStateException(
+            format("Constant pool entry '%s' cannot be loaded with an 'ldc' instruction.", entry)
+        );
+    }
 }
@@ -0,0 +1,1435 @@
+/*
+ * StackMapTableWriter.java
+ *
+ * Copyright (c) 2012 Mike Strobel
+ *
+ * This source code is subject to terms and conditions of the Apache License, Version 2.0.
+ * A copy of the license can be found in the License.html file at the root of this distribution.
+ * By using this source code in any fashion, you are agreeing to be bound by the terms of the
+ * Apache License, Version 2.0.
+ *
+ * You must not remove this notice, or any other, from this software.
+ */
+
+package com.strobel.reflection.emit;
+
+import com.strobel.core.VerifyArgument;
+import com.strobel.reflection.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Computes the {@code StackMapTable} attribute for a method body by simulating the operand stack
+ * and local variables of every reachable instruction until a fixed point is reached.  Frames are
+ * recorded at each branch target, exception handler, and instruction following an unconditional
+ * transfer of control, then written in the compressed form described by JVMS 4.7.4.
+ * <p>
+ * Unreachable instructions cannot be described by a frame, so they are replaced with {@code nop}s
+ * followed by an {@code athrow}, and any exception table ranges covering them are split around
+ * the dead code.
+ *
+ * @author Mike Strobel
+ */
+final class StackMapTableWriter {
+    private final static int SAME_FRAME_SIZE = 64;
+    private final static int SAME_LOCALS_1_STACK_ITEM_EXTENDED = 247;
+    private final static int SAME_FRAME_EXTENDED = 251;
+    private final static int FULL_FRAME = 255;
+    private final static int MAX_LOCAL_LENGTH_DIFF = 4;
+
+    private final static String OBJECT = "java/lang/Object";
+    private final static String THROWABLE = "java/lang/Throwable";
+
+    private final TypeBuilder<?> _typeBuilder;
+    private final MethodBuilder _method;
+    private final byte[] _code;
+    private final int _maxLocals;
+    private final List<int[]> _exceptionTable;
+    private final Frame[] _frames;
+    private final boolean[] _instructionStarts;
+    private final boolean[] _frameOffsets;
+
+    private Frame _initialFrame;
+    private int[] _workList;
+    private int _workListSize;
+    private boolean[] _queued;
+    private int _maxStack;
+
+    StackMapTableWriter(
+        final TypeBuilder<?> typeBuilder,
+        final MethodBuilder method,
+        final byte[] code,
+        final int maxLocals,
+        final int maxStack,
+        final List<int[]> exceptionTable) {
+
+        _typeBuilder = VerifyArgument.notNull(typeBuilder, "typeBuilder");
+        _method = VerifyArgument.notNull(method, "method");
+        _code = Arrays.copyOf(VerifyArgument.notNull(code, "code"), code.length);
+        _maxLocals = maxLocals;
+        _maxStack = maxStack;
+        _exceptionTable = new ArrayList<>(VerifyArgument.notNull(exceptionTable, "exceptionTable"));
+        _frames = new Frame[code.length];
+        _instructionStarts = new boolean[code.length];
+        _frameOffsets = new boolean[code.length];
+    }
+
+    /**
+     * Returns the method body, with any unreachable code replaced.
+     */
+    byte[] getCode() {
+        return _code;
+    }
+
+    /**
+     * Returns the exception table as {@code [start, end, handler, catchTypeToken]} entries, with
+     * any unreachable code removed from the protected ranges.
+     */
+    List<int[]> getExceptionTable() {
+        return _exceptionTable;
+    }
+
+    int getMaxStack() {
+        return _maxStack;
+    }
+
+    int getFrameCount() {
+        int count = 0;
+
+        for (int offset = 0; offset < _code.length; offset++) {
+            if (_frameOffsets[offset]) {
+                ++count;
+            }
+        }
+
+        return count;
+    }
+
+    void compute() {
+        findInstructions();
+
+        _initialFrame = createInitialFrame();
+        _workList = new int[16];
+        _queued = new boolean[_code.length];
+
+        if (_code.length > 0) {
+            merge(0, _initialFrame);
+        }
+
+        while (_workListSize > 0) {
+            final int offset = _workList[--_workListSize];
+            _queued[offset] = false;
+            execute(offset);
+        }
+
+        removeDeadCode();
+    }
+
+    void write(final CodeStream out) {
+        out.putShort(getFrameCount());
+
+        List<VerificationType> previousLocals = _initialFrame.getLocals();
+        int previousOffset = -1;
+
+        for (int offset = 0; offset < _code.length; offset++) {
+            if (!_frameOffsets[offset]) {
+                continue;
+            }
+
+            final Frame frame = _frames[offset];
+            final List<VerificationType> locals = frame.getLocals();
+            final List<VerificationType> stack = frame.getStack();
+            final int offsetDelta = previousOffset < 0 ? offset : offset - previousOffset - 1;
+            final int localsDelta = locals.size() - previousLocals.size();
+
+            if (stack.isEmpty() && locals.equals(previousLocals)) {
+                if (offsetDelta < SAME_FRAME_SIZE) {
+                    out.putByte(offsetDelta);
+                }
+                else {
+                    out.putByte(SAME_FRAME_EXTENDED);
+                    out.putShort(offsetDelta);
+                }
+            }
+            else if (stack.size() == 1 && locals.equals(previousLocals)) {
+                if (offsetDelta < SAME_FRAME_SIZE) {
+                    out.putByte(SAME_FRAME_SIZE + offsetDelta);
+                }
+                else {
+                    out.putByte(SAME_LOCALS_1_STACK_ITEM_EXTENDED);
+                    out.putShort(offsetDelta);
+                }
+                writeVerificationType(out, stack.get(0));
+            }
+            else if (stack.isEmpty() &&
+                     localsDelta < 0 &&
+                     localsDelta > -MAX_LOCAL_LENGTH_DIFF &&
+                     locals.equals(previousLocals.subList(0, locals.size()))) {
+
+                out.putByte(SAME_FRAME_EXTENDED + localsDelta);
+                out.putShort(offsetDelta);
+            }
+            else if (stack.isEmpty() &&
+                     localsDelta > 0 &&
+                     localsDelta < MAX_LOCAL_LENGTH_DIFF &&
+                     locals.subList(0, previousLocals.size()).equals(previousLocals)) {
+
+                out.putByte(SAME_FRAME_EXTENDED + localsDelta);
+                out.putShort(offsetDelta);
+
+                for (int i = previousLocals.size(); i < locals.size(); i++) {
+                    writeVerificationType(out, locals.get(i));
+                }
+            }
+            else {
+                out.putByte(FULL_FRAME);
+                out.putShort(offsetDelta);
+                out.putShort(locals.size());
+
+                for (final VerificationType local : locals) {
+                    writeVerificationType(out, local);
+                }
+
+                out.putShort(stack.size());
+
+                for (final VerificationType item : stack) {
+                    writeVerificationType(out, item);
+                }
+            }
+
+            previousLocals = locals;
+            previousOffset = offset;
+        }
+    }
+
+    private void writeVerificationType(final CodeStream out, final VerificationType type) {
+        out.putByte(type.tag);
+
+        if (type.tag == VerificationType.ITEM_OBJECT) {
+            out.putShort(_typeBuilder.constantPool.getTypeInfo(type.className).index);
+        }
+        else if (type.tag == VerificationType.ITEM_UNINITIALIZED) {
+            out.putShort(type.offset);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // CONTROL FLOW                                                                                                       //
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private void findInstructions() {
+        int offset = 0;
+
+        while (offset < _code.length) {
+            _instructionStarts[offset] = true;
+
+            final int opCode = u1(offset);
+            final int next = offset + instructionLength(offset);
+
+            switch (opCode) {
+                case 0xa7 /* goto */:
+                case 0xc8 /* goto_w */:
+                case 0xac /* ireturn */:
+                case 0xad /* lreturn */:
+                case 0xae /* freturn */:
+                case 0xaf /* dreturn */:
+                case 0xb0 /* areturn */:
+                case 0xb1 /* return */:
+                case 0xbf /* athrow */:
+                case 0xaa /* tableswitch */:
+                case 0xab /* lookupswitch */:
+                    if (next < _code.length) {
+                        _frameOffsets[next] = true;
+                    }
+                    break;
+            }
+
+            for (final int target : branchTargets(offset)) {
+                _frameOffsets[target] = true;
+            }
+
+            offset = next;
+        }
+
+        for (final int[] entry : _exceptionTable) {
+            _frameOffsets[entry[2]] = true;
+        }
+    }
+
+    private int[] branchTargets(final int offset) {
+        final int opCode = u1(offset);
+
+        if ((opCode >= 0x99 /* ifeq */ && opCode <= 0xa7 /* goto */) ||
+            opCode == 0xc6 /* ifnull */ ||
+            opCode == 0xc7 /* ifnonnull */) {
+
+            return new int[] { offset + s2(offset + 1) };
+        }
+
+        if (opCode == 0xc8 /* goto_w */) {
+            return new int[] { offset + s4(offset + 1) };
+        }
+
+        if (opCode == 0xaa /* tableswitch */) {
+            final int base = (offset + 4) & ~3;
+            final int low = s4(base + 4);
+            final int high = s4(base + 8);
+            final int[] targets = new int[high - low + 2];
+
+            targets[0] = offset + s4(base);
+
+            for (int i = 1; i < targets.length; i++) {
+                targets[i] = offset + s4(base + 8 + 4 * i);
+            }
+
+            return targets;
+        }
+
+        if (opCode == 0xab /* lookupswitch */) {
+            final int base = (offset + 4) & ~3;
+            final int pairCount = s4(base + 4);
+            final int[] targets = new int[pairCount + 1];
+
+            targets[0] = offset + s4(base);
+
+            for (int i = 1; i < targets.length; i++) {
+                targets[i] = offset + s4(base + 8 * i + 4);
+            }
+
+            return targets;
+        }
+
+        return EMPTY_TARGETS;
+    }
+
+    private final static int[] EMPTY_TARGETS = new int[0];
+
+    private int instructionLength(final int offset) {
+        final int opCode = u1(offset);
+
+        switch (opCode) {
+            case 0x10 /* bipush */:
+            case 0x12 /* ldc */:
+            case 0x15 /* iload */:
+            case 0x16 /* lload */:
+            case 0x17 /* fload */:
+            case 0x18 /* dload */:
+            case 0x19 /* aload */:
+            case 0x36 /* istore */:
+            case 0x37 /* lstore */:
+            case 0x38 /* fstore */:
+            case 0x39 /* dstore */:
+            case 0x3a /* astore */:
+            case 0xa9 /* ret */:
+            case 0xbc /* newarray */:
+                return 2;
+
+            case 0x11 /* sipush */:
+            case 0x13 /* ldc_w */:
+            case 0x14 /* ldc2_w */:
+            case 0x84 /* iinc */:
+            case 0xb2 /* getstatic */:
+            case 0xb3 /* putstatic */:
+            case 0xb4 /* getfield */:
+            case 0xb5 /* putfield */:
+            case 0xb6 /* invokevirtual */:
+            case 0xb7 /* invokespecial */:
+            case 0xb8 /* invokestatic */:
+            case 0xbb /* new */:
+            case 0xbd /* anewarray */:
+            case 0xc0 /* checkcast */:
+            case 0xc1 /* instanceof */:
+                return 3;
+
+            case 0xc5 /* multianewarray */:
+                return 4;
+
+            case 0xb9 /* invokeinterface */:
+            case 0xba /* invokedynamic */:
+            case 0xc8 /* goto_w */:
+            case 0xc9 /* jsr_w */:
+                return 5;
+
+            case 0xc4 /* wide */:
+                return u1(offset + 1) == 0x84 /* iinc */ ? 6 : 4;
+
+            case 0xaa /* tableswitch */: {
+                final int base = (offset + 4) & ~3;
+                return base - offset + 12 + 4 * (s4(base + 8) - s4(base + 4) + 1);
+            }
+
+            case 0xab /* lookupswitch */: {
+                final int base = (offset + 4) & ~3;
+                return base - offset + 8 + 8 * s4(base + 4);
+            }
+
+            default:
+                if ((opCode >= 0x99 /* ifeq */ && opCode <= 0xa8 /* jsr */) ||
+                    opCode == 0xc6 /* ifnull */ ||
+                    opCode == 0xc7 /* ifnonnull */) {
+
+                    return 3;
+                }
+                return 1;
+        }
+    }
+
+    private void merge(final int offset, final Frame frame) {
+        if (offset < 0 || offset >= _code.length || !_instructionStarts[offset]) {
+            throw Error.invalidBytecode(_method, offset);
+        }
+
+        final Frame existing = _frames[offset];
+
+        if (existing == null) {
+            _frames[offset] = frame.copy();
+        }
+        else if (existing.stackSize != frame.stackSize) {
+            throw Error.invalidBytecode(_method, offset);
+        }
+        else if (!existing.merge(frame)) {
+            return;
+        }
+
+        if (!_queued[offset]) {
+            if (_workListSize == _workList.length) {
+                _workList = CodeGenerator.enlargeArray(_workList);
+            }
+            _workList[_workListSize++] = offset;
+            _queued[offset] = true;
+        }
+    }
+
+    private void mergeHandlers(final int offset, final Frame frame) {
+        for (final int[] entry : _exceptionTable) {
+            if (offset < entry[0] || offset >= entry[1]) {
+                continue;
+            }
+
+            final Frame handlerFrame = frame.copy();
+
+            handlerFrame.stackSize = 0;
+            handlerFrame.push(VerificationType.object(entry[3] == 0 ? THROWABLE : typeName(entry[3])));
+
+            merge(entry[2], handlerFrame);
+        }
+    }
+
+    private void removeDeadCode() {
+        int offset = 0;
+
+        while (offset < _code.length) {
+            if (_frames[offset] != null) {
+                offset += instructionLength(offset);
+                continue;
+            }
+
+            final int start = offset;
+
+            while (offset < _code.length && _frames[offset] == null) {
+                offset += instructionLength(offset);
+            }
+
+            //
+            // Replace the dead instructions with `nop ... athrow` and describe them with a frame
+            // which lets the `athrow` verify; no live instruction can branch into this range.
+            //
+            Arrays.fill(_code, start, offset - 1, (byte) 0x00 /* nop */);
+            _code[offset - 1] = (byte) 0xbf /* athrow */;
+
+            final Frame deadFrame = new Frame(_maxLocals, 1);
+
+            deadFrame.push(VerificationType.object(THROWABLE));
+
+            Arrays.fill(_frameOffsets, start, offset, false);
+
+            _frames[start] = deadFrame;
+            _frameOffsets[start] = true;
+            _maxStack = Math.max(_maxStack, 1);
+
+            splitExceptionRanges(start, offset);
+        }
+    }
+
+    private void splitExceptionRanges(final int deadStart, final int deadEnd) {
+        final List<int[]> entries = new ArrayList<>(_exceptionTable);
+
+        _exceptionTable.clear();
+
+        for (final int[] entry : entries) {
+            final int start = entry[0];
+            final int end = entry[1];
+
+            if (end <= deadStart || start >= deadEnd) {
+                _exceptionTable.add(entry);
+                continue;
+            }
+
+            if (start < deadStart) {
+                _exceptionTable.add(new int[] { start, deadStart, entry[2], entry[3] });
+            }
+
+            if (end > deadEnd) {
+                _exceptionTable.add(new int[] { deadEnd, end, entry[2], entry[3] });
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // INSTRUCTION SIMULATION                                                                                             //
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private Frame createInitialFrame() {
+        final Frame frame = new Frame(_maxLocals, 0);
+
+        int local = 0;
+
+        if (!_method.isStatic()) {
+            if ("<init>".equals(_method.getName()) && !OBJECT.equals(_typeBuilder.getInternalName())) {
+                frame.setLocal(local++, VerificationType.UNINITIALIZED_THIS);
+            }
+            else {
+                frame.setLocal(local++, VerificationType.object(_typeBuilder.getInternalName()));
+            }
+        }
+
+        final String descriptor = _method.getErasedSignature();
+
+        for (int i = 1; descriptor.charAt(i) != ')'; ) {
+            final int end = descriptorEnd(descriptor, i);
+            final VerificationType type = fromDescriptor(descriptor.substring(i, end));
+
+            frame.setLocal(local, type);
+            local += type.size();
+            i = end;
+        }
+
+        return frame;
+    }
+
+    @SuppressWarnings("ConstantConditions")
+    private void execute(final int offset) {
+        final Frame frame = _frames[offset].copy();
+        final int opCode = u1(offset);
+
+        mergeHandlers(offset, _frames[offset]);
+
+        switch (opCode) {
+            case 0x00 /* nop */:
+                break;
+
+            case 0x01 /* aconst_null */:
+                frame.push(VerificationType.NULL);
+                break;
+
+            case 0x02 /* iconst_m1 */:
+            case 0x03 /* iconst_0 */:
+            case 0x04 /* iconst_1 */:
+            case 0x05 /* iconst_2 */:
+            case 0x06 /* iconst_3 */:
+            case 0x07 /* iconst_4 */:
+            case 0x08 /* iconst_5 */:
+            case 0x10 /* bipush */:
+            case 0x11 /* sipush */:
+                frame.push(VerificationType.INTEGER);
+                break;
+
+            case 0x09 /* lconst_0 */:
+            case 0x0a /* lconst_1 */:
+                frame.push(VerificationType.LONG);
+                break;
+
+            case 0x0b /* fconst_0 */:
+            case 0x0c /* fconst_1 */:
+            case 0x0d /* fconst_2 */:
+                frame.push(VerificationType.FLOAT);
+                break;
+
+            case 0x0e /* dconst_0 */:
+            case 0x0f /* dconst_1 */:
+                frame.push(VerificationType.DOUBLE);
+                break;
+
+            case 0x12 /* ldc */:
+                frame.push(constantType(u1(offset + 1)));
+                break;
+
+            case 0x13 /* ldc_w */:
+            case 0x14 /* ldc2_w */:
+                frame.push(constantType(u2(offset + 1)));
+                break;
+
+            case 0x15 /* iload */:
+            case 0x16 /* lload */:
+            case 0x17 /* fload */:
+            case 0x18 /* dload */:
+            case 0x19 /* aload */:
+                load(frame, opCode - 0x15, u1(offset + 1));
+                break;
+
+            case 0x1a: case 0x1b: case 0x1c: case 0x1d:
+            case 0x1e: case 0x1f: case 0x20: case 0x21:
+            case 0x22: case 0x23: case 0x24: case 0x25:
+            case 0x26: case 0x27: case 0x28: case 0x29:
+            case 0x2a: case 0x2b: case 0x2c: case 0x2d:
+                /* xload_n */
+                load(frame, (opCode - 0x1a) / 4, (opCode - 0x1a) % 4);
+                break;
+
+            case 0x2e /* iaload */:
+            case 0x33 /* baload */:
+            case 0x34 /* caload */:
+            case 0x35 /* saload */:
+                frame.pop(2);
+                frame.push(VerificationType.INTEGER);
+                break;
+
+            case 0x2f /* laload */:
+                frame.pop(2);
+                frame.push(VerificationType.LONG);
+                break;
+
+            case 0x30 /* faload */:
+                frame.pop(2);
+                frame.push(VerificationType.FLOAT);
+                break;
+
+            case 0x31 /* daload */:
+                frame.pop(2);
+                frame.push(VerificationType.DOUBLE);
+                break;
+
+            case 0x32 /* aaload */: {
+                frame.pop(1);
+                frame.push(elementType(frame.pop()));
+                break;
+            }
+
+            case 0x36 /* istore */:
+            case 0x37 /* lstore */:
+            case 0x38 /* fstore */:
+            case 0x39 /* dstore */:
+            case 0x3a /* astore */:
+                store(frame, opCode - 0x36, u1(offset + 1));
+                break;
+
+            case 0x3b: case 0x3c: case 0x3d: case 0x3e:
+            case 0x3f: case 0x40: case 0x41: case 0x42:
+            case 0x43: case 0x44: case 0x45: case 0x46:
+            case 0x47: case 0x48: case 0x49: case 0x4a:
+            case 0x4b: case 0x4c: case 0x4d: case 0x4e:
+                /* xstore_n */
+                store(frame, (opCode - 0x3b) / 4, (opCode - 0x3b) % 4);
+                break;
+
+            case 0x4f /* iastore */:
+            case 0x51 /* fastore */:
+            case 0x53 /* aastore */:
+            case 0x54 /* bastore */:
+            case 0x55 /* castore */:
+            case 0x56 /* sastore */:
+                frame.pop(3);
+                break;
+
+            case 0x50 /* lastore */:
+            case 0x52 /* dastore */:
+                frame.pop(4);
+                break;
+
+            case 0x57 /* pop */:
+                frame.pop(1);
+                break;
+
+            case 0x58 /* pop2 */:
+                frame.pop(2);
+                break;
+
+            case 0x59 /* dup */: {
+                final VerificationType v1 = frame.pop();
+                frame.pushSlots(v1, v1);
+                break;
+            }
+
+            case 0x5a /* dup_x1 */: {
+                final VerificationType v1 = frame.pop();
+                final VerificationType v2 = frame.pop();
+                frame.pushSlots(v1, v2, v1);
+                break;
+            }
+
+            case 0x5b /* dup_x2 */: {
+                final VerificationType v1 = frame.pop();
+                final VerificationType v2 = frame.pop();
+                final VerificationType v3 = frame.pop();
+                frame.pushSlots(v1, v3, v2, v1);
+                break;
+            }
+
+            case 0x5c /* dup2 */: {
+                final VerificationType v1 = frame.pop();
+                final VerificationType v2 = frame.pop();
+                frame.pushSlots(v2, v1, v2, v1);
+                break;
+            }
+
+            case 0x5d /* dup2_x1 */: {
+                final VerificationType v1 = frame.pop();
+                final VerificationType v2 = frame.pop();
+                final VerificationType v3 = frame.pop();
+                frame.pushSlots(v2, v1, v3, v2, v1);
+                break;
+            }
+
+            case 0x5e /* dup2_x2 */: {
+                final VerificationType v1 = frame.pop();
+                final VerificationType v2 = frame.pop();
+                final VerificationType v3 = frame.pop();
+                final VerificationType v4 = frame.pop();
+                frame.pushSlots(v2, v1, v4, v3, v2, v1);
+                break;
+            }
+
+            case 0x5f /* swap */: {
+                final VerificationType v1 = frame.pop();
+                final VerificationType v2 = frame.pop();
+                frame.pushSlots(v1, v2);
+                break;
+            }
+
+            case 0x74 /* ineg */:
+            case 0x75 /* lneg */:
+            case 0x76 /* fneg */:
+            case 0x77 /* dneg */:
+            case 0x84 /* iinc */:
+                break;
+
+            case 0x78 /* ishl */:
+            case 0x79 /* lshl */:
+            case 0x7a /* ishr */:
+            case 0x7b /* lshr */:
+            case 0x7c /* iushr */:
+            case 0x7d /* lushr */:
+                frame.pop(1);
+                break;
+
+            case 0x85 /* i2l */:
+            case 0x8c /* f2l */:
+                frame.pop(1);
+                frame.push(VerificationType.LONG);
+                break;
+
+            case 0x86 /* i2f */:
+                frame.pop(1);
+                frame.push(VerificationType.FLOAT);
+                break;
+
+            case 0x87 /* i2d */:
+            case 0x8d /* f2d */:
+                frame.pop(1);
+                frame.push(VerificationType.DOUBLE);
+                break;
+
+            case 0x88 /* l2i */:
+            case 0x8e /* d2i */:
+                frame.pop(2);
+                frame.push(VerificationType.INTEGER);
+                break;
+
+            case 0x89 /* l2f */:
+            case 0x90 /* d2f */:
+                frame.pop(2);
+                frame.push(VerificationType.FLOAT);
+                break;
+
+            case 0x8a /* l2d */:
+                frame.pop(2);
+                frame.push(VerificationType.DOUBLE);
+                break;
+
+            case 0x8b /* f2i */:
+                frame.pop(1);
+                frame.push(VerificationType.INTEGER);
+                break;
+
+            case 0x8f /* d2l */:
+                frame.pop(2);
+                frame.push(VerificationType.LONG);
+                break;
+
+            case 0x91 /* i2b */:
+            case 0x92 /* i2c */:
+            case 0x93 /* i2s */:
+                break;
+
+            case 0x94 /* lcmp */:
+            case 0x97 /* dcmpl */:
+            case 0x98 /* dcmpg */:
+                frame.pop(4);
+                frame.push(VerificationType.INTEGER);
+                break;
+
+            case 0x95 /* fcmpl */:
+            case 0x96 /* fcmpg */:
+                frame.pop(2);
+                frame.push(VerificationType.INTEGER);
+                break;
+
+            case 0x99 /* ifeq */:
+            case 0x9a /* ifne */:
+            case 0x9b /* iflt */:
+            case 0x9c /* ifge */:
+            case 0x9d /* ifgt */:
+            case 0x9e /* ifle */:
+            case 0xc6 /* ifnull */:
+            case 0xc7 /* ifnonnull */:
+                frame.pop(1);
+                break;
+
+            case 0x9f /* if_icmpeq */:
+            case 0xa0 /* if_icmpne */:
+            case 0xa1 /* if_icmplt */:
+            case 0xa2 /* if_icmpge */:
+            case 0xa3 /* if_icmpgt */:
+            case 0xa4 /* if_icmple */:
+            case 0xa5 /* if_acmpeq */:
+            case 0xa6 /* if_acmpne */:
+                frame.pop(2);
+                break;
+
+            case 0xa7 /* goto */:
+            case 0xc8 /* goto_w */:
+                break;
+
+            case 0xa8 /* jsr */:
+            case 0xa9 /* ret */:
+            case 0xc9 /* jsr_w */:
+                throw Error.invalidBytecode(_method, offset);
+
+            case 0xaa /* tableswitch */:
+            case 0xab /* lookupswitch */:
+                frame.pop(1);
+                break;
+
+            case 0xac /* ireturn */:
+            case 0xae /* freturn */:
+            case 0xb0 /* areturn */:
+            case 0xad /* lreturn */:
+            case 0xaf /* dreturn */:
+            case 0xb1 /* return */:
+            case 0xbf /* athrow */:
+                return;
+
+            case 0xb2 /* getstatic */:
+                frame.push(fromDescriptor(memberDescriptor(u2(offset + 1))));
+                break;
+
+            case 0xb3 /* putstatic */:
+                frame.pop(fromDescriptor(memberDescriptor(u2(offset + 1))).size());
+                break;
+
+            case 0xb4 /* getfield */:
+                frame.pop(1);
+                frame.push(fromDescriptor(memberDescriptor(u2(offset + 1))));
+                break;
+
+            case 0xb5 /* putfield */:
+                frame.pop(fromDescriptor(memberDescriptor(u2(offset + 1))).size() + 1);
+                break;
+
+            case 0xb6 /* invokevirtual */:
+            case 0xb7 /* invokespecial */:
+            case 0xb8 /* invokestatic */:
+            case 0xb9 /* invokeinterface */:
+            case 0xba /* invokedynamic */:
+                invoke(frame, opCode, u2(offset + 1));
+                break;
+
+            case 0xbb /* new */:
+                frame.push(VerificationType.uninitialized(offset));
+                break;
+
+            case 0xbc /* newarray */:
+                frame.pop(1);
+                frame.push(VerificationType.object(PRIMITIVE_ARRAY_TYPES[u1(offset + 1)]));
+                break;
+
+            case 0xbd /* anewarray */: {
+                final String elementType = typeName(u2(offset + 1));
+
+                frame.pop(1);
+                frame.push(
+                    VerificationType.object(
+                        elementType.charAt(0) == '['
+                        ? "[" + elementType
+                        : "[L" + elementType + ";"
+                    )
+                );
+                break;
+            }
+
+            case 0xbe /* arraylength */:
+            case 0xc1 /* instanceof */:
+                frame.pop(1);
+                frame.push(VerificationType.INTEGER);
+                break;
+
+            case 0xc0 /* checkcast */:
+                frame.pop(1);
+                frame.push(VerificationType.object(typeName(u2(offset + 1))));
+                break;
+
+            case 0xc2 /* monitorenter */:
+            case 0xc3 /* monitorexit */:
+                frame.pop(1);
+                break;
+
+            case 0xc4 /* wide */: {
+                final int wideOpCode = u1(offset + 1);
+                final int local = u2(offset + 2);
+
+                if (wideOpCode >= 0x15 /* iload */ && wideOpCode <= 0x19 /* aload */) {
+                    load(frame, wideOpCode - 0x15, local);
+                }
+                else if (wideOpCode >= 0x36 /* istore */ && wideOpCode <= 0x3a /* astore */) {
+                    store(frame, wideOpCode - 0x36, local);
+                }
+                else if (wideOpCode == 0xa9 /* ret */) {
+                    throw Error.invalidBytecode(_method, offset);
+                }
+                break;
+            }
+
+            case 0xc5 /* multianewarray */:
+                frame.pop(u1(offset + 3));
+                frame.push(VerificationType.object(typeName(u2(offset + 1))));
+                break;
+
+            case 0x7e /* iand */:
+            case 0x80 /* ior */:
+            case 0x82 /* ixor */:
+                frame.pop(1);
+                break;
+
+            case 0x7f /* land */:
+            case 0x81 /* lor */:
+            case 0x83 /* lxor */:
+                frame.pop(2);
+                break;
+
+            default:
+                if (opCode >= 0x60 /* iadd */ && opCode <= 0x73 /* drem */) {
+                    //
+                    // Arithmetic operators are grouped by operand type: int, long, float, double.
+                    //
+                    frame.pop((opCode - 0x60) % 2 == 0 ? 1 : 2);
+                    break;
+                }
+                throw Error.invalidBytecode(_method, offset);
+        }
+
+        if (isStore(opCode)) {
+            mergeHandlers(offset, frame);
+        }
+
+        final int next = offset + instructionLength(offset);
+
+        if (opCode != 0xa7 /* goto */ &&
+            opCode != 0xc8 /* goto_w */ &&
+            opCode != 0xaa /* tableswitch */ &&
+            opCode != 0xab /* lookupswitch */) {
+
+            merge(next, frame);
+        }
+
+        for (final int target : branchTargets(offset)) {
+            merge(target, frame);
+        }
+    }
+
+    private final static String[] PRIMITIVE_ARRAY_TYPES = {
+        null, null, null, null, "[Z", "[C", "[F", "[D", "[B", "[S", "[I", "[J"
+    };
+
+    private static boolean isStore(final int opCode) {
+        return (opCode >= 0x36 /* istore */ && opCode <= 0x4e /* astore_3 */) ||
+               opCode == 0xc4 /* wide */;
+    }
+
+    private void load(final Frame frame, final int kind, final int local) {
+        switch (kind) {
+            case 0:
+                frame.push(VerificationType.INTEGER);
+                break;
+            case 1:
+                frame.push(VerificationType.LONG);
+                break;
+            case 2:
+                frame.push(VerificationType.FLOAT);
+                break;
+            case 3:
+                frame.push(VerificationType.DOUBLE);
+                break;
+            default:
+                frame.push(frame.locals[local]);
+                break;
+        }
+    }
+
+    private void store(final Frame frame, final int kind, final int local) {
+        switch (kind) {
+            case 0:
+                frame.pop(1);
+                frame.setLocal(local, VerificationType.INTEGER);
+                break;
+            case 1:
+                frame.pop(2);
+                frame.setLocal(local, VerificationType.LONG);
+                break;
+            case 2:
+                frame.pop(1);
+                frame.setLocal(local, VerificationType.FLOAT);
+                break;
+            case 3:
+                frame.pop(2);
+                frame.setLocal(local, VerificationType.DOUBLE);
+                break;
+            default:
+                frame.setLocal(local, frame.pop());
+                break;
+        }
+    }
+
+    private void invoke(final Frame frame, final int opCode, final int token) {
+        final ConstantPool.NameAndTypeDescriptor nameAndType;
+
+        if (opCode == 0xba /* invokedynamic */) {
+            nameAndType = ((ConstantPool.InvokeDynamicInfo) _typeBuilder.constantPool.get(token)).getNameAndTypeDescriptor();
+        }
+        else {
+            nameAndType = ((ConstantPool.ReferenceEntry) _typeBuilder.constantPool.get(token)).getNameAndTypeInfo();
+        }
+
+        final String descriptor = nameAndType.getType();
+
+        int i = 1;
+
+        while (descriptor.charAt(i) != ')') {
+            final int end = descriptorEnd(descriptor, i);
+            frame.pop(fromDescriptor(descriptor.substring(i, end)).size());
+            i = end;
+        }
+
+        if (opCode != 0xb8 /* invokestatic */ && opCode != 0xba /* invokedynamic */) {
+            final VerificationType target = frame.pop();
+
+            if (opCode == 0xb7 /* invokespecial */ && "<init>".equals(nameAndType.getName())) {
+                final VerificationType initialized;
+
+                if (target.tag == VerificationType.ITEM_UNINITIALIZED_THIS) {
+                    initialized = VerificationType.object(_typeBuilder.getInternalName());
+                }
+                else if (target.tag == VerificationType.ITEM_UNINITIALIZED) {
+                    initialized = VerificationType.object(typeName(u2(target.offset + 1)));
+                }
+                else {
+                    initialized = target;
+                }
+
+                frame.replace(target, initialized);
+            }
+        }
+
+        if (descriptor.charAt(i + 1) != 'V') {
+            frame.push(fromDescriptor(descriptor.substring(i + 1)));
+        }
+    }
+
+    private VerificationType constantType(final int token) {
+        final ConstantPool.Entry entry = _typeBuilder.constantPool.get(token);
+
+        switch (entry.getTag()) {
+            case IntegerConstant:
+                return VerificationType.INTEGER;
+            case FloatConstant:
+                return VerificationType.FLOAT;
+            case LongConstant:
+                return VerificationType.LONG;
+            case DoubleConstant:
+                return VerificationType.DOUBLE;
+            case StringConstant:
+                return VerificationType.object("java/lang/String");
+            case TypeInfo:
+                return VerificationType.object("java/lang/Class");
+            case MethodType:
+                return VerificationType.object("java/lang/invoke/MethodType");
+            case MethodHandle:
+                return VerificationType.object("java/lang/invoke/MethodHandle");
+            default:
+                throw Error.invalidConstantForLoad(entry);
+        }
+    }
+
+    private String memberDescriptor(final int token) {
+        return ((ConstantPool.ReferenceEntry) _typeBuilder.constantPool.get(token)).getNameAndTypeInfo().getType();
+    }
+
+    private String typeName(final int token) {
+        return ((ConstantPool.TypeInfo) _typeBuilder.constantPool.get(token, ConstantPool.Tag.TypeInfo)).getName();
+    }
+
+    private static VerificationType elementType(final VerificationType arrayType) {
+        if (arrayType.tag == VerificationType.ITEM_OBJECT && arrayType.className.charAt(0) == '[') {
+            return fromDescriptor(arrayType.className.substring(1));
+        }
+
+        if (arrayType.tag == VerificationType.ITEM_NULL) {
+            return VerificationType.NULL;
+        }
+
+        return VerificationType.object(OBJECT);
+    }
+
+    private static int descriptorEnd(final String descriptor, final int start) {
+        int i = start;
+
+        while (descriptor.charAt(i) == '[') {
+            ++i;
+        }
+
+        if (descriptor.charAt(i) == 'L') {
+            i = descriptor.indexOf(';', i);
+        }
+
+        return i + 1;
+    }
+
+    private static VerificationType fromDescriptor(final String descriptor) {
+        switch (descriptor.charAt(0)) {
+            case 'Z':
+            case 'B':
+            case 'C':
+            case 'S':
+            case 'I':
+                return VerificationType.INTEGER;
+            case 'F':
+                return VerificationType.FLOAT;
+            case 'J':
+                return VerificationType.LONG;
+            case 'D':
+                return VerificationType.DOUBLE;
+            case 'L':
+                return VerificationType.object(descriptor.substring(1, descriptor.length() - 1));
+            default:
+                return VerificationType.object(descriptor);
+        }
+    }
+
+    private int u1(final int offset) {
+        return _code[offset] & 0xFF;
+    }
+
+    private int u2(final int offset) {
+        return ((_code[offset] & 0xFF) << 8) | (_code[offset + 1] & 0xFF);
+    }
+
+    private int s2(final int offset) {
+        return (short) u2(offset);
+    }
+
+    private int s4(final int offset) {
+        return ((_code[offset] & 0xFF) << 24) |
+               ((_code[offset + 1] & 0xFF) << 16) |
+               ((_code[offset + 2] & 0xFF) << 8) |
+               (_code[offset + 3] & 0xFF);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // TYPE MERGING                                                                                                       //
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private VerificationType mergeTypes(final VerificationType a, final VerificationType b) {
+        if (a.equals(b)) {
+            return a;
+        }
+
+        if (a.tag == VerificationType.ITEM_NULL && b.tag == VerificationType.ITEM_OBJECT) {
+            return b;
+        }
+
+        if (b.tag == VerificationType.ITEM_NULL && a.tag == VerificationType.ITEM_OBJECT) {
+            return a;
+        }
+
+        if (a.tag == VerificationType.ITEM_OBJECT && b.tag == VerificationType.ITEM_OBJECT) {
+            return VerificationType.object(commonSuperClass(a.className, b.className));
+        }
+
+        return VerificationType.TOP;
+    }
+
+    private String commonSuperClass(final String a, final String b) {
+        final boolean aIsArray = a.charAt(0) == '[';
+        final boolean bIsArray = b.charAt(0) == '[';
+
+        if (aIsArray && bIsArray) {
+            final VerificationType aElement = fromDescriptor(a.substring(1));
+            final VerificationType bElement = fromDescriptor(b.substring(1));
+
+            if (aElement.tag == VerificationType.ITEM_OBJECT && bElement.tag == VerificationType.ITEM_OBJECT) {
+                final String element = commonSuperClass(aElement.className, bElement.className);
+
+                return element.charAt(0) == '[' ? "[" + element : "[L" + element + ";";
+            }
+
+            return OBJECT;
+        }
+
+        if (aIsArray || bIsArray) {
+            return OBJECT;
+        }
+
+        final Type<?> aType = resolveType(a);
+        final Type<?> bType = resolveType(b);
+
+        if (aType == null || bType == null || aType.isInterface() || bType.isInterface()) {
+            //
+            // The verifier treats interfaces like `Object`, so this is always safe.
+            //
+            return OBJECT;
+        }
+
+        final Set<String> aHierarchy = new HashSet<>();
+
+        for (Type<?> t = aType; t != null; t = t.getBaseType()) {
+            aHierarchy.add(t.getErasedType().getInternalName());
+        }
+
+        for (Type<?> t = bType; t != null; t = t.getBaseType()) {
+            final String name = t.getErasedType().getInternalName();
+
+            if (aHierarchy.contains(name)) {
+                return name;
+            }
+        }
+
+        return OBJECT;
+    }
+
+    private Type<?> resolveType(final String internalName) {
+        if (internalName.equals(_typeBuilder.getInternalName())) {
+            return _typeBuilder;
+        }
+
+        final ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+
+        try {
+            return Type.of(
+                Class.forName(
+                    internalName.replace('/', '.'),
+                    false,
+                    contextLoader != null ? contextLoader : StackMapTableWriter.class.getClassLoader()
+                )
+            );
+        }
+        catch (final ClassNotFoundException | LinkageError ignored) {
+            return null;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // FRAMES                                                                                                             //
+    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private final class Frame {
+        final VerificationType[] locals;
+        VerificationType[] stack;
+        int stackSize;
+
+        Frame(final int maxLocals, final int stackCapacity) {
+            this.locals = new VerificationType[maxLocals];
+            this.stack = new VerificationType[Math.max(stackCapacity, 4)];
+            Arrays.fill(this.locals, VerificationType.TOP);
+        }
+
+        private Frame(final Frame other) {
+            this.locals = other.locals.clone();
+            this.stack = other.stack.clone();
+            this.stackSize = other.stackSize;
+        }
+
+        Frame copy() {
+            return new Frame(this);
+        }
+
+        void setLocal(final int index, final VerificationType type) {
+            if (index > 0 && locals[index - 1].size() == 2) {
+                locals[index - 1] = VerificationType.TOP;
+            }
+
+            locals[index] = type;
+
+            if (type.size() == 2) {
+                locals[index + 1] = VerificationType.TOP;
+            }
+        }
+
+        void push(final VerificationType type) {
+            pushSlot(type);
+
+            if (type.size() == 2) {
+                pushSlot(VerificationType.TOP);
+            }
+        }
+
+        void pushSlots(final VerificationType... types) {
+            for (final VerificationType type : types) {
+                pushSlot(type);
+            }
+        }
+
+        private void pushSlot(final VerificationType type) {
+            if (stackSize == stack.length) {
+                stack = CodeGenerator.enlargeArray(stack);
+            }
+            stack[stackSize++] = type;
+        }
+
+        VerificationType pop() {
+            return stack[--stackSize];
+        }
+
+        void pop(final int slots) {
+            stackSize -= slots;
+        }
+
+        void replace(final VerificationType oldType, final VerificationType newType) {
+            for (int i = 0; i < locals.length; i++) {
+                if (locals[i].equals(oldType)) {
+                    locals[i] = newType;
+                }
+            }
+
+            for (int i = 0; i < stackSize; i++) {
+                if (stack[i].equals(oldType)) {
+                    stack[i] = newType;
+                }
+            }
+        }
+
+        boolean merge(final Frame other) {
+            boolean changed = false;
+
+            for (int i = 0; i < locals.length; i++) {
+                final VerificationType merged = mergeTypes(locals[i], other.locals[i]);
+
+                if (!merged.equals(locals[i])) {
+                    locals[i] = merged;
+                    changed = true;
+                }
+            }
+
+            for (int i = 0; i < stackSize; i++) {
+                final VerificationType merged = mergeTypes(stack[i], other.stack[i]);
+
+                if (!merged.equals(stack[i])) {
+                    stack[i] = merged;
+                    changed = true;
+                }
+            }
+
+            return changed;
+        }
+
+        List<VerificationType> getLocals() {
+            final List<VerificationType> result = toList(locals, locals.length);
+
+            while (!result.isEmpty() && result.get(result.size() - 1).tag == VerificationType.ITEM_TOP) {
+                result.remove(result.size() - 1);
+            }
+
+            return result;
+        }
+
+        List<VerificationType> getStack() {
+            return toList(stack, stackSize);
+        }
+
+        private List<VerificationType> toList(final VerificationType[] slots, final int count) {
+            final List<VerificationType> result = new ArrayList<>(count);
+
+            for (int i = 0; i < count; i += slots[i].size()) {
+                result.add(slots[i]);
+            }
+
+            return result;
+        }
+    }
+
+    private final static class VerificationType {
+        final static int ITEM_TOP = 0;
+        final static int ITEM_INTEGER = 1;
+        final static int ITEM_FLOAT = 2;
+        final static int ITEM_DOUBLE = 3;
+        final static int ITEM_LONG = 4;
+        final static int ITEM_NULL = 5;
+        final static int ITEM_UNINITIALIZED_THIS = 6;
+        final static int ITEM_OBJECT = 7;
+        final static int ITEM_UNINITIALIZED = 8;
+
+        final static VerificationType TOP = new VerificationType(ITEM_TOP, null, 0);
+        final static VerificationType INTEGER = new VerificationType(ITEM_INTEGER, null, 0);
+        final static VerificationType FLOAT = new VerificationType(ITEM_FLOAT, null, 0);
+        final static VerificationType DOUBLE = new VerificationType(ITEM_DOUBLE, null, 0);
+        final static VerificationType LONG = new VerificationType(ITEM_LONG, null, 0);
+        final static VerificationType NULL = new VerificationType(ITEM_NULL, null, 0);
+        final static VerificationType UNINITIALIZED_THIS = new VerificationType(ITEM_UNINITIALIZED_THIS, null, 0);
+
+        final int tag;
+        final String className;
+        final int offset;
+
+        private VerificationType(final int tag, final String className, final int offset) {
+            this.tag = tag;
+            this.className = className;
+            this.offset = offset;
+        }
+
+        static VerificationType object(final String className) {
+            return new VerificationType(ITEM_OBJECT, className, 0);
+        }
+
+        static VerificationType uninitialized(final int offset) {
+            return new VerificationType(ITEM_UNINITIALIZED, null, offset);
+        }
+
+        int size() {
+            return tag == ITEM_LONG || tag == ITEM_DOUBLE ? 2 : 1;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof VerificationType)) {
+                return false;
+            }
+
+            final VerificationType that = (VerificationType) o;
+
+            return tag == that.tag &&
+                   offset == that.offset &&
+                   (className == null ? that.className == null : className.equals(that.className));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * tag + offset) + (className != null ? className.hashCode() : 0);
+        }
+    }
+}
@@ -47,6 +47,7 @@ public final class TypeBuilder<T> extends Type<T> {
     private final static String DumpGeneratedClassesProperty = "com.strobel.reflection.emit.TypeBuilder.DumpGeneratedClasses";
     private final static String GeneratedClassOutputPathProperty = "com.strobel.reflection.emit.TypeBuilder.GeneratedClassOutputPath";
     private final static String VerifyGeneratedClassesProperty = "com.strobel.reflection.emit.TypeBuilder.VerifyGeneratedClasses";
+    private final static String TargetVersionProperty = "com.strobel.reflection.emit.TypeBuilder.TargetVersion";
 
     final ConstantPool constantPool;
     final ArrayList<ConstructorBuilder> constructorBuilders;
@@ -71,6 +72,7 @@ public final class TypeBuilder<T> extends Type<T> {
     private Class<T> _generatedClass;
     private Type<T> _generatedType;
     private Type<?> _extendsBound;
+    private CompilationTarget _compilationTarget;
 
     private int _genericParameterPosition;
     private boolean _isGenericParameter;
@@ -710,6 +712,48 @@ public final class TypeBuilder<T> extends Type<T> {
         return _hasBeenCreated;
     }
 
+    /**
+     * Gets the class file version targeted by this type, e.g., {@code "1.7"}.  Unless set explicitly,
+     * the target is taken from the {@code com.strobel.reflection.emit.TypeBuilder.TargetVersion} system
+     * property, falling back to {@code 1.7}.  Targets of {@code 1.6} and above include {@code StackMapTable}
+     * frames in every method body, letting the VM skip the slower type-inferencing verifier.
+     */
+    public final String getTargetVersion() {
+        return getCompilationTarget().name;
+    }
+
+    public final void setTargetVersion(final String version) {
+        verifyNotCreated();
+
+        final CompilationTarget target = CompilationTarget.lookup(VerifyArgument.notNull(version, "version"));
+
+        if (target == null) {
+            throw Error.unsupportedTargetVersion(version);
+        }
+
+        _compilationTarget = target;
+    }
+
+    final CompilationTarget getCompilationTarget() {
+        if (_compilationTarget != null) {
+            return _compilationTarget;
+        }
+
+        final String version = System.getProperty(TargetVersionProperty);
+
+        if (version != null) {
+            final CompilationTarget target = CompilationTarget.lookup(version);
+
+            if (target == null) {
+                throw Error.unsupportedTargetVersion(version);
+            }
+
+            return target;
+        }
+
+        return CompilationTarget.DEFAULT;
+    }
+
     public synchronized Type<T> createType() {
         try {
             return createTypeNoLock(null);
@@ -15,7 +15,9 @@ package com.strobel.reflection;
 
 import org.junit.Test;
 
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -169,4 +171,71 @@ public class ReflectionTests {
         assertSame(gd, uea);
         assertSame(gd, uia);
     }
+
+    @Test
+    public void testNamedMemberLookupsUseResolvedOverrides() throws Throwable {
+        final Type<?> t = Types.ArrayList;
+        final MethodInfo size = t.getMethod("size");
+
+        assertNotNull(size);
+        assertSame(size, t.getMethod("size"));
+        assertSame(size, t.getMethod("SIZE", EnumSet.of(BindingFlags.Public, BindingFlags.Instance, BindingFlags.IgnoreCase)));
+        assertTrue(t.getMethods().contains(size));
+
+        final MethodInfo toString = t.getMethod("toString");
+
+        assertNotNull(toString);
+        assertEquals(AbstractCollection.class, toString.getDeclaringType().getErasedClass());
+
+        assertNull(t.getMethod("noSuchMethod"));
+        assertNull(t.getField("noSuchField"));
+    }
+
+    private static <T> MethodBase getCachedMethod(final Type<T> type, final MethodInfo method) {
+        return type.getCache().getMethod(type, method);
+    }
+
+    @Test
+    public void testMembersHandedOutBeforeIndexStayCanonical() throws Throwable {
+        final MethodInfo size = Types.ArrayList.getMethod("size");
+        final Type<?> t = Types.ArrayList.makeGenericType(Types.Integer);
+
+        //
+        // Resolve a handle before anything has populated the member index of this type.
+        //
+        final MethodBase early = getCachedMethod(t, size);
+
+        assertNotNull(early);
+        assertSame(early, getCachedMethod(t, size));
+
+        boolean found = false;
+
+        for (final MethodInfo method : t.getMethods()) {
+            found |= method == early;
+        }
+
+        assertTrue(found);
+        assertSame(early, t.getMethod("size"));
+    }
+
+    @Test
+    public void testMemberListsAreImmutable() throws Throwable {
+        final Type<?> t = Types.ArrayList;
+
+        try {
+            t.getCache().getMethodList(MemberListType.All, null).clear();
+            fail("Expected the member list to be unmodifiable.");
+        }
+        catch (final UnsupportedOperationException ignored) {
+        }
+
+        try {
+            t.getCache().getFieldList(MemberListType.CaseSensitive, "noSuchField").add(null);
+            fail("Expected the empty member list to be unmodifiable.");
+        }
+        catch (final UnsupportedOperationException ignored) {
+        }
+
+        assertNotNull(t.getMethod("size"));
+    }
 }
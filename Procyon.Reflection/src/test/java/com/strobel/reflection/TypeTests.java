@@ -18,6 +18,7 @@ import org.junit.Test;
 import javax.lang.model.type.TypeKind;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import static com.strobel.core.CollectionUtilities.first;
 import static java.lang.String.format;
@@ -318,6 +319,67 @@ public final class TypeTests {
         assertEquals(gn.makeGenericType(fn), fn.getBaseType());
     }
 
+    @Test
+    public void testConcurrentResolutionYieldsSameInstance() throws Throwable {
+        final Class<?>[] classes = {
+            ConcurrentA.class, ConcurrentB.class, ConcurrentB[].class, ConcurrentC.class, ConcurrentC[][].class
+        };
+
+        final int threadCount = 8;
+        final Type<?>[][] results = new Type<?>[threadCount][classes.length];
+        final Throwable[] failure = new Throwable[1];
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[threadCount];
+
+        for (int i = 0; i < threadCount; i++) {
+            final int index = i;
+
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+
+                        for (int j = 0; j < classes.length; j++) {
+                            final Type<?> t = Type.of(classes[(j + index) % classes.length]);
+
+                            t.getMethods();
+                            t.getBaseType();
+                            results[index][(j + index) % classes.length] = t;
+                        }
+                    }
+                    catch (final Throwable t) {
+                        synchronized (failure) {
+                            failure[0] = t;
+                        }
+                    }
+                }
+            };
+
+            threads[i].start();
+        }
+
+        start.countDown();
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+
+        for (int j = 0; j < classes.length; j++) {
+            final Type<?> expected = Type.of(classes[j]);
+
+            for (int i = 0; i < threadCount; i++) {
+                assertSame(expected, results[i][j]);
+            }
+        }
+
+        assertSame(Type.of(ConcurrentB.class).makeArrayType(), Type.of(ConcurrentB[].class));
+    }
+
     private void testSignatureRoundTrip(final Type<?> t) {
         final String signature = t.getSignature();
         final Type<?> resolvedType = Type.forName(signature);
@@ -346,6 +408,16 @@ public final class TypeTests {
         class C extends B {}
     }
 
+    private static class ConcurrentA<T extends Comparable<T>> {
+        T value;
+    }
+
+    private static class ConcurrentB extends ConcurrentA<String> implements Runnable {
+        public void run() {}
+    }
+
+    private static class ConcurrentC<X extends ConcurrentC<X>> extends ConcurrentB {}
+
     private static class G<N extends G.Node<N>> {
         static class Node<N extends Node<N>> {
         }
@@ -22,8 +22,12 @@ import com.strobel.reflection.TypeList;
 import com.strobel.reflection.Types;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -413,4 +417,81 @@ public final class TypeBuilderTests {
         assertTrue(typeVariableArray.isEquivalentTo(createdTypeVariableArray));
         assertTrue(createdTypeVariableArray.isEquivalentTo(typeVariableArray));
     }
+
+    @Test
+    public void testStackMapFramesAreVerifiable() throws Throwable {
+        final TypeBuilder<?> type = new TypeBuilder<>(
+            TypeBuilderTests.class.getPackage().getName() + ".TestStackMapFrames",
+            Modifier.PUBLIC | Modifier.FINAL
+        );
+
+        type.setTargetVersion("1.7");
+
+        final MethodBuilder method = type.defineMethod(
+            "parse",
+            Modifier.PUBLIC | Modifier.STATIC,
+            PrimitiveTypes.Integer,
+            Type.list(Types.String)
+        );
+
+        final MethodInfo parseInt = Type.of(Integer.class).getMethod("parseInt", Types.String);
+        final CodeGenerator g = method.getCodeGenerator();
+        final LocalBuilder result = g.declareLocal("result", PrimitiveTypes.Integer);
+        final Label small = g.defineLabel();
+
+        g.beginExceptionBlock();
+        g.emitLoadArgument(0);
+        g.call(OpCode.INVOKESTATIC, parseInt);
+        g.emitStore(result);
+        g.beginCatchBlock(Type.of(NumberFormatException.class));
+        g.pop();
+        g.emitInteger(-1);
+        g.emitStore(result);
+        g.endExceptionBlock();
+
+        g.emitLoad(result);
+        g.emitInteger(10);
+        g.emit(OpCode.IF_ICMPLE, small);
+        g.emitLoad(result);
+        g.emitInteger(2);
+        g.emit(OpCode.IMUL);
+        g.emitStore(result);
+        g.markLabel(small);
+        g.emitLoad(result);
+        g.emitReturn(PrimitiveTypes.Integer);
+
+        //
+        // Unreachable code must still be describable by the stack map.
+        //
+        g.emitInteger(0);
+        g.emitReturn(PrimitiveTypes.Integer);
+
+        final File classFile = File.createTempFile("TestStackMapFrames", ".class");
+
+        try {
+            final Method createdMethod = type.createType(classFile).getErasedClass().getMethod("parse", String.class);
+
+            assertEquals(42, createdMethod.invoke(null, "21"));
+            assertEquals(3, createdMethod.invoke(null, "3"));
+            assertEquals(-1, createdMethod.invoke(null, "x"));
+
+            try (final InputStream in = new FileInputStream(classFile)) {
+                final byte[] header = new byte[8];
+
+                assertEquals(8, in.read(header));
+                assertEquals(51, ((header[6] & 0xFF) << 8) | (header[7] & 0xFF));
+            }
+        }
+        finally {
+            assertTrue(classFile.delete());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedTargetVersion() throws Throwable {
+        new TypeBuilder<>(
+            TypeBuilderTests.class.getPackage().getName() + ".TestUnsupportedTargetVersion",
+            Modifier.PUBLIC | Modifier.FINAL
+        ).setTargetVersion("0.9");
+    }
 }